@@ -0,0 +1,90 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.benchmarks;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+import kieker.monitoring.writer.AbstractMonitoringWriter;
+
+/**
+ * A writer which discards all records but counts them, so that a benchmark can report the rate of records reaching the
+ * writer. The count is striped over padded cells by thread, so that counting does not become the bottleneck with many
+ * threads.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class CountingNullWriter extends AbstractMonitoringWriter {
+
+	private static final int STRIPES = 64;
+	/** Cells per stripe; one cache line of longs. */
+	private static final int PADDING = 8;
+
+	private static final AtomicLongArray COUNTS = new AtomicLongArray(STRIPES * PADDING);
+
+	public CountingNullWriter(final Configuration configuration) {
+		super(configuration);
+	}
+
+	/**
+	 * @return The number of records written to all instances so far.
+	 */
+	public static long getRecordCount() {
+		long count = 0;
+		for (int stripe = 0; stripe < STRIPES; stripe++) {
+			count += COUNTS.get(stripe * PADDING);
+		}
+		return count;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void init() throws Exception {
+		// nothing to initialize
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean newMonitoringRecord(final IMonitoringRecord record) {
+		COUNTS.incrementAndGet((int) (Thread.currentThread().getId() % STRIPES) * PADDING);
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean newMonitoringRecordNonBlocking(final IMonitoringRecord record) {
+		return this.newMonitoringRecord(record);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void terminate() {
+		// nothing to release
+	}
+}
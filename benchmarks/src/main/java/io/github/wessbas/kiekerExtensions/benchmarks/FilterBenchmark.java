@@ -0,0 +1,116 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.benchmarks;
+
+import io.github.wessbas.kiekerExtensions.probe.SessionAndTraceRegistrationFilterSPECjEnterprise;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.controller.MonitoringController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Measures the overhead of {@link SessionAndTraceRegistrationFilterSPECjEnterprise#doFilter} around an empty filter chain,
+ * for several filter configurations. Kieker uses a writer that discards all records, so that only the probe is
+ * measured. The configuration {@code disabled} serves as baseline.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {
+	"-Dkieker.monitoring.writer=kieker.monitoring.writer.DummyWriter",
+	"-Dkieker.monitoring.adaptiveMonitoring.enabled=true", // required to deactivate the probe
+})
+public class FilterBenchmark {
+
+	private static final FilterChain EMPTY_CHAIN = new FilterChain() {
+		public void doFilter(final ServletRequest request, final ServletResponse response) {
+			// nothing to do
+		}
+	};
+
+	/**
+	 * The configuration of monitoring and filter, see {@link FilterConfigurations}.
+	 */
+	@Param({ "disabled", "probeDeactivated", "full", "merged", "compact", "sampled", "asyncHandoff" })
+	private String configuration;
+
+	private IMonitoringController monitoringController;
+	private SessionAndTraceRegistrationFilterSPECjEnterprise filter;
+
+	/**
+	 * The requests of a benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class Requests {
+		private final MockHttpServletRequest[] requests = SpecjRequests.createRequests(SpecjRequests.DEFAULT_COUNT);
+		private final MockHttpServletResponse response = new MockHttpServletResponse();
+		private int next;
+
+		MockHttpServletRequest next() {
+			final MockHttpServletRequest request = this.requests[this.next];
+			this.next = (this.next + 1) % this.requests.length;
+			return request;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws ServletException {
+		this.monitoringController = MonitoringController.getInstance();
+		this.filter = FilterConfigurations.createFilter(this.configuration, this.monitoringController);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		FilterConfigurations.destroyFilter(this.filter, this.monitoringController);
+	}
+
+	@Benchmark
+	public void doFilter(final Requests requests) throws IOException, ServletException {
+		this.filter.doFilter(requests.next(), requests.response, EMPTY_CHAIN);
+	}
+}
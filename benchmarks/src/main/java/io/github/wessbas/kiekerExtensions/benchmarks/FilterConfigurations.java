@@ -0,0 +1,92 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.benchmarks;
+
+import io.github.wessbas.kiekerExtensions.probe.SessionAndTraceRegistrationFilterSPECjEnterprise;
+
+import javax.servlet.ServletException;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+
+import org.springframework.mock.web.MockFilterConfig;
+
+/**
+ * The configurations of monitoring and filter compared by the benchmarks:
+ * <ul>
+ * <li>{@code disabled}: monitoring is disabled</li>
+ * <li>{@code probeDeactivated}: the filter's probe is deactivated</li>
+ * <li>{@code full}: every request is traced (the default configuration)</li>
+ * <li>{@code merged}: every request is traced, using the merged record</li>
+ * <li>{@code compact}: every request is traced, using the compact servlet entry record</li>
+ * <li>{@code sampled}: 10% of the requests are traced</li>
+ * <li>{@code asyncHandoff}: every request is traced, records are written by the handoff's drainer</li>
+ * </ul>
+ * The configuration {@code probeDeactivated} requires adaptive monitoring to be enabled.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class FilterConfigurations {
+
+	static final String FILTER_PROBE_PATTERN = "* " + SessionAndTraceRegistrationFilterSPECjEnterprise.class.getName() + ".doFilter(..)";
+
+	private FilterConfigurations() {
+		// utility class
+	}
+
+	/**
+	 * Configures monitoring and creates the filter for the given configuration.
+	 */
+	static SessionAndTraceRegistrationFilterSPECjEnterprise createFilter(final String configuration, final IMonitoringController monitoringController)
+			throws ServletException {
+		final MockFilterConfig config = new MockFilterConfig();
+		config.addInitParameter(SessionAndTraceRegistrationFilterSPECjEnterprise.CONFIG_PROPERTY_NAME_LOG_FILTER_EXECUTION, "true");
+		if ("disabled".equals(configuration)) {
+			monitoringController.disableMonitoring();
+		} else if ("probeDeactivated".equals(configuration)) {
+			if (!monitoringController.deactivateProbe(FILTER_PROBE_PATTERN)) {
+				throw new IllegalStateException("Failed to deactivate the probe; is adaptive monitoring enabled?");
+			}
+		} else if ("merged".equals(configuration)) {
+			config.addInitParameter(SessionAndTraceRegistrationFilterSPECjEnterprise.CONFIG_PROPERTY_NAME_RECORD_MODE, "merged");
+		} else if ("compact".equals(configuration)) {
+			config.addInitParameter(SessionAndTraceRegistrationFilterSPECjEnterprise.CONFIG_PROPERTY_NAME_COMPACT_SERVLET_ENTRY_RECORDS, "true");
+		} else if ("sampled".equals(configuration)) {
+			config.addInitParameter(SessionAndTraceRegistrationFilterSPECjEnterprise.CONFIG_PROPERTY_NAME_SAMPLING_MODE, "probability");
+			config.addInitParameter(SessionAndTraceRegistrationFilterSPECjEnterprise.CONFIG_PROPERTY_NAME_SAMPLING_PROBABILITY, "0.1");
+		} else if ("asyncHandoff".equals(configuration)) {
+			config.addInitParameter(SessionAndTraceRegistrationFilterSPECjEnterprise.CONFIG_PROPERTY_NAME_ASYNC_RECORD_HANDOFF, "true");
+		} else if (!"full".equals(configuration)) {
+			throw new IllegalArgumentException("Unknown configuration " + configuration);
+		}
+		final SessionAndTraceRegistrationFilterSPECjEnterprise filter = new SessionAndTraceRegistrationFilterSPECjEnterprise();
+		filter.init(config);
+		return filter;
+	}
+
+	/**
+	 * Destroys the filter and restores the default state of monitoring.
+	 */
+	static void destroyFilter(final SessionAndTraceRegistrationFilterSPECjEnterprise filter, final IMonitoringController monitoringController) {
+		filter.destroy();
+		monitoringController.activateProbe(FILTER_PROBE_PATTERN);
+		monitoringController.enableMonitoring();
+	}
+}
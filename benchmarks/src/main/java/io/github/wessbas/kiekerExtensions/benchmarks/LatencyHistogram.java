@@ -0,0 +1,119 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of latencies in nanoseconds with a relative precision of about 3%: values are counted in buckets whose
+ * width is 1/32 of the power of two below the value. Recording is allocation-free; instances are not thread-safe,
+ * hence each thread records into its own histogram and the histograms are merged afterwards.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS];
+	private long totalCount;
+	private long max;
+
+	LatencyHistogram() {
+		// empty histogram
+	}
+
+	void record(final long nanos) {
+		final long value = Math.max(nanos, 0);
+		this.counts[LatencyHistogram.indexOf(value)]++;
+		this.totalCount++;
+		if (value > this.max) {
+			this.max = value;
+		}
+	}
+
+	void add(final LatencyHistogram other) {
+		for (int i = 0; i < this.counts.length; i++) {
+			this.counts[i] += other.counts[i];
+		}
+		this.totalCount += other.totalCount;
+		this.max = Math.max(this.max, other.max);
+	}
+
+	void reset() {
+		Arrays.fill(this.counts, 0);
+		this.totalCount = 0;
+		this.max = 0;
+	}
+
+	long getTotalCount() {
+		return this.totalCount;
+	}
+
+	long getMax() {
+		return this.max;
+	}
+
+	/**
+	 * @param percentile
+	 *            The percentile, between 0 and 100.
+	 *
+	 * @return The upper bound of the bucket containing the percentile (at most the maximum), or 0 if nothing has been
+	 *         recorded.
+	 */
+	long getPercentile(final double percentile) {
+		if (this.totalCount == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil((percentile / 100) * this.totalCount));
+		long count = 0;
+		for (int i = 0; i < this.counts.length; i++) {
+			count += this.counts[i];
+			if (count >= rank) {
+				return Math.min(LatencyHistogram.upperBoundOf(i), this.max);
+			}
+		}
+		return this.max;
+	}
+
+	/**
+	 * Values below {@link #SUB_BUCKETS} have a bucket of their own; above, the bucket is given by the position of the
+	 * highest bit and the {@link #SUB_BUCKET_BITS} bits below it.
+	 */
+	private static int indexOf(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int highestBit = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+		final int shift = highestBit - SUB_BUCKET_BITS;
+		return ((shift + 1) * SUB_BUCKETS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	private static long upperBoundOf(final int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		final int shift = (index / SUB_BUCKETS) - 1;
+		final long subBucket = index % SUB_BUCKETS;
+		return (((SUB_BUCKETS + subBucket + 1) << shift) - 1);
+	}
+}
@@ -0,0 +1,424 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.benchmarks;
+
+import io.github.wessbas.kiekerExtensions.probe.SessionAndTraceRegistrationFilterSPECjEnterprise;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.controller.MonitoringController;
+
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+
+/**
+ * Replays a SPECjEnterprise request mix through {@link SessionAndTraceRegistrationFilterSPECjEnterprise} with an
+ * in-process mock filter chain, at a given number of threads and, optionally, a given arrival rate, and reports the
+ * throughput, the latency percentiles and the rate of records reaching the writer for each of the given configurations.
+ * Besides the configurations of {@link FilterConfigurations}, the configuration {@code none} calls the chain without the
+ * filter and serves as baseline.
+ *
+ * The sessions are either generated with the dealer driver's action mix or read from a session log. Each thread replays
+ * its share of the sessions in turn, one request of a session after the other. With an arrival rate, requests are
+ * scheduled at fixed intervals and their latency is measured from the scheduled start, so that a stalled thread shows
+ * up in the latencies instead of lowering the load; without, every thread sends its next request as soon as the
+ * previous one completes.
+ *
+ * Unless {@code kieker.monitoring.writer} is set, Kieker writes to the {@link CountingNullWriter}, which provides the
+ * record rate; with any other writer, the record rate is reported as 0.
+ *
+ * <pre>
+ * LoadReplayHarness [-c &lt;configurations&gt;] [-t &lt;threads&gt;] [-s &lt;sessions&gt;] [-n &lt;requests per session&gt;]
+ *                   [-l &lt;session log&gt;] [-r &lt;requests per second&gt;] [-x &lt;service time in microseconds&gt;]
+ *                   [-w &lt;warmup seconds&gt;] [-d &lt;measurement seconds&gt;] [-o &lt;CSV file&gt;]
+ * </pre>
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class LoadReplayHarness {
+
+	private static final String WRITER_PROPERTY = "kieker.monitoring.writer";
+	private static final String ADAPTIVE_MONITORING_PROPERTY = "kieker.monitoring.adaptiveMonitoring.enabled";
+
+	private static final String BASELINE_CONFIGURATION = "none";
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private static final int PHASE_WARMUP = 0;
+	private static final int PHASE_MEASUREMENT = 1;
+	private static final int PHASE_STOPPED = 2;
+
+	private final ReplayWorkload workload;
+	private final int threads;
+	private final double requestsPerSecond;
+	private final long serviceNanos;
+	private final long warmupMillis;
+	private final long measurementMillis;
+
+	private volatile int phase;
+
+	private LoadReplayHarness(final ReplayWorkload workload, final int threads, final double requestsPerSecond, final long serviceNanos,
+			final long warmupMillis, final long measurementMillis) {
+		this.workload = workload;
+		this.threads = threads;
+		this.requestsPerSecond = requestsPerSecond;
+		this.serviceNanos = serviceNanos;
+		this.warmupMillis = warmupMillis;
+		this.measurementMillis = measurementMillis;
+	}
+
+	public static void main(final String[] args) throws IOException, ServletException, InterruptedException {
+		String configurations = BASELINE_CONFIGURATION + ",disabled,full,sampled";
+		int threads = Runtime.getRuntime().availableProcessors();
+		int sessions = 2000;
+		int requestsPerSession = 20;
+		String sessionLog = null;
+		double requestsPerSecond = 0;
+		long serviceMicros = 0;
+		long warmupSeconds = 10;
+		long measurementSeconds = 30;
+		String csvFile = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if ("-c".equals(args[i]) && (i + 1 < args.length)) {
+					configurations = args[++i];
+				} else if ("-t".equals(args[i]) && (i + 1 < args.length)) {
+					threads = Integer.parseInt(args[++i]);
+				} else if ("-s".equals(args[i]) && (i + 1 < args.length)) {
+					sessions = Integer.parseInt(args[++i]);
+				} else if ("-n".equals(args[i]) && (i + 1 < args.length)) {
+					requestsPerSession = Integer.parseInt(args[++i]);
+				} else if ("-l".equals(args[i]) && (i + 1 < args.length)) {
+					sessionLog = args[++i];
+				} else if ("-r".equals(args[i]) && (i + 1 < args.length)) {
+					requestsPerSecond = Double.parseDouble(args[++i]);
+				} else if ("-x".equals(args[i]) && (i + 1 < args.length)) {
+					serviceMicros = Long.parseLong(args[++i]);
+				} else if ("-w".equals(args[i]) && (i + 1 < args.length)) {
+					warmupSeconds = Long.parseLong(args[++i]);
+				} else if ("-d".equals(args[i]) && (i + 1 < args.length)) {
+					measurementSeconds = Long.parseLong(args[++i]);
+				} else if ("-o".equals(args[i]) && (i + 1 < args.length)) {
+					csvFile = args[++i];
+				} else {
+					throw new IllegalArgumentException("Unknown option " + args[i]);
+				}
+			}
+			if ((threads <= 0) || (sessions <= 0) || (requestsPerSession <= 0) || (measurementSeconds <= 0)) {
+				throw new IllegalArgumentException("Threads, sessions, requests per session and duration must be positive");
+			}
+		} catch (final IllegalArgumentException ex) {
+			System.err.println(ex.getMessage()); // NOPMD (command line tool)
+			System.err.println("Usage: " + LoadReplayHarness.class.getName() // NOPMD (command line tool)
+					+ " [-c <configurations>] [-t <threads>] [-s <sessions>] [-n <requests per session>] [-l <session log>]"
+					+ " [-r <requests per second>] [-x <service time in microseconds>] [-w <warmup seconds>] [-d <measurement seconds>]"
+					+ " [-o <CSV file>]");
+			System.exit(1);
+			return;
+		}
+
+		if (System.getProperty(WRITER_PROPERTY) == null) {
+			System.setProperty(WRITER_PROPERTY, CountingNullWriter.class.getName());
+		}
+		if (System.getProperty(ADAPTIVE_MONITORING_PROPERTY) == null) {
+			System.setProperty(ADAPTIVE_MONITORING_PROPERTY, "true"); // required to deactivate the probe
+		}
+
+		final ReplayWorkload workload = (sessionLog != null) ? ReplayWorkload.readSessionLog(new File(sessionLog)) // NOCS
+				: ReplayWorkload.createSynthetic(sessions, requestsPerSession);
+		final LoadReplayHarness harness = new LoadReplayHarness(workload, threads, requestsPerSecond, TimeUnit.MICROSECONDS.toNanos(serviceMicros),
+				TimeUnit.SECONDS.toMillis(warmupSeconds), TimeUnit.SECONDS.toMillis(measurementSeconds));
+
+		System.out.println(String.format(Locale.US, "%d sessions, %d threads, %s, service time %d us", // NOPMD (command line tool)
+				workload.getSessionCount(), threads, (requestsPerSecond > 0) ? requestsPerSecond + " requests/s" : "closed loop", serviceMicros)); // NOCS
+		System.out.println(Result.HEADER); // NOPMD (command line tool)
+		final List<Result> results = new ArrayList<Result>();
+		for (final String configuration : configurations.split(",")) {
+			final Result result = harness.run(configuration.trim());
+			System.out.println(result); // NOPMD (command line tool)
+			results.add(result);
+		}
+		if (csvFile != null) {
+			LoadReplayHarness.writeCsv(new File(csvFile), results, threads, workload.getSessionCount(), requestsPerSecond);
+		}
+		MonitoringController.getInstance().terminateMonitoring();
+	}
+
+	/**
+	 * Replays the workload with the given configuration.
+	 */
+	private Result run(final String configuration) throws ServletException, InterruptedException {
+		final IMonitoringController monitoringController = MonitoringController.getInstance();
+		final SessionAndTraceRegistrationFilterSPECjEnterprise filter = BASELINE_CONFIGURATION.equals(configuration) ? null // NOCS
+				: FilterConfigurations.createFilter(configuration, monitoringController);
+		try {
+			this.phase = PHASE_WARMUP;
+			final Worker[] workers = new Worker[this.threads];
+			final CountDownLatch started = new CountDownLatch(this.threads);
+			final long intervalNanos = (this.requestsPerSecond > 0) ? (long) (TimeUnit.SECONDS.toNanos(1) / this.requestsPerSecond) : 0; // NOCS
+			final Schedule schedule = new Schedule(System.nanoTime(), intervalNanos);
+			for (int i = 0; i < this.threads; i++) {
+				workers[i] = new Worker(this.sessionsOf(i), filter, schedule, started);
+				workers[i].start();
+			}
+			started.await();
+
+			Thread.sleep(this.warmupMillis);
+			final long recordsBefore = CountingNullWriter.getRecordCount();
+			final long measurementStart = System.nanoTime();
+			this.phase = PHASE_MEASUREMENT;
+			Thread.sleep(this.measurementMillis);
+			this.phase = PHASE_STOPPED;
+			final long measurementNanos = System.nanoTime() - measurementStart;
+			final long records = CountingNullWriter.getRecordCount() - recordsBefore;
+
+			final LatencyHistogram latencies = new LatencyHistogram();
+			long requests = 0;
+			for (final Worker worker : workers) {
+				worker.join();
+				if (worker.failure != null) {
+					throw new IllegalStateException("Request failed in configuration " + configuration, worker.failure);
+				}
+				latencies.add(worker.latencies);
+				requests += worker.requests;
+			}
+			return new Result(configuration, requests, records, measurementNanos, latencies);
+		} finally {
+			if (filter != null) {
+				FilterConfigurations.destroyFilter(filter, monitoringController);
+			}
+		}
+	}
+
+	/**
+	 * The sessions of the given thread: every {@code threads}-th session, or a single shared one if there are fewer
+	 * sessions than threads.
+	 */
+	private ReplaySession[] sessionsOf(final int thread) {
+		final int sessionCount = this.workload.getSessionCount();
+		if (sessionCount <= thread) {
+			return new ReplaySession[] { new ReplaySession(thread % sessionCount, this.workload.getSession(thread % sessionCount)), };
+		}
+		final List<ReplaySession> sessions = new ArrayList<ReplaySession>();
+		for (int session = thread; session < sessionCount; session += this.threads) {
+			sessions.add(new ReplaySession(session, this.workload.getSession(session)));
+		}
+		return sessions.toArray(new ReplaySession[sessions.size()]);
+	}
+
+	private static void writeCsv(final File file, final List<Result> results, final int threads, final int sessions, final double requestsPerSecond)
+			throws IOException {
+		final boolean header = !file.exists();
+		final PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+		try {
+			if (header) {
+				writer.println("configuration,threads,sessions,targetRate,throughput,p50Micros,p90Micros,p99Micros,p999Micros,maxMicros,recordsPerSecond");
+			}
+			for (final Result result : results) {
+				writer.println(result.configuration + "," + threads + "," + sessions + "," + requestsPerSecond + "," + result.toCsv());
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * The start times of the requests if there is an arrival rate: request {@code n} is due {@code n} intervals after
+	 * the start, regardless of which thread sends it.
+	 */
+	private static final class Schedule {
+
+		private final long startNanos;
+		private final long intervalNanos;
+		private final AtomicLong nextRequest = new AtomicLong();
+
+		Schedule(final long startNanos, final long intervalNanos) {
+			this.startNanos = startNanos;
+			this.intervalNanos = intervalNanos;
+		}
+
+		/**
+		 * Waits until the next request is due.
+		 *
+		 * @return The time the request is due or, without arrival rate, the current time.
+		 */
+		long awaitNext() {
+			if (this.intervalNanos == 0) {
+				return System.nanoTime();
+			}
+			final long due = this.startNanos + (this.nextRequest.getAndIncrement() * this.intervalNanos);
+			long remaining;
+			while ((remaining = due - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(remaining);
+			}
+			return due;
+		}
+	}
+
+	/**
+	 * A session and the position of its next request.
+	 */
+	private static final class ReplaySession {
+
+		final MockHttpSession session;
+		final ReplayWorkload.Request[] requests;
+		int next;
+
+		ReplaySession(final int id, final ReplayWorkload.Request[] requests) {
+			this.session = new MockHttpSession(null, "session-" + id);
+			this.requests = requests;
+		}
+
+		ReplayWorkload.Request nextRequest() {
+			final ReplayWorkload.Request request = this.requests[this.next];
+			this.next = (this.next + 1) % this.requests.length;
+			return request;
+		}
+	}
+
+	/**
+	 * A thread replaying its sessions in turn.
+	 */
+	private final class Worker extends Thread {
+
+		final LatencyHistogram latencies = new LatencyHistogram();
+		long requests;
+		Throwable failure;
+
+		private final ReplaySession[] sessions;
+		private final Filter filter;
+		private final Schedule schedule;
+		private final CountDownLatch started;
+		private final MockHttpServletResponse response = new MockHttpServletResponse();
+		private final FilterChain chain;
+
+		Worker(final ReplaySession[] sessions, final Filter filter, final Schedule schedule, final CountDownLatch started) {
+			super("LoadReplayHarness-worker");
+			this.sessions = sessions;
+			this.filter = filter;
+			this.schedule = schedule;
+			this.started = started;
+			final long serviceTime = LoadReplayHarness.this.serviceNanos;
+			this.chain = new FilterChain() {
+				public void doFilter(final ServletRequest request, final ServletResponse response) {
+					if (serviceTime > 0) {
+						final long end = System.nanoTime() + serviceTime;
+						while (System.nanoTime() < end) { // NOPMD (busy servlet)
+							// simulate the servlet's work
+						}
+					}
+				}
+			};
+		}
+
+		@Override
+		public void run() {
+			this.started.countDown();
+			int nextSession = 0;
+			try {
+				int currentPhase;
+				while ((currentPhase = LoadReplayHarness.this.phase) != PHASE_STOPPED) {
+					final ReplaySession session = this.sessions[nextSession];
+					nextSession = (nextSession + 1) % this.sessions.length;
+					final ServletRequest request = session.nextRequest().createRequest(session.session);
+
+					final long start = this.schedule.awaitNext();
+					if (this.filter != null) {
+						this.filter.doFilter(request, this.response, this.chain);
+					} else {
+						this.chain.doFilter(request, this.response);
+					}
+					final long end = System.nanoTime();
+
+					if (currentPhase == PHASE_MEASUREMENT) {
+						this.latencies.record(end - start);
+						this.requests++;
+					}
+				}
+			} catch (final Throwable ex) { // NOPMD NOCS (reported by the harness)
+				this.failure = ex;
+			}
+		}
+	}
+
+	/**
+	 * The measurements of a configuration.
+	 */
+	private static final class Result {
+
+		static final String HEADER = String.format(Locale.US, "%-18s %12s %10s %10s %10s %10s %10s %12s %8s", "configuration", "requests/s",
+				"p50[us]", "p90[us]", "p99[us]", "p99.9[us]", "max[us]", "records/s", "rec/req");
+
+		final String configuration;
+		private final double throughput;
+		private final double recordsPerSecond;
+		private final double recordsPerRequest;
+		private final long[] percentileNanos = new long[PERCENTILES.length];
+		private final long maxNanos;
+
+		Result(final String configuration, final long requests, final long records, final long measurementNanos, final LatencyHistogram latencies) {
+			this.configuration = configuration;
+			final double seconds = measurementNanos / 1e9;
+			this.throughput = requests / seconds;
+			this.recordsPerSecond = records / seconds;
+			this.recordsPerRequest = (requests > 0) ? (double) records / requests : 0; // NOCS
+			for (int i = 0; i < PERCENTILES.length; i++) {
+				this.percentileNanos[i] = latencies.getPercentile(PERCENTILES[i]);
+			}
+			this.maxNanos = latencies.getMax();
+		}
+
+		String toCsv() {
+			final StringBuilder csv = new StringBuilder();
+			csv.append(String.format(Locale.US, "%.1f", this.throughput));
+			for (final long nanos : this.percentileNanos) {
+				csv.append(',').append(String.format(Locale.US, "%.1f", nanos / 1e3));
+			}
+			csv.append(',').append(String.format(Locale.US, "%.1f,%.1f", this.maxNanos / 1e3, this.recordsPerSecond));
+			return csv.toString();
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US, "%-18s %12.0f %10.1f %10.1f %10.1f %10.1f %10.1f %12.0f %8.2f", this.configuration, this.throughput,
+					this.percentileNanos[0] / 1e3, this.percentileNanos[1] / 1e3, this.percentileNanos[2] / 1e3, this.percentileNanos[3] / 1e3,
+					this.maxNanos / 1e3, this.recordsPerSecond, this.recordsPerRequest);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.benchmarks;
+
+import io.github.wessbas.kiekerExtensions.record.CompactServletEntryRecord;
+import io.github.wessbas.kiekerExtensions.record.CompactServletEntryRecordFactory;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecordFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import kieker.common.record.factory.IRecordFactory;
+import kieker.common.util.registry.IRegistry;
+import kieker.common.util.registry.Registry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the binary serialization of servlet entry records: {@code writeBytes}, the {@link ByteBuffer} constructor,
+ * the record factory, and a complete round-trip. Each benchmark thread has its own buffer and string registry, as a
+ * writer thread would.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class RecordSerializationBenchmark {
+
+	/** {@code classic} for {@link ServletEntryRecord}, {@code compact} for {@link CompactServletEntryRecord}. */
+	@Param({ "classic", "compact" })
+	private String format;
+
+	private final IRegistry<String> stringRegistry = new Registry<String>();
+	private final ByteBuffer writeBuffer = ByteBuffer.allocate(1024);
+	private ByteBuffer encoded;
+	private ServletEntryRecord record;
+	private IRecordFactory<? extends ServletEntryRecord> factory;
+
+	@Setup
+	public void setUp() {
+		final String queryString = SpecjRequests.createQueryStrings(1)[0];
+		if ("classic".equals(this.format)) {
+			this.record = new ServletEntryRecord(4711L, "/specj-web/app", 8080, "10.0.0.1", "HTTP/1.1", "GET", queryString, "UTF-8");
+			this.factory = new ServletEntryRecordFactory();
+		} else if ("compact".equals(this.format)) {
+			this.record = new CompactServletEntryRecord(4711L, "/specj-web/app", 8080, "10.0.0.1", "HTTP/1.1", "GET", queryString, "UTF-8");
+			this.factory = new CompactServletEntryRecordFactory();
+		} else {
+			throw new IllegalArgumentException("Unknown format " + this.format);
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(1024);
+		this.record.writeBytes(buffer, this.stringRegistry); // also registers all strings
+		buffer.flip();
+		this.encoded = buffer;
+	}
+
+	@Benchmark
+	public int writeBytes() {
+		this.writeBuffer.clear();
+		this.record.writeBytes(this.writeBuffer, this.stringRegistry);
+		return this.writeBuffer.position();
+	}
+
+	@Benchmark
+	public ServletEntryRecord bufferConstructor() {
+		this.encoded.rewind();
+		if (this.record instanceof CompactServletEntryRecord) {
+			return new CompactServletEntryRecord(this.encoded, this.stringRegistry);
+		}
+		return new ServletEntryRecord(this.encoded, this.stringRegistry);
+	}
+
+	@Benchmark
+	public ServletEntryRecord factoryCreate() {
+		this.encoded.rewind();
+		return this.factory.create(this.encoded, this.stringRegistry);
+	}
+
+	@Benchmark
+	public ServletEntryRecord roundTrip() {
+		this.writeBuffer.clear();
+		this.record.writeBytes(this.writeBuffer, this.stringRegistry);
+		this.writeBuffer.flip();
+		return this.factory.create(this.writeBuffer, this.stringRegistry);
+	}
+}
@@ -0,0 +1,197 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.benchmarks;
+
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+
+/**
+ * The sessions replayed by the {@link LoadReplayHarness}, each a sequence of requests. They are either generated with
+ * the action mix of {@link SpecjRequests} or read from a session log as written by
+ * {@link io.github.wessbas.kiekerExtensions.analysis.SessionLogBuilderTool}. The timestamps of a session log are
+ * ignored; the harness determines the arrival rate.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class ReplayWorkload {
+
+	private static final int SYNTHETIC_LOCAL_PORT = 8080;
+	private static final String SYNTHETIC_URI = "/specj-web/app";
+
+	private final List<Request[]> sessions;
+
+	private ReplayWorkload(final List<Request[]> sessions) {
+		if (sessions.isEmpty()) {
+			throw new IllegalArgumentException("The workload contains no sessions");
+		}
+		this.sessions = sessions;
+	}
+
+	/**
+	 * Generates sessions with the action mix of the SPECjEnterprise dealer driver. As in {@link SpecjRequests}, the login
+	 * requests are sent without session.
+	 */
+	static ReplayWorkload createSynthetic(final int sessionCount, final int requestsPerSession) {
+		final String[] queryStrings = SpecjRequests.createQueryStrings(sessionCount * requestsPerSession);
+		final List<Request[]> sessions = new ArrayList<Request[]>(sessionCount);
+		for (int session = 0; session < sessionCount; session++) {
+			final Request[] requests = new Request[requestsPerSession];
+			for (int i = 0; i < requestsPerSession; i++) {
+				final String queryString = queryStrings[(session * requestsPerSession) + i];
+				requests[i] = new Request(SYNTHETIC_URI, queryString, "GET", "HTTP/1.1", "UTF-8", "10.0.0.1", SYNTHETIC_LOCAL_PORT,
+						!queryString.startsWith("action=login"));
+			}
+			sessions.add(requests);
+		}
+		return new ReplayWorkload(sessions);
+	}
+
+	/**
+	 * Reads the sessions of a session log. Each line holds a session: its ID, followed by the requests
+	 * {@code "useCase":tin:tout:uri:port:host:protocol:method:queryString:encoding}, separated by {@code ';'}.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be read or contains a malformed request.
+	 */
+	static ReplayWorkload readSessionLog(final File file) throws IOException {
+		final List<Request[]> sessions = new ArrayList<Request[]>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				final String[] parts = line.split(";");
+				if (parts.length < 2) {
+					continue;
+				}
+				final Request[] requests = new Request[parts.length - 1];
+				for (int i = 1; i < parts.length; i++) {
+					requests[i - 1] = ReplayWorkload.parseRequest(parts[i]);
+					if (requests[i - 1] == null) {
+						throw new IOException("Malformed request in line " + lineNumber + " of " + file + ": " + parts[i]);
+					}
+				}
+				sessions.add(requests);
+			}
+		} finally {
+			reader.close();
+		}
+		return new ReplayWorkload(sessions);
+	}
+
+	/**
+	 * @return The request or {@code null} if it is malformed.
+	 */
+	private static Request parseRequest(final String request) {
+		final int useCaseEnd = request.indexOf("\":", 1);
+		if (!request.startsWith("\"") || (useCaseEnd < 0)) {
+			return null;
+		}
+		// tin, tout, uri, port, host, protocol, method, query string (which may contain ':'), encoding
+		final String[] fields = request.substring(useCaseEnd + 2).split(":", -1);
+		if (fields.length < 9) {
+			return null;
+		}
+		final StringBuilder queryString = new StringBuilder(fields[7]);
+		for (int i = 8; i < (fields.length - 1); i++) {
+			queryString.append(':').append(fields[i]);
+		}
+		final int port;
+		try {
+			port = Integer.parseInt(fields[3]);
+		} catch (final NumberFormatException ex) {
+			return null;
+		}
+		return new Request(fields[2], ReplayWorkload.unlessMissing(queryString.toString(), ServletEntryRecord.NO_QUERY_STRING),
+				ReplayWorkload.unlessMissing(fields[6], ServletEntryRecord.NO_METHOD), ReplayWorkload.unlessMissing(fields[5], ServletEntryRecord.NO_PROTOCOL),
+				ReplayWorkload.unlessMissing(fields[fields.length - 1], ServletEntryRecord.NO_ENCODING), fields[4], port, true);
+	}
+
+	private static String unlessMissing(final String value, final String missingValue) {
+		return missingValue.equals(value) ? null : value; // NOCS
+	}
+
+	int getSessionCount() {
+		return this.sessions.size();
+	}
+
+	Request[] getSession(final int session) {
+		return this.sessions.get(session);
+	}
+
+	/**
+	 * A request of a session.
+	 */
+	static final class Request {
+
+		private final String uri;
+		private final String queryString;
+		private final String method;
+		private final String protocol;
+		private final String encoding;
+		private final String localAddr;
+		private final int localPort;
+		private final boolean withSession;
+
+		Request(final String uri, final String queryString, final String method, final String protocol, final String encoding, final String localAddr,
+				final int localPort, final boolean withSession) {
+			this.uri = uri;
+			this.queryString = queryString;
+			this.method = (method != null) ? method : "GET"; // NOCS
+			this.protocol = protocol;
+			this.encoding = encoding;
+			this.localAddr = localAddr;
+			this.localPort = localPort;
+			this.withSession = withSession;
+		}
+
+		/**
+		 * Creates a new mock of the request; mocks are not shared, as the filter sets request attributes.
+		 */
+		MockHttpServletRequest createRequest(final MockHttpSession session) {
+			final MockHttpServletRequest request = new MockHttpServletRequest(this.method, this.uri);
+			request.setQueryString(this.queryString);
+			if (this.protocol != null) {
+				request.setProtocol(this.protocol);
+			}
+			if (this.encoding != null) {
+				request.setCharacterEncoding(this.encoding);
+			}
+			request.setLocalAddr(this.localAddr);
+			request.setLocalPort(this.localPort);
+			if (this.withSession) {
+				request.setSession(session);
+			}
+			return request;
+		}
+	}
+}
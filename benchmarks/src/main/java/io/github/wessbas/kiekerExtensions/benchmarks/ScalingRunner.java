@@ -0,0 +1,65 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks with 1, 2, 4, ... threads up to a maximum, with the GC profiler reporting the
+ * allocation per operation. The results of each thread count are written to {@code results-<threads>t.json}.
+ *
+ * Usage: {@code ScalingRunner [benchmark regex] [max threads]}; by default, all benchmarks up to the number of
+ * available processors.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class ScalingRunner {
+
+	private ScalingRunner() {
+		// main class
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		final String include = (args.length > 0) ? args[0] : ".*"; // NOCS
+		final int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors(); // NOCS
+
+		int threads = 1;
+		while (true) {
+			final Options options = new OptionsBuilder()
+					.include(include)
+					.threads(threads)
+					.addProfiler(GCProfiler.class)
+					.resultFormat(ResultFormatType.JSON)
+					.result("results-" + threads + "t.json")
+					.build();
+			new Runner(options).run();
+			if (threads >= maxThreads) {
+				break;
+			}
+			threads = Math.min(2 * threads, maxThreads);
+		}
+	}
+}
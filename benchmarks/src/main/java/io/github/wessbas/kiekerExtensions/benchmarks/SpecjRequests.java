@@ -0,0 +1,107 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.benchmarks;
+
+import java.util.Random;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+
+/**
+ * Requests resembling the SPECjEnterprise2010 dealer domain, with the action mix and parameters of the dealer driver.
+ * All data is generated from a fixed seed, so that runs are comparable.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class SpecjRequests {
+
+	/** The number of distinct requests; large enough to defeat trivial caching of identical inputs. */
+	static final int DEFAULT_COUNT = 512;
+
+	private static final long SEED = 0x5EC7L;
+
+	private SpecjRequests() {
+		// utility class
+	}
+
+	/**
+	 * @return Query strings in the proportions of the dealer driver's action mix.
+	 */
+	static String[] createQueryStrings(final int count) {
+		final Random random = new Random(SEED);
+		final String[] queryStrings = new String[count];
+		for (int i = 0; i < count; i++) {
+			queryStrings[i] = SpecjRequests.createQueryString(random);
+		}
+		return queryStrings;
+	}
+
+	private static String createQueryString(final Random random) {
+		final int dice = random.nextInt(100);
+		if (dice < 30) {
+			return "action=View_Items&category=" + random.nextInt(5);
+		} else if (dice < 40) {
+			return "action=View_Items&category=" + random.nextInt(5) + "&vehicles=" + random.nextInt(10) + "&vehicleToAdd=" + random.nextInt(10000);
+		} else if (dice < 50) {
+			return "action=shoppingcart";
+		} else if (dice < 60) {
+			return "action=inventory";
+		} else if (dice < 65) {
+			return "action=sellinventory&vehicleToSell=" + random.nextInt(100000) + "&total=" + random.nextInt(100);
+		} else if (dice < 72) {
+			return "action=purchase";
+		} else if (dice < 77) {
+			return "action=cancelorder&orderID=" + random.nextInt(1000000);
+		} else if (dice < 80) {
+			return "action=remove&cartID=" + random.nextInt(20);
+		} else if (dice < 83) {
+			return "action=clearcart";
+		} else if (dice < 90) {
+			return "action=home";
+		} else if (dice < 95) {
+			return "action=login&uid=" + random.nextInt(10000);
+		} else {
+			return "action=logout";
+		}
+	}
+
+	/**
+	 * @return Mock requests with the query strings of {@link #createQueryStrings(int)}; all but the login requests belong
+	 *         to a session.
+	 */
+	static MockHttpServletRequest[] createRequests(final int count) {
+		final String[] queryStrings = SpecjRequests.createQueryStrings(count);
+		final MockHttpServletRequest[] requests = new MockHttpServletRequest[count];
+		for (int i = 0; i < count; i++) {
+			final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/specj-web/app");
+			request.setQueryString(queryStrings[i]);
+			request.setProtocol("HTTP/1.1");
+			request.setCharacterEncoding("UTF-8");
+			request.setLocalAddr("10.0.0.1");
+			request.setLocalPort(8080);
+			if (!queryStrings[i].startsWith("action=login")) {
+				request.setSession(new MockHttpSession(null, "session-" + (i % 64)));
+			}
+			requests[i] = request;
+		}
+		return requests;
+	}
+}
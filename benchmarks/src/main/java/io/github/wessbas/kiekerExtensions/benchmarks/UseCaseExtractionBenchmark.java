@@ -0,0 +1,116 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.benchmarks;
+
+import io.github.wessbas.kiekerExtensions.probe.usecase.QueryStringUseCaseExtractor;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the extraction of the SPECjEnterprise use case from query strings: the {@link QueryStringUseCaseExtractor}
+ * with and without its cache, and the former {@link String#split(String)}-based implementation for comparison.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class UseCaseExtractionBenchmark {
+
+	/**
+	 * The query strings of a benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class QueryStrings {
+		private final String[] queryStrings = SpecjRequests.createQueryStrings(SpecjRequests.DEFAULT_COUNT);
+		private int next;
+
+		String next() {
+			final String queryString = this.queryStrings[this.next];
+			this.next = (this.next + 1) % this.queryStrings.length;
+			return queryString;
+		}
+	}
+
+	/**
+	 * The extractor shared by all benchmark threads.
+	 */
+	@State(Scope.Benchmark)
+	public static class Extractor {
+		@Param({ "0", "1024" })
+		private int cacheSize;
+
+		private QueryStringUseCaseExtractor extractor;
+
+		@Setup
+		public void setUp() {
+			this.extractor = QueryStringUseCaseExtractor.forSPECjEnterprise(this.cacheSize);
+		}
+	}
+
+	@Benchmark
+	public String compiled(final Extractor extractor, final QueryStrings queryStrings) {
+		return extractor.extractor.extractFromQueryString(queryStrings.next());
+	}
+
+	@Benchmark
+	public String split(final QueryStrings queryStrings) {
+		return UseCaseExtractionBenchmark.extractWithSplit(queryStrings.next());
+	}
+
+	/**
+	 * The implementation of the filter before the {@link QueryStringUseCaseExtractor} was introduced.
+	 */
+	private static String extractWithSplit(final String queryString) {
+		String useCase = "NOACTION";
+		boolean vehicle = false;
+		if (queryString != null) {
+			final String[] keyValues = queryString.split("&");
+			for (final String keyValue : keyValues) {
+				final String[] paramSplit = keyValue.split("=");
+				if ("action".equals(paramSplit[0])) {
+					useCase = paramSplit[1];
+				}
+				if ("vehicles".equals(paramSplit[0])) {
+					vehicle = true;
+				}
+			}
+			if ("View_Items".equals(useCase) && vehicle) {
+				useCase = useCase + "_quantity";
+			}
+		}
+		return useCase;
+	}
+}
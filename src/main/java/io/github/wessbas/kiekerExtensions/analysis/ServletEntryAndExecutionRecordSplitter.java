@@ -0,0 +1,73 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis;
+
+import io.github.wessbas.kiekerExtensions.record.ServletEntryAndExecutionRecord;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryAndExecutionRecordAdapter;
+
+import kieker.analysis.IProjectContext;
+import kieker.analysis.plugin.annotation.InputPort;
+import kieker.analysis.plugin.annotation.OutputPort;
+import kieker.analysis.plugin.annotation.Plugin;
+import kieker.analysis.plugin.filter.AbstractFilterPlugin;
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+
+/**
+ * Replaces each {@link ServletEntryAndExecutionRecord} by the equivalent pair of
+ * {@link io.github.wessbas.kiekerExtensions.record.ServletEntryRecord} and
+ * {@link kieker.common.record.controlflow.OperationExecutionRecord}. All other records are passed through unchanged.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+@Plugin(description = "Splits merged servlet entry and execution records into the classic record pair",
+		outputPorts = {
+			@OutputPort(name = ServletEntryAndExecutionRecordSplitter.OUTPUT_PORT_NAME_RECORDS, eventTypes = { IMonitoringRecord.class },
+					description = "Provides the classic records and all other records")
+		})
+public class ServletEntryAndExecutionRecordSplitter extends AbstractFilterPlugin {
+
+	public static final String INPUT_PORT_NAME_RECORDS = "monitoringRecords";
+	public static final String OUTPUT_PORT_NAME_RECORDS = "monitoringRecords";
+
+	public ServletEntryAndExecutionRecordSplitter(final Configuration configuration, final IProjectContext projectContext) {
+		super(configuration, projectContext);
+	}
+
+	@InputPort(name = INPUT_PORT_NAME_RECORDS, eventTypes = { IMonitoringRecord.class }, description = "Receives the records to split")
+	public void inputRecord(final IMonitoringRecord record) {
+		if (record instanceof ServletEntryAndExecutionRecord) {
+			final ServletEntryAndExecutionRecord mergedRecord = (ServletEntryAndExecutionRecord) record;
+			super.deliver(OUTPUT_PORT_NAME_RECORDS, ServletEntryAndExecutionRecordAdapter.toServletEntryRecord(mergedRecord));
+			super.deliver(OUTPUT_PORT_NAME_RECORDS, ServletEntryAndExecutionRecordAdapter.toOperationExecutionRecord(mergedRecord));
+		} else {
+			super.deliver(OUTPUT_PORT_NAME_RECORDS, record);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Configuration getCurrentConfiguration() {
+		return new Configuration();
+	}
+}
@@ -0,0 +1,456 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis;
+
+import io.github.wessbas.kiekerExtensions.record.ServletEntryAndExecutionRecord;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+import io.github.wessbas.kiekerExtensions.record.SessionDestroyedRecord;
+import io.github.wessbas.kiekerExtensions.record.SessionKeys;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import kieker.analysis.IProjectContext;
+import kieker.analysis.plugin.annotation.InputPort;
+import kieker.analysis.plugin.annotation.OutputPort;
+import kieker.analysis.plugin.annotation.Plugin;
+import kieker.analysis.plugin.annotation.Property;
+import kieker.analysis.plugin.filter.AbstractFilterPlugin;
+import kieker.common.configuration.Configuration;
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+
+/**
+ * Builds WESSBAS session logs from the records of the servlet filter in a single pass over the log, with memory
+ * bounded by the number of concurrently open sessions.
+ *
+ * Each {@link ServletEntryRecord} is joined with the {@link OperationExecutionRecord} of the filter's execution (the
+ * one with {@code eoi = ess = 0}) by the trace ID; a {@link ServletEntryAndExecutionRecord} contains both halves
+ * already. Unmatched halves wait in a window of at most {@value #CONFIG_PROPERTY_NAME_MAX_PENDING_TRACES} traces;
+ * since the filter writes both halves of a trace right after each other, the window only has to cover the
+ * interleaving of concurrent requests. The joined requests are grouped by {@link SessionKeys session key}. A session
+ * is closed when it has been idle for {@value #CONFIG_PROPERTY_NAME_SESSION_TIMEOUT} seconds of log time (the latest
+ * timestamp seen so far); its session log line is delivered then. The remaining sessions are closed on termination.
+ *
+ * A {@link SessionDestroyedRecord} is usually written before the records of the session's last request, as the
+ * session is invalidated while that request is still running. The destroyed session is therefore kept for
+ * {@value #CONFIG_PROPERTY_NAME_DESTROYED_SESSION_WINDOW} seconds of log time after its destruction: requests of the
+ * same session key that entered at or before the destruction are still added to it, later ones start a new session.
+ * Its line is delivered once log time has passed that window.
+ *
+ * A session log line consists of the recorded session ID followed by one field per request, ordered by entry time:
+ *
+ * <pre>
+ * sessionId;"useCase":tin:tout:uri:port:host:protocol:method:queryString:encoding;...
+ * </pre>
+ *
+ * Requests without a session and records of other types are ignored. This filter is not thread-safe; it expects a
+ * single reader thread, as with Kieker's file system reader.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+@Plugin(description = "Joins servlet entry and execution records and delivers a WESSBAS session log line per closed session",
+		outputPorts = {
+			@OutputPort(name = SessionLogBuilderFilter.OUTPUT_PORT_NAME_SESSION_LOG_LINES, eventTypes = { String.class },
+					description = "Provides the session log lines")
+		},
+		configuration = {
+			@Property(name = SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_SESSION_TIMEOUT, defaultValue = "1800",
+					description = "Idle time in seconds after which a session is closed"),
+			@Property(name = SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_MAX_PENDING_TRACES, defaultValue = "100000",
+					description = "Maximum number of traces waiting for their second record"),
+			@Property(name = SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_TIME_UNIT, defaultValue = "NANOSECONDS",
+					description = "Time unit of the records' timestamps"),
+			@Property(name = SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_DESTROYED_SESSION_WINDOW, defaultValue = "60",
+					description = "Time in seconds for which requests that entered before the destruction of their session are still added to it")
+		})
+public class SessionLogBuilderFilter extends AbstractFilterPlugin {
+
+	public static final String INPUT_PORT_NAME_RECORDS = "monitoringRecords";
+	public static final String OUTPUT_PORT_NAME_SESSION_LOG_LINES = "sessionLogLines";
+
+	public static final String CONFIG_PROPERTY_NAME_SESSION_TIMEOUT = "sessionTimeout";
+	public static final String CONFIG_PROPERTY_NAME_MAX_PENDING_TRACES = "maxPendingTraces";
+	public static final String CONFIG_PROPERTY_NAME_TIME_UNIT = "timeUnit";
+	public static final String CONFIG_PROPERTY_NAME_DESTROYED_SESSION_WINDOW = "destroyedSessionWindow";
+
+	private static final Log LOG = LogFactory.getLog(SessionLogBuilderFilter.class);
+
+	private static final char FIELD_SEPARATOR = ':';
+	private static final char REQUEST_SEPARATOR = ';';
+
+	private final long sessionTimeoutSeconds;
+	private final int maxPendingTraces;
+	private final TimeUnit timeUnit;
+	private final long sessionTimeout; // in the time unit of the records
+	private final long destroyedSessionWindowSeconds;
+	private final long destroyedSessionWindow; // in the time unit of the records
+
+	/** Records waiting for the other half of their trace, in arrival order. */
+	private final LinkedHashMap<Long, IMonitoringRecord> pendingTraces;
+	/** The open sessions, least recently active first. */
+	private final LinkedHashMap<Long, Session> openSessions;
+	/** The destroyed sessions still accepting late requests, in the order of their destruction. */
+	private final LinkedHashMap<Long, Session> destroyedSessions;
+
+	private long logTime = Long.MIN_VALUE;
+
+	private long requestCount;
+	private long closedSessionCount;
+	private long unmatchedRecordCount;
+
+	public SessionLogBuilderFilter(final Configuration configuration, final IProjectContext projectContext) {
+		super(configuration, projectContext);
+		this.sessionTimeoutSeconds = configuration.getLongProperty(CONFIG_PROPERTY_NAME_SESSION_TIMEOUT);
+		if (this.sessionTimeoutSeconds <= 0) {
+			throw new IllegalArgumentException(CONFIG_PROPERTY_NAME_SESSION_TIMEOUT + " must be positive: " + this.sessionTimeoutSeconds);
+		}
+		this.maxPendingTraces = configuration.getIntProperty(CONFIG_PROPERTY_NAME_MAX_PENDING_TRACES);
+		if (this.maxPendingTraces <= 0) {
+			throw new IllegalArgumentException(CONFIG_PROPERTY_NAME_MAX_PENDING_TRACES + " must be positive: " + this.maxPendingTraces);
+		}
+		this.timeUnit = TimeUnit.valueOf(configuration.getStringProperty(CONFIG_PROPERTY_NAME_TIME_UNIT));
+		this.sessionTimeout = this.timeUnit.convert(this.sessionTimeoutSeconds, TimeUnit.SECONDS);
+		this.destroyedSessionWindowSeconds = configuration.getLongProperty(CONFIG_PROPERTY_NAME_DESTROYED_SESSION_WINDOW);
+		if (this.destroyedSessionWindowSeconds < 0) {
+			throw new IllegalArgumentException(CONFIG_PROPERTY_NAME_DESTROYED_SESSION_WINDOW + " must not be negative: "
+					+ this.destroyedSessionWindowSeconds);
+		}
+		this.destroyedSessionWindow = this.timeUnit.convert(this.destroyedSessionWindowSeconds, TimeUnit.SECONDS);
+
+		this.pendingTraces = new LinkedHashMap<Long, IMonitoringRecord>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Long, IMonitoringRecord> eldest) {
+				if (this.size() > SessionLogBuilderFilter.this.maxPendingTraces) {
+					SessionLogBuilderFilter.this.unmatchedRecordCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+		this.openSessions = new LinkedHashMap<Long, Session>(1024, 0.75f, true); // access order
+		this.destroyedSessions = new LinkedHashMap<Long, Session>();
+	}
+
+	@InputPort(name = INPUT_PORT_NAME_RECORDS, eventTypes = { IMonitoringRecord.class }, description = "Receives the records of the servlet filter")
+	public void inputRecord(final IMonitoringRecord record) {
+		if (record instanceof ServletEntryAndExecutionRecord) {
+			final ServletEntryAndExecutionRecord merged = (ServletEntryAndExecutionRecord) record;
+			this.addRequest(merged.getSessionId(), merged.getUseCase(), merged.getTin(), merged.getTout(), merged.getUri(), merged.getPort(),
+					merged.getHost(), merged.getProtocol(), merged.getMethod(), merged.getQueryString(), merged.getEncoding());
+		} else if (record instanceof ServletEntryRecord) {
+			final ServletEntryRecord entry = (ServletEntryRecord) record;
+			final IMonitoringRecord execution = this.join(entry.getTraceId(), entry);
+			if (execution != null) {
+				this.addRequest(entry, (OperationExecutionRecord) execution);
+			}
+		} else if (record instanceof OperationExecutionRecord) {
+			final OperationExecutionRecord execution = (OperationExecutionRecord) record;
+			if ((execution.getEoi() != 0) || (execution.getEss() != 0)) {
+				return; // not the execution of the servlet filter
+			}
+			final IMonitoringRecord entry = this.join(execution.getTraceId(), execution);
+			if (entry != null) {
+				this.addRequest((ServletEntryRecord) entry, execution);
+			}
+		} else if (record instanceof SessionDestroyedRecord) {
+			this.destroySession((SessionDestroyedRecord) record);
+		}
+	}
+
+	/**
+	 * Moves the session from the open to the destroyed sessions. An empty session is created if none is open, as the
+	 * session's only request may still be running.
+	 */
+	private void destroySession(final SessionDestroyedRecord record) {
+		final Long key = record.getSessionKey();
+		final Session previous = this.destroyedSessions.remove(key);
+		if (previous != null) {
+			this.close(previous);
+		}
+		Session session = this.openSessions.remove(key);
+		if (session == null) {
+			session = new Session(null);
+		}
+		session.destroyTime = record.getTimestamp();
+		this.destroyedSessions.put(key, session);
+		this.advanceLogTime(record.getTimestamp());
+	}
+
+	/**
+	 * @return The other half of the trace if it has been waiting and is of the other type; {@code null} if the given
+	 *         record has to wait.
+	 */
+	private IMonitoringRecord join(final long traceId, final IMonitoringRecord record) {
+		if (traceId == OperationExecutionRecord.NO_TRACE_ID) {
+			return null;
+		}
+		final Long key = traceId;
+		final IMonitoringRecord other = this.pendingTraces.remove(key);
+		if ((other != null) && ((other instanceof ServletEntryRecord) != (record instanceof ServletEntryRecord))) {
+			return other;
+		}
+		if (other != null) {
+			this.unmatchedRecordCount++; // a duplicate half; keep the newer one
+		}
+		this.pendingTraces.put(key, record);
+		return null;
+	}
+
+	private void addRequest(final ServletEntryRecord entry, final OperationExecutionRecord execution) {
+		this.addRequest(execution.getSessionId(), execution.getOperationSignature(), execution.getTin(), execution.getTout(), entry.getUri(),
+				entry.getPort(), entry.getHost(), entry.getProtocol(), entry.getMethod(), entry.getQueryString(), entry.getEncoding());
+	}
+
+	private void addRequest(final String sessionId, final String useCase, final long tin, final long tout, final String uri, final int port, // NOPMD
+			final String host, final String protocol, final String method, final String queryString, final String encoding) {
+		final long sessionKey = SessionKeys.fromRecordedSessionId(sessionId);
+		if (sessionKey == SessionKeys.NO_SESSION_KEY) {
+			return;
+		}
+		this.requestCount++;
+
+		final StringBuilder request = new StringBuilder(128);
+		request.append('"').append(useCase).append('"')
+				.append(FIELD_SEPARATOR).append(tin)
+				.append(FIELD_SEPARATOR).append(tout)
+				.append(FIELD_SEPARATOR).append(uri)
+				.append(FIELD_SEPARATOR).append(port)
+				.append(FIELD_SEPARATOR).append(host)
+				.append(FIELD_SEPARATOR).append(protocol)
+				.append(FIELD_SEPARATOR).append(method)
+				.append(FIELD_SEPARATOR).append(queryString)
+				.append(FIELD_SEPARATOR).append(encoding);
+
+		final Long key = sessionKey;
+		Session session = this.destroyedSessions.get(key);
+		if ((session == null) || (tin > session.destroyTime)) {
+			session = this.openSessions.get(key); // moves the session to the end
+			if (session == null) {
+				session = new Session(sessionId);
+				this.openSessions.put(key, session);
+			}
+		} else if (session.sessionId == null) {
+			session.sessionId = sessionId;
+		}
+		session.add(tin, request.toString());
+		session.lastActivity = Math.max(session.lastActivity, tout);
+
+		this.advanceLogTime(tout);
+	}
+
+	private void advanceLogTime(final long timestamp) {
+		if (timestamp > this.logTime) {
+			this.logTime = timestamp;
+			this.closeIdleSessions();
+			this.closeDestroyedSessions();
+		}
+	}
+
+	/**
+	 * Closes the sessions idle for longer than the session timeout. As the sessions are ordered by their last activity,
+	 * only the sessions at the head of the map have to be looked at.
+	 */
+	private void closeIdleSessions() {
+		final Iterator<Session> sessions = this.openSessions.values().iterator();
+		while (sessions.hasNext()) {
+			final Session session = sessions.next();
+			if ((this.logTime - session.lastActivity) <= this.sessionTimeout) {
+				return;
+			}
+			sessions.remove();
+			this.close(session);
+		}
+	}
+
+	/**
+	 * Closes the destroyed sessions whose window has passed. As the sessions are ordered by their destruction, only the
+	 * sessions at the head of the map have to be looked at.
+	 */
+	private void closeDestroyedSessions() {
+		final Iterator<Session> sessions = this.destroyedSessions.values().iterator();
+		while (sessions.hasNext()) {
+			final Session session = sessions.next();
+			if ((this.logTime - session.destroyTime) <= this.destroyedSessionWindow) {
+				return;
+			}
+			sessions.remove();
+			this.close(session);
+		}
+	}
+
+	/**
+	 * Delivers the line of the session unless no request has been added to it.
+	 */
+	private void close(final Session session) {
+		if (session.size == 0) {
+			return;
+		}
+		this.closedSessionCount++;
+		super.deliver(OUTPUT_PORT_NAME_SESSION_LOG_LINES, session.toLine());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Closes all sessions still open.
+	 */
+	@Override
+	public void terminate(final boolean error) {
+		if (!error) {
+			for (final Session session : this.destroyedSessions.values()) {
+				this.close(session);
+			}
+			for (final Session session : this.openSessions.values()) {
+				this.close(session);
+			}
+		}
+		this.destroyedSessions.clear();
+		this.openSessions.clear();
+		this.unmatchedRecordCount += this.pendingTraces.size();
+		this.pendingTraces.clear();
+		if (this.unmatchedRecordCount > 0) {
+			LOG.warn(this.unmatchedRecordCount + " records could not be joined with the other record of their trace. Consider increasing '"
+					+ CONFIG_PROPERTY_NAME_MAX_PENDING_TRACES + "'.");
+		}
+		super.terminate(error);
+	}
+
+	/**
+	 * @return The number of requests added to sessions so far.
+	 */
+	public long getRequestCount() {
+		return this.requestCount;
+	}
+
+	/**
+	 * @return The number of sessions currently open.
+	 */
+	public int getOpenSessionCount() {
+		return this.openSessions.size();
+	}
+
+	/**
+	 * @return The number of destroyed sessions still waiting for late requests.
+	 */
+	public int getDestroyedSessionCount() {
+		return this.destroyedSessions.size();
+	}
+
+	/**
+	 * @return The number of session log lines delivered so far.
+	 */
+	public long getClosedSessionCount() {
+		return this.closedSessionCount;
+	}
+
+	/**
+	 * @return The number of records dropped because the other record of their trace was not found in the window.
+	 */
+	public long getUnmatchedRecordCount() {
+		return this.unmatchedRecordCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Configuration getCurrentConfiguration() {
+		final Configuration configuration = new Configuration();
+		configuration.setProperty(CONFIG_PROPERTY_NAME_SESSION_TIMEOUT, Long.toString(this.sessionTimeoutSeconds));
+		configuration.setProperty(CONFIG_PROPERTY_NAME_MAX_PENDING_TRACES, Integer.toString(this.maxPendingTraces));
+		configuration.setProperty(CONFIG_PROPERTY_NAME_TIME_UNIT, this.timeUnit.name());
+		configuration.setProperty(CONFIG_PROPERTY_NAME_DESTROYED_SESSION_WINDOW, Long.toString(this.destroyedSessionWindowSeconds));
+		return configuration;
+	}
+
+	/**
+	 * The requests of an open or destroyed session. They arrive ordered by exit time and are sorted by entry time when
+	 * the session is closed, if necessary.
+	 */
+	private static final class Session {
+		String sessionId; // null for a destroyed session without requests
+		private long[] entryTimes = new long[4];
+		private String[] requests = new String[4];
+		private int size;
+		private boolean sorted = true;
+		long lastActivity = Long.MIN_VALUE;
+		long destroyTime = Long.MAX_VALUE;
+
+		Session(final String sessionId) {
+			this.sessionId = sessionId;
+		}
+
+		void add(final long tin, final String request) {
+			if (this.size == this.requests.length) {
+				this.entryTimes = Arrays.copyOf(this.entryTimes, this.size * 2);
+				this.requests = Arrays.copyOf(this.requests, this.size * 2);
+			}
+			if ((this.size > 0) && (tin < this.entryTimes[this.size - 1])) {
+				this.sorted = false;
+			}
+			this.entryTimes[this.size] = tin;
+			this.requests[this.size] = request;
+			this.size++;
+		}
+
+		String toLine() {
+			if (!this.sorted) {
+				this.sortByEntryTime();
+			}
+			int length = this.sessionId.length();
+			for (int i = 0; i < this.size; i++) {
+				length += this.requests[i].length() + 1;
+			}
+			final StringBuilder line = new StringBuilder(length).append(this.sessionId);
+			for (int i = 0; i < this.size; i++) {
+				line.append(REQUEST_SEPARATOR).append(this.requests[i]);
+			}
+			return line.toString();
+		}
+
+		/**
+		 * Insertion sort, which is stable and fast for the nearly sorted requests of a session.
+		 */
+		private void sortByEntryTime() {
+			for (int i = 1; i < this.size; i++) {
+				final long entryTime = this.entryTimes[i];
+				final String request = this.requests[i];
+				int j = i - 1;
+				while ((j >= 0) && (this.entryTimes[j] > entryTime)) {
+					this.entryTimes[j + 1] = this.entryTimes[j];
+					this.requests[j + 1] = this.requests[j];
+					j--;
+				}
+				this.entryTimes[j + 1] = entryTime;
+				this.requests[j + 1] = request;
+			}
+			this.sorted = true;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis;
+
+import io.github.wessbas.kiekerExtensions.analysis.binary.MappedBinaryFSReader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import kieker.analysis.AnalysisController;
+import kieker.analysis.exception.AnalysisConfigurationException;
+import kieker.analysis.plugin.reader.AbstractReaderPlugin;
+import kieker.analysis.plugin.reader.filesystem.FSReader;
+import kieker.common.configuration.Configuration;
+
+/**
+ * Command line tool which turns Kieker logs of the servlet filter into a WESSBAS session log, using the
+ * {@link SessionLogBuilderFilter} and the {@link SessionLogWriter}. With {@code -m}, binary logs are read by the
+ * {@link MappedBinaryFSReader} instead of Kieker's file system reader.
+ *
+ * <pre>
+ * SessionLogBuilderTool -o &lt;output file&gt; [-t &lt;session timeout in seconds&gt;] [-w &lt;max pending traces&gt;] [-m] &lt;log directory&gt;...
+ * </pre>
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class SessionLogBuilderTool {
+
+	private SessionLogBuilderTool() {
+		// main class
+	}
+
+	public static void main(final String[] args) throws AnalysisConfigurationException {
+		final Configuration builderConfiguration = new Configuration();
+		builderConfiguration.setProperty(SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_SESSION_TIMEOUT, "1800");
+		builderConfiguration.setProperty(SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_MAX_PENDING_TRACES, "100000");
+		builderConfiguration.setProperty(SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_TIME_UNIT, "NANOSECONDS");
+		builderConfiguration.setProperty(SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_DESTROYED_SESSION_WINDOW, "60");
+		String outputFile = null;
+		boolean mappedReader = false;
+		final List<String> inputDirs = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if ("-o".equals(args[i]) && (i + 1 < args.length)) {
+				outputFile = args[++i];
+			} else if ("-t".equals(args[i]) && (i + 1 < args.length)) {
+				builderConfiguration.setProperty(SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_SESSION_TIMEOUT, args[++i]);
+			} else if ("-w".equals(args[i]) && (i + 1 < args.length)) {
+				builderConfiguration.setProperty(SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_MAX_PENDING_TRACES, args[++i]);
+			} else if ("-m".equals(args[i])) {
+				mappedReader = true;
+			} else {
+				inputDirs.add(args[i]);
+			}
+		}
+		if ((outputFile == null) || inputDirs.isEmpty()) {
+			System.err.println("Usage: " + SessionLogBuilderTool.class.getName() // NOPMD (command line tool)
+					+ " -o <output file> [-t <session timeout in seconds>] [-w <max pending traces>] [-m] <log directory>...");
+			System.exit(1);
+			return;
+		}
+
+		final AnalysisController analysisController = new AnalysisController();
+
+		final Configuration readerConfiguration = new Configuration();
+		final String inputDirsProperty = Configuration.toProperty(inputDirs.toArray(new String[inputDirs.size()]));
+		final AbstractReaderPlugin reader;
+		if (mappedReader) {
+			readerConfiguration.setProperty(MappedBinaryFSReader.CONFIG_PROPERTY_NAME_INPUTDIRS, inputDirsProperty);
+			readerConfiguration.setProperty(MappedBinaryFSReader.CONFIG_PROPERTY_NAME_PARALLELISM, "0");
+			reader = new MappedBinaryFSReader(readerConfiguration, analysisController);
+		} else {
+			readerConfiguration.setProperty(FSReader.CONFIG_PROPERTY_NAME_INPUTDIRS, inputDirsProperty);
+			readerConfiguration.setProperty(FSReader.CONFIG_PROPERTY_NAME_IGNORE_UNKNOWN_RECORD_TYPES, "true");
+			reader = new FSReader(readerConfiguration, analysisController);
+		}
+
+		final SessionLogBuilderFilter builder = new SessionLogBuilderFilter(builderConfiguration, analysisController);
+
+		final Configuration writerConfiguration = new Configuration();
+		writerConfiguration.setProperty(SessionLogWriter.CONFIG_PROPERTY_NAME_OUTPUT_FILE, outputFile);
+		final SessionLogWriter writer = new SessionLogWriter(writerConfiguration, analysisController);
+
+		analysisController.connect(reader, FSReader.OUTPUT_PORT_NAME_RECORDS, builder, SessionLogBuilderFilter.INPUT_PORT_NAME_RECORDS);
+		analysisController.connect(builder, SessionLogBuilderFilter.OUTPUT_PORT_NAME_SESSION_LOG_LINES, writer,
+				SessionLogWriter.INPUT_PORT_NAME_SESSION_LOG_LINES);
+		analysisController.run();
+
+		System.out.println(builder.getClosedSessionCount() + " sessions with " + builder.getRequestCount() // NOPMD (command line tool)
+				+ " requests written to " + outputFile);
+	}
+}
@@ -0,0 +1,119 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import kieker.analysis.IProjectContext;
+import kieker.analysis.plugin.annotation.InputPort;
+import kieker.analysis.plugin.annotation.Plugin;
+import kieker.analysis.plugin.annotation.Property;
+import kieker.analysis.plugin.filter.AbstractFilterPlugin;
+import kieker.common.configuration.Configuration;
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+
+/**
+ * Writes the session log lines delivered by the {@link SessionLogBuilderFilter} to a file, one per line.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+@Plugin(description = "Writes session log lines to a file",
+		configuration = {
+			@Property(name = SessionLogWriter.CONFIG_PROPERTY_NAME_OUTPUT_FILE, defaultValue = "session-log.dat",
+					description = "The file the session log is written to")
+		})
+public class SessionLogWriter extends AbstractFilterPlugin {
+
+	public static final String INPUT_PORT_NAME_SESSION_LOG_LINES = "sessionLogLines";
+
+	public static final String CONFIG_PROPERTY_NAME_OUTPUT_FILE = "outputFile";
+
+	private static final Log LOG = LogFactory.getLog(SessionLogWriter.class);
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final String outputFile;
+	private Writer writer;
+	private boolean failed;
+
+	public SessionLogWriter(final Configuration configuration, final IProjectContext projectContext) {
+		super(configuration, projectContext);
+		this.outputFile = configuration.getStringProperty(CONFIG_PROPERTY_NAME_OUTPUT_FILE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean init() {
+		try {
+			this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.outputFile), "UTF-8"), BUFFER_SIZE);
+		} catch (final IOException ex) {
+			LOG.error("Failed to open the session log " + this.outputFile, ex);
+			return false;
+		}
+		return super.init();
+	}
+
+	@InputPort(name = INPUT_PORT_NAME_SESSION_LOG_LINES, eventTypes = { String.class }, description = "Receives the session log lines")
+	public void inputSessionLogLine(final String line) {
+		if (this.failed) {
+			return;
+		}
+		try {
+			this.writer.write(line);
+			this.writer.write('\n');
+		} catch (final IOException ex) {
+			LOG.error("Failed to write the session log " + this.outputFile, ex);
+			this.failed = true;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void terminate(final boolean error) {
+		if (this.writer != null) {
+			try {
+				this.writer.close();
+			} catch (final IOException ex) {
+				LOG.error("Failed to close the session log " + this.outputFile, ex);
+			}
+		}
+		super.terminate(error);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Configuration getCurrentConfiguration() {
+		final Configuration configuration = new Configuration();
+		configuration.setProperty(CONFIG_PROPERTY_NAME_OUTPUT_FILE, this.outputFile);
+		return configuration;
+	}
+}
@@ -0,0 +1,421 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import io.github.wessbas.kiekerExtensions.record.CompactEncoding;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+import io.github.wessbas.kiekerExtensions.writer.ColumnarFormat;
+import io.github.wessbas.kiekerExtensions.writer.ColumnarFormat.Column;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+
+/**
+ * A cursor over the blocks of a file written by the {@link io.github.wessbas.kiekerExtensions.writer.ColumnarLogWriter}.
+ * Only the selected columns are decoded; the others are skipped by their length, so that an analysis reading, for
+ * instance, only the use cases and durations of the executions does not pay for the remaining columns. The same holds
+ * for the section of the other records.
+ *
+ * The values of the current block are accessed by row. String columns resolve to the strings of the file, all other
+ * columns to their decoded values ({@link Column#EXECUTION_DURATION} to {@code tout - tin}).
+ *
+ * Instances are not thread-safe.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class ColumnarLogReader implements Closeable {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final ConcurrentMap<String, RecordDecoder> DECODERS = new ConcurrentHashMap<String, RecordDecoder>();
+
+	private static final Comparator<IMonitoringRecord> LOGGING_ORDER = new Comparator<IMonitoringRecord>() {
+
+		@Override
+		public int compare(final IMonitoringRecord record1, final IMonitoringRecord record2) {
+			final long timestamp1 = record1.getLoggingTimestamp();
+			final long timestamp2 = record2.getLoggingTimestamp();
+			return (timestamp1 < timestamp2) ? -1 : ((timestamp1 == timestamp2) ? 0 : 1); // NOCS
+		}
+	};
+
+	private final File file;
+	private final FileInputStream stream;
+	private final FileChannel channel;
+	private final boolean[] selected = new boolean[Column.values().length];
+	private final boolean allColumns;
+	private final boolean otherRecordsSelected;
+
+	private final LogStringRegistry strings = new LogStringRegistry();
+	private int stringCount;
+
+	private final ByteBuffer blockHeader = ByteBuffer.allocateDirect(5);
+	private ByteBuffer block = ByteBuffer.allocateDirect(256 * 1024);
+	private final Inflater inflater = new Inflater();
+	private byte[] compressed = new byte[0];
+	private byte[] inflated = new byte[0];
+
+	private final long[][] values = new long[Column.values().length][];
+	private int entryCount;
+	private int executionCount;
+	private final List<IMonitoringRecord> otherRecords = new ArrayList<IMonitoringRecord>();
+
+	/**
+	 * Opens the given file.
+	 *
+	 * @param file
+	 *            The columnar log file.
+	 * @param columns
+	 *            The columns to decode.
+	 * @param otherRecords
+	 *            Whether to decode the records stored in their binary representation.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be opened or is not a columnar log of a supported version.
+	 */
+	public ColumnarLogReader(final File file, final Set<Column> columns, final boolean otherRecords) throws IOException {
+		this.file = file;
+		this.stream = new FileInputStream(file);
+		this.channel = this.stream.getChannel();
+		for (final Column column : columns) {
+			this.selected[column.ordinal()] = true;
+			this.values[column.ordinal()] = new long[0];
+		}
+		this.allColumns = columns.containsAll(EnumSet.allOf(Column.class));
+		this.otherRecordsSelected = otherRecords;
+
+		final ByteBuffer fileHeader = ByteBuffer.allocate(5);
+		try {
+			this.readFully(fileHeader);
+		} catch (final IOException ex) {
+			this.stream.close();
+			throw ex;
+		}
+		if ((fileHeader.getInt() != ColumnarFormat.MAGIC) || (fileHeader.get() != ColumnarFormat.VERSION)) {
+			this.stream.close();
+			throw new IOException("Not a columnar log of version " + ColumnarFormat.VERSION + ": " + file);
+		}
+	}
+
+	/**
+	 * Opens the given file with all columns and records selected.
+	 *
+	 * @param file
+	 *            The columnar log file.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be opened or is not a columnar log of a supported version.
+	 */
+	public ColumnarLogReader(final File file) throws IOException {
+		this(file, EnumSet.allOf(Column.class), true);
+	}
+
+	/**
+	 * Reads and decodes the next block.
+	 *
+	 * @return false if the end of the file has been reached.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be read or is corrupt.
+	 */
+	public boolean nextBlock() throws IOException {
+		this.entryCount = 0;
+		this.executionCount = 0;
+		this.otherRecords.clear();
+
+		this.blockHeader.clear();
+		if (this.channel.read(this.blockHeader) <= 0) {
+			return false;
+		}
+		this.readFully(this.blockHeader);
+		final int blockLength = this.blockHeader.getInt();
+		final byte flags = this.blockHeader.get();
+		final ByteBuffer body = ((flags & ColumnarFormat.FLAG_DEFLATE) != 0) ? this.readDeflatedBody(blockLength - 1) : this.readBody(blockLength - 1); // NOCS
+
+		try {
+			if ((flags & ColumnarFormat.FLAG_RESET_STRINGS) != 0) {
+				this.strings.clear();
+				this.stringCount = 0;
+			}
+			this.decodeStrings(body);
+			this.entryCount = this.decodeSection(body, ColumnarFormat.Section.ENTRY);
+			this.executionCount = this.decodeSection(body, ColumnarFormat.Section.EXECUTION);
+			this.decodeOtherRecords(body);
+		} catch (final RuntimeException ex) { // NOPMD (buffer underflows and unknown string IDs)
+			throw new IOException("Corrupt block in " + this.file, ex);
+		}
+		return true;
+	}
+
+	private ByteBuffer readBody(final int length) throws IOException {
+		if (this.block.capacity() < length) {
+			this.block = ByteBuffer.allocateDirect(Math.max(length, 2 * this.block.capacity()));
+		}
+		this.block.clear().limit(length);
+		this.readFully(this.block);
+		return this.block;
+	}
+
+	private ByteBuffer readDeflatedBody(final int length) throws IOException {
+		final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+		this.readFully(lengthBuffer);
+		final int inflatedLength = lengthBuffer.getInt();
+		final int compressedLength = length - 4;
+		if (this.compressed.length < compressedLength) {
+			this.compressed = new byte[compressedLength];
+		}
+		this.readFully(ByteBuffer.wrap(this.compressed, 0, compressedLength));
+		if (this.inflated.length < inflatedLength) {
+			this.inflated = new byte[inflatedLength];
+		}
+		this.inflater.reset();
+		this.inflater.setInput(this.compressed, 0, compressedLength);
+		try {
+			int position = 0;
+			while (position < inflatedLength) {
+				final int inflatedBytes = this.inflater.inflate(this.inflated, position, inflatedLength - position);
+				if ((inflatedBytes == 0) && (this.inflater.finished() || this.inflater.needsInput())) {
+					throw new IOException("Truncated block in " + this.file);
+				}
+				position += inflatedBytes;
+			}
+		} catch (final DataFormatException ex) {
+			throw new IOException("Corrupt block in " + this.file, ex);
+		}
+		return ByteBuffer.wrap(this.inflated, 0, inflatedLength);
+	}
+
+	private void decodeStrings(final ByteBuffer body) {
+		final int count = (int) CompactEncoding.getVarLong(body);
+		byte[] bytes = new byte[64];
+		for (int i = 0; i < count; i++) {
+			final int length = (int) CompactEncoding.getVarLong(body);
+			if (bytes.length < length) {
+				bytes = new byte[length];
+			}
+			body.get(bytes, 0, length);
+			this.strings.put(this.stringCount++, new String(bytes, 0, length, UTF_8));
+		}
+	}
+
+	private int decodeSection(final ByteBuffer body, final ColumnarFormat.Section section) {
+		final int rows = (int) CompactEncoding.getVarLong(body);
+		if (rows == 0) {
+			return 0;
+		}
+		for (final Column column : Column.values()) {
+			if (column.getSection() != section) {
+				continue;
+			}
+			final int length = body.getInt();
+			if (!this.selected[column.ordinal()]) {
+				body.position(body.position() + length);
+				continue;
+			}
+			long[] columnValues = this.values[column.ordinal()];
+			if (columnValues.length < rows) {
+				columnValues = new long[rows];
+				this.values[column.ordinal()] = columnValues;
+			}
+			switch (column.getEncoding()) {
+			case DELTA:
+				long previous = 0;
+				for (int row = 0; row < rows; row++) {
+					previous += CompactEncoding.unzigzag(CompactEncoding.getVarLong(body));
+					columnValues[row] = previous;
+				}
+				break;
+			case ZIGZAG:
+				for (int row = 0; row < rows; row++) {
+					columnValues[row] = CompactEncoding.unzigzag(CompactEncoding.getVarLong(body));
+				}
+				break;
+			case STRING:
+			default:
+				for (int row = 0; row < rows; row++) {
+					columnValues[row] = CompactEncoding.getVarLong(body);
+				}
+				break;
+			}
+		}
+		return rows;
+	}
+
+	private void decodeOtherRecords(final ByteBuffer body) {
+		final int rows = (int) CompactEncoding.getVarLong(body);
+		final int length = body.getInt();
+		if (!this.otherRecordsSelected) {
+			body.position(body.position() + length);
+			return;
+		}
+		for (int row = 0; row < rows; row++) {
+			final String className = this.strings.get((int) CompactEncoding.getVarLong(body));
+			final long loggingTimestamp = CompactEncoding.unzigzag(CompactEncoding.getVarLong(body));
+			final int size = (int) CompactEncoding.getVarLong(body);
+			final int end = body.position() + size;
+			RecordDecoder decoder = DECODERS.get(className);
+			if (decoder == null) {
+				decoder = RecordDecoder.forClassName(className);
+				DECODERS.putIfAbsent(className, decoder);
+			}
+			final IMonitoringRecord record = decoder.decode(body, this.strings);
+			record.setLoggingTimestamp(loggingTimestamp);
+			this.otherRecords.add(record);
+			body.position(end);
+		}
+	}
+
+	/**
+	 * @return The number of {@link ServletEntryRecord}s in the current block.
+	 */
+	public int getEntryCount() {
+		return this.entryCount;
+	}
+
+	/**
+	 * @return The number of {@link OperationExecutionRecord}s in the current block.
+	 */
+	public int getExecutionCount() {
+		return this.executionCount;
+	}
+
+	/**
+	 * @return The records of the current block which are stored in their binary representation; empty if they are not
+	 *         selected.
+	 */
+	public List<IMonitoringRecord> getOtherRecords() {
+		return Collections.unmodifiableList(this.otherRecords);
+	}
+
+	/**
+	 * @param column
+	 *            A selected column which is not a string column.
+	 * @param row
+	 *            The row within the column's section of the current block.
+	 *
+	 * @return The value.
+	 */
+	public long getLong(final Column column, final int row) {
+		if (column.getEncoding() == ColumnarFormat.Encoding.STRING) {
+			throw new IllegalArgumentException("String column " + column);
+		}
+		return this.getValue(column, row);
+	}
+
+	/**
+	 * @param column
+	 *            A selected string column.
+	 * @param row
+	 *            The row within the column's section of the current block.
+	 *
+	 * @return The value.
+	 */
+	public String getString(final Column column, final int row) {
+		if (column.getEncoding() != ColumnarFormat.Encoding.STRING) {
+			throw new IllegalArgumentException("Not a string column: " + column);
+		}
+		return this.strings.get((int) this.getValue(column, row));
+	}
+
+	private long getValue(final Column column, final int row) {
+		if (!this.selected[column.ordinal()]) {
+			throw new IllegalStateException("Column not selected: " + column);
+		}
+		final int rows = (column.getSection() == ColumnarFormat.Section.ENTRY) ? this.entryCount : this.executionCount; // NOCS
+		if ((row < 0) || (row >= rows)) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+		}
+		return this.values[column.ordinal()][row];
+	}
+
+	/**
+	 * Creates the records of the current block, ordered by their logging timestamps. This requires all columns to be
+	 * selected.
+	 *
+	 * @param records
+	 *            The collection to add the records to.
+	 */
+	public void getRecords(final Collection<? super IMonitoringRecord> records) {
+		if (!this.allColumns) {
+			throw new IllegalStateException("Creating records requires all columns");
+		}
+		final List<IMonitoringRecord> blockRecords = new ArrayList<IMonitoringRecord>(this.entryCount + this.executionCount + this.otherRecords.size());
+		for (int row = 0; row < this.entryCount; row++) {
+			final ServletEntryRecord record = new ServletEntryRecord(this.getValue(Column.ENTRY_TRACE_ID, row),
+					this.getString(Column.ENTRY_URI, row), (int) this.getValue(Column.ENTRY_PORT, row), this.getString(Column.ENTRY_HOST, row),
+					this.getString(Column.ENTRY_PROTOCOL, row), this.getString(Column.ENTRY_METHOD, row),
+					this.getString(Column.ENTRY_QUERY_STRING, row), this.getString(Column.ENTRY_ENCODING, row));
+			record.setLoggingTimestamp(this.getValue(Column.ENTRY_LOGGING_TIMESTAMP, row));
+			blockRecords.add(record);
+		}
+		for (int row = 0; row < this.executionCount; row++) {
+			final long tin = this.getValue(Column.EXECUTION_TIN, row);
+			final OperationExecutionRecord record = new OperationExecutionRecord(this.getString(Column.EXECUTION_OPERATION_SIGNATURE, row),
+					this.getString(Column.EXECUTION_SESSION_ID, row), this.getValue(Column.EXECUTION_TRACE_ID, row),
+					tin, tin + this.getValue(Column.EXECUTION_DURATION, row), this.getString(Column.EXECUTION_HOSTNAME, row),
+					(int) this.getValue(Column.EXECUTION_EOI, row), (int) this.getValue(Column.EXECUTION_ESS, row));
+			record.setLoggingTimestamp(this.getValue(Column.EXECUTION_LOGGING_TIMESTAMP, row));
+			blockRecords.add(record);
+		}
+		blockRecords.addAll(this.otherRecords);
+		// stable, so that records with equal timestamps keep the order of their sections
+		Collections.sort(blockRecords, LOGGING_ORDER);
+		records.addAll(blockRecords);
+	}
+
+	private void readFully(final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (this.channel.read(buffer) < 0) {
+				throw new EOFException("Unexpected end of " + this.file);
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		this.inflater.end();
+		this.stream.close();
+	}
+}
@@ -0,0 +1,183 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import kieker.common.util.registry.IMonitoringRecordReceivedListener;
+import kieker.common.util.registry.IRegistry;
+
+/**
+ * The string registry of one monitoring log, filled from its mapping file and from the registry entries inlined in its
+ * binary files. It only resolves IDs to strings; the registration of new strings is not supported. Lookups and
+ * additions are thread-safe, so that the files of a log can be decoded concurrently.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class LogStringRegistry implements IRegistry<String> {
+
+	/** The name of the mapping file of a monitoring log. */
+	public static final String MAPPING_FILE_NAME = "kieker.map";
+
+	private final ConcurrentMap<Integer, String> values = new ConcurrentHashMap<Integer, String>();
+
+	/**
+	 * Reads the mapping file of the given log directory, if there is one. Its lines have the form {@code $<id>=<string>},
+	 * with line breaks and backslashes in the string escaped as Kieker's file system writers do ({@code \n},
+	 * {@code \r} and {@code \\}).
+	 *
+	 * @param logDirectory
+	 *            The directory of the monitoring log.
+	 *
+	 * @throws IOException
+	 *             If the mapping file cannot be read.
+	 */
+	public void readMappingFile(final File logDirectory) throws IOException {
+		final File mappingFile = new File(logDirectory, MAPPING_FILE_NAME);
+		if (!mappingFile.isFile()) {
+			return;
+		}
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mappingFile), "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final int split = line.indexOf('=');
+				if (split < 0) {
+					continue;
+				}
+				final int idStart = line.startsWith("$") ? 1 : 0; // NOCS
+				try {
+					this.put(Integer.parseInt(line.substring(idStart, split)), LogStringRegistry.decodeNewlines(line, split + 1));
+				} catch (final NumberFormatException ex) { // NOPMD (not a mapping entry)
+					continue;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reverts the escaping of line breaks in a line of the mapping file. Unknown escape sequences are kept as they are.
+	 */
+	private static String decodeNewlines(final String line, final int start) {
+		if (line.indexOf('\\', start) < 0) {
+			return line.substring(start);
+		}
+		final StringBuilder value = new StringBuilder(line.length() - start);
+		for (int i = start; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if ((c != '\\') || ((i + 1) >= line.length())) {
+				value.append(c);
+				continue;
+			}
+			final char escaped = line.charAt(++i);
+			if (escaped == 'n') {
+				value.append('\n');
+			} else if (escaped == 'r') {
+				value.append('\r');
+			} else if (escaped == '\\') {
+				value.append('\\');
+			} else {
+				value.append(c).append(escaped);
+			}
+		}
+		return value.toString();
+	}
+
+	/**
+	 * Adds a mapping.
+	 *
+	 * @param id
+	 *            The ID.
+	 * @param value
+	 *            The string.
+	 */
+	public void put(final int id, final String value) {
+		this.values.put(id, value);
+	}
+
+	/**
+	 * Removes all mappings.
+	 */
+	public void clear() {
+		this.values.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getId() {
+		return 0;
+	}
+
+	/**
+	 * Not supported, as the registry only serves for decoding.
+	 *
+	 * @throws UnsupportedOperationException
+	 *             Always.
+	 */
+	@Override
+	public int get(final String value) {
+		throw new UnsupportedOperationException("The registry of a monitoring log is read-only");
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return The string or {@code null} if the ID is unknown (so far).
+	 */
+	@Override
+	public String get(final int id) {
+		return this.values.get(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String[] getAll() {
+		return this.values.values().toArray(new String[0]);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSize() {
+		return this.values.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setRecordReceivedListener(final IMonitoringRecordReceivedListener recordReceivedListener) {
+		// nothing is registered, hence nothing is announced
+	}
+}
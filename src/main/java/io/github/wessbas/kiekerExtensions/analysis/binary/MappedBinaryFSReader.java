@@ -0,0 +1,122 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import kieker.analysis.IProjectContext;
+import kieker.analysis.plugin.annotation.OutputPort;
+import kieker.analysis.plugin.annotation.Plugin;
+import kieker.analysis.plugin.annotation.Property;
+import kieker.analysis.plugin.reader.AbstractReaderPlugin;
+import kieker.common.configuration.Configuration;
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+import kieker.common.record.IMonitoringRecord;
+
+/**
+ * A reader for binary file system logs which delivers the records of the {@link MappedBinaryLogReader}, i.e., decoded
+ * in parallel from memory-mapped files and merged by logging timestamp. It can replace Kieker's
+ * {@link kieker.analysis.plugin.reader.filesystem.FSReader} for logs written by the binary file system writer.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+@Plugin(description = "Reads binary file system logs with several threads from memory-mapped files",
+		outputPorts = {
+			@OutputPort(name = MappedBinaryFSReader.OUTPUT_PORT_NAME_RECORDS, eventTypes = { IMonitoringRecord.class },
+					description = "Provides the records ordered by logging timestamp")
+		},
+		configuration = {
+			@Property(name = MappedBinaryFSReader.CONFIG_PROPERTY_NAME_INPUTDIRS, defaultValue = ".",
+					description = "The log directories, separated by '|'"),
+			@Property(name = MappedBinaryFSReader.CONFIG_PROPERTY_NAME_PARALLELISM, defaultValue = "0",
+					description = "The number of decoding threads; 0 for the number of processors")
+		})
+public class MappedBinaryFSReader extends AbstractReaderPlugin {
+
+	public static final String OUTPUT_PORT_NAME_RECORDS = "monitoringRecords";
+
+	public static final String CONFIG_PROPERTY_NAME_INPUTDIRS = "inputDirs";
+	public static final String CONFIG_PROPERTY_NAME_PARALLELISM = "parallelism";
+
+	private static final Log LOG = LogFactory.getLog(MappedBinaryFSReader.class);
+
+	private final String[] inputDirs;
+	private final int parallelism;
+
+	private volatile boolean terminated;
+
+	public MappedBinaryFSReader(final Configuration configuration, final IProjectContext projectContext) {
+		super(configuration, projectContext);
+		this.inputDirs = configuration.getStringArrayProperty(CONFIG_PROPERTY_NAME_INPUTDIRS);
+		final int configuredParallelism = configuration.getIntProperty(CONFIG_PROPERTY_NAME_PARALLELISM);
+		this.parallelism = (configuredParallelism > 0) ? configuredParallelism : Runtime.getRuntime().availableProcessors(); // NOCS
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean read() {
+		final List<File> logDirectories = new ArrayList<File>(this.inputDirs.length);
+		for (final String inputDir : this.inputDirs) {
+			logDirectories.add(new File(inputDir));
+		}
+		MappedBinaryLogReader reader = null;
+		try {
+			reader = new MappedBinaryLogReader(logDirectories, this.parallelism);
+			IMonitoringRecord record;
+			while (!this.terminated && ((record = reader.next()) != null)) {
+				super.deliver(OUTPUT_PORT_NAME_RECORDS, record);
+			}
+			return true;
+		} catch (final IOException ex) {
+			LOG.error("Failed to read the logs", ex);
+			return false;
+		} finally {
+			if (reader != null) {
+				reader.close();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void terminate(final boolean error) {
+		this.terminated = true;
+		super.terminate(error);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Configuration getCurrentConfiguration() {
+		final Configuration configuration = new Configuration();
+		configuration.setProperty(CONFIG_PROPERTY_NAME_INPUTDIRS, Configuration.toProperty(this.inputDirs));
+		configuration.setProperty(CONFIG_PROPERTY_NAME_PARALLELISM, Integer.toString(this.parallelism));
+		return configuration;
+	}
+}
@@ -0,0 +1,493 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.util.registry.IMonitoringRecordReceivedListener;
+import kieker.common.util.registry.IRegistry;
+
+/**
+ * Reads binary Kieker logs with several threads and returns their records as one stream ordered by logging timestamp.
+ *
+ * Each log directory is read as a sequence of its {@code .bin} files (ordered by name, i.e., by creation). The files
+ * are decoded in parallel by a pool of {@code parallelism} threads (see {@link MappedLogFile}), at most
+ * {@code parallelism} files ahead of the file currently being consumed per log. The registry entries of a log are shared
+ * by its decoding threads as soon as they are read, and each file resolves the registry IDs in stream order, i.e., to
+ * the strings last registered before it (see {@link SharedRegistry}); a file referencing a string not read yet waits
+ * until a preceding file registers it (or fails once all preceding files have been decoded). The records of a log are
+ * returned in file order; the logs are merged by the logging timestamps of their records, which are assumed to be ascending
+ * within each log (as written by a single monitoring writer).
+ *
+ * Instances are not thread-safe; {@link #next()} is meant to be called by one consumer thread.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class MappedBinaryLogReader implements Closeable {
+
+	/** The extension of binary log files. */
+	public static final String BINARY_FILE_EXTENSION = ".bin";
+
+	private final ExecutorService executor;
+	private final int lookahead;
+	private final Queue<LogSequence> logs;
+
+	/**
+	 * Creates a new reader and starts decoding the first files of each log.
+	 *
+	 * @param logDirectories
+	 *            The directories of the monitoring logs.
+	 * @param parallelism
+	 *            The number of decoding threads.
+	 *
+	 * @throws IOException
+	 *             If a mapping file cannot be read.
+	 */
+	public MappedBinaryLogReader(final List<File> logDirectories, final int parallelism) throws IOException {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+		}
+		this.lookahead = parallelism;
+		this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "MappedBinaryLogReader");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.logs = new PriorityQueue<LogSequence>(Math.max(1, logDirectories.size()), new Comparator<LogSequence>() {
+			public int compare(final LogSequence log1, final LogSequence log2) {
+				final long timestamp1 = log1.peekTimestamp();
+				final long timestamp2 = log2.peekTimestamp();
+				return (timestamp1 < timestamp2) ? -1 : ((timestamp1 == timestamp2) ? 0 : 1); // NOCS
+			}
+		});
+		try {
+			for (final File logDirectory : logDirectories) {
+				final LogSequence log = new LogSequence(logDirectory);
+				if (log.advance()) {
+					this.logs.add(log);
+				}
+			}
+		} catch (final IOException ex) {
+			this.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * @param logDirectory
+	 *            The directory of a monitoring log.
+	 *
+	 * @return The binary files of the log in the order they were written.
+	 */
+	public static File[] listBinaryFiles(final File logDirectory) {
+		final File[] files = logDirectory.listFiles(new FileFilter() {
+			public boolean accept(final File file) {
+				return file.isFile() && file.getName().endsWith(BINARY_FILE_EXTENSION);
+			}
+		});
+		if (files == null) {
+			return new File[0];
+		}
+		Arrays.sort(files); // the file names start with the creation time
+		return files;
+	}
+
+	/**
+	 * @return The record with the smallest logging timestamp among the next records of all logs; {@code null} at the end
+	 *         of all logs.
+	 *
+	 * @throws IOException
+	 *             If a file cannot be read, or if interrupted while waiting for a file to be decoded.
+	 */
+	public IMonitoringRecord next() throws IOException {
+		final LogSequence log = this.logs.poll();
+		if (log == null) {
+			return null;
+		}
+		final IMonitoringRecord record = log.take();
+		if (log.advance()) {
+			this.logs.add(log);
+		}
+		return record;
+	}
+
+	/**
+	 * Stops the decoding threads.
+	 */
+	public void close() {
+		this.executor.shutdownNow();
+	}
+
+	/**
+	 * Decodes a file of a log.
+	 */
+	private static IMonitoringRecord[] decode(final File file, final SharedRegistry.FileView registry) throws IOException {
+		final MappedLogFile mappedFile = new MappedLogFile(file, registry, MappedLogFile.DEFAULT_WINDOW_SIZE, registry);
+		try {
+			final List<IMonitoringRecord> records = new ArrayList<IMonitoringRecord>();
+			while (mappedFile.next()) {
+				records.add(mappedFile.decode());
+				if (mappedFile.hasMissingStrings()) {
+					break;
+				}
+			}
+			if (mappedFile.hasMissingStrings()) {
+				throw new IOException("Unregistered strings or record types in " + file);
+			}
+			return records.toArray(new IMonitoringRecord[records.size()]);
+		} finally {
+			mappedFile.close();
+		}
+	}
+
+	/**
+	 * The strings of one log, filled from its mapping file and from the registry entries of its files as the decoding
+	 * threads read them. A registry ID may be registered again with another string further down the log, so an ID is
+	 * resolved for a file to the string it was last registered with in the preceding files (or else in the mapping file).
+	 *
+	 * While the preceding files are still being decoded, their registrations are incomplete. A file being decoded
+	 * concurrently therefore resolves an ID to its latest registration known so far, waiting only if there is none, and
+	 * remembers what it assumed (see {@link FileView#isConsistent()}). Once the preceding files are all decoded, the
+	 * assumptions are checked, and the rare file which resolved an ID too early is decoded again.
+	 */
+	private static final class SharedRegistry {
+		private final LogStringRegistry mappedStrings = new LogStringRegistry();
+		/** The registrations of each ID, the latest file first. */
+		private final ConcurrentMap<Integer, Registration> registrations = new ConcurrentHashMap<Integer, Registration>();
+
+		// guarded by this
+		private final boolean[] decoded;
+		/** The number of files at the start of the log which have all been decoded. */
+		private int decodedPrefix;
+		private int waiting;
+
+		SharedRegistry(final File logDirectory, final int fileCount) throws IOException {
+			this.mappedStrings.readMappingFile(logDirectory);
+			this.decoded = new boolean[fileCount];
+		}
+
+		/**
+		 * @return A view for decoding the given file concurrently with its preceding files.
+		 */
+		FileView viewForFile(final int fileIndex) {
+			return new FileView(fileIndex, false);
+		}
+
+		/**
+		 * @return A view for decoding the given file once its preceding files have all been decoded.
+		 */
+		FileView strictViewForFile(final int fileIndex) {
+			return new FileView(fileIndex, true);
+		}
+
+		/**
+		 * Records a registry entry of the given file; within a file, a later entry for an ID replaces an earlier one.
+		 */
+		void put(final int fileIndex, final int id, final String value) {
+			synchronized (this) {
+				Registration previous = this.registrations.get(id);
+				final List<Registration> later = new ArrayList<Registration>(0);
+				while ((previous != null) && (previous.fileIndex >= fileIndex)) {
+					if (previous.fileIndex > fileIndex) {
+						later.add(previous);
+					}
+					previous = previous.previous;
+				}
+				Registration registration = new Registration(fileIndex, value, previous);
+				for (int i = later.size() - 1; i >= 0; i--) {
+					registration = new Registration(later.get(i).fileIndex, later.get(i).value, registration);
+				}
+				this.registrations.put(id, registration);
+				if (this.waiting > 0) {
+					this.notifyAll();
+				}
+			}
+		}
+
+		synchronized void fileDecoded(final int fileIndex) {
+			this.decoded[fileIndex] = true;
+			while ((this.decodedPrefix < this.decoded.length) && this.decoded[this.decodedPrefix]) {
+				this.decodedPrefix++;
+			}
+			this.notifyAll();
+		}
+
+		/**
+		 * @return The string the ID was last registered with before the given file, as far as known so far;
+		 *         {@code null} if there is none.
+		 */
+		String resolve(final int id, final int fileIndex) {
+			Registration registration = this.registrations.get(id);
+			while ((registration != null) && (registration.fileIndex >= fileIndex)) {
+				registration = registration.previous;
+			}
+			return (registration != null) ? registration.value : this.mappedStrings.get(id); // NOCS
+		}
+
+		/**
+		 * @return The string, waiting for it to be registered as long as files preceding the given one are being
+		 *         decoded; {@code null} if it is not registered by then or if interrupted.
+		 */
+		String await(final int id, final int fileIndex) {
+			String value = this.resolve(id, fileIndex);
+			if (value != null) {
+				return value;
+			}
+			synchronized (this) {
+				this.waiting++;
+				try {
+					while (((value = this.resolve(id, fileIndex)) == null) && (this.decodedPrefix < fileIndex)) { // NOPMD (assignment in operand)
+						this.wait();
+					}
+				} catch (final InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				} finally {
+					this.waiting--;
+				}
+			}
+			return value;
+		}
+
+		String[] getAll() {
+			final List<String> values = new ArrayList<String>(Arrays.asList(this.mappedStrings.getAll()));
+			for (final Registration registration : this.registrations.values()) {
+				values.add(registration.value);
+			}
+			return values.toArray(new String[values.size()]);
+		}
+
+		/**
+		 * A registration of an ID by a file, linked to the registrations by the preceding files.
+		 */
+		private static final class Registration {
+			final int fileIndex;
+			final String value;
+			final Registration previous;
+
+			Registration(final int fileIndex, final String value, final Registration previous) {
+				this.fileIndex = fileIndex;
+				this.value = value;
+				this.previous = previous;
+			}
+		}
+
+		/**
+		 * The shared registry as seen by the decoder of one file. As the decoder looks up the registry entries of its own
+		 * file first, the view only resolves IDs registered before the file.
+		 */
+		final class FileView implements IRegistry<String>, MappedLogFile.RegistryEntryListener {
+			private final int fileIndex;
+			private final boolean strict;
+			/** The strings assumed for the IDs looked up so far (only used by the decoding thread). */
+			private final Map<Integer, String> assumed = new HashMap<Integer, String>();
+
+			FileView(final int fileIndex, final boolean strict) {
+				this.fileIndex = fileIndex;
+				this.strict = strict;
+			}
+
+			/**
+			 * Checks the strings the file was decoded with. Must only be called once the preceding files have all been
+			 * decoded (including any second decoding).
+			 *
+			 * @return {@code false} if an ID was resolved before its final registration was known, so that the file has
+			 *         to be decoded again with a strict view.
+			 */
+			boolean isConsistent() {
+				for (final Map.Entry<Integer, String> entry : this.assumed.entrySet()) {
+					final String value = SharedRegistry.this.resolve(entry.getKey(), this.fileIndex);
+					if ((value == null) ? (entry.getValue() != null) : !value.equals(entry.getValue())) { // NOCS
+						return false;
+					}
+				}
+				return true;
+			}
+
+			public void registryEntryRead(final int id, final String value) {
+				SharedRegistry.this.put(this.fileIndex, id, value);
+			}
+
+			public String get(final int id) {
+				if (this.strict) {
+					return SharedRegistry.this.resolve(id, this.fileIndex);
+				}
+				final Integer key = id;
+				String value = this.assumed.get(key);
+				if ((value == null) && !this.assumed.containsKey(key)) {
+					value = SharedRegistry.this.await(id, this.fileIndex);
+					this.assumed.put(key, value);
+				}
+				return value;
+			}
+
+			public long getId() {
+				return 0;
+			}
+
+			public int get(final String value) {
+				throw new UnsupportedOperationException("The registry of a monitoring log is read-only");
+			}
+
+			public String[] getAll() {
+				return SharedRegistry.this.getAll();
+			}
+
+			public int getSize() {
+				return SharedRegistry.this.mappedStrings.getSize() + SharedRegistry.this.registrations.size();
+			}
+
+			public void setRecordReceivedListener(final IMonitoringRecordReceivedListener recordReceivedListener) {
+				// nothing is registered, hence nothing is announced
+			}
+		}
+	}
+
+	/**
+	 * The files of one log, decoded ahead of their consumption.
+	 */
+	private final class LogSequence {
+		private final SharedRegistry registry;
+
+		private final List<File> files;
+		private int nextFileIndex;
+		private final ArrayDeque<DecodingFile> decodingFiles = new ArrayDeque<DecodingFile>();
+
+		private IMonitoringRecord[] records = new IMonitoringRecord[0];
+		private int recordIndex;
+
+		LogSequence(final File logDirectory) throws IOException {
+			final List<File> binaryFiles = new ArrayList<File>();
+			Collections.addAll(binaryFiles, MappedBinaryLogReader.listBinaryFiles(logDirectory));
+			this.files = binaryFiles;
+			this.registry = new SharedRegistry(logDirectory, binaryFiles.size());
+			this.fillLookahead();
+		}
+
+		/**
+		 * Submits the next files for decoding. As the pool takes the files in submission order, a file waiting for strings
+		 * only waits for files which are being decoded already.
+		 */
+		private void fillLookahead() {
+			while ((this.decodingFiles.size() < MappedBinaryLogReader.this.lookahead) && (this.nextFileIndex < this.files.size())) {
+				final int fileIndex = this.nextFileIndex++;
+				final File file = this.files.get(fileIndex);
+				final SharedRegistry sharedRegistry = this.registry;
+				final SharedRegistry.FileView view = sharedRegistry.viewForFile(fileIndex);
+				this.decodingFiles.add(new DecodingFile(fileIndex, view, MappedBinaryLogReader.this.executor.submit(new Callable<IMonitoringRecord[]>() {
+					public IMonitoringRecord[] call() throws IOException {
+						try {
+							return MappedBinaryLogReader.decode(file, view);
+						} finally {
+							sharedRegistry.fileDecoded(fileIndex);
+						}
+					}
+				})));
+			}
+		}
+
+		/**
+		 * Makes the next record available, moving on to the next files as necessary.
+		 *
+		 * @return {@code false} at the end of the log.
+		 */
+		boolean advance() throws IOException {
+			while (this.recordIndex >= this.records.length) {
+				final DecodingFile decodingFile = this.decodingFiles.poll();
+				if (decodingFile == null) {
+					return false;
+				}
+				IMonitoringRecord[] decodedRecords;
+				try {
+					decodedRecords = decodingFile.records.get();
+				} catch (final InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					throw new IOException("Interrupted while decoding the log", ex);
+				} catch (final ExecutionException ex) {
+					if (decodingFile.view.isConsistent()) {
+						if (ex.getCause() instanceof IOException) {
+							throw (IOException) ex.getCause();
+						}
+						throw new IOException("Failed to decode the log", ex.getCause());
+					}
+					decodedRecords = null; // the failure may be due to a string resolved too early
+				}
+				// the preceding files have all been consumed, so the registrations preceding this file are complete
+				if ((decodedRecords == null) || !decodingFile.view.isConsistent()) {
+					final int fileIndex = decodingFile.fileIndex;
+					decodedRecords = MappedBinaryLogReader.decode(this.files.get(fileIndex), this.registry.strictViewForFile(fileIndex));
+				}
+				this.fillLookahead();
+				this.records = decodedRecords;
+				this.recordIndex = 0;
+			}
+			return true;
+		}
+
+		long peekTimestamp() {
+			return this.records[this.recordIndex].getLoggingTimestamp();
+		}
+
+		IMonitoringRecord take() {
+			final IMonitoringRecord record = this.records[this.recordIndex];
+			this.records[this.recordIndex++] = null; // release the consumed records early
+			return record;
+		}
+	}
+
+	/**
+	 * A file of a log being decoded.
+	 */
+	private static final class DecodingFile {
+		final int fileIndex;
+		final SharedRegistry.FileView view;
+		final Future<IMonitoringRecord[]> records;
+
+		DecodingFile(final int fileIndex, final SharedRegistry.FileView view, final Future<IMonitoringRecord[]> records) {
+			this.fileIndex = fileIndex;
+			this.view = view;
+			this.records = records;
+		}
+	}
+}
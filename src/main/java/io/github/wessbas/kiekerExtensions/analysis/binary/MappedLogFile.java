@@ -0,0 +1,453 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.util.registry.IMonitoringRecordReceivedListener;
+import kieker.common.util.registry.IRegistry;
+
+/**
+ * A cursor over the records of one binary Kieker log file, which is memory-mapped and decoded in place: the records
+ * are created from the mapped buffer by their factories, without copying the bytes.
+ *
+ * The file is a sequence of entries. A record entry consists of the registry ID of the record's class name (4 bytes),
+ * the logging timestamp (8 bytes) and the record's binary representation. A registry entry consists of the marker
+ * {@value #REGISTRY_ENTRY_MARKER} (4 bytes), the ID (4 bytes) and the string in the format of
+ * {@link java.io.DataOutput#writeUTF(String)}.
+ *
+ * Strings are looked up in the registry entries read from this file so far and then in the given base registry. If a
+ * string is missing (because it was registered in a preceding file of the log), {@link #hasMissingStrings()} turns
+ * {@code true}; the file then has to be decoded again with a base registry covering the preceding files. Registry
+ * entries of this file are collected (see {@link #getRegistryEntryIds()}) for building that registry, and passed to a
+ * {@link RegistryEntryListener} as they are read, so that the following files can be decoded concurrently.
+ *
+ * Files larger than the mapping window are mapped window by window; a window always starts at an entry.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class MappedLogFile implements Closeable {
+
+	/** The ID marking a registry entry. */
+	public static final int REGISTRY_ENTRY_MARKER = -1;
+
+	/** The default size of the mapped window in bytes. */
+	public static final long DEFAULT_WINDOW_SIZE = Integer.MAX_VALUE;
+
+	private static final ConcurrentMap<String, RecordDecoder> DECODERS = new ConcurrentHashMap<String, RecordDecoder>();
+
+	private static final int HEADER_SIZE = 4 + 8;
+
+	private final File file;
+	private final FileInputStream stream;
+	private final FileChannel channel;
+	private final long fileSize;
+	private final long windowSize;
+	private final FileRegistry registry;
+
+	private MappedByteBuffer window;
+	private long windowStart;
+
+	/* decoders of this file by class ID */
+	private RecordDecoder[] decoders = new RecordDecoder[16];
+	private String[] classNames = new String[16];
+
+	/* the current record */
+	private int classId;
+	private long loggingTimestamp;
+	private long payloadPosition; // absolute
+	private boolean payloadPending;
+
+	private boolean unknownRecordType;
+
+	/**
+	 * Opens the given file with the default window size.
+	 *
+	 * @param file
+	 *            The binary log file.
+	 * @param baseRegistry
+	 *            The strings registered before this file.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be opened or mapped.
+	 */
+	public MappedLogFile(final File file, final IRegistry<String> baseRegistry) throws IOException {
+		this(file, baseRegistry, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Opens the given file.
+	 *
+	 * @param file
+	 *            The binary log file.
+	 * @param baseRegistry
+	 *            The strings registered before this file.
+	 * @param windowSize
+	 *            The maximum number of bytes mapped at a time; should clearly exceed the largest record.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be opened or mapped.
+	 */
+	public MappedLogFile(final File file, final IRegistry<String> baseRegistry, final long windowSize) throws IOException {
+		this(file, baseRegistry, windowSize, null);
+	}
+
+	/**
+	 * Opens the given file, passing its registry entries to the given listener as they are read.
+	 */
+	MappedLogFile(final File file, final IRegistry<String> baseRegistry, final long windowSize, final RegistryEntryListener registryEntryListener)
+			throws IOException {
+		if ((windowSize <= HEADER_SIZE) || (windowSize > Integer.MAX_VALUE)) {
+			throw new IllegalArgumentException("Invalid window size: " + windowSize);
+		}
+		this.file = file;
+		this.windowSize = windowSize;
+		this.registry = new FileRegistry(baseRegistry, registryEntryListener);
+		this.stream = new FileInputStream(file);
+		this.channel = this.stream.getChannel();
+		this.fileSize = this.channel.size();
+		this.map(0);
+	}
+
+	private void map(final long position) throws IOException {
+		this.windowStart = position;
+		this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(this.windowSize, this.fileSize - position));
+	}
+
+	private long position() {
+		return this.windowStart + this.window.position();
+	}
+
+	/**
+	 * Maps the next window starting at the given position if the current window ends before the file.
+	 *
+	 * @return {@code false} if the current window already reaches the end of the file.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be mapped or an entry does not fit into a window.
+	 */
+	private boolean remap(final long position) throws IOException {
+		if ((this.windowStart + this.window.limit()) >= this.fileSize) {
+			return false;
+		}
+		if (position == this.windowStart) {
+			throw new IOException("An entry at " + position + " in " + this.file + " exceeds the window size of " + this.windowSize + " bytes");
+		}
+		this.map(position);
+		return true;
+	}
+
+	/**
+	 * Advances to the next record, skipping the current one if it has neither been decoded nor viewed.
+	 *
+	 * @return {@code false} at the end of the file, at a truncated entry, or at a record whose type is not registered
+	 *         (see {@link #hasMissingStrings()}).
+	 *
+	 * @throws IOException
+	 *             If the file cannot be mapped.
+	 */
+	public boolean next() throws IOException {
+		if (this.payloadPending) {
+			this.skipPayload();
+		}
+		while (true) {
+			final long entryPosition = this.position();
+			try {
+				final int id = this.window.getInt();
+				if (id == REGISTRY_ENTRY_MARKER) {
+					this.readRegistryEntry();
+					continue;
+				}
+				this.loggingTimestamp = this.window.getLong();
+				this.classId = id;
+			} catch (final BufferUnderflowException ex) {
+				if (this.remap(entryPosition)) {
+					continue;
+				}
+				this.window.position(this.window.limit());
+				return false; // end of file or truncated entry
+			}
+			final RecordDecoder decoder;
+			try {
+				decoder = this.getDecoder();
+			} catch (final IllegalArgumentException ex) {
+				throw new IOException("Cannot decode the record at " + entryPosition + " in " + this.file, ex);
+			}
+			if (decoder == null) {
+				this.unknownRecordType = true;
+				return false; // the size of the record is unknown, so the remainder of the file cannot be read
+			}
+			this.payloadPosition = this.position();
+			this.payloadPending = true;
+			return true;
+		}
+	}
+
+	private void readRegistryEntry() {
+		final int id = this.window.getInt();
+		final int length = this.window.getShort() & 0xFFFF;
+		if (length > this.window.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		this.registry.putEntry(id, ModifiedUtf8.decode(this.window, length));
+		if ((id >= 0) && (id < this.decoders.length)) { // the ID may name another record type from now on
+			this.decoders[id] = null;
+			this.classNames[id] = null;
+		}
+	}
+
+	private RecordDecoder getDecoder() {
+		final int id = this.classId;
+		if ((id >= 0) && (id < this.decoders.length) && (this.decoders[id] != null)) {
+			return this.decoders[id];
+		}
+		final String className = this.registry.get(id);
+		if (className == null) {
+			return null;
+		}
+		RecordDecoder decoder = DECODERS.get(className);
+		if (decoder == null) {
+			decoder = RecordDecoder.forClassName(className);
+			DECODERS.putIfAbsent(className, decoder);
+		}
+		if (id >= 0) {
+			if (id >= this.decoders.length) {
+				final int length = Math.max(id + 1, this.decoders.length * 2);
+				this.decoders = Arrays.copyOf(this.decoders, length);
+				this.classNames = Arrays.copyOf(this.classNames, length);
+			}
+			this.decoders[id] = decoder;
+			this.classNames[id] = className;
+		}
+		return decoder;
+	}
+
+	private void skipPayload() throws IOException {
+		final int size = this.getDecoder().getFixedSize();
+		if (size == RecordDecoder.VARIABLE_SIZE) {
+			this.decode();
+			return;
+		}
+		final long end = this.payloadPosition + size;
+		if (end > (this.windowStart + this.window.limit())) {
+			if (!this.remap(this.payloadPosition)) {
+				this.window.position(this.window.limit()); // truncated
+				this.payloadPending = false;
+				return;
+			}
+		}
+		this.window.position((int) (end - this.windowStart));
+		this.payloadPending = false;
+	}
+
+	/**
+	 * Decodes the current record directly from the mapped buffer.
+	 *
+	 * @return The record with its logging timestamp set.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be mapped or the record is truncated.
+	 */
+	public IMonitoringRecord decode() throws IOException {
+		if (!this.payloadPending) {
+			throw new IllegalStateException("No current record");
+		}
+		this.payloadPending = false;
+		final RecordDecoder decoder = this.getDecoder();
+		while (true) {
+			try {
+				final IMonitoringRecord record = decoder.decode(this.window, this.registry);
+				record.setLoggingTimestamp(this.loggingTimestamp);
+				return record;
+			} catch (final BufferUnderflowException ex) {
+				if (!this.remap(this.payloadPosition)) {
+					throw new IOException("Truncated record at " + this.payloadPosition + " in " + this.file, ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Points the given view at the current record if it is a {@link ServletEntryRecord} (not a subclass with another
+	 * encoding). The view's strings are resolved when they are accessed; the view is valid until {@link #next()}.
+	 *
+	 * @param view
+	 *            The view to reuse.
+	 *
+	 * @return {@code false} if the current record is of another type.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be mapped.
+	 */
+	public boolean view(final ServletEntryRecordView view) throws IOException {
+		if (!this.payloadPending || !ServletEntryRecord.class.getName().equals(this.getRecordClassName())) {
+			return false;
+		}
+		if ((this.payloadPosition + ServletEntryRecord.SIZE) > (this.windowStart + this.window.limit())) {
+			if (!this.remap(this.payloadPosition)) {
+				return false; // truncated
+			}
+		}
+		view.wrap(this.window, (int) (this.payloadPosition - this.windowStart), this.registry, this.loggingTimestamp);
+		return true;
+	}
+
+	/**
+	 * @return The class name of the current record.
+	 */
+	public String getRecordClassName() {
+		return ((this.classId >= 0) && (this.classId < this.classNames.length)) ? this.classNames[this.classId] // NOCS
+				: this.registry.get(this.classId);
+	}
+
+	/**
+	 * @return The logging timestamp of the current record.
+	 */
+	public long getLoggingTimestamp() {
+		return this.loggingTimestamp;
+	}
+
+	/**
+	 * @return Whether a string (including a record type) was not found in the registries, so that the file has to be
+	 *         decoded again with a more complete base registry.
+	 */
+	public boolean hasMissingStrings() {
+		return this.unknownRecordType || this.registry.missing;
+	}
+
+	/**
+	 * @return The IDs of the registry entries read from this file so far, in file order.
+	 */
+	public int[] getRegistryEntryIds() {
+		final int[] ids = new int[this.registry.entryIds.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = this.registry.entryIds.get(i);
+		}
+		return ids;
+	}
+
+	/**
+	 * @return The strings of the registry entries read from this file so far, in file order.
+	 */
+	public String[] getRegistryEntryValues() {
+		return this.registry.entryValues.toArray(new String[this.registry.entryValues.size()]);
+	}
+
+	/**
+	 * @return The file.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Closes the file. The mapping itself is released when the buffer is garbage collected.
+	 */
+	public void close() throws IOException {
+		this.stream.close();
+	}
+
+	/**
+	 * Receives the registry entries of a file as they are read.
+	 */
+	interface RegistryEntryListener {
+
+		void registryEntryRead(int id, String value);
+	}
+
+	/**
+	 * The registry entries of this file on top of the base registry.
+	 */
+	private static final class FileRegistry implements IRegistry<String> {
+		private final IRegistry<String> base;
+		private final RegistryEntryListener listener;
+		private final Map<Integer, String> local = new HashMap<Integer, String>();
+		final List<Integer> entryIds = new ArrayList<Integer>();
+		final List<String> entryValues = new ArrayList<String>();
+		boolean missing;
+
+		FileRegistry(final IRegistry<String> base, final RegistryEntryListener listener) {
+			this.base = base;
+			this.listener = listener;
+		}
+
+		void putEntry(final int id, final String value) {
+			this.local.put(id, value);
+			this.entryIds.add(id);
+			this.entryValues.add(value);
+			if (this.listener != null) {
+				this.listener.registryEntryRead(id, value);
+			}
+		}
+
+		public String get(final int id) {
+			if (!this.local.isEmpty()) {
+				final String value = this.local.get(id);
+				if (value != null) {
+					return value;
+				}
+			}
+			final String value = this.base.get(id);
+			if (value == null) {
+				this.missing = true;
+			}
+			return value;
+		}
+
+		public long getId() {
+			return this.base.getId();
+		}
+
+		public int get(final String value) {
+			throw new UnsupportedOperationException("The registry of a monitoring log is read-only");
+		}
+
+		public String[] getAll() {
+			return this.base.getAll();
+		}
+
+		public int getSize() {
+			return this.base.getSize() + this.local.size();
+		}
+
+		public void setRecordReceivedListener(final IMonitoringRecordReceivedListener recordReceivedListener) {
+			// nothing is registered, hence nothing is announced
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes strings in the modified UTF-8 of {@link java.io.DataOutput#writeUTF(String)} from a buffer.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class ModifiedUtf8 {
+
+	private ModifiedUtf8() {
+		// utility class
+	}
+
+	/**
+	 * Decodes the given number of bytes starting at the buffer's position, which is advanced past them. Malformed
+	 * sequences are decoded leniently instead of rejected.
+	 */
+	static String decode(final ByteBuffer buffer, final int length) {
+		final char[] chars = new char[length];
+		int count = 0;
+		final int end = buffer.position() + length;
+		while (buffer.position() < end) {
+			final int b = buffer.get() & 0xFF;
+			if (b < 0x80) {
+				chars[count++] = (char) b;
+			} else if (((b & 0xE0) == 0xC0) && (buffer.position() < end)) {
+				chars[count++] = (char) (((b & 0x1F) << 6) | (buffer.get() & 0x3F));
+			} else if (((b & 0xF0) == 0xE0) && ((buffer.position() + 1) < end)) {
+				chars[count++] = (char) (((b & 0x0F) << 12) | ((buffer.get() & 0x3F) << 6) | (buffer.get() & 0x3F));
+			} else {
+				chars[count++] = '\uFFFD'; // replacement character
+			}
+		}
+		return new String(chars, 0, count);
+	}
+}
@@ -0,0 +1,141 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.factory.IRecordFactory;
+import kieker.common.util.registry.IRegistry;
+
+/**
+ * Decodes the records of one type from their binary representation, preferably with the record's factory (the class
+ * {@code <record class>Factory}), otherwise with the record's {@code (ByteBuffer, IRegistry)} constructor.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class RecordDecoder {
+
+	/** Marks a record type whose binary size depends on its values. */
+	static final int VARIABLE_SIZE = -1;
+
+	private final IRecordFactory<? extends IMonitoringRecord> factory;
+	private final Constructor<? extends IMonitoringRecord> constructor;
+	private final int fixedSize;
+
+	private RecordDecoder(final IRecordFactory<? extends IMonitoringRecord> factory, final Constructor<? extends IMonitoringRecord> constructor,
+			final int fixedSize) {
+		this.factory = factory;
+		this.constructor = constructor;
+		this.fixedSize = fixedSize;
+	}
+
+	/**
+	 * @param className
+	 *            The name of the record class.
+	 *
+	 * @return The decoder for the records of this class.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the class is unknown or has neither a factory nor a binary constructor.
+	 */
+	static RecordDecoder forClassName(final String className) {
+		final Class<? extends IMonitoringRecord> recordClass;
+		try {
+			recordClass = Class.forName(className).asSubclass(IMonitoringRecord.class);
+		} catch (final ClassNotFoundException ex) {
+			throw new IllegalArgumentException("Unknown record type " + className, ex);
+		} catch (final ClassCastException ex) {
+			throw new IllegalArgumentException("Not a record type: " + className, ex);
+		}
+		final int fixedSize = RecordDecoder.getDeclaredSize(recordClass);
+		try {
+			final Object factory = Class.forName(className + "Factory").newInstance();
+			if (factory instanceof IRecordFactory) {
+				@SuppressWarnings("unchecked")
+				final IRecordFactory<? extends IMonitoringRecord> recordFactory = (IRecordFactory<? extends IMonitoringRecord>) factory;
+				return new RecordDecoder(recordFactory, null, fixedSize);
+			}
+		} catch (final ClassNotFoundException ex) { // NOPMD (fall back to the constructor)
+			// no factory
+		} catch (final InstantiationException ex) { // NOPMD (fall back to the constructor)
+			// no usable factory
+		} catch (final IllegalAccessException ex) { // NOPMD (fall back to the constructor)
+			// no usable factory
+		}
+		try {
+			return new RecordDecoder(null, recordClass.getConstructor(ByteBuffer.class, IRegistry.class), fixedSize);
+		} catch (final NoSuchMethodException ex) {
+			throw new IllegalArgumentException("Record type without binary representation: " + className, ex);
+		}
+	}
+
+	/**
+	 * The binary size of a type is fixed if the type itself declares the constant {@code SIZE}; subclasses with a
+	 * different encoding (such as the compact records) do not.
+	 */
+	private static int getDeclaredSize(final Class<?> recordClass) {
+		try {
+			final Field sizeField = recordClass.getDeclaredField("SIZE");
+			if (Modifier.isStatic(sizeField.getModifiers()) && (sizeField.getType() == int.class)) {
+				return sizeField.getInt(null);
+			}
+		} catch (final NoSuchFieldException ex) { // NOPMD (not declared)
+			// variable size
+		} catch (final IllegalAccessException ex) { // NOPMD (not accessible)
+			// variable size
+		}
+		return VARIABLE_SIZE;
+	}
+
+	/**
+	 * Decodes a record starting at the buffer's position, which is advanced past the record.
+	 */
+	IMonitoringRecord decode(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		if (this.factory != null) {
+			return this.factory.create(buffer, stringRegistry);
+		}
+		try {
+			return this.constructor.newInstance(buffer, stringRegistry);
+		} catch (final InvocationTargetException ex) {
+			if (ex.getCause() instanceof BufferUnderflowException) {
+				throw (BufferUnderflowException) ex.getCause();
+			}
+			throw new IllegalStateException("Failed to decode a record of type " + this.constructor.getDeclaringClass().getName(), ex.getCause());
+		} catch (final InstantiationException ex) {
+			throw new IllegalStateException(ex);
+		} catch (final IllegalAccessException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * @return The binary size of the records or {@link #VARIABLE_SIZE}.
+	 */
+	int getFixedSize() {
+		return this.fixedSize;
+	}
+}
@@ -0,0 +1,139 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import io.github.wessbas.kiekerExtensions.writer.RecordStreamProtocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import kieker.analysis.IProjectContext;
+import kieker.analysis.plugin.annotation.OutputPort;
+import kieker.analysis.plugin.annotation.Plugin;
+import kieker.analysis.plugin.annotation.Property;
+import kieker.analysis.plugin.reader.AbstractReaderPlugin;
+import kieker.common.configuration.Configuration;
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+import kieker.common.record.IMonitoringRecord;
+
+/**
+ * A reader which delivers the records streamed by
+ * {@link io.github.wessbas.kiekerExtensions.writer.RecordStreamWriter}s, as received by a {@link RecordStreamReceiver}.
+ * It reads until the analysis is terminated.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+@Plugin(description = "Receives the records streamed by monitored applications",
+		outputPorts = {
+			@OutputPort(name = RecordStreamReader.OUTPUT_PORT_NAME_RECORDS, eventTypes = { IMonitoringRecord.class },
+					description = "Provides the received records")
+		},
+		configuration = {
+			@Property(name = RecordStreamReader.CONFIG_PROPERTY_NAME_BIND_ADDRESS, defaultValue = "localhost",
+					description = "The address to listen on"),
+			@Property(name = RecordStreamReader.CONFIG_PROPERTY_NAME_PORT, defaultValue = "" + RecordStreamProtocol.DEFAULT_PORT,
+					description = "The port to listen on"),
+			@Property(name = RecordStreamReader.CONFIG_PROPERTY_NAME_CREDITS, defaultValue = "" + RecordStreamReceiver.DEFAULT_CREDITS,
+					description = "The number of batches a writer may send ahead")
+		})
+public class RecordStreamReader extends AbstractReaderPlugin {
+
+	public static final String OUTPUT_PORT_NAME_RECORDS = "monitoringRecords";
+
+	public static final String CONFIG_PROPERTY_NAME_BIND_ADDRESS = "bindAddress";
+	public static final String CONFIG_PROPERTY_NAME_PORT = "port";
+	public static final String CONFIG_PROPERTY_NAME_CREDITS = "credits";
+
+	private static final Log LOG = LogFactory.getLog(RecordStreamReader.class);
+
+	private final String bindAddress;
+	private final int port;
+	private final int credits;
+
+	private volatile RecordStreamReceiver receiver;
+	private volatile boolean terminated;
+
+	public RecordStreamReader(final Configuration configuration, final IProjectContext projectContext) {
+		super(configuration, projectContext);
+		this.bindAddress = configuration.getStringProperty(CONFIG_PROPERTY_NAME_BIND_ADDRESS);
+		this.port = configuration.getIntProperty(CONFIG_PROPERTY_NAME_PORT);
+		final int configuredCredits = configuration.getIntProperty(CONFIG_PROPERTY_NAME_CREDITS);
+		this.credits = (configuredCredits > 0) ? configuredCredits : RecordStreamReceiver.DEFAULT_CREDITS; // NOCS
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean read() {
+		try {
+			this.receiver = new RecordStreamReceiver(new InetSocketAddress(this.bindAddress, this.port), this.credits);
+		} catch (final IOException ex) {
+			LOG.error("Failed to listen on " + this.bindAddress + ":" + this.port, ex);
+			return false;
+		}
+		try {
+			IMonitoringRecord record;
+			while (!this.terminated && ((record = this.receiver.next()) != null)) {
+				super.deliver(OUTPUT_PORT_NAME_RECORDS, record);
+			}
+			return true;
+		} catch (final IOException ex) {
+			LOG.error("Failed to receive records", ex);
+			return false;
+		} finally {
+			this.closeReceiver();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void terminate(final boolean error) {
+		this.terminated = true;
+		this.closeReceiver();
+		super.terminate(error);
+	}
+
+	private void closeReceiver() {
+		final RecordStreamReceiver currentReceiver = this.receiver;
+		if (currentReceiver != null) {
+			try {
+				currentReceiver.close();
+			} catch (final IOException ex) {
+				LOG.warn("Failed to close the receiver", ex);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Configuration getCurrentConfiguration() {
+		final Configuration configuration = new Configuration();
+		configuration.setProperty(CONFIG_PROPERTY_NAME_BIND_ADDRESS, this.bindAddress);
+		configuration.setProperty(CONFIG_PROPERTY_NAME_PORT, Integer.toString(this.port));
+		configuration.setProperty(CONFIG_PROPERTY_NAME_CREDITS, Integer.toString(this.credits));
+		return configuration;
+	}
+}
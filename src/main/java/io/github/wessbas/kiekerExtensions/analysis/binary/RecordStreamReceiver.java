@@ -0,0 +1,386 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import io.github.wessbas.kiekerExtensions.record.CompactEncoding;
+import io.github.wessbas.kiekerExtensions.writer.RecordStreamProtocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+import kieker.common.record.IMonitoringRecord;
+
+/**
+ * Receives the records streamed by {@link io.github.wessbas.kiekerExtensions.writer.RecordStreamWriter}s, see
+ * {@link RecordStreamProtocol}. Any number of writers may be connected at a time. The records are rebuilt by the
+ * factories of their types (such as the {@link io.github.wessbas.kiekerExtensions.record.ServletEntryRecordFactory})
+ * and handed out batch by batch; a writer is granted a new credit only when the records of one of its batches have all
+ * been handed out. The analysis consuming the records therefore determines the rate at which the writers send.
+ *
+ * The records of different writers are not ordered by their logging timestamps.
+ *
+ * {@link #next()} must be called by a single thread; {@link #close()} may be called by any thread.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class RecordStreamReceiver implements Closeable {
+
+	/** The default number of batches a writer may send ahead. */
+	public static final int DEFAULT_CREDITS = 8;
+
+	private static final Log LOG = LogFactory.getLog(RecordStreamReceiver.class);
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final ConcurrentMap<String, RecordDecoder> DECODERS = new ConcurrentHashMap<String, RecordDecoder>();
+
+	private static final int HANDSHAKE_LENGTH = 5;
+
+	private final ServerSocketChannel serverChannel;
+	private final Selector selector;
+	private final int credits;
+
+	// modified by the receiving thread only, guarded by itself for close()
+	private final List<Connection> connections = new ArrayList<Connection>();
+	private final Queue<IMonitoringRecord> records = new ArrayDeque<IMonitoringRecord>();
+	/* the connection whose batch is being handed out */
+	private Connection batchConnection;
+
+	private volatile boolean closed;
+
+	/**
+	 * Starts listening on the given address.
+	 *
+	 * @param address
+	 *            The address to listen on; with port 0, an ephemeral port is chosen (see {@link #getPort()}).
+	 * @param credits
+	 *            The number of batches a writer may send ahead.
+	 *
+	 * @throws IOException
+	 *             If the address cannot be bound.
+	 */
+	public RecordStreamReceiver(final InetSocketAddress address, final int credits) throws IOException {
+		if (credits <= 0) {
+			throw new IllegalArgumentException("At least one credit is required");
+		}
+		this.credits = credits;
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		try {
+			this.serverChannel.socket().bind(address);
+			this.serverChannel.configureBlocking(false);
+			this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+		} catch (final IOException ex) {
+			this.serverChannel.close();
+			this.selector.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * @return The port the receiver listens on.
+	 */
+	public int getPort() {
+		return this.serverChannel.socket().getLocalPort();
+	}
+
+	/**
+	 * Returns the next record, waiting for one to arrive if necessary.
+	 *
+	 * @return The next record or {@code null} if the receiver has been closed.
+	 *
+	 * @throws IOException
+	 *             If the receiver fails to accept connections. Failures of single connections only close these
+	 *             connections.
+	 */
+	public IMonitoringRecord next() throws IOException {
+		while (this.records.isEmpty()) {
+			if (this.batchConnection != null) {
+				final Connection connection = this.batchConnection;
+				this.batchConnection = null;
+				try {
+					connection.grantCredits(1);
+				} catch (final IOException ex) {
+					LOG.warn("Closing the connection " + connection + ": " + ex.getMessage());
+					this.closeConnection(connection);
+				}
+			}
+			if (this.closed) {
+				return null;
+			}
+			if (!this.decodeNextBatch()) {
+				try {
+					this.selector.select();
+					this.handleSelectedKeys();
+				} catch (final ClosedSelectorException ex) {
+					return null;
+				}
+			}
+		}
+		return this.records.poll();
+	}
+
+	/**
+	 * Decodes a complete batch of one of the connections, taking turns between the connections.
+	 *
+	 * @return false if no connection has a complete batch.
+	 */
+	private boolean decodeNextBatch() {
+		for (int i = 0; i < this.connections.size(); i++) {
+			final Connection connection = this.connections.get(i);
+			if (!connection.hasBatch()) {
+				continue;
+			}
+			// move the connection to the end for fairness
+			synchronized (this.connections) {
+				this.connections.remove(i);
+				this.connections.add(connection);
+			}
+			try {
+				connection.decodeBatch(this.records);
+				this.batchConnection = connection;
+			} catch (final RuntimeException ex) { // NOPMD (buffer underflows and unknown types or strings)
+				LOG.warn("Received a corrupt batch from " + connection + "; closing the connection", ex);
+				this.records.clear();
+				this.closeConnection(connection);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private void handleSelectedKeys() throws IOException {
+		final Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+		while (keys.hasNext()) {
+			final SelectionKey key = keys.next();
+			keys.remove();
+			if (!key.isValid()) {
+				continue;
+			}
+			if (key.isAcceptable()) {
+				this.accept();
+				continue;
+			}
+			final Connection connection = (Connection) key.attachment();
+			try {
+				if (key.isWritable()) {
+					connection.grantCredits(0);
+				}
+				if (key.isReadable()) {
+					connection.read();
+				}
+			} catch (final IOException ex) {
+				LOG.warn("Closing the connection " + connection + ": " + ex.getMessage());
+				this.closeConnection(connection);
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		final SocketChannel channel = this.serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		final Connection connection = new Connection(channel);
+		connection.key = channel.register(this.selector, SelectionKey.OP_READ, connection);
+		synchronized (this.connections) {
+			this.connections.add(connection);
+		}
+		LOG.info("Accepted record stream from " + connection);
+	}
+
+	private void closeConnection(final Connection connection) {
+		connection.key.cancel();
+		try {
+			connection.channel.close();
+		} catch (final IOException ex) { // NOPMD (closing anyway)
+			// ignore
+		}
+		synchronized (this.connections) {
+			this.connections.remove(connection);
+		}
+		if (this.batchConnection == connection) {
+			this.batchConnection = null;
+		}
+	}
+
+	/**
+	 * Stops receiving; a thread waiting in {@link #next()} returns {@code null}. Records in transit are lost.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.closed = true;
+		synchronized (this.connections) {
+			for (final Connection connection : this.connections) {
+				connection.channel.close();
+			}
+		}
+		this.serverChannel.close();
+		this.selector.close();
+	}
+
+	private static RecordDecoder getDecoder(final String className) {
+		RecordDecoder decoder = DECODERS.get(className);
+		if (decoder == null) {
+			decoder = RecordDecoder.forClassName(className);
+			DECODERS.putIfAbsent(className, decoder);
+		}
+		return decoder;
+	}
+
+	/**
+	 * A connected writer.
+	 */
+	private final class Connection {
+
+		final SocketChannel channel;
+		SelectionKey key;
+
+		private final String name;
+		private final LogStringRegistry strings = new LogStringRegistry();
+		private int stringCount;
+		private boolean handshakeDone;
+		private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+		/* the credits being sent; empty if there are none */
+		private final ByteBuffer creditBuffer = ByteBuffer.allocate(4);
+		private int owedCredits;
+
+		Connection(final SocketChannel channel) {
+			this.channel = channel;
+			this.name = String.valueOf(channel.socket().getRemoteSocketAddress());
+			this.creditBuffer.flip();
+		}
+
+		/**
+		 * Reads what has arrived; the buffer grows to hold a complete batch.
+		 */
+		void read() throws IOException {
+			if (!this.buffer.hasRemaining()) {
+				final int length = (this.buffer.position() >= 4) ? this.buffer.getInt(0) : 0; // NOCS
+				final ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * this.buffer.capacity(), 4 + length));
+				this.buffer.flip();
+				larger.put(this.buffer);
+				this.buffer = larger;
+			}
+			if (this.channel.read(this.buffer) < 0) {
+				throw new IOException("Connection closed by the writer");
+			}
+			if (!this.handshakeDone && (this.buffer.position() >= HANDSHAKE_LENGTH)) {
+				if ((this.buffer.getInt(0) != RecordStreamProtocol.MAGIC) || (this.buffer.get(4) != RecordStreamProtocol.VERSION)) {
+					throw new IOException("Not a record stream of version " + RecordStreamProtocol.VERSION);
+				}
+				this.buffer.flip();
+				this.buffer.position(HANDSHAKE_LENGTH);
+				this.buffer.compact();
+				this.handshakeDone = true;
+				this.grantCredits(RecordStreamReceiver.this.credits);
+			}
+			if (this.handshakeDone && (this.buffer.position() >= 4)) {
+				final int length = this.buffer.getInt(0);
+				if ((length < 0) || (length > RecordStreamProtocol.MAX_BATCH_LENGTH)) {
+					throw new IOException("Invalid batch length " + length);
+				}
+			}
+		}
+
+		boolean hasBatch() {
+			return this.handshakeDone && (this.buffer.position() >= 4) && (this.buffer.position() >= (4 + this.buffer.getInt(0)));
+		}
+
+		/**
+		 * Decodes the first batch in the buffer into the given queue.
+		 */
+		void decodeBatch(final Queue<IMonitoringRecord> queue) {
+			this.buffer.flip();
+			final int end = 4 + this.buffer.getInt();
+			final int limit = this.buffer.limit();
+			this.buffer.limit(end);
+			try {
+				final byte flags = this.buffer.get();
+				if ((flags & RecordStreamProtocol.FLAG_RESET_STRINGS) != 0) {
+					this.strings.clear();
+					this.stringCount = 0;
+				}
+				final int stringCount = (int) CompactEncoding.getVarLong(this.buffer);
+				for (int i = 0; i < stringCount; i++) {
+					final int length = (int) CompactEncoding.getVarLong(this.buffer);
+					this.strings.put(this.stringCount++, new String(this.buffer.array(), this.buffer.arrayOffset() + this.buffer.position(), length, UTF_8));
+					this.buffer.position(this.buffer.position() + length);
+				}
+				final int recordCount = (int) CompactEncoding.getVarLong(this.buffer);
+				for (int i = 0; i < recordCount; i++) {
+					final String className = this.strings.get((int) CompactEncoding.getVarLong(this.buffer));
+					final long loggingTimestamp = CompactEncoding.unzigzag(CompactEncoding.getVarLong(this.buffer));
+					final int size = (int) CompactEncoding.getVarLong(this.buffer);
+					final int recordEnd = this.buffer.position() + size;
+					final IMonitoringRecord record = RecordStreamReceiver.getDecoder(className).decode(this.buffer, this.strings);
+					record.setLoggingTimestamp(loggingTimestamp);
+					queue.add(record);
+					this.buffer.position(recordEnd);
+				}
+			} finally {
+				this.buffer.limit(limit);
+				this.buffer.position(end);
+				this.buffer.compact();
+			}
+		}
+
+		/**
+		 * Sends the given credits along with those that could not be sent before.
+		 */
+		void grantCredits(final int newCredits) throws IOException {
+			this.owedCredits += newCredits;
+			if (!this.creditBuffer.hasRemaining()) {
+				if (this.owedCredits == 0) {
+					return;
+				}
+				this.creditBuffer.clear();
+				this.creditBuffer.putInt(this.owedCredits).flip();
+				this.owedCredits = 0;
+			}
+			this.channel.write(this.creditBuffer);
+			this.key.interestOps(this.creditBuffer.hasRemaining() ? (SelectionKey.OP_READ | SelectionKey.OP_WRITE) : SelectionKey.OP_READ); // NOCS
+		}
+
+		@Override
+		public String toString() {
+			return this.name;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+
+import java.nio.ByteBuffer;
+
+import kieker.common.util.registry.IRegistry;
+
+/**
+ * A reusable, read-only view of a {@link ServletEntryRecord} in a mapped log file (see
+ * {@link MappedLogFile#view(ServletEntryRecordView)}). The values are read from the buffer when they are accessed, and
+ * the strings are resolved from the registry only then, so that scanning a log for, e.g., trace IDs or ports allocates
+ * nothing per record. The string IDs can be compared instead of the strings. A view is valid until its file advances
+ * to the next record; {@link #toRecord()} creates a standalone copy.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class ServletEntryRecordView {
+
+	private static final int OFFSET_TRACE_ID = 0;
+	private static final int OFFSET_URI = 8;
+	private static final int OFFSET_PORT = 12;
+	private static final int OFFSET_HOST = 16;
+	private static final int OFFSET_PROTOCOL = 20;
+	private static final int OFFSET_METHOD = 24;
+	private static final int OFFSET_QUERY_STRING = 28;
+	private static final int OFFSET_ENCODING = 32;
+
+	private ByteBuffer buffer;
+	private int offset;
+	private IRegistry<String> stringRegistry;
+	private long loggingTimestamp;
+
+	void wrap(final ByteBuffer newBuffer, final int newOffset, final IRegistry<String> newStringRegistry, final long newLoggingTimestamp) {
+		this.buffer = newBuffer;
+		this.offset = newOffset;
+		this.stringRegistry = newStringRegistry;
+		this.loggingTimestamp = newLoggingTimestamp;
+	}
+
+	public long getLoggingTimestamp() {
+		return this.loggingTimestamp;
+	}
+
+	public long getTraceId() {
+		return this.buffer.getLong(this.offset + OFFSET_TRACE_ID);
+	}
+
+	public int getUriId() {
+		return this.buffer.getInt(this.offset + OFFSET_URI);
+	}
+
+	public String getUri() {
+		return this.stringRegistry.get(this.getUriId());
+	}
+
+	public int getPort() {
+		return this.buffer.getInt(this.offset + OFFSET_PORT);
+	}
+
+	public int getHostId() {
+		return this.buffer.getInt(this.offset + OFFSET_HOST);
+	}
+
+	public String getHost() {
+		return this.stringRegistry.get(this.getHostId());
+	}
+
+	public int getProtocolId() {
+		return this.buffer.getInt(this.offset + OFFSET_PROTOCOL);
+	}
+
+	public String getProtocol() {
+		return this.stringRegistry.get(this.getProtocolId());
+	}
+
+	public int getMethodId() {
+		return this.buffer.getInt(this.offset + OFFSET_METHOD);
+	}
+
+	public String getMethod() {
+		return this.stringRegistry.get(this.getMethodId());
+	}
+
+	public int getQueryStringId() {
+		return this.buffer.getInt(this.offset + OFFSET_QUERY_STRING);
+	}
+
+	public String getQueryString() {
+		return this.stringRegistry.get(this.getQueryStringId());
+	}
+
+	public int getEncodingId() {
+		return this.buffer.getInt(this.offset + OFFSET_ENCODING);
+	}
+
+	public String getEncoding() {
+		return this.stringRegistry.get(this.getEncodingId());
+	}
+
+	/**
+	 * @return A record with the values of the viewed one.
+	 */
+	public ServletEntryRecord toRecord() {
+		final ServletEntryRecord record = new ServletEntryRecord(this.getTraceId(), this.getUri(), this.getPort(), this.getHost(), this.getProtocol(),
+				this.getMethod(), this.getQueryString(), this.getEncoding());
+		record.setLoggingTimestamp(this.loggingTimestamp);
+		return record;
+	}
+}
@@ -0,0 +1,159 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe;
+
+import io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCapture;
+import io.github.wessbas.kiekerExtensions.record.ServletAsyncCompletionRecord;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import kieker.common.record.controlflow.OperationExecutionRecord;
+
+/**
+ * The state of a traced request which has been put into asynchronous mode. It is registered as {@link AsyncListener}
+ * and finishes the trace when the request completes, with the real end time and the final response status. It is
+ * also stored as request attribute, so that async dispatches of the request continue the trace.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class AsyncTrace implements AsyncListener {
+
+	/** The name of the request attribute holding the trace. */
+	static final String REQUEST_ATTRIBUTE = AsyncTrace.class.getName();
+
+	private final SessionAndTraceRegistrationFilterSPECjEnterprise filter;
+	private final ServletRequest request;
+	private final ServletResponse response;
+
+	private final long traceId;
+	private final String sessionId;
+	private final String useCase;
+	private final long tin;
+	private final String uri;
+	private final int port;
+	private final String host;
+	private final String protocol;
+	private final String method;
+	private final String queryString;
+	private final String encoding;
+	private final boolean sampled;
+	private final double samplingProbability;
+	private final long cpuTime;
+	private final long allocatedBytes;
+	private final QueryStringCapture queryStringCapture;
+
+	private final AtomicBoolean finished = new AtomicBoolean();
+
+	/** The last EOI handed out on any thread processing a dispatch of this request. */
+	private volatile int lastEoi;
+	private volatile String outcome = ServletAsyncCompletionRecord.OUTCOME_COMPLETE;
+
+	AsyncTrace(final SessionAndTraceRegistrationFilterSPECjEnterprise filter, final ServletRequest request, final ServletResponse response, // NOPMD
+			final long traceId, final String sessionId, final String useCase, final long tin, final String uri, final int port, final String host,
+			final String protocol, final String method, final String queryString, final String encoding, final boolean sampled,
+			final double samplingProbability, final long cpuTime, final long allocatedBytes, final QueryStringCapture queryStringCapture,
+			final int lastEoi) {
+		this.filter = filter;
+		this.request = request;
+		this.response = response;
+		this.traceId = traceId;
+		this.sessionId = sessionId;
+		this.useCase = useCase;
+		this.tin = tin;
+		this.uri = uri;
+		this.port = port;
+		this.host = host;
+		this.protocol = protocol;
+		this.method = method;
+		this.queryString = queryString;
+		this.encoding = encoding;
+		this.sampled = sampled;
+		this.samplingProbability = samplingProbability;
+		this.cpuTime = cpuTime;
+		this.allocatedBytes = allocatedBytes;
+		this.queryStringCapture = queryStringCapture;
+		this.lastEoi = lastEoi;
+	}
+
+	ServletRequest getRequest() {
+		return this.request;
+	}
+
+	long getTraceId() {
+		return this.traceId;
+	}
+
+	int getLastEoi() {
+		return this.lastEoi;
+	}
+
+	void setLastEoi(final int lastEoi) {
+		this.lastEoi = lastEoi;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void onComplete(final AsyncEvent event) throws IOException {
+		if (!this.finished.compareAndSet(false, true)) {
+			return;
+		}
+		final long tout = SessionAndTraceRegistrationFilterSPECjEnterprise.TIMESOURCE.getTime();
+		String finalSessionId = this.sessionId;
+		if (finalSessionId == OperationExecutionRecord.NO_SESSION_ID) { // yes, == and not equals
+			finalSessionId = this.filter.getRecordedSessionId(this.request);
+		}
+		final int status = (this.response instanceof HttpServletResponse) ? ((HttpServletResponse) this.response).getStatus() // NOCS
+				: ServletAsyncCompletionRecord.NO_STATUS;
+		this.filter.submitRecords(this.traceId, finalSessionId, this.useCase, this.tin, tout, this.uri, this.port, this.host, this.protocol,
+				this.method, this.queryString, this.encoding, this.sampled, this.samplingProbability, status, this.outcome,
+				this.cpuTime, this.allocatedBytes, this.queryStringCapture);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void onTimeout(final AsyncEvent event) throws IOException {
+		this.outcome = ServletAsyncCompletionRecord.OUTCOME_TIMEOUT;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void onError(final AsyncEvent event) throws IOException {
+		this.outcome = ServletAsyncCompletionRecord.OUTCOME_ERROR;
+	}
+
+	/**
+	 * Re-registers this listener, since the container removes all listeners when the request is put into asynchronous
+	 * mode once more.
+	 */
+	public void onStartAsync(final AsyncEvent event) throws IOException {
+		event.getAsyncContext().addListener(this);
+	}
+}
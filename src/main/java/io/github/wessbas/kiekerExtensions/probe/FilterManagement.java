@@ -0,0 +1,132 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe;
+
+import io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCapture;
+import io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCaptureMode;
+import io.github.wessbas.kiekerExtensions.probe.sampling.SamplingMode;
+
+/**
+ * Exposes a {@link SessionAndTraceRegistrationFilterSPECjEnterprise} as {@link SessionAndTraceRegistrationFilterMXBean}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class FilterManagement implements SessionAndTraceRegistrationFilterMXBean {
+
+	private final SessionAndTraceRegistrationFilterSPECjEnterprise filter;
+
+	FilterManagement(final SessionAndTraceRegistrationFilterSPECjEnterprise filter) {
+		this.filter = filter;
+	}
+
+	public boolean isLogFilterExecution() {
+		return this.filter.getSettings().isLogFilterExecution();
+	}
+
+	public void setLogFilterExecution(final boolean logFilterExecution) {
+		this.filter.setLogFilterExecution(logFilterExecution);
+	}
+
+	public String getSamplingMode() {
+		return this.filter.getSettings().getSamplingMode().name();
+	}
+
+	public double getSamplingProbability() {
+		return this.filter.getSettings().getSamplingProbability();
+	}
+
+	public double getSamplingRate() {
+		return this.filter.getSettings().getSamplingRate();
+	}
+
+	public void configureSampling(final String samplingMode, final double samplingProbability, final double samplingRate) {
+		this.filter.configureSampling(SamplingMode.parse(samplingMode), samplingProbability, samplingRate);
+	}
+
+	public String getUseCaseRules() {
+		final String rules = this.filter.getSettings().getUseCaseRules();
+		return (rules != null) ? rules : ""; // NOCS
+	}
+
+	public void setUseCaseRules(final String useCaseRules) {
+		this.filter.setUseCaseRules(useCaseRules);
+	}
+
+	public String getQueryStringCaptureMode() {
+		return this.filter.getSettings().getQueryStringCapture().getMode().name();
+	}
+
+	public int getQueryStringCaptureMaxLength() {
+		return this.filter.getSettings().getQueryStringCapture().getMaxLength();
+	}
+
+	public String getQueryStringCaptureParameters() {
+		final StringBuilder parameters = new StringBuilder();
+		for (final String parameter : this.filter.getSettings().getQueryStringCapture().getParameters()) {
+			if (parameters.length() > 0) {
+				parameters.append(',');
+			}
+			parameters.append(parameter);
+		}
+		return parameters.toString();
+	}
+
+	public void configureQueryStringCapture(final String mode, final int maxLength, final String parameters) {
+		this.filter.setQueryStringCapture(this.filter.getSettings().getQueryStringCapture().withPolicy(QueryStringCaptureMode.parse(mode),
+				maxLength, QueryStringCapture.parseParameters(parameters), QueryStringCapture.DEFAULT_CACHE_SIZE));
+	}
+
+	public int getSamplerInterval() {
+		return this.filter.getSamplerInterval();
+	}
+
+	public void setSamplerInterval(final int samplerInterval) {
+		this.filter.setSamplerInterval(samplerInterval);
+	}
+
+	public String getMonitoringLevel() {
+		return this.filter.getMonitoringLevel().name();
+	}
+
+	public long getRequestCount() {
+		return this.filter.getRequestCount();
+	}
+
+	public long getTracedRequestCount() {
+		return this.filter.getTracedRequestCount();
+	}
+
+	public long getDroppedRecordCount() {
+		return this.filter.getDroppedRecordCount();
+	}
+
+	public double getAverageOverhead() {
+		return this.filter.getAverageOverhead();
+	}
+
+	public boolean isProbeActive() {
+		return this.filter.isProbeActive();
+	}
+
+	public void refreshProbeActivation() {
+		this.filter.refreshProbeActivation();
+	}
+}
@@ -0,0 +1,131 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe;
+
+import io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCapture;
+import io.github.wessbas.kiekerExtensions.probe.sampling.ITraceSampler;
+import io.github.wessbas.kiekerExtensions.probe.sampling.SamplingMode;
+import io.github.wessbas.kiekerExtensions.probe.usecase.IUseCaseExtractor;
+
+/**
+ * An immutable snapshot of the settings of {@link SessionAndTraceRegistrationFilterSPECjEnterprise} which can be changed
+ * at runtime. The filter reads the current snapshot once per request, so that a request sees either all or none of the
+ * effects of a reconfiguration, without any locking on the request path. Changes create a new snapshot via the
+ * {@code with...} methods.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class FilterSettings {
+
+	private final boolean logFilterExecution;
+	private final SamplingMode samplingMode;
+	private final double samplingProbability;
+	private final double samplingRate;
+	private final ITraceSampler traceSampler;
+	private final IUseCaseExtractor useCaseExtractor;
+	private final String useCaseRules;
+	private final QueryStringCapture queryStringCapture;
+
+	FilterSettings(final boolean logFilterExecution, final SamplingMode samplingMode, final double samplingProbability, final double samplingRate,
+			final ITraceSampler traceSampler, final IUseCaseExtractor useCaseExtractor, final String useCaseRules,
+			final QueryStringCapture queryStringCapture) {
+		this.logFilterExecution = logFilterExecution;
+		this.samplingMode = samplingMode;
+		this.samplingProbability = samplingProbability;
+		this.samplingRate = samplingRate;
+		this.traceSampler = traceSampler;
+		this.useCaseExtractor = useCaseExtractor;
+		this.useCaseRules = useCaseRules;
+		this.queryStringCapture = queryStringCapture;
+	}
+
+	FilterSettings withLogFilterExecution(final boolean newLogFilterExecution) {
+		return new FilterSettings(newLogFilterExecution, this.samplingMode, this.samplingProbability, this.samplingRate, this.traceSampler,
+				this.useCaseExtractor, this.useCaseRules, this.queryStringCapture);
+	}
+
+	FilterSettings withSampling(final SamplingMode newSamplingMode, final double newSamplingProbability, final double newSamplingRate,
+			final ITraceSampler newTraceSampler) {
+		return new FilterSettings(this.logFilterExecution, newSamplingMode, newSamplingProbability, newSamplingRate, newTraceSampler,
+				this.useCaseExtractor, this.useCaseRules, this.queryStringCapture);
+	}
+
+	FilterSettings withUseCaseExtractor(final IUseCaseExtractor newUseCaseExtractor, final String newUseCaseRules) {
+		return new FilterSettings(this.logFilterExecution, this.samplingMode, this.samplingProbability, this.samplingRate, this.traceSampler,
+				newUseCaseExtractor, newUseCaseRules, this.queryStringCapture);
+	}
+
+	FilterSettings withQueryStringCapture(final QueryStringCapture newQueryStringCapture) {
+		return new FilterSettings(this.logFilterExecution, this.samplingMode, this.samplingProbability, this.samplingRate, this.traceSampler,
+				this.useCaseExtractor, this.useCaseRules, newQueryStringCapture);
+	}
+
+	/**
+	 * @return Whether requests are traced at all.
+	 */
+	public boolean isLogFilterExecution() {
+		return this.logFilterExecution;
+	}
+
+	public SamplingMode getSamplingMode() {
+		return this.samplingMode;
+	}
+
+	/**
+	 * @return The configured sampling probability; {@link Double#NaN} if not configured.
+	 */
+	public double getSamplingProbability() {
+		return this.samplingProbability;
+	}
+
+	/**
+	 * @return The configured sampling rate in traces per second; {@link Double#NaN} if not configured.
+	 */
+	public double getSamplingRate() {
+		return this.samplingRate;
+	}
+
+	/**
+	 * @return The sampler for {@link #getSamplingMode()}; {@code null} if every request is traced.
+	 */
+	public ITraceSampler getTraceSampler() {
+		return this.traceSampler;
+	}
+
+	public IUseCaseExtractor getUseCaseExtractor() {
+		return this.useCaseExtractor;
+	}
+
+	/**
+	 * @return The inline use case rules (see {@link io.github.wessbas.kiekerExtensions.probe.usecase.UseCaseRuleParser});
+	 *         {@code null} if there are none.
+	 */
+	public String getUseCaseRules() {
+		return this.useCaseRules;
+	}
+
+	/**
+	 * @return The policy applied to the query strings before they are recorded.
+	 */
+	public QueryStringCapture getQueryStringCapture() {
+		return this.queryStringCapture;
+	}
+}
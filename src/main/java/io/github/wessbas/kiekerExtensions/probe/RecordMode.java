@@ -0,0 +1,58 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe;
+
+import java.util.Locale;
+
+/**
+ * Determines which records {@link SessionAndTraceRegistrationFilterSPECjEnterprise} writes for traced requests.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public enum RecordMode {
+	/**
+	 * A {@link io.github.wessbas.kiekerExtensions.record.ServletEntryRecord} and an
+	 * {@link kieker.common.record.controlflow.OperationExecutionRecord} (the default).
+	 */
+	CLASSIC,
+	/** A single {@link io.github.wessbas.kiekerExtensions.record.ServletEntryAndExecutionRecord}. */
+	MERGED,
+	/**
+	 * No records per request; instead, the response times are aggregated per use case and written periodically as
+	 * {@link io.github.wessbas.kiekerExtensions.record.UseCaseSummaryRecord}s.
+	 */
+	AGGREGATED;
+
+	/**
+	 * Case-insensitive variant of {@link #valueOf(String)}.
+	 *
+	 * @param name
+	 *            The name of the mode.
+	 *
+	 * @return The mode.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If there is no such mode.
+	 */
+	public static RecordMode parse(final String name) {
+		return RecordMode.valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+	}
+}
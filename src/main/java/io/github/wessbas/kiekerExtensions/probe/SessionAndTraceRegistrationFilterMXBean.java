@@ -0,0 +1,166 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe;
+
+/**
+ * The management interface of {@link SessionAndTraceRegistrationFilterSPECjEnterprise}, registered in the platform MBean
+ * server under {@value #OBJECT_NAME_DOMAIN}{@code :type=SessionAndTraceRegistrationFilter,context=<context path>,name=<filter name>}.
+ * Changes take effect with the next request and are not persisted.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public interface SessionAndTraceRegistrationFilterMXBean {
+
+	/** The domain of the object names. */
+	String OBJECT_NAME_DOMAIN = "io.github.wessbas.kiekerExtensions";
+
+	/**
+	 * @return Whether requests are traced at all.
+	 */
+	boolean isLogFilterExecution();
+
+	/**
+	 * Switches the tracing on or off.
+	 */
+	void setLogFilterExecution(boolean logFilterExecution);
+
+	/**
+	 * @return The name of the current {@link io.github.wessbas.kiekerExtensions.probe.sampling.SamplingMode}.
+	 */
+	String getSamplingMode();
+
+	/**
+	 * @return The current sampling probability; {@code NaN} if not configured.
+	 */
+	double getSamplingProbability();
+
+	/**
+	 * @return The current sampling rate in traces per second; {@code NaN} if not configured.
+	 */
+	double getSamplingRate();
+
+	/**
+	 * Replaces the trace sampler. The parameters have the meaning of the corresponding filter init-params.
+	 *
+	 * @param samplingMode
+	 *            The name of the {@link io.github.wessbas.kiekerExtensions.probe.sampling.SamplingMode}.
+	 * @param samplingProbability
+	 *            The sampling probability; {@code NaN} if not required by the mode.
+	 * @param samplingRate
+	 *            The sampling rate in traces per second; {@code NaN} if not required by the mode.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the mode is unknown or a parameter required by the mode is missing or invalid.
+	 */
+	void configureSampling(String samplingMode, double samplingProbability, double samplingRate);
+
+	/**
+	 * @return The inline use case rules which precede the SPECjEnterprise use cases; empty if there are none. Rules read
+	 *         from a file at startup are not included.
+	 */
+	String getUseCaseRules();
+
+	/**
+	 * Replaces all use case rules (including those read from a file at startup).
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a rule is malformed.
+	 */
+	void setUseCaseRules(String useCaseRules);
+
+	/**
+	 * @return The name of the current {@link io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCaptureMode}.
+	 */
+	String getQueryStringCaptureMode();
+
+	/**
+	 * @return The maximum length of the recorded query strings in the mode {@code TRUNCATE}.
+	 */
+	int getQueryStringCaptureMaxLength();
+
+	/**
+	 * @return The comma-separated parameters kept in the mode {@code WHITELIST} or kept in clear in the mode {@code HASH}.
+	 */
+	String getQueryStringCaptureParameters();
+
+	/**
+	 * Replaces the query string capture policy. The parameters have the meaning of the corresponding filter init-params;
+	 * the key of the mode {@code HASH} is kept.
+	 *
+	 * @param mode
+	 *            The name of the {@link io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCaptureMode}.
+	 * @param maxLength
+	 *            The maximum length in the mode {@code TRUNCATE}.
+	 * @param parameters
+	 *            The comma-separated parameters for the modes {@code WHITELIST} and {@code HASH}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If the mode is unknown or the maximum length is negative.
+	 */
+	void configureQueryStringCapture(String mode, int maxLength, String parameters);
+
+	/**
+	 * @return The interval of the periodic samplers in seconds.
+	 */
+	int getSamplerInterval();
+
+	/**
+	 * Reschedules the periodic samplers of this filter. Samplers which are still used by other filter instances keep
+	 * their schedule.
+	 */
+	void setSamplerInterval(int samplerInterval);
+
+	/**
+	 * @return The current level of the overhead guard; {@code FULL} if the guard is disabled.
+	 */
+	String getMonitoringLevel();
+
+	/**
+	 * @return The number of requests seen since the start.
+	 */
+	long getRequestCount();
+
+	/**
+	 * @return The number of traced requests since the start.
+	 */
+	long getTracedRequestCount();
+
+	/**
+	 * @return The number of records dropped by the hand-off buffer or rejected by the monitoring controller since the start.
+	 */
+	long getDroppedRecordCount();
+
+	/**
+	 * @return Whether monitoring is enabled and the filter's signature is activated, as currently cached.
+	 */
+	boolean isProbeActive();
+
+	/**
+	 * Re-evaluates whether monitoring is enabled and the filter's signature is activated, e.g., right after the probe
+	 * patterns have been changed.
+	 */
+	void refreshProbeActivation();
+
+	/**
+	 * @return The mean time in nanoseconds spent on the bookkeeping after the filter chain per traced request since the start.
+	 */
+	double getAverageOverhead();
+}
@@ -18,11 +18,54 @@
 
 package io.github.wessbas.kiekerExtensions.probe;
 
+import io.github.wessbas.kiekerExtensions.probe.activation.ProbeActivationCache;
+import io.github.wessbas.kiekerExtensions.probe.aggregation.UseCaseAggregator;
+import io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCapture;
+import io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCaptureMode;
+import io.github.wessbas.kiekerExtensions.probe.guard.IBacklogGauge;
+import io.github.wessbas.kiekerExtensions.probe.guard.MonitoringLevel;
+import io.github.wessbas.kiekerExtensions.probe.guard.OverheadGuard;
+import io.github.wessbas.kiekerExtensions.probe.handoff.FullBufferPolicy;
+import io.github.wessbas.kiekerExtensions.probe.handoff.IPendingRequestConsumer;
+import io.github.wessbas.kiekerExtensions.probe.handoff.PendingRequest;
+import io.github.wessbas.kiekerExtensions.probe.handoff.ServletRequestHandoff;
+import io.github.wessbas.kiekerExtensions.probe.handoff.StripedCounter;
+import io.github.wessbas.kiekerExtensions.probe.resource.ThreadResourceMeter;
+import io.github.wessbas.kiekerExtensions.probe.sampler.SamplerRegistry;
+import io.github.wessbas.kiekerExtensions.probe.sampler.SamplerType;
+import io.github.wessbas.kiekerExtensions.probe.sampling.ITraceSampler;
+import io.github.wessbas.kiekerExtensions.probe.sampling.ProbabilisticTraceSampler;
+import io.github.wessbas.kiekerExtensions.probe.sampling.RateLimitingTraceSampler;
+import io.github.wessbas.kiekerExtensions.probe.sampling.SamplingMode;
+import io.github.wessbas.kiekerExtensions.probe.sampling.UseCaseQuotaTraceSampler;
+import io.github.wessbas.kiekerExtensions.probe.traceid.TraceIdAllocator;
+import io.github.wessbas.kiekerExtensions.probe.usecase.IUseCaseExtractor;
+import io.github.wessbas.kiekerExtensions.probe.usecase.QueryStringUseCaseExtractor;
+import io.github.wessbas.kiekerExtensions.probe.usecase.RuleBasedUseCaseExtractor;
+import io.github.wessbas.kiekerExtensions.probe.usecase.UseCaseRule;
+import io.github.wessbas.kiekerExtensions.probe.usecase.UseCaseRuleParser;
+import io.github.wessbas.kiekerExtensions.record.CompactServletEntryRecord;
+import io.github.wessbas.kiekerExtensions.record.ServletAsyncCompletionRecord;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryAndExecutionRecord;
 import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+import io.github.wessbas.kiekerExtensions.record.ServletResourceUsageRecord;
+import io.github.wessbas.kiekerExtensions.record.SessionKeys;
+import io.github.wessbas.kiekerExtensions.record.TraceSamplingRecord;
+import io.github.wessbas.kiekerExtensions.registry.BoundedStringRegistry;
 
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -34,17 +77,17 @@ import javax.servlet.http.HttpSession;
 
 import kieker.common.logging.Log;
 import kieker.common.logging.LogFactory;
+import kieker.common.record.IMonitoringRecord;
 import kieker.common.record.controlflow.OperationExecutionRecord;
+import kieker.common.util.registry.IMonitoringRecordReceivedListener;
 import kieker.common.util.signature.ClassOperationSignaturePair;
 import kieker.common.util.signature.Signature;
 import kieker.monitoring.core.controller.IMonitoringController;
 import kieker.monitoring.core.controller.MonitoringController;
 import kieker.monitoring.core.registry.ControlFlowRegistry;
 import kieker.monitoring.core.registry.SessionRegistry;
-import kieker.monitoring.core.sampler.ISampler;
+import kieker.monitoring.core.sampler.ScheduledSamplerJob;
 import kieker.monitoring.probe.IMonitoringProbe;
-import kieker.monitoring.sampler.mxbean.GCSampler;
-import kieker.monitoring.sampler.mxbean.MemorySampler;
 import kieker.monitoring.timer.ITimeSource;
 
 /**
@@ -70,12 +113,123 @@ import kieker.monitoring.timer.ITimeSource;
  * }
  * </pre>
  * 
+ * By default, the use case of a request is taken from the SPECjEnterprise {@code action} query parameter. Additional rules
+ * (see {@link UseCaseRuleParser} for the syntax) can be given inline via the init-param {@value #CONFIG_PROPERTY_NAME_USE_CASE_RULES}
+ * or in a file via {@value #CONFIG_PROPERTY_NAME_USE_CASE_RULES_FILE}; requests not matched by any rule still fall back to the
+ * {@code action} parameter.
+ * 
+ * To reduce the overhead under high load, only a sample of the requests can be traced (init-param
+ * {@value #CONFIG_PROPERTY_NAME_SAMPLING_MODE}, see {@link SamplingMode}). Each sampled trace is accompanied by a
+ * {@link TraceSamplingRecord} with its inclusion probability, so that analyses can re-weight the traces. With the init-param
+ * {@value #CONFIG_PROPERTY_NAME_ASYNC_RECORD_HANDOFF}, the records are created and written by a background thread (see
+ * {@link ServletRequestHandoff}) instead of the request threads.
+ * 
+ * Requests put into asynchronous mode (Servlet 3.0) are traced until they complete: the trace is finished by an
+ * {@link javax.servlet.AsyncListener}, which also writes a {@link ServletAsyncCompletionRecord} with the final response
+ * status. The request thread is released right away, and async dispatches of the request continue its trace; async
+ * dispatches of untraced requests pass the filter untraced. For this,
+ * the filter must be declared with {@code <async-supported>true</async-supported>} and mapped with
+ * {@code <dispatcher>REQUEST</dispatcher>} and {@code <dispatcher>ASYNC</dispatcher>}.
+ * 
+ * The init-param {@value #CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE} selects how much of the query string is recorded
+ * ({@link QueryStringCaptureMode}): all of it, nothing, the first {@value #CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE_MAX_LENGTH}
+ * characters, only the parameters listed in {@value #CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE_PARAMETERS}, or the
+ * query string with the values of all other parameters hashed (see {@link QueryStringCapture}). The values are hashed
+ * with HMAC-SHA256 under the secret in {@value #CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE_HASH_KEY}; without it, a random
+ * key is generated per JVM, so that the hashes of different runs cannot be correlated. The policy in effect
+ * when a request enters the filter is applied when its records are created; the use case is always extracted from the
+ * full query string.
+ * 
+ * In {@link RecordMode#AGGREGATED}, no records are written per request. Instead, the response times are aggregated per
+ * use case, and summaries are written periodically (init-param {@value #CONFIG_PROPERTY_NAME_AGGREGATION_INTERVAL}, in seconds; see
+ * {@link UseCaseAggregator}).
+ * 
+ * For the use cases listed in the init-param {@value #CONFIG_PROPERTY_NAME_RESOURCE_USAGE_USE_CASES} (comma-separated, or
+ * {@code *} for all), the CPU time and the allocated bytes of the request thread during the filter chain are written as
+ * {@link ServletResourceUsageRecord} (see {@link ThreadResourceMeter}). For asynchronous requests, this covers the
+ * request thread's part only; in {@link RecordMode#AGGREGATED}, the resource usage is not recorded.
+ * 
+ * The periodic samplers are configured by the init-params {@value #CONFIG_PROPERTY_NAME_SAMPLERS} (a comma-separated list
+ * of {@link SamplerType}s, {@value #DEFAULT_SAMPLERS} by default; empty for none) and
+ * {@value #CONFIG_PROPERTY_NAME_SAMPLER_INTERVAL} (in seconds). They are scheduled via the {@link SamplerRegistry}, so
+ * that several filter instances in one JVM share one schedule per sampler, and released in {@link #destroy()}.
+ * 
+ * With the init-param {@value #CONFIG_PROPERTY_NAME_OVERHEAD_GUARD}, an {@link OverheadGuard} watches the filter's own
+ * bookkeeping time per request and the backlog of the record hand-off. While the budgets are exceeded, the filter
+ * degrades step by step from {@link MonitoringLevel#FULL} to {@link MonitoringLevel#OFF} and recovers with hysteresis.
+ * 
+ * Whether monitoring is enabled and the filter's signature is activated is cached by a {@link ProbeActivationCache},
+ * refreshed every {@value #CONFIG_PROPERTY_NAME_PROBE_ACTIVATION_REFRESH_MILLIS} milliseconds (0 to check on every request).
+ * Code changing the probe patterns can apply the change immediately via the MXBean operation {@code refreshProbeActivation}.
+ * 
+ * By default, the trace IDs are taken from the {@link ControlFlowRegistry}'s global counter. With a positive
+ * {@value #CONFIG_PROPERTY_NAME_TRACE_ID_BLOCK_SIZE} (e.g., {@value TraceIdAllocator#DEFAULT_BLOCK_SIZE}), they are
+ * allocated by a {@link TraceIdAllocator}, which hands each request thread a block of that many IDs prefixed with the
+ * node ID {@value #CONFIG_PROPERTY_NAME_TRACE_ID_NODE_ID} (derived per JVM by default).
+ * 
+ * The session boundaries are written by the companion {@link SessionLifecycleListener}, which refers to the sessions by
+ * their {@link SessionKeys}. With the init-param {@value #CONFIG_PROPERTY_NAME_SESSION_KEYS}, the filter records the
+ * formatted key instead of the session ID as well (also in the thread-local {@link SessionRegistry}), which keeps the
+ * session IDs out of the logs.
+ * 
+ * Unless the init-param {@value #CONFIG_PROPERTY_NAME_JMX_MANAGEMENT} is {@code false}, each filter instance registers a
+ * {@link SessionAndTraceRegistrationFilterMXBean} for changing the tracing, the sampling, the use case rules and the sampler
+ * interval at runtime, and for reading its counters. The changeable settings form an immutable {@link FilterSettings}
+ * snapshot, which is read once per request.
+ * 
  * @author Andre van Hoorn, Marco Luebcke, Jan Waller
  * 
  * @since 1.5
  */
 public class SessionAndTraceRegistrationFilterSPECjEnterprise implements Filter, IMonitoringProbe {
 	public static final String CONFIG_PROPERTY_NAME_LOG_FILTER_EXECUTION = "logFilterExecution";
+	public static final String CONFIG_PROPERTY_NAME_USE_CASE_CACHE_SIZE = "useCaseCacheSize";
+	public static final String CONFIG_PROPERTY_NAME_USE_CASE_RULES = "useCaseRules";
+	public static final String CONFIG_PROPERTY_NAME_USE_CASE_RULES_FILE = "useCaseRulesFile";
+	public static final String CONFIG_PROPERTY_NAME_RECORD_MODE = "recordMode";
+	public static final String CONFIG_PROPERTY_NAME_COMPACT_SERVLET_ENTRY_RECORDS = "compactServletEntryRecords";
+	public static final String CONFIG_PROPERTY_NAME_BOUNDED_STRING_REGISTRY_CAPACITY = "boundedStringRegistryCapacity";
+	public static final String CONFIG_PROPERTY_NAME_SAMPLING_MODE = "samplingMode";
+	public static final String CONFIG_PROPERTY_NAME_SAMPLING_PROBABILITY = "samplingProbability";
+	public static final String CONFIG_PROPERTY_NAME_SAMPLING_RATE = "samplingRate";
+	public static final String CONFIG_PROPERTY_NAME_ASYNC_RECORD_HANDOFF = "asyncRecordHandoff";
+	public static final String CONFIG_PROPERTY_NAME_HANDOFF_STRIPES = "handoffStripes";
+	public static final String CONFIG_PROPERTY_NAME_HANDOFF_BUFFER_SIZE = "handoffBufferSize";
+	public static final String CONFIG_PROPERTY_NAME_HANDOFF_FULL_BUFFER_POLICY = "handoffFullBufferPolicy";
+	public static final String CONFIG_PROPERTY_NAME_AGGREGATION_INTERVAL = "aggregationInterval";
+	public static final String CONFIG_PROPERTY_NAME_AGGREGATION_MAX_USE_CASES = "aggregationMaxUseCases";
+	public static final String CONFIG_PROPERTY_NAME_RESOURCE_USAGE_USE_CASES = "resourceUsageUseCases";
+	public static final String CONFIG_PROPERTY_NAME_SAMPLERS = "samplers";
+	public static final String CONFIG_PROPERTY_NAME_SAMPLER_INTERVAL = "samplerInterval";
+	public static final String CONFIG_PROPERTY_NAME_OVERHEAD_GUARD = "overheadGuard";
+	public static final String CONFIG_PROPERTY_NAME_OVERHEAD_BUDGET = "overheadBudget";
+	public static final String CONFIG_PROPERTY_NAME_OVERHEAD_BACKLOG_THRESHOLD = "overheadBacklogThreshold";
+	public static final String CONFIG_PROPERTY_NAME_OVERHEAD_SAMPLING_PROBABILITY = "overheadSamplingProbability";
+	public static final String CONFIG_PROPERTY_NAME_OVERHEAD_GUARD_INTERVAL = "overheadGuardInterval";
+	public static final String CONFIG_PROPERTY_NAME_JMX_MANAGEMENT = "jmxManagement";
+	public static final String CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE = "queryStringCapture";
+	public static final String CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE_MAX_LENGTH = "queryStringCaptureMaxLength";
+	public static final String CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE_PARAMETERS = "queryStringCaptureParameters";
+	public static final String CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE_HASH_KEY = "queryStringCaptureHashKey";
+	public static final String CONFIG_PROPERTY_NAME_SESSION_KEYS = "sessionKeys";
+	public static final String CONFIG_PROPERTY_NAME_TRACE_ID_BLOCK_SIZE = "traceIdBlockSize";
+	public static final String CONFIG_PROPERTY_NAME_TRACE_ID_NODE_ID = "traceIdNodeId";
+	public static final String CONFIG_PROPERTY_NAME_PROBE_ACTIVATION_REFRESH_MILLIS = "probeActivationRefreshMillis";
+
+	/** The default interval of the use case summaries in seconds. */
+	public static final int DEFAULT_AGGREGATION_INTERVAL = 10;
+	/** The samplers scheduled by default. */
+	public static final String DEFAULT_SAMPLERS = "gc,memory";
+	/** The default interval of the samplers in seconds. */
+	public static final int DEFAULT_SAMPLER_INTERVAL = 10;
+	/** The default maximum mean bookkeeping time per traced request in nanoseconds. */
+	public static final double DEFAULT_OVERHEAD_BUDGET = 20000;
+	/** The default maximum fill level of the record hand-off buffer. */
+	public static final double DEFAULT_OVERHEAD_BACKLOG_THRESHOLD = 0.5;
+	/** The default probability with which requests are traced at {@link MonitoringLevel#SAMPLED}. */
+	public static final double DEFAULT_OVERHEAD_SAMPLING_PROBABILITY = 0.1;
+	/** The default interval between two evaluations of the overhead guard in seconds. */
+	public static final int DEFAULT_OVERHEAD_GUARD_INTERVAL = 1;
 
 	protected static final IMonitoringController MONITORING_CTRL = MonitoringController.getInstance();
 	protected static final SessionRegistry SESSION_REGISTRY = SessionRegistry.INSTANCE;
@@ -86,13 +240,67 @@ public class SessionAndTraceRegistrationFilterSPECjEnterprise implements Filter,
 
 	private static final Log LOG = LogFactory.getLog(SessionAndTraceRegistrationFilterSPECjEnterprise.class);
 
+	private static final int MAX_AGGREGATION_STRIPES = 8;
+
+	private static final QueryStringUseCaseExtractor SPECJ_USE_CASE_EXTRACTOR =
+			QueryStringUseCaseExtractor.forSPECjEnterprise(QueryStringUseCaseExtractor.DEFAULT_CACHE_SIZE);
+
 	/**
 	 * Signature for the {@link #doFilter(ServletRequest, ServletResponse, FilterChain)} which will be used when logging
 	 * executions of this method.
 	 */
 	private final String filterOperationSignatureString;
 
-	private volatile boolean logFilterExecution = true; // default
+	/** Whether monitoring is enabled and the filter's signature is activated. */
+	private final ProbeActivationCache probeActivation;
+
+	/** The settings which can be changed at runtime; replaced as a whole, read once per request. */
+	private volatile FilterSettings settings = new FilterSettings(true, SamplingMode.NONE, Double.NaN, Double.NaN, null, // defaults
+			SPECJ_USE_CASE_EXTRACTOR, null, QueryStringCapture.FULL);
+	private final Object settingsLock = new Object();
+
+	/** The extractor for the use cases not matched by any rule. */
+	private volatile IUseCaseExtractor specjUseCaseExtractor = SPECJ_USE_CASE_EXTRACTOR; // default
+
+	private volatile RecordMode recordMode = RecordMode.CLASSIC; // default
+
+	private volatile boolean compactServletEntryRecords; // default false
+
+	/** Allocates the trace IDs; {@code null} to use the {@link ControlFlowRegistry}'s counter. */
+	private volatile TraceIdAllocator traceIdAllocator; // null for the global counter (default)
+
+	/** Whether the session IDs are recorded as {@link SessionKeys}. */
+	private volatile boolean sessionKeys; // default false
+
+	/** Registry for URIs and query strings of compact records; {@code null} to use the writer's registry. */
+	private volatile BoundedStringRegistry highCardinalityRegistry;
+
+	/** Moves the record creation off the request threads; {@code null} to write the records synchronously. */
+	private volatile ServletRequestHandoff recordHandoff;
+
+	/** Aggregates the response times in {@link RecordMode#AGGREGATED}; {@code null} otherwise. */
+	private volatile UseCaseAggregator useCaseAggregator;
+	private volatile ScheduledSamplerJob useCaseAggregatorJob;
+
+	/** Measures CPU time and allocations of the configured use cases; {@code null} if disabled or unsupported. */
+	private volatile ThreadResourceMeter resourceMeter;
+
+	/** Reduces the monitoring level while the monitoring pipeline is overloaded; {@code null} if disabled. */
+	private volatile OverheadGuard overheadGuard;
+	private volatile ScheduledSamplerJob overheadGuardJob;
+
+	/** The samplers acquired by this filter instance, to be released on {@link #destroy()}. */
+	private final List<SamplerRegistry.Registration> samplerRegistrations = new ArrayList<SamplerRegistry.Registration>();
+	private String samplerList = DEFAULT_SAMPLERS; // guarded by samplerRegistrations
+	private volatile int samplerInterval = DEFAULT_SAMPLER_INTERVAL;
+
+	/* statistics for the management bean */
+	private final StripedCounter requestCount = new StripedCounter(Runtime.getRuntime().availableProcessors());
+	private final StripedCounter tracedRequestCount = new StripedCounter(Runtime.getRuntime().availableProcessors());
+	private final StripedCounter overheadNanos = new StripedCounter(Runtime.getRuntime().availableProcessors());
+	private final StripedCounter rejectedRecordCount = new StripedCounter(Runtime.getRuntime().availableProcessors());
+
+	private volatile ObjectName managementBeanName;
 
 	public SessionAndTraceRegistrationFilterSPECjEnterprise() {
 		final Signature methodSignature =
@@ -103,20 +311,20 @@ public class SessionAndTraceRegistrationFilterSPECjEnterprise implements Filter,
 		final ClassOperationSignaturePair filterOperationSignaturePair =
 				new ClassOperationSignaturePair(SessionAndTraceRegistrationFilterSPECjEnterprise.class.getName(), methodSignature);
 		this.filterOperationSignatureString = filterOperationSignaturePair.toString();
+		this.probeActivation = new ProbeActivationCache(MONITORING_CTRL, this.filterOperationSignatureString);
 	}
 
 	public SessionAndTraceRegistrationFilterSPECjEnterprise(final boolean logFilterExecution) {
 		this();
-		this.logFilterExecution = logFilterExecution;
+		this.settings = this.settings.withLogFilterExecution(logFilterExecution);
 	}
 
 	/**
 	 * Returns the operation signature of this filter's {@link #doFilter(ServletRequest, ServletResponse, FilterChain)} operation
 	 * to be used when logging executions of this operation.
 	 * 
-	 * Extending classes may override this method in order to provide an alternative signature. However,
-	 * note that this method is executed on each filter execution. Hence, you should return a final
-	 * value here instead of executing expensive String operations.
+	 * Extending classes may override this method in order to provide an alternative signature. The signature is read in
+	 * {@link #init(FilterConfig)} for the probe activation check; it should not change afterwards.
 	 * 
 	 * @return The operation signature as a string.
 	 */
@@ -128,16 +336,78 @@ public class SessionAndTraceRegistrationFilterSPECjEnterprise implements Filter,
 		// by default, we do nothing here. Extending classes may override this method
 		final String valString = config.getInitParameter(CONFIG_PROPERTY_NAME_LOG_FILTER_EXECUTION);
 		if (valString != null) {
-			this.logFilterExecution = Boolean.parseBoolean(valString);
+			this.setLogFilterExecution(Boolean.parseBoolean(valString));
 		} else {
 			LOG.warn("Filter configuration '"
 					+ CONFIG_PROPERTY_NAME_LOG_FILTER_EXECUTION
-					+ "' not set. Using the value: " + this.logFilterExecution);
+					+ "' not set. Using the value: " + this.settings.isLogFilterExecution());
+		}
+
+		final IUseCaseExtractor useCaseExtractor = this.createUseCaseExtractor(config);
+		synchronized (this.settingsLock) {
+			this.settings = this.settings.withUseCaseExtractor(useCaseExtractor, config.getInitParameter(CONFIG_PROPERTY_NAME_USE_CASE_RULES));
+		}
+
+		final String recordModeString = config.getInitParameter(CONFIG_PROPERTY_NAME_RECORD_MODE);
+		if (recordModeString != null) {
+			try {
+				this.recordMode = RecordMode.parse(recordModeString);
+			} catch (final IllegalArgumentException ex) {
+				LOG.warn("Invalid value for filter configuration '" + CONFIG_PROPERTY_NAME_RECORD_MODE + "': " + recordModeString
+						+ ". Using the value: " + this.recordMode);
+			}
+		}
+
+		final String compactString = config.getInitParameter(CONFIG_PROPERTY_NAME_COMPACT_SERVLET_ENTRY_RECORDS);
+		if (compactString != null) {
+			this.compactServletEntryRecords = Boolean.parseBoolean(compactString);
+		}
+
+		this.sessionKeys = Boolean.parseBoolean(config.getInitParameter(CONFIG_PROPERTY_NAME_SESSION_KEYS));
+
+		final String registryCapacityString = config.getInitParameter(CONFIG_PROPERTY_NAME_BOUNDED_STRING_REGISTRY_CAPACITY);
+		if (registryCapacityString != null) {
+			if (!this.compactServletEntryRecords) {
+				LOG.warn("Filter configuration '" + CONFIG_PROPERTY_NAME_BOUNDED_STRING_REGISTRY_CAPACITY + "' requires '"
+						+ CONFIG_PROPERTY_NAME_COMPACT_SERVLET_ENTRY_RECORDS + "' and is ignored");
+			} else {
+				try {
+					final BoundedStringRegistry registry = new BoundedStringRegistry(Integer.parseInt(registryCapacityString.trim()),
+							BoundedStringRegistry.DEFAULT_BASE_ID);
+					registry.setRecordReceivedListener(new IMonitoringRecordReceivedListener() {
+						public boolean newMonitoringRecord(final IMonitoringRecord record) {
+							return MONITORING_CTRL.newMonitoringRecord(record);
+						}
+					});
+					this.highCardinalityRegistry = registry;
+				} catch (final IllegalArgumentException ex) { // also catches NumberFormatException
+					LOG.warn("Invalid value for filter configuration '" + CONFIG_PROPERTY_NAME_BOUNDED_STRING_REGISTRY_CAPACITY + "': "
+							+ registryCapacityString, ex);
+				}
+			}
 		}
 
-		final ISampler[] samplers = new ISampler[] { new GCSampler(), new MemorySampler() };
-		for (final ISampler sampler : samplers) {
-			MONITORING_CTRL.schedulePeriodicSampler(sampler, 0, 10, TimeUnit.SECONDS);
+		this.initProbeActivation(config);
+		this.initTraceIdAllocation(config);
+		this.initTraceSampling(config);
+		this.initQueryStringCapture(config);
+		this.recordHandoff = this.createRecordHandoff(config);
+		final String resourceUsageUseCases = config.getInitParameter(CONFIG_PROPERTY_NAME_RESOURCE_USAGE_USE_CASES);
+		if (resourceUsageUseCases != null) {
+			this.resourceMeter = ThreadResourceMeter.probe(resourceUsageUseCases);
+		}
+		if (this.recordMode == RecordMode.AGGREGATED) {
+			this.initUseCaseAggregation(config);
+		}
+		if (Boolean.parseBoolean(config.getInitParameter(CONFIG_PROPERTY_NAME_OVERHEAD_GUARD))) {
+			this.initOverheadGuard(config);
+		}
+
+		this.acquireSamplers(config);
+
+		final String jmxString = config.getInitParameter(CONFIG_PROPERTY_NAME_JMX_MANAGEMENT);
+		if ((jmxString == null) || Boolean.parseBoolean(jmxString)) {
+			this.registerManagementBean(config);
 		}
 	}
 
@@ -157,63 +427,789 @@ public class SessionAndTraceRegistrationFilterSPECjEnterprise implements Filter,
 	 * @throws ServletException
 	 */
 	public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
-		if (!MONITORING_CTRL.isMonitoringEnabled()) {
+		if (!this.probeActivation.isActive()) { // monitoring enabled and probe activated
 			chain.doFilter(request, response);
 			return;
 		}
-		if (!MONITORING_CTRL.isProbeActivated(this.filterOperationSignatureString)) {
-			chain.doFilter(request, response);
+		if (request.getDispatcherType() == DispatcherType.ASYNC) {
+			final AsyncTrace asyncTrace = (AsyncTrace) request.getAttribute(AsyncTrace.REQUEST_ATTRIBUTE);
+			if (asyncTrace != null) {
+				this.continueAsyncTrace(request, response, chain, asyncTrace);
+			} else { // the request was not traced when it was started; a redispatch is not a new request
+				chain.doFilter(request, response);
+			}
 			return;
 		}
 
+		this.requestCount.increment();
+		final FilterSettings currentSettings = this.settings; // one snapshot for the whole request
+
 		// Register session information which needs to be reset after the chain has been executed.
 		String sessionId = this.registerSessionInformation(request); // {@link OperationExecutionRecord#NO_SESSION_ID} if no session ID
 		long traceId = OperationExecutionRecord.NO_TRACE_ID; // note that we must NOT register anything to the CF_REGISTRY here!
+		String useCase = null; // extracted lazily unless needed for sampling
+		double samplingProbability = 1.0;
+		boolean traced = currentSettings.isLogFilterExecution();
+
+		// Decide once whether this request is traced
+		final ITraceSampler sampler = currentSettings.getTraceSampler();
+		boolean sampled = sampler != null;
+		if (traced && sampled) {
+			useCase = this.extractUseCaseFromRequest(currentSettings, request);
+			samplingProbability = sampler.sample(useCase);
+			traced = samplingProbability != ITraceSampler.NOT_SAMPLED;
+		}
+
+		// Trace less while the monitoring pipeline is overloaded
+		final OverheadGuard guard = this.overheadGuard;
+		if (traced && (guard != null)) {
+			final double guardProbability = guard.admit();
+			traced = guardProbability != ITraceSampler.NOT_SAMPLED;
+			if (guardProbability < 1.0) {
+				sampled = true;
+				samplingProbability *= guardProbability;
+			}
+		}
+
+		// Measure the resource usage of the request thread if configured for the use case
+		final ThreadResourceMeter meter = this.resourceMeter;
+		boolean measured = false;
+		long cpuTime = ServletResourceUsageRecord.NOT_MEASURED;
+		long allocatedBytes = ServletResourceUsageRecord.NOT_MEASURED;
+		if (traced && (meter != null)) {
+			if (!meter.isMeasuringAllUseCases() && (useCase == null)) {
+				useCase = this.extractUseCaseFromRequest(currentSettings, request);
+			}
+			measured = meter.isMeasured(useCase);
+		}
 
 		// If this filter execution shall be part of the traced control flow, we need to register some control flow information.
-		if (this.logFilterExecution) {
-			traceId = CF_REGISTRY.getAndStoreUniqueThreadLocalTraceId();
+		if (traced) {
+			this.tracedRequestCount.increment();
+			final TraceIdAllocator allocator = this.traceIdAllocator;
+			if (allocator != null) {
+				traceId = allocator.nextId();
+				CF_REGISTRY.storeThreadLocalTraceId(traceId);
+			} else {
+				traceId = CF_REGISTRY.getAndStoreUniqueThreadLocalTraceId();
+			}
 			CF_REGISTRY.storeThreadLocalEOI(0); // current execution's eoi is 0
 			CF_REGISTRY.storeThreadLocalESS(1); // *current* execution's ess is 0; next execution is at stack depth 1
 		}
 
+		if (measured) {
+			cpuTime = meter.getCurrentThreadCpuTime();
+			allocatedBytes = meter.getCurrentThreadAllocatedBytes();
+		}
 		final long tin = TIMESOURCE.getTime(); // the entry timestamp
 		try {
 			chain.doFilter(request, response);
 		} finally {
-			SESSION_REGISTRY.unsetThreadLocalSessionId();
-			if (this.logFilterExecution) {
-				String uri = ((HttpServletRequest) request).getRequestURI();
-				int port = request.getLocalPort();
-				String host = request.getLocalAddr();
-				String protocol = request.getProtocol();
-				String method = ((HttpServletRequest) request).getMethod();
-				String queryString = ((HttpServletRequest) request).getQueryString();
-				String encoding = request.getCharacterEncoding();
-				MONITORING_CTRL.newMonitoringRecord(
-						new ServletEntryRecord(traceId, uri, port, host, protocol, method, queryString, encoding));
-
+			if (traced) {
 				final long tout = TIMESOURCE.getTime();
+				final long bookkeepingStart = System.nanoTime();
+				if (measured) {
+					cpuTime = ThreadResourceMeter.delta(cpuTime, meter.getCurrentThreadCpuTime());
+					allocatedBytes = ThreadResourceMeter.delta(allocatedBytes, meter.getCurrentThreadAllocatedBytes());
+				}
 				// if sessionId == null, try again to fetch it (should exist after being within the application logic)
 				if (sessionId == OperationExecutionRecord.NO_SESSION_ID) { // yes, == and not equals
 					sessionId = this.registerSessionInformation(request);
 				}
-
-				// Log this execution
-				MONITORING_CTRL.newMonitoringRecord(
-						new OperationExecutionRecord(SessionAndTraceRegistrationFilterSPECjEnterprise.extractUseCaseFromRequest(request),
-								sessionId, traceId, tin, tout, VM_NAME, 0, 0)); // 0,0 state that this method is the application entry point
+				if (useCase == null) {
+					useCase = this.extractUseCaseFromRequest(currentSettings, request);
+				}
+				final UseCaseAggregator aggregator = this.useCaseAggregator;
+				if ((aggregator != null) && !request.isAsyncStarted()) {
+					aggregator.record(useCase, tout - tin);
+				} else {
+					this.finishTrace(request, response, traceId, sessionId, useCase, tin, tout, sampled, samplingProbability, cpuTime,
+							allocatedBytes, currentSettings.getQueryStringCapture());
+				}
 
 				// Reset the thread-local trace information
 				CF_REGISTRY.unsetThreadLocalTraceId();
 				CF_REGISTRY.unsetThreadLocalEOI();
 				CF_REGISTRY.unsetThreadLocalESS();
+				final long overhead = System.nanoTime() - bookkeepingStart;
+				this.overheadNanos.add(overhead);
+				if (guard != null) {
+					guard.recordOverhead(overhead);
+				}
+			}
+			SESSION_REGISTRY.unsetThreadLocalSessionId();
+		}
+	}
+
+	/**
+	 * Writes the records of a traced request, or lets them be written by an {@link AsyncTrace} if the request has been
+	 * put into asynchronous mode.
+	 */
+	private void finishTrace(final ServletRequest request, final ServletResponse response, final long traceId, final String sessionId, // NOPMD
+			final String useCase, final long tin, final long tout, final boolean sampled, final double samplingProbability, final long cpuTime,
+			final long allocatedBytes, final QueryStringCapture queryStringCapture) {
+		final String uri = ((HttpServletRequest) request).getRequestURI();
+		final int port = request.getLocalPort();
+		final String host = request.getLocalAddr();
+		final String protocol = request.getProtocol();
+		final String method = ((HttpServletRequest) request).getMethod();
+		final String queryString = ((HttpServletRequest) request).getQueryString();
+		final String encoding = request.getCharacterEncoding();
+
+		if (!request.isAsyncStarted() || !this.registerAsyncTrace(new AsyncTrace(this, request, response, traceId, sessionId, useCase, tin,
+				uri, port, host, protocol, method, queryString, encoding, sampled, samplingProbability, cpuTime, allocatedBytes,
+				queryStringCapture, CF_REGISTRY.recallThreadLocalEOI()))) {
+			this.submitRecords(traceId, sessionId, useCase, tin, tout, uri, port, host, protocol, method, queryString, encoding,
+					sampled, samplingProbability, ServletAsyncCompletionRecord.NO_STATUS, null, cpuTime, allocatedBytes, queryStringCapture);
+		}
+	}
+
+	/**
+	 * Lets the given trace be finished by the {@link javax.servlet.AsyncListener} of the request, which has been put into
+	 * asynchronous mode. The request thread is released right away.
+	 *
+	 * @return {@code false} if the request has been completed in the meantime, so that the trace must be finished now.
+	 */
+	private boolean registerAsyncTrace(final AsyncTrace asyncTrace) {
+		try {
+			final ServletRequest request = asyncTrace.getRequest();
+			request.getAsyncContext().addListener(asyncTrace);
+			request.setAttribute(AsyncTrace.REQUEST_ATTRIBUTE, asyncTrace);
+			return true;
+		} catch (final IllegalStateException ex) { // NOPMD (completed by another thread)
+			return false;
+		}
+	}
+
+	/**
+	 * Executes an async dispatch of a request whose trace has been started by an earlier dispatch. The control flow
+	 * information is restored, so that executions in the dispatch continue the trace; the trace itself is finished by
+	 * the {@link AsyncTrace} when the request completes.
+	 */
+	private void continueAsyncTrace(final ServletRequest request, final ServletResponse response, final FilterChain chain, final AsyncTrace asyncTrace)
+			throws IOException, ServletException {
+		this.registerSessionInformation(request);
+		CF_REGISTRY.storeThreadLocalTraceId(asyncTrace.getTraceId());
+		CF_REGISTRY.storeThreadLocalEOI(asyncTrace.getLastEoi());
+		CF_REGISTRY.storeThreadLocalESS(1); // the dispatch is nested in the filter execution at stack depth 0
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			asyncTrace.setLastEoi(CF_REGISTRY.recallThreadLocalEOI());
+			CF_REGISTRY.unsetThreadLocalTraceId();
+			CF_REGISTRY.unsetThreadLocalEOI();
+			CF_REGISTRY.unsetThreadLocalESS();
+			SESSION_REGISTRY.unsetThreadLocalSessionId();
+		}
+	}
+
+	/**
+	 * Creates the records of a finished trace and passes them to the {@link IMonitoringController}, either directly or via
+	 * the record handoff.
+	 *
+	 * @param responseStatus
+	 *            The final response status of an asynchronous request.
+	 * @param asyncOutcome
+	 *            One of the {@code OUTCOME_*} constants of {@link ServletAsyncCompletionRecord} for an asynchronous request;
+	 *            {@code null} for a synchronous request.
+	 * @param cpuTime
+	 *            The CPU time of the request thread or {@link ServletResourceUsageRecord#NOT_MEASURED}.
+	 * @param allocatedBytes
+	 *            The bytes allocated by the request thread or {@link ServletResourceUsageRecord#NOT_MEASURED}.
+	 * @param queryStringCapture
+	 *            The query string capture policy in effect when the request entered the filter.
+	 */
+	void submitRecords(final long traceId, final String sessionId, final String useCase, final long tin, final long tout, // NOPMD
+			final String uri, final int port, final String host, final String protocol, final String method, final String queryString,
+			final String encoding, final boolean sampled, final double samplingProbability, final int responseStatus, final String asyncOutcome,
+			final long cpuTime, final long allocatedBytes, final QueryStringCapture queryStringCapture) {
+		final UseCaseAggregator aggregator = this.useCaseAggregator;
+		if (aggregator != null) { // asynchronous request in aggregation mode
+			aggregator.record(useCase, tout - tin);
+			return;
+		}
+		final ServletRequestHandoff handoff = this.recordHandoff;
+		if (handoff != null) {
+			handoff.offer(traceId, sessionId, useCase, tin, tout, uri, port, host, protocol, method, queryString, encoding,
+					sampled, samplingProbability, responseStatus, asyncOutcome, cpuTime, allocatedBytes, queryStringCapture);
+		} else {
+			this.writeRecords(traceId, sessionId, useCase, tin, tout, uri, port, host, protocol, method, queryString, encoding,
+					sampled, samplingProbability, responseStatus, asyncOutcome, cpuTime, allocatedBytes, queryStringCapture);
+		}
+	}
+
+	/**
+	 * Creates the records of a traced request and passes them to the {@link IMonitoringController}.
+	 */
+	private void writeRecords(final long traceId, final String sessionId, final String useCase, final long tin, final long tout, // NOPMD
+			final String uri, final int port, final String host, final String protocol, final String method, final String queryString,
+			final String encoding, final boolean sampled, final double samplingProbability, final int responseStatus, final String asyncOutcome,
+			final long cpuTime, final long allocatedBytes, final QueryStringCapture queryStringCapture) {
+		final OverheadGuard guard = this.overheadGuard;
+		final boolean entryOnly = (guard != null) && guard.isEntryOnly();
+		final String capturedQueryString = queryStringCapture.capture(queryString);
+		if (this.recordMode == RecordMode.MERGED) {
+			// Log the servlet entry and this execution at once
+			this.writeRecord(guard,
+					new ServletEntryAndExecutionRecord(traceId, sessionId, useCase, tin, tout, VM_NAME,
+							uri, port, host, protocol, method, capturedQueryString, encoding));
+		} else {
+			this.writeRecord(guard, this.createServletEntryRecord(traceId, uri, port, host, protocol, method, capturedQueryString, encoding));
+
+			// Log this execution
+			if (!entryOnly) {
+				this.writeRecord(guard,
+						new OperationExecutionRecord(useCase,
+								sessionId, traceId, tin, tout, VM_NAME, 0, 0)); // 0,0 state that this method is the application entry point
+			}
+		}
+
+		// Log the sampling probability so that analyses can re-weight the sampled traces
+		if (sampled) {
+			this.writeRecord(guard, new TraceSamplingRecord(traceId, useCase, samplingProbability));
+		}
+		if (entryOnly) {
+			return;
+		}
+
+		// Log how an asynchronous request ended
+		if (asyncOutcome != null) {
+			this.writeRecord(guard, new ServletAsyncCompletionRecord(traceId, responseStatus, asyncOutcome));
+		}
+
+		// Log the resource usage of the request thread
+		if ((cpuTime != ServletResourceUsageRecord.NOT_MEASURED) || (allocatedBytes != ServletResourceUsageRecord.NOT_MEASURED)) {
+			this.writeRecord(guard, new ServletResourceUsageRecord(traceId, cpuTime, allocatedBytes));
+		}
+	}
+
+	/**
+	 * Passes the record to the {@link IMonitoringController}, letting the guard (if any) know if it is not accepted.
+	 */
+	private void writeRecord(final OverheadGuard guard, final IMonitoringRecord record) {
+		if (!MONITORING_CTRL.newMonitoringRecord(record)) {
+			this.rejectedRecordCount.increment();
+			if (guard != null) {
+				guard.recordRejected();
+			}
+		}
+	}
+
+	/**
+	 * Creates the record handoff configured in the {@link FilterConfig}.
+	 *
+	 * @return The handoff or {@code null} if the records shall be written by the request threads.
+	 */
+	private ServletRequestHandoff createRecordHandoff(final FilterConfig config) {
+		if (!Boolean.parseBoolean(config.getInitParameter(CONFIG_PROPERTY_NAME_ASYNC_RECORD_HANDOFF))) {
+			return null;
+		}
+		try {
+			final int stripes = parseIntParameter(config, CONFIG_PROPERTY_NAME_HANDOFF_STRIPES, 2 * Runtime.getRuntime().availableProcessors());
+			final int capacity = parseIntParameter(config, CONFIG_PROPERTY_NAME_HANDOFF_BUFFER_SIZE, ServletRequestHandoff.DEFAULT_CAPACITY);
+			final String policyString = config.getInitParameter(CONFIG_PROPERTY_NAME_HANDOFF_FULL_BUFFER_POLICY);
+			final FullBufferPolicy policy = (policyString != null) ? FullBufferPolicy.parse(policyString) : FullBufferPolicy.COUNT_AND_DROP; // NOCS
+			return new ServletRequestHandoff(stripes, capacity, policy, new IPendingRequestConsumer() {
+				public void consume(final PendingRequest r) {
+					SessionAndTraceRegistrationFilterSPECjEnterprise.this.writeRecords(r.getTraceId(), r.getSessionId(), r.getUseCase(),
+							r.getTin(), r.getTout(), r.getUri(), r.getPort(), r.getHost(), r.getProtocol(), r.getMethod(), r.getQueryString(),
+							r.getEncoding(), r.isSampled(), r.getSamplingProbability(), r.getResponseStatus(), r.getAsyncOutcome(),
+							r.getCpuTime(), r.getAllocatedBytes(), r.getQueryStringCapture());
+				}
+			});
+		} catch (final IllegalArgumentException ex) { // also catches NumberFormatException
+			LOG.warn("Invalid record handoff configuration. Writing the records synchronously.", ex);
+			return null;
+		}
+	}
+
+	/**
+	 * Creates the {@link UseCaseAggregator} and schedules its periodic flush.
+	 */
+	private void initUseCaseAggregation(final FilterConfig config) {
+		synchronized (this.settingsLock) {
+			if (this.settings.getTraceSampler() != null) {
+				LOG.warn("Filter configuration '" + CONFIG_PROPERTY_NAME_SAMPLING_MODE + "' is ignored when aggregating the response times");
+				this.settings = this.settings.withSampling(SamplingMode.NONE, Double.NaN, Double.NaN, null);
+			}
+		}
+		int interval = DEFAULT_AGGREGATION_INTERVAL;
+		int maxUseCases = UseCaseAggregator.DEFAULT_MAX_USE_CASES;
+		try {
+			interval = parseIntParameter(config, CONFIG_PROPERTY_NAME_AGGREGATION_INTERVAL, DEFAULT_AGGREGATION_INTERVAL);
+			maxUseCases = parseIntParameter(config, CONFIG_PROPERTY_NAME_AGGREGATION_MAX_USE_CASES, UseCaseAggregator.DEFAULT_MAX_USE_CASES);
+		} catch (final NumberFormatException ex) {
+			LOG.warn("Invalid aggregation configuration. Using an interval of " + interval + " s and at most " + maxUseCases + " use cases.", ex);
+		}
+		final UseCaseAggregator aggregator = new UseCaseAggregator(VM_NAME, maxUseCases,
+				Math.min(Runtime.getRuntime().availableProcessors(), MAX_AGGREGATION_STRIPES), TIMESOURCE.getTime());
+		this.useCaseAggregator = aggregator;
+		this.useCaseAggregatorJob = MONITORING_CTRL.schedulePeriodicSampler(aggregator, interval, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Creates the {@link OverheadGuard} and schedules its periodic evaluation. The backlog is that of the record hand-off,
+	 * if enabled.
+	 */
+	private void initOverheadGuard(final FilterConfig config) {
+		final ServletRequestHandoff handoff = this.recordHandoff;
+		final IBacklogGauge gauge = (handoff == null) ? null : new IBacklogGauge() { // NOCS
+			public double getBacklogRatio() {
+				return handoff.getPendingCount() / (double) handoff.getCapacity();
+			}
+
+			public long getDroppedCount() {
+				return handoff.getDroppedCount();
+			}
+		};
+		try {
+			final int interval = parseIntParameter(config, CONFIG_PROPERTY_NAME_OVERHEAD_GUARD_INTERVAL, DEFAULT_OVERHEAD_GUARD_INTERVAL);
+			if (interval <= 0) {
+				throw new IllegalArgumentException("Filter configuration '" + CONFIG_PROPERTY_NAME_OVERHEAD_GUARD_INTERVAL + "' must be positive");
+			}
+			final OverheadGuard guard = new OverheadGuard(VM_NAME,
+					parseDoubleParameter(config, CONFIG_PROPERTY_NAME_OVERHEAD_BUDGET, DEFAULT_OVERHEAD_BUDGET),
+					parseDoubleParameter(config, CONFIG_PROPERTY_NAME_OVERHEAD_BACKLOG_THRESHOLD, DEFAULT_OVERHEAD_BACKLOG_THRESHOLD),
+					parseDoubleParameter(config, CONFIG_PROPERTY_NAME_OVERHEAD_SAMPLING_PROBABILITY, DEFAULT_OVERHEAD_SAMPLING_PROBABILITY),
+					Runtime.getRuntime().availableProcessors(), gauge);
+			this.overheadGuard = guard;
+			this.overheadGuardJob = MONITORING_CTRL.schedulePeriodicSampler(guard, interval, interval, TimeUnit.SECONDS);
+		} catch (final IllegalArgumentException ex) { // also catches NumberFormatException
+			LOG.warn("Invalid overhead guard configuration. The overhead guard is disabled.", ex);
+		}
+	}
+
+	/**
+	 * Acquires the samplers configured in the {@link FilterConfig} from the {@link SamplerRegistry}, which schedules each
+	 * of them once for all filter instances.
+	 */
+	private void acquireSamplers(final FilterConfig config) {
+		final String samplerListString = config.getInitParameter(CONFIG_PROPERTY_NAME_SAMPLERS);
+		int interval = DEFAULT_SAMPLER_INTERVAL;
+		try {
+			interval = parseIntParameter(config, CONFIG_PROPERTY_NAME_SAMPLER_INTERVAL, DEFAULT_SAMPLER_INTERVAL);
+		} catch (final NumberFormatException ex) {
+			LOG.warn("Invalid value for filter configuration '" + CONFIG_PROPERTY_NAME_SAMPLER_INTERVAL + "'. Using the value: " + interval, ex);
+		}
+		if (interval <= 0) {
+			LOG.warn("Invalid value for filter configuration '" + CONFIG_PROPERTY_NAME_SAMPLER_INTERVAL + "': " + interval
+					+ ". Using the value: " + DEFAULT_SAMPLER_INTERVAL);
+			interval = DEFAULT_SAMPLER_INTERVAL;
+		}
+
+		synchronized (this.samplerRegistrations) {
+			if (samplerListString != null) {
+				this.samplerList = samplerListString;
+			}
+			this.samplerInterval = interval;
+			this.scheduleSamplers();
+		}
+	}
+
+	/**
+	 * Acquires the samplers of {@link #samplerList} with the current {@link #samplerInterval}.
+	 */
+	private void scheduleSamplers() {
+		final SamplerRegistry registry = SamplerRegistry.getInstance();
+		synchronized (this.samplerRegistrations) {
+			final int interval = this.samplerInterval;
+			for (final String samplerName : this.samplerList.split(",")) {
+				if (samplerName.trim().length() == 0) {
+					continue;
+				}
+				try {
+					final SamplerRegistry.Registration registration = registry.acquire(SamplerType.parse(samplerName), interval);
+					if (registration != null) {
+						this.samplerRegistrations.add(registration);
+					}
+				} catch (final IllegalArgumentException ex) {
+					LOG.warn("Unknown sampler in filter configuration '" + CONFIG_PROPERTY_NAME_SAMPLERS + "': " + samplerName);
+				}
+			}
+		}
+	}
+
+	private void releaseSamplers() {
+		synchronized (this.samplerRegistrations) {
+			for (final SamplerRegistry.Registration registration : this.samplerRegistrations) {
+				registration.release();
 			}
+			this.samplerRegistrations.clear();
+		}
+	}
+
+	/**
+	 * Configures the trace sampler as given in the {@link FilterConfig}.
+	 */
+	private void initTraceSampling(final FilterConfig config) {
+		final String modeString = config.getInitParameter(CONFIG_PROPERTY_NAME_SAMPLING_MODE);
+		if (modeString == null) {
+			return;
+		}
+		try {
+			this.configureSampling(SamplingMode.parse(modeString), parseDoubleParameter(config, CONFIG_PROPERTY_NAME_SAMPLING_PROBABILITY),
+					parseDoubleParameter(config, CONFIG_PROPERTY_NAME_SAMPLING_RATE));
+		} catch (final IllegalArgumentException ex) { // also catches NumberFormatException
+			LOG.warn("Invalid sampling configuration. Tracing every request.", ex);
+		}
+	}
+
+	/**
+	 * Starts caching the probe activation for the (possibly overridden) filter signature as given in the {@link FilterConfig}.
+	 */
+	private void initProbeActivation(final FilterConfig config) {
+		this.probeActivation.setSignature(this.getFilterOperationSignatureString());
+		long refreshMillis = ProbeActivationCache.DEFAULT_REFRESH_INTERVAL_MILLIS;
+		final String refreshString = config.getInitParameter(CONFIG_PROPERTY_NAME_PROBE_ACTIVATION_REFRESH_MILLIS);
+		if (refreshString != null) {
+			try {
+				refreshMillis = Long.parseLong(refreshString.trim());
+			} catch (final NumberFormatException ex) {
+				LOG.warn("Invalid value for filter configuration '" + CONFIG_PROPERTY_NAME_PROBE_ACTIVATION_REFRESH_MILLIS + "': " + refreshString
+						+ ". Using the value: " + refreshMillis);
+			}
+		}
+		try {
+			this.probeActivation.start(refreshMillis);
+		} catch (final IllegalArgumentException ex) {
+			LOG.warn("Invalid value for filter configuration '" + CONFIG_PROPERTY_NAME_PROBE_ACTIVATION_REFRESH_MILLIS + "': " + refreshString
+					+ ". The probe activation is checked on every request.");
+		}
+	}
+
+	/**
+	 * Configures the trace ID allocation as given in the {@link FilterConfig}.
+	 */
+	private void initTraceIdAllocation(final FilterConfig config) {
+		try {
+			final int blockSize = parseIntParameter(config, CONFIG_PROPERTY_NAME_TRACE_ID_BLOCK_SIZE, 0);
+			if (blockSize == 0) {
+				this.traceIdAllocator = null;
+				return;
+			}
+			final String nodeIdString = config.getInitParameter(CONFIG_PROPERTY_NAME_TRACE_ID_NODE_ID);
+			this.traceIdAllocator = (nodeIdString != null) ? new TraceIdAllocator(Integer.parseInt(nodeIdString.trim()), blockSize) // NOCS
+					: new TraceIdAllocator(blockSize);
+		} catch (final IllegalArgumentException ex) { // also catches NumberFormatException
+			LOG.warn("Invalid trace ID allocation configuration. Using the global counter.", ex);
+		}
+	}
+
+	/**
+	 * Configures the query string capture policy as given in the {@link FilterConfig}.
+	 */
+	private void initQueryStringCapture(final FilterConfig config) {
+		final String modeString = config.getInitParameter(CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE);
+		if (modeString == null) {
+			return;
+		}
+		try {
+			this.setQueryStringCapture(new QueryStringCapture(QueryStringCaptureMode.parse(modeString),
+					parseIntParameter(config, CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE_MAX_LENGTH, QueryStringCapture.DEFAULT_MAX_LENGTH),
+					QueryStringCapture.parseParameters(config.getInitParameter(CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE_PARAMETERS)),
+					config.getInitParameter(CONFIG_PROPERTY_NAME_QUERY_STRING_CAPTURE_HASH_KEY), QueryStringCapture.DEFAULT_CACHE_SIZE));
+		} catch (final IllegalArgumentException ex) { // also catches NumberFormatException
+			LOG.warn("Invalid query string capture configuration. Recording the full query strings.", ex);
+		}
+	}
+
+	/**
+	 * Creates the trace sampler for the given mode.
+	 *
+	 * @param probability
+	 *            The sampling probability; {@link Double#NaN} if not configured.
+	 * @param rate
+	 *            The sampling rate; {@link Double#NaN} if not configured.
+	 *
+	 * @return The sampler or {@code null} if every request shall be traced.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a parameter required by the mode is missing or invalid.
+	 */
+	private static ITraceSampler createTraceSampler(final SamplingMode mode, final double probability, final double rate) {
+		switch (mode) {
+		case NONE:
+			return null;
+		case PROBABILITY:
+			return new ProbabilisticTraceSampler(requireParameter(CONFIG_PROPERTY_NAME_SAMPLING_PROBABILITY, probability));
+		case RATE:
+			return new RateLimitingTraceSampler(requireParameter(CONFIG_PROPERTY_NAME_SAMPLING_RATE, rate));
+		case USE_CASE_QUOTA:
+			return new UseCaseQuotaTraceSampler(requireParameter(CONFIG_PROPERTY_NAME_SAMPLING_RATE, rate),
+					Double.isNaN(probability) ? 0.0 : probability, // NOCS
+					UseCaseQuotaTraceSampler.DEFAULT_MAX_USE_CASES);
+		default:
+			throw new IllegalArgumentException("Unsupported sampling mode: " + mode);
+		}
+	}
+
+	private static double requireParameter(final String name, final double value) {
+		if (Double.isNaN(value)) {
+			throw new IllegalArgumentException("Filter configuration '" + name + "' not set");
+		}
+		return value;
+	}
+
+	/**
+	 * @return The value of the parameter or {@link Double#NaN} if the parameter is not set.
+	 */
+	private static double parseDoubleParameter(final FilterConfig config, final String name) {
+		final String valueString = config.getInitParameter(name);
+		return (valueString != null) ? Double.parseDouble(valueString.trim()) : Double.NaN; // NOCS
+	}
+
+	/**
+	 * @param defaultValue
+	 *            The value if the parameter is not set; {@link Double#NaN} if the parameter is required.
+	 */
+	private static double parseDoubleParameter(final FilterConfig config, final String name, final double defaultValue) {
+		final String valueString = config.getInitParameter(name);
+		if (valueString == null) {
+			if (Double.isNaN(defaultValue)) {
+				throw new IllegalArgumentException("Filter configuration '" + name + "' not set");
+			}
+			return defaultValue;
+		}
+		return Double.parseDouble(valueString.trim());
+	}
+
+	private static int parseIntParameter(final FilterConfig config, final String name, final int defaultValue) {
+		final String valueString = config.getInitParameter(name);
+		return (valueString != null) ? Integer.parseInt(valueString.trim()) : defaultValue; // NOCS
+	}
+
+	/**
+	 * Creates the use case extractor: the SPECjEnterprise query string extractor, preceded by the rules from the
+	 * {@link FilterConfig} (if any).
+	 */
+	private IUseCaseExtractor createUseCaseExtractor(final FilterConfig config) {
+		IUseCaseExtractor specjExtractor = SPECJ_USE_CASE_EXTRACTOR;
+		final String cacheSizeString = config.getInitParameter(CONFIG_PROPERTY_NAME_USE_CASE_CACHE_SIZE);
+		if (cacheSizeString != null) {
+			try {
+				specjExtractor = QueryStringUseCaseExtractor.forSPECjEnterprise(Integer.parseInt(cacheSizeString.trim()));
+			} catch (final IllegalArgumentException ex) { // also catches NumberFormatException
+				LOG.warn("Invalid value for filter configuration '" + CONFIG_PROPERTY_NAME_USE_CASE_CACHE_SIZE + "': " + cacheSizeString, ex);
+			}
+		}
+		this.specjUseCaseExtractor = specjExtractor;
+
+		final List<UseCaseRule> rules = new ArrayList<UseCaseRule>();
+		try {
+			final String inlineRules = config.getInitParameter(CONFIG_PROPERTY_NAME_USE_CASE_RULES);
+			if (inlineRules != null) {
+				rules.addAll(UseCaseRuleParser.parse(inlineRules));
+			}
+			final String rulesFile = config.getInitParameter(CONFIG_PROPERTY_NAME_USE_CASE_RULES_FILE);
+			if (rulesFile != null) {
+				rules.addAll(SessionAndTraceRegistrationFilterSPECjEnterprise.readUseCaseRules(config, rulesFile.trim()));
+			}
+		} catch (final IOException ex) {
+			LOG.error("Failed to read the use case rules. Using the SPECjEnterprise use cases only.", ex);
+			return specjExtractor;
+		} catch (final IllegalArgumentException ex) {
+			LOG.error("Failed to parse the use case rules. Using the SPECjEnterprise use cases only.", ex);
+			return specjExtractor;
+		}
+
+		if (rules.isEmpty()) {
+			return specjExtractor;
+		}
+		LOG.info("Using " + rules.size() + " use case rules");
+		return new RuleBasedUseCaseExtractor(rules, specjExtractor);
+	}
+
+	/**
+	 * Reads rules from a web application resource or, if there is no such resource, from the file system.
+	 */
+	private static List<UseCaseRule> readUseCaseRules(final FilterConfig config, final String path) throws IOException {
+		InputStream in = null;
+		if ((config.getServletContext() != null) && path.startsWith("/")) {
+			in = config.getServletContext().getResourceAsStream(path);
+		}
+		if (in == null) {
+			in = new FileInputStream(path);
+		}
+		try {
+			return UseCaseRuleParser.parse(new InputStreamReader(in, "UTF-8"));
+		} finally {
+			in.close();
+		}
+	}
+
+	private ServletEntryRecord createServletEntryRecord(final long traceId, final String uri, final int port, final String host, final String protocol,
+			final String method, final String queryString, final String encoding) {
+		if (!this.compactServletEntryRecords) {
+			return new ServletEntryRecord(traceId, uri, port, host, protocol, method, queryString, encoding);
+		}
+		final BoundedStringRegistry registry = this.highCardinalityRegistry;
+		if (registry == null) {
+			return new CompactServletEntryRecord(traceId, uri, port, host, protocol, method, queryString, encoding);
 		}
+		return new CompactServletEntryRecord(traceId, uri, port, host, protocol, method, queryString, encoding, registry);
 	}
 
 	public void destroy() {
 		// by default, we do nothing here. Extending classes may override this method
+		final ScheduledSamplerJob aggregatorJob = this.useCaseAggregatorJob;
+		if (aggregatorJob != null) {
+			this.useCaseAggregatorJob = null;
+			MONITORING_CTRL.removeScheduledSampler(aggregatorJob);
+			try {
+				this.useCaseAggregator.sample(MONITORING_CTRL); // flush the last, partial interval
+			} catch (final Exception ex) { // NOPMD NOCS (declared by ISampler)
+				LOG.warn("Failed to write the last use case summaries", ex);
+			}
+		}
+		final ScheduledSamplerJob guardJob = this.overheadGuardJob;
+		if (guardJob != null) {
+			this.overheadGuardJob = null;
+			MONITORING_CTRL.removeScheduledSampler(guardJob);
+		}
+		final ServletRequestHandoff handoff = this.recordHandoff;
+		if (handoff != null) {
+			this.recordHandoff = null;
+			try {
+				handoff.close();
+			} catch (final InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		this.releaseSamplers();
+		this.probeActivation.stop();
+		if (this.traceIdAllocator != null) {
+			this.traceIdAllocator = null;
+			TraceIdAllocator.releaseBlock(); // the blocks of the request threads hold no classes of this application
+		}
+		final ObjectName beanName = this.managementBeanName;
+		if (beanName != null) {
+			this.managementBeanName = null;
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(beanName);
+			} catch (final JMException ex) {
+				LOG.warn("Failed to unregister the management bean " + beanName, ex);
+			}
+		}
+	}
+
+	/**
+	 * Registers a {@link SessionAndTraceRegistrationFilterMXBean} for this filter instance in the platform MBean server.
+	 */
+	private void registerManagementBean(final FilterConfig config) {
+		final String contextPath = (config.getServletContext() != null) ? config.getServletContext().getContextPath() : ""; // NOCS
+		try {
+			final ObjectName name = new ObjectName(SessionAndTraceRegistrationFilterMXBean.OBJECT_NAME_DOMAIN
+					+ ":type=SessionAndTraceRegistrationFilter,context=" + ObjectName.quote(contextPath)
+					+ ",name=" + ObjectName.quote(String.valueOf(config.getFilterName())));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new FilterManagement(this), name);
+			this.managementBeanName = name;
+		} catch (final JMException ex) {
+			LOG.warn("Failed to register the management bean", ex);
+		}
+	}
+
+	/**
+	 * @return The current snapshot of the settings which can be changed at runtime.
+	 */
+	public FilterSettings getSettings() {
+		return this.settings;
+	}
+
+	void setLogFilterExecution(final boolean logFilterExecution) {
+		synchronized (this.settingsLock) {
+			this.settings = this.settings.withLogFilterExecution(logFilterExecution);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             If a parameter required by the mode is missing or invalid.
+	 * @throws IllegalStateException
+	 *             If the filter aggregates the response times, which requires every request to be traced.
+	 */
+	void configureSampling(final SamplingMode mode, final double probability, final double rate) {
+		if ((this.useCaseAggregator != null) && (mode != SamplingMode.NONE)) {
+			throw new IllegalStateException("Sampling is not supported when aggregating the response times");
+		}
+		final ITraceSampler sampler = createTraceSampler(mode, probability, rate);
+		synchronized (this.settingsLock) {
+			this.settings = this.settings.withSampling(mode, probability, rate, sampler);
+		}
+	}
+
+	/**
+	 * @param rules
+	 *            The use case rules preceding the SPECjEnterprise use cases; {@code null} or empty for none.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a rule is malformed.
+	 */
+	void setUseCaseRules(final String rules) {
+		final List<UseCaseRule> parsedRules = (rules != null) ? UseCaseRuleParser.parse(rules) : Collections.<UseCaseRule> emptyList(); // NOCS
+		final IUseCaseExtractor extractor = parsedRules.isEmpty() ? this.specjUseCaseExtractor // NOCS
+				: new RuleBasedUseCaseExtractor(parsedRules, this.specjUseCaseExtractor);
+		synchronized (this.settingsLock) {
+			this.settings = this.settings.withUseCaseExtractor(extractor, parsedRules.isEmpty() ? null : rules); // NOCS
+		}
+		LOG.info("Using " + parsedRules.size() + " use case rules");
+	}
+
+	void setQueryStringCapture(final QueryStringCapture queryStringCapture) {
+		synchronized (this.settingsLock) {
+			this.settings = this.settings.withQueryStringCapture(queryStringCapture);
+		}
+	}
+
+	int getSamplerInterval() {
+		return this.samplerInterval;
+	}
+
+	/**
+	 * Re-acquires the samplers of this filter with the given interval.
+	 */
+	void setSamplerInterval(final int interval) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("The sampler interval must be positive: " + interval);
+		}
+		synchronized (this.samplerRegistrations) {
+			this.releaseSamplers();
+			this.samplerInterval = interval;
+			this.scheduleSamplers();
+		}
+	}
+
+	MonitoringLevel getMonitoringLevel() {
+		final OverheadGuard guard = this.overheadGuard;
+		return (guard != null) ? guard.getLevel() : MonitoringLevel.FULL; // NOCS
+	}
+
+	long getRequestCount() {
+		return this.requestCount.sum();
+	}
+
+	long getTracedRequestCount() {
+		return this.tracedRequestCount.sum();
+	}
+
+	boolean isProbeActive() {
+		return this.probeActivation.isActive();
+	}
+
+	void refreshProbeActivation() {
+		this.probeActivation.refresh();
+	}
+
+	long getDroppedRecordCount() {
+		final ServletRequestHandoff handoff = this.recordHandoff;
+		return this.rejectedRecordCount.sum() + ((handoff != null) ? handoff.getDroppedCount() : 0); // NOCS
+	}
+
+	/**
+	 * @return The mean bookkeeping time per traced request in nanoseconds; {@link Double#NaN} if none has been traced.
+	 */
+	double getAverageOverhead() {
+		final long traced = this.tracedRequestCount.sum();
+		return (traced > 0) ? this.overheadNanos.sum() / (double) traced : Double.NaN; // NOCS
 	}
 
 	/**
@@ -227,56 +1223,55 @@ public class SessionAndTraceRegistrationFilterSPECjEnterprise implements Filter,
 	 * @return The session ID.
 	 */
 	protected String registerSessionInformation(final ServletRequest request) {
-		String sessionId = OperationExecutionRecord.NO_SESSION_ID;
+		final String sessionId = this.getRecordedSessionId(request);
+		if (sessionId != OperationExecutionRecord.NO_SESSION_ID) { // yes, != and not equals
+			SESSION_REGISTRY.storeThreadLocalSessionId(sessionId);
+		}
+		return sessionId;
+	}
 
-		if ((request == null) || !(request instanceof HttpServletRequest)) {
+	/**
+	 * @return The session ID as recorded (i.e., the formatted {@link SessionKeys key} if configured) or
+	 *         {@link OperationExecutionRecord#NO_SESSION_ID}.
+	 */
+	String getRecordedSessionId(final ServletRequest request) {
+		final String sessionId = SessionAndTraceRegistrationFilterSPECjEnterprise.getSessionId(request);
+		if (!this.sessionKeys || (sessionId == OperationExecutionRecord.NO_SESSION_ID)) { // yes, == and not equals
 			return sessionId;
 		}
+		return SessionKeys.format(SessionKeys.of(sessionId));
+	}
+
+	/**
+	 * @return The ID of the session associated with the request or {@link OperationExecutionRecord#NO_SESSION_ID}.
+	 */
+	static String getSessionId(final ServletRequest request) {
+		if ((request == null) || !(request instanceof HttpServletRequest)) {
+			return OperationExecutionRecord.NO_SESSION_ID;
+		}
 
 		final HttpSession session = ((HttpServletRequest) request).getSession(false);
 		if (session != null) {
-			sessionId = session.getId();
-			SESSION_REGISTRY.storeThreadLocalSessionId(sessionId);
+			return session.getId();
 		}
 
-		return sessionId;
+		return OperationExecutionRecord.NO_SESSION_ID;
 	}
 
 	public static String USE_CASE_NO_HTTP_REQUEST = "NO-HTTP";
 
-	// TODO: We should use a cache
-	private static String extractUseCaseFromRequest(final ServletRequest request) {
+	private String extractUseCaseFromRequest(final FilterSettings currentSettings, final ServletRequest request) {
 		final String useCase = USE_CASE_NO_HTTP_REQUEST;
 
 		if (request instanceof HttpServletRequest) {
-			// final String url = ((HttpServletRequest) request).getRequestURL().toString();
-			final String queryString = ((HttpServletRequest) request).getQueryString();
-
-			return SessionAndTraceRegistrationFilterSPECjEnterprise.extractFromQueryString(queryString);
+			return currentSettings.getUseCaseExtractor().extractUseCase((HttpServletRequest) request);
 		}
 
 		return useCase;
 	}
 
 	private static String extractFromQueryString(final String queryString) {
-		String useCase = "NOACTION";
-		boolean vehicle = false;		
-		if (queryString != null) {
-			final String[] keyValues = queryString.split("&");
-			for (final String keyValue : keyValues) {
-				final String[] paramSplit = keyValue.split("=");
-				if ("action".equals(paramSplit[0])) {
-					useCase = paramSplit[1];
-				} 
-				if ("vehicles".equals(paramSplit[0])) {
-					vehicle = true;
-				}
-			}
-			if ("View_Items".equals(useCase) && vehicle ) {
-				useCase = useCase + "_quantity";
-			}			
-		}
-		return useCase;
+		return SPECJ_USE_CASE_EXTRACTOR.extractFromQueryString(queryString);
 	}
 
 	// Tests the method extraction
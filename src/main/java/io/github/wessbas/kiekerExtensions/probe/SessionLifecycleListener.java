@@ -0,0 +1,113 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe;
+
+import io.github.wessbas.kiekerExtensions.record.SessionCreatedRecord;
+import io.github.wessbas.kiekerExtensions.record.SessionDestroyedRecord;
+import io.github.wessbas.kiekerExtensions.record.SessionKeys;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.controller.MonitoringController;
+
+/**
+ * Companion of {@link SessionAndTraceRegistrationFilterSPECjEnterprise} which writes the session boundaries: a
+ * {@link SessionCreatedRecord} when the container creates a session and a {@link SessionDestroyedRecord} when it
+ * invalidates one. Both refer to the session by its {@link SessionKeys key}, which analyses can also derive from the
+ * session ID of the filter's records, so that sessions can be closed as soon as they end instead of after an idle
+ * timeout.
+ *
+ * The timestamps are taken from the monitoring controller's time source, like the filter's entry and exit timestamps.
+ * Whether a destroyed session expired or was invalidated explicitly (e.g., by a logout) is not reported by the servlet
+ * API; it is inferred from the time since the session's last access.
+ *
+ * The listener is integrated into the web.xml as follows:
+ *
+ * <pre>
+ * {@code
+ * <listener>
+ *   <listener-class>io.github.wessbas.kiekerExtensions.probe.SessionLifecycleListener</listener-class>
+ * </listener>
+ * }
+ * </pre>
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class SessionLifecycleListener implements HttpSessionListener {
+
+	private final IMonitoringController monitoringController;
+
+	/**
+	 * Creates a new listener writing to the singleton monitoring controller.
+	 */
+	public SessionLifecycleListener() {
+		this(MonitoringController.getInstance());
+	}
+
+	/**
+	 * Creates a new listener.
+	 *
+	 * @param monitoringController
+	 *            The monitoring controller receiving the records.
+	 */
+	public SessionLifecycleListener(final IMonitoringController monitoringController) {
+		this.monitoringController = monitoringController;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void sessionCreated(final HttpSessionEvent event) {
+		if (!this.monitoringController.isMonitoringEnabled()) {
+			return;
+		}
+		final HttpSession session = event.getSession();
+		this.monitoringController.newMonitoringRecord(new SessionCreatedRecord(this.monitoringController.getTimeSource().getTime(),
+				this.monitoringController.getHostname(), SessionKeys.of(session.getId()), session.getMaxInactiveInterval()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void sessionDestroyed(final HttpSessionEvent event) {
+		if (!this.monitoringController.isMonitoringEnabled()) {
+			return;
+		}
+		final HttpSession session = event.getSession();
+		this.monitoringController.newMonitoringRecord(new SessionDestroyedRecord(this.monitoringController.getTimeSource().getTime(),
+				this.monitoringController.getHostname(), SessionKeys.of(session.getId()), SessionLifecycleListener.isExpired(session)));
+	}
+
+	private static boolean isExpired(final HttpSession session) {
+		try {
+			final int maxInactiveInterval = session.getMaxInactiveInterval();
+			if (maxInactiveInterval <= 0) {
+				return false; // never expires
+			}
+			return (System.currentTimeMillis() - session.getLastAccessedTime()) >= (maxInactiveInterval * 1000L);
+		} catch (final IllegalStateException ex) { // some containers invalidate the session before notifying the listeners
+			return false;
+		}
+	}
+}
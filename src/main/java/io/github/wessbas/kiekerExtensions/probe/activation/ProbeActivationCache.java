@@ -0,0 +1,182 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.activation;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+
+/**
+ * Caches whether a probe is active, i.e., whether monitoring is enabled and the probe's signature matches the probe
+ * patterns of the monitoring controller. Evaluating the patterns on every request is wasted work, since they rarely
+ * change; with this cache, the common case costs a single volatile read.
+ *
+ * The decision is re-evaluated periodically by a daemon thread shared by all started caches of the JVM (it ends when
+ * the last cache is stopped, e.g., when the web application is undeployed), and on
+ * {@link #refresh()}. Changes of the probe patterns or of the monitoring state therefore take effect after at most one
+ * refresh interval, or immediately if the code changing them calls {@link #refresh()}. Each change of the decision
+ * increments the {@linkplain #getEpoch() epoch}. With a refresh interval of 0, nothing is cached.
+ *
+ * The refresh runs independently of Kieker's sampler scheduling on purpose: Kieker does not run samplers while
+ * monitoring is disabled, so a sampler would never notice that monitoring has been enabled again.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class ProbeActivationCache {
+
+	/** The default refresh interval in milliseconds. */
+	public static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 1000;
+
+	private static final Object REFRESHER_LOCK = new Object();
+	private static ScheduledExecutorService refresher; // guarded by REFRESHER_LOCK; null while no cache is started
+	private static int startedCaches; // guarded by REFRESHER_LOCK
+
+	private final IMonitoringController monitoringController;
+	private final AtomicLong epoch = new AtomicLong();
+
+	private volatile String signature;
+	private volatile boolean caching;
+	private volatile boolean active;
+
+	private ScheduledFuture<?> refreshTask; // guarded by this
+
+	/**
+	 * Creates a new cache, which evaluates the decision on every call until it is {@linkplain #start(long) started}.
+	 *
+	 * @param monitoringController
+	 *            The monitoring controller.
+	 * @param signature
+	 *            The operation signature of the probe.
+	 */
+	public ProbeActivationCache(final IMonitoringController monitoringController, final String signature) {
+		this.monitoringController = monitoringController;
+		this.signature = signature;
+	}
+
+	/**
+	 * @return Whether the probe is active.
+	 */
+	public boolean isActive() {
+		if (this.caching) {
+			return this.active;
+		}
+		return this.evaluate();
+	}
+
+	private boolean evaluate() {
+		return this.monitoringController.isMonitoringEnabled() && this.monitoringController.isProbeActivated(this.signature);
+	}
+
+	/**
+	 * Re-evaluates the decision now.
+	 */
+	public void refresh() {
+		synchronized (this) { // serializes the refresh thread and explicit refreshes, so that the epoch counts changes
+			final boolean newActive = this.evaluate();
+			if (newActive != this.active) {
+				this.active = newActive;
+				this.epoch.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Starts caching with the given refresh interval, replacing the previous one.
+	 *
+	 * @param refreshIntervalMillis
+	 *            The refresh interval in milliseconds; 0 to evaluate the decision on every call.
+	 */
+	public synchronized void start(final long refreshIntervalMillis) {
+		if (refreshIntervalMillis < 0) {
+			throw new IllegalArgumentException("The refresh interval must not be negative: " + refreshIntervalMillis);
+		}
+		this.stop();
+		if (refreshIntervalMillis == 0) {
+			return;
+		}
+		this.refresh();
+		this.caching = true;
+		synchronized (REFRESHER_LOCK) {
+			if (refresher == null) {
+				refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					public Thread newThread(final Runnable runnable) {
+						final Thread thread = new Thread(runnable, "ProbeActivationCache");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			}
+			startedCaches++;
+			this.refreshTask = refresher.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					ProbeActivationCache.this.refresh();
+				}
+			}, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops caching and the periodic refresh. The refresh thread is shut down if no other cache is started.
+	 */
+	public synchronized void stop() {
+		this.caching = false;
+		if (this.refreshTask != null) {
+			this.refreshTask.cancel(false);
+			this.refreshTask = null;
+			synchronized (REFRESHER_LOCK) {
+				if (--startedCaches == 0) {
+					refresher.shutdown();
+					refresher = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Changes the signature of the probe and re-evaluates the decision.
+	 *
+	 * @param newSignature
+	 *            The operation signature of the probe.
+	 */
+	public void setSignature(final String newSignature) {
+		this.signature = newSignature;
+		this.refresh();
+	}
+
+	/**
+	 * @return The operation signature of the probe.
+	 */
+	public String getSignature() {
+		return this.signature;
+	}
+
+	/**
+	 * @return The number of changes of the cached decision so far.
+	 */
+	public long getEpoch() {
+		return this.epoch.get();
+	}
+}
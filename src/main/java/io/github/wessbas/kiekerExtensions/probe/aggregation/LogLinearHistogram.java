@@ -0,0 +1,215 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.aggregation;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A concurrent histogram of non-negative values with fixed memory and a bounded relative error. Values below
+ * {@value #SUB_BUCKETS} have a bucket of their own; above, each power of two is divided into {@value #SUB_BUCKETS}
+ * equally wide buckets (log-linear bucketing), so that a bucket's width is at most 1/{@value #SUB_BUCKETS} of its
+ * values. Values of {@code 2^}{@value #MAX_EXPONENT} and more are counted in the last bucket.
+ *
+ * Recording is lock-free: each thread increments the counters of one of several stripes (selected by its thread ID),
+ * which are summed up when a {@linkplain #snapshotDelta() snapshot} is taken. Counters are never reset; snapshots
+ * contain the difference to the previous snapshot instead, so that no concurrent recording is lost.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class LogLinearHistogram {
+
+	/** The number of buckets per power of two is {@code 2^SUB_BUCKET_BITS}. */
+	public static final int SUB_BUCKET_BITS = 4;
+	public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/** The exponent of the smallest value counted in the overflow bucket. */
+	public static final int MAX_EXPONENT = 44;
+	public static final int BUCKET_COUNT = ((MAX_EXPONENT - SUB_BUCKET_BITS) + 1) * SUB_BUCKETS;
+
+	private static final int SUM_INDEX = BUCKET_COUNT;
+	/** Buckets and sum of a stripe, padded by a cache line so that stripes do not share one. */
+	private static final int STRIPE_LENGTH = BUCKET_COUNT + 1 + 8;
+
+	private final int stripeMask;
+	private final AtomicLongArray counters;
+
+	/* state of the previous snapshot; only accessed by the thread taking snapshots */
+	private final long[] previousCounts = new long[BUCKET_COUNT];
+	private long previousSum;
+
+	/**
+	 * @param stripes
+	 *            The minimum number of stripes; rounded up to the next power of two.
+	 */
+	public LogLinearHistogram(final int stripes) {
+		final int stripeCount = (stripes <= 1) ? 1 : Integer.highestOneBit(stripes - 1) << 1; // NOCS
+		this.stripeMask = stripeCount - 1;
+		this.counters = new AtomicLongArray(stripeCount * STRIPE_LENGTH);
+	}
+
+	/**
+	 * @return The index of the bucket counting the given value.
+	 */
+	static int bucketOf(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (value > 0) ? (int) value : 0; // NOCS
+		}
+		final int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+		if (exponent >= MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		final int shift = exponent - SUB_BUCKET_BITS;
+		return ((shift + 1) * SUB_BUCKETS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * @return The smallest value counted in the given bucket.
+	 */
+	static long lowerBoundOf(final int bucket) {
+		final int group = bucket / SUB_BUCKETS;
+		final int subBucket = bucket % SUB_BUCKETS;
+		if (group == 0) {
+			return subBucket;
+		}
+		return (long) (SUB_BUCKETS + subBucket) << (group - 1);
+	}
+
+	/**
+	 * @return The largest value counted in the given bucket (except for the overflow bucket).
+	 */
+	static long upperBoundOf(final int bucket) {
+		final int group = bucket / SUB_BUCKETS;
+		if (group == 0) {
+			return bucket;
+		}
+		return (LogLinearHistogram.lowerBoundOf(bucket) + (1L << (group - 1))) - 1;
+	}
+
+	/**
+	 * Records a value; negative values are counted as 0.
+	 */
+	public void record(final long value) {
+		final int offset = ((int) Thread.currentThread().getId() & this.stripeMask) * STRIPE_LENGTH;
+		this.counters.getAndIncrement(offset + LogLinearHistogram.bucketOf(value));
+		this.counters.getAndAdd(offset + SUM_INDEX, Math.max(0, value));
+	}
+
+	/**
+	 * Returns the values recorded since the previous call. Must not be called by several threads concurrently.
+	 *
+	 * @return The snapshot.
+	 */
+	public Snapshot snapshotDelta() {
+		final long[] counts = new long[BUCKET_COUNT];
+		long sum = 0;
+		for (int offset = 0; offset < this.counters.length(); offset += STRIPE_LENGTH) {
+			for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+				counts[bucket] += this.counters.get(offset + bucket);
+			}
+			sum += this.counters.get(offset + SUM_INDEX);
+		}
+
+		long count = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+			final long cumulativeCount = counts[bucket];
+			counts[bucket] = cumulativeCount - this.previousCounts[bucket];
+			this.previousCounts[bucket] = cumulativeCount;
+			count += counts[bucket];
+		}
+		final long sumDelta = sum - this.previousSum;
+		this.previousSum = sum;
+		return new Snapshot(counts, count, sumDelta);
+	}
+
+	/**
+	 * The values recorded between two calls of {@link LogLinearHistogram#snapshotDelta()}. As the counters of different
+	 * buckets are not read atomically, values recorded concurrently to the snapshot may appear in the next snapshot;
+	 * none are lost.
+	 */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+
+		Snapshot(final long[] counts, final long count, final long sum) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+		}
+
+		public long getCount() {
+			return this.count;
+		}
+
+		public long getSum() {
+			return this.sum;
+		}
+
+		/**
+		 * @return The mean value or {@link Double#NaN} if the snapshot is empty.
+		 */
+		public double getMean() {
+			return (this.count > 0) ? (double) this.sum / this.count : Double.NaN; // NOCS
+		}
+
+		/**
+		 * @param quantile
+		 *            The quantile in {@code (0, 1]}, e.g., 0.99 for the 99th percentile.
+		 *
+		 * @return The largest value of the bucket containing the quantile (i.e., an upper bound within the bucket's
+		 *         relative error), or 0 if the snapshot is empty.
+		 */
+		public long getValueAtQuantile(final double quantile) {
+			final long rank = (long) Math.ceil(quantile * this.count);
+			long seen = 0;
+			for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+				seen += this.counts[bucket];
+				if ((seen >= rank) && (seen > 0)) {
+					return LogLinearHistogram.upperBoundOf(bucket);
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * @return The lower bound of the lowest non-empty bucket, or 0 if the snapshot is empty.
+		 */
+		public long getMin() {
+			for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+				if (this.counts[bucket] > 0) {
+					return LogLinearHistogram.lowerBoundOf(bucket);
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * @return The upper bound of the highest non-empty bucket, or 0 if the snapshot is empty.
+		 */
+		public long getMax() {
+			for (int bucket = BUCKET_COUNT - 1; bucket >= 0; bucket--) {
+				if (this.counts[bucket] > 0) {
+					return LogLinearHistogram.upperBoundOf(bucket);
+				}
+			}
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.aggregation;
+
+import io.github.wessbas.kiekerExtensions.record.UseCaseSummaryRecord;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.sampler.ISampler;
+
+/**
+ * Aggregates the response times of requests per use case, instead of writing a trace per request. As an
+ * {@link ISampler} scheduled with {@link IMonitoringController#schedulePeriodicSampler}, it writes one
+ * {@link UseCaseSummaryRecord} per use case and interval, with the number of requests, the throughput, and the
+ * response time distribution of the interval. Use cases without requests in an interval are skipped.
+ *
+ * The number of use cases is bounded; requests of additional use cases are aggregated under
+ * {@link #OVERFLOW_USE_CASE}. Each use case occupies a fixed amount of memory.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class UseCaseAggregator implements ISampler {
+
+	/** The default maximum number of use cases. */
+	public static final int DEFAULT_MAX_USE_CASES = 256;
+	/** The use case under which the requests of use cases beyond the maximum number are aggregated. */
+	public static final String OVERFLOW_USE_CASE = "<other>";
+
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	private final String hostname;
+	private final int maxUseCases;
+	private final int stripes;
+	private final ConcurrentMap<String, LogLinearHistogram> histograms = new ConcurrentHashMap<String, LogLinearHistogram>();
+	private final LogLinearHistogram overflowHistogram;
+
+	/* state of the previous flush; guarded by this */
+	private long previousFlushNanos = System.nanoTime();
+	private long previousFlushTime;
+
+	/**
+	 * @param hostname
+	 *            The hostname written to the summary records.
+	 * @param maxUseCases
+	 *            The maximum number of use cases aggregated separately.
+	 * @param stripes
+	 *            The number of stripes per histogram; more stripes reduce contention, but increase memory.
+	 * @param startTime
+	 *            The start of the first interval, according to the time source of the monitoring controller.
+	 */
+	public UseCaseAggregator(final String hostname, final int maxUseCases, final int stripes, final long startTime) {
+		this.hostname = hostname;
+		this.maxUseCases = maxUseCases;
+		this.stripes = stripes;
+		this.overflowHistogram = new LogLinearHistogram(stripes);
+		this.previousFlushTime = startTime;
+	}
+
+	/**
+	 * Records the response time of a request.
+	 *
+	 * @param useCase
+	 *            The use case of the request.
+	 * @param responseTime
+	 *            The response time, in the unit of the monitoring controller's time source.
+	 */
+	public void record(final String useCase, final long responseTime) {
+		this.histogramOf(useCase).record(responseTime);
+	}
+
+	private LogLinearHistogram histogramOf(final String useCase) {
+		final LogLinearHistogram histogram = this.histograms.get(useCase);
+		if (histogram != null) {
+			return histogram;
+		}
+		if (this.histograms.size() >= this.maxUseCases) {
+			return this.overflowHistogram;
+		}
+		final LogLinearHistogram newHistogram = new LogLinearHistogram(this.stripes);
+		final LogLinearHistogram existingHistogram = this.histograms.putIfAbsent(useCase, newHistogram);
+		return (existingHistogram != null) ? existingHistogram : newHistogram; // NOCS
+	}
+
+	/**
+	 * Writes the summary records of the interval since the previous call.
+	 */
+	public synchronized void sample(final IMonitoringController monitoringController) throws Exception { // NOPMD (declared by ISampler)
+		final long nowNanos = System.nanoTime();
+		final long now = monitoringController.getTimeSource().getTime();
+		final double intervalSeconds = Math.max(1, nowNanos - this.previousFlushNanos) / NANOS_PER_SECOND;
+
+		for (final Map.Entry<String, LogLinearHistogram> entry : this.histograms.entrySet()) {
+			this.flush(monitoringController, entry.getKey(), entry.getValue(), now, intervalSeconds);
+		}
+		this.flush(monitoringController, OVERFLOW_USE_CASE, this.overflowHistogram, now, intervalSeconds);
+
+		this.previousFlushNanos = nowNanos;
+		this.previousFlushTime = now;
+	}
+
+	private void flush(final IMonitoringController monitoringController, final String useCase, final LogLinearHistogram histogram,
+			final long now, final double intervalSeconds) {
+		final LogLinearHistogram.Snapshot snapshot = histogram.snapshotDelta();
+		if (snapshot.getCount() == 0) {
+			return;
+		}
+		monitoringController.newMonitoringRecord(new UseCaseSummaryRecord(this.hostname, useCase, this.previousFlushTime, now,
+				snapshot.getCount(), snapshot.getCount() / intervalSeconds, snapshot.getMean(), snapshot.getMin(),
+				snapshot.getValueAtQuantile(0.5), snapshot.getValueAtQuantile(0.9), snapshot.getValueAtQuantile(0.95), // NOCS
+				snapshot.getValueAtQuantile(0.99), snapshot.getMax())); // NOCS
+	}
+}
@@ -0,0 +1,344 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.capture;
+
+import io.github.wessbas.kiekerExtensions.probe.usecase.QueryStrings;
+import io.github.wessbas.kiekerExtensions.probe.usecase.UseCaseCache;
+
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Reduces a raw query string to the part which is to be recorded, according to a {@link QueryStringCaptureMode}:
+ * <ul>
+ * <li>{@link QueryStringCaptureMode#TRUNCATE} cuts the query string after {@link #getMaxLength()} characters (which are
+ * bytes as well, since a raw query string is URL-encoded ASCII), without splitting a {@code %XX} escape.</li>
+ * <li>{@link QueryStringCaptureMode#WHITELIST} keeps only the parameters listed in {@link #getParameters()}, in their
+ * original order.</li>
+ * <li>{@link QueryStringCaptureMode#HASH} replaces each non-empty value of the parameters not listed by the first 16 hex
+ * digits of its HMAC-SHA256, so that equal values can still be correlated. Since the hash is keyed, a value from a small
+ * domain cannot be recovered by hashing all candidates without knowing the key.</li>
+ * </ul>
+ *
+ * The key of {@link QueryStringCaptureMode#HASH} should be configured (see {@link #QueryStringCapture(QueryStringCaptureMode, int, String[], String, int)}). Without a configured
+ * key, a random key is generated once per JVM (more precisely, per class loader of this class): the hashes are then only
+ * comparable within one run of the application, and nobody, including the analyst, can reverse them.
+ *
+ * The query string is scanned once, in the manner of the {@link io.github.wessbas.kiekerExtensions.probe.usecase}
+ * extractors. The result is only copied if it differs from the input, and it is memoized in a bounded
+ * {@link UseCaseCache}. Since {@link String} caches its hash code, a query string whose use case has already been looked
+ * up in the extractor's cache is not hashed a second time.
+ *
+ * Instances are immutable and thread-safe.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class QueryStringCapture {
+
+	/** The default number of cache slots. */
+	public static final int DEFAULT_CACHE_SIZE = 1024;
+
+	/** The default maximum length for {@link QueryStringCaptureMode#TRUNCATE}. */
+	public static final int DEFAULT_MAX_LENGTH = 256;
+
+	private static final String HASH_ALGORITHM = "HmacSHA256";
+	private static final int RANDOM_KEY_LENGTH = 32;
+	private static final SecretKeySpec RANDOM_KEY = QueryStringCapture.createRandomKey();
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** Records the query string as is. */
+	public static final QueryStringCapture FULL = new QueryStringCapture(QueryStringCaptureMode.FULL, DEFAULT_MAX_LENGTH, new String[0], 0);
+
+	private static final int HASH_BYTES = 8;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final int ESCAPE_LENGTH = 3;
+
+	private final QueryStringCaptureMode mode;
+	private final int maxLength;
+	private final String[] parameters;
+	private final SecretKeySpec hashKey;
+	private final boolean hashKeyConfigured;
+	private final UseCaseCache cache; // null if caching is disabled
+
+	/**
+	 * Creates a new capture policy.
+	 *
+	 * @param mode
+	 *            The mode.
+	 * @param maxLength
+	 *            The maximum length for {@link QueryStringCaptureMode#TRUNCATE}.
+	 * @param parameters
+	 *            The parameters kept by {@link QueryStringCaptureMode#WHITELIST} or kept in clear by
+	 *            {@link QueryStringCaptureMode#HASH}.
+	 * @param cacheSize
+	 *            The number of cache slots; {@code 0} disables the cache.
+	 */
+	public QueryStringCapture(final QueryStringCaptureMode mode, final int maxLength, final String[] parameters, final int cacheSize) {
+		this(mode, maxLength, parameters, (SecretKeySpec) null, cacheSize);
+	}
+
+	/**
+	 * Creates a new capture policy.
+	 *
+	 * @param mode
+	 *            The mode.
+	 * @param maxLength
+	 *            The maximum length for {@link QueryStringCaptureMode#TRUNCATE}.
+	 * @param parameters
+	 *            The parameters kept by {@link QueryStringCaptureMode#WHITELIST} or kept in clear by
+	 *            {@link QueryStringCaptureMode#HASH}.
+	 * @param hashKey
+	 *            The secret key of {@link QueryStringCaptureMode#HASH}, whose UTF-8 bytes key the HMAC; {@code null} for
+	 *            the random key of this JVM.
+	 * @param cacheSize
+	 *            The number of cache slots; {@code 0} disables the cache.
+	 */
+	public QueryStringCapture(final QueryStringCaptureMode mode, final int maxLength, final String[] parameters, final String hashKey,
+			final int cacheSize) {
+		this(mode, maxLength, parameters, (hashKey != null) ? QueryStringCapture.createKey(hashKey) : null, cacheSize); // NOCS
+	}
+
+	private QueryStringCapture(final QueryStringCaptureMode mode, final int maxLength, final String[] parameters, final SecretKeySpec hashKey,
+			final int cacheSize) {
+		if (maxLength < 0) {
+			throw new IllegalArgumentException("maxLength must not be negative: " + maxLength);
+		}
+		this.mode = mode;
+		this.maxLength = maxLength;
+		this.parameters = parameters.clone();
+		this.hashKeyConfigured = hashKey != null;
+		this.hashKey = (hashKey != null) ? hashKey : RANDOM_KEY; // NOCS
+		final boolean rewriting = (mode == QueryStringCaptureMode.WHITELIST) || (mode == QueryStringCaptureMode.HASH);
+		this.cache = (rewriting && (cacheSize > 0)) ? new UseCaseCache(cacheSize) : null; // NOCS
+	}
+
+	private static SecretKeySpec createRandomKey() {
+		final byte[] key = new byte[RANDOM_KEY_LENGTH];
+		new SecureRandom().nextBytes(key);
+		return new SecretKeySpec(key, HASH_ALGORITHM);
+	}
+
+	private static SecretKeySpec createKey(final String hashKey) {
+		if (hashKey.length() == 0) {
+			throw new IllegalArgumentException("The hash key must not be empty");
+		}
+		return new SecretKeySpec(hashKey.getBytes(UTF_8), HASH_ALGORITHM);
+	}
+
+	/**
+	 * Creates a policy with another mode, maximum length, and parameters, but the hash key of this policy. This allows
+	 * to reconfigure the policy at runtime without handing out the key.
+	 *
+	 * @param newMode
+	 *            The mode.
+	 * @param newMaxLength
+	 *            The maximum length for {@link QueryStringCaptureMode#TRUNCATE}.
+	 * @param newParameters
+	 *            The parameters kept by {@link QueryStringCaptureMode#WHITELIST} or kept in clear by
+	 *            {@link QueryStringCaptureMode#HASH}.
+	 * @param cacheSize
+	 *            The number of cache slots; {@code 0} disables the cache.
+	 *
+	 * @return The new policy.
+	 */
+	public QueryStringCapture withPolicy(final QueryStringCaptureMode newMode, final int newMaxLength, final String[] newParameters,
+			final int cacheSize) {
+		return new QueryStringCapture(newMode, newMaxLength, newParameters, this.hashKeyConfigured ? this.hashKey : null, cacheSize); // NOCS
+	}
+
+	/**
+	 * Parses a comma-separated list of parameter names.
+	 *
+	 * @param parameterList
+	 *            The list; may be {@code null}.
+	 *
+	 * @return The names, without empty entries.
+	 */
+	public static String[] parseParameters(final String parameterList) {
+		final List<String> names = new ArrayList<String>();
+		if (parameterList != null) {
+			for (final String name : parameterList.split(",")) {
+				if (name.trim().length() > 0) {
+					names.add(name.trim());
+				}
+			}
+		}
+		return names.toArray(new String[names.size()]);
+	}
+
+	/**
+	 * @param queryString
+	 *            The raw query string; may be {@code null}.
+	 *
+	 * @return The part of the query string to record; {@code null} if the input is {@code null}.
+	 */
+	public String capture(final String queryString) {
+		if (queryString == null) {
+			return null;
+		}
+		switch (this.mode) {
+		case FULL:
+			return queryString;
+		case NONE:
+			return "";
+		case TRUNCATE:
+			return this.truncate(queryString);
+		default:
+			break;
+		}
+
+		final UseCaseCache localCache = this.cache;
+		if (localCache != null) {
+			final String cached = localCache.get(queryString);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		final String captured = this.rewrite(queryString);
+		if (localCache != null) {
+			localCache.put(queryString, captured);
+		}
+		return captured;
+	}
+
+	private String truncate(final String queryString) {
+		if (queryString.length() <= this.maxLength) {
+			return queryString;
+		}
+		int end = this.maxLength;
+		final int escape = queryString.lastIndexOf('%', end - 1);
+		if ((escape >= 0) && (escape > (end - ESCAPE_LENGTH))) {
+			end = escape;
+		}
+		if ((end > 0) && Character.isHighSurrogate(queryString.charAt(end - 1))) {
+			end--;
+		}
+		return queryString.substring(0, end);
+	}
+
+	/**
+	 * Applies {@link QueryStringCaptureMode#WHITELIST} or {@link QueryStringCaptureMode#HASH} in a single pass. The output
+	 * buffer is only created at the first parameter which is not copied verbatim.
+	 */
+	private String rewrite(final String queryString) {
+		final boolean whitelist = this.mode == QueryStringCaptureMode.WHITELIST;
+		final int length = queryString.length();
+		StringBuilder out = null;
+		Mac mac = null; // created at the first value to hash
+
+		int paramStart = 0;
+		while (paramStart <= length) {
+			int paramEnd = queryString.indexOf('&', paramStart);
+			if (paramEnd < 0) {
+				paramEnd = length;
+			}
+			final int nameEnd = QueryStrings.indexOf(queryString, '=', paramStart, paramEnd);
+			final boolean listed = this.isListed(queryString, paramStart, nameEnd - paramStart);
+			final boolean verbatim = whitelist ? listed : listed || ((nameEnd + 1) >= paramEnd); // NOCS (no value to hash)
+
+			if (verbatim) {
+				if (out != null) {
+					if (out.length() > 0) {
+						out.append('&');
+					}
+					out.append(queryString, paramStart, paramEnd);
+				}
+			} else {
+				if (out == null) { // everything before has been kept as is
+					out = new StringBuilder(length);
+					out.append(queryString, 0, Math.max(0, paramStart - 1));
+				}
+				if (!whitelist) {
+					if (out.length() > 0) {
+						out.append('&');
+					}
+					out.append(queryString, paramStart, nameEnd + 1);
+					if (mac == null) {
+						mac = this.createMac();
+					}
+					QueryStringCapture.appendHash(out, mac, queryString, nameEnd + 1, paramEnd);
+				}
+			}
+			paramStart = paramEnd + 1;
+		}
+		return (out != null) ? out.toString() : queryString; // NOCS
+	}
+
+	private boolean isListed(final String queryString, final int nameStart, final int nameLength) {
+		for (final String parameter : this.parameters) {
+			if ((nameLength == parameter.length()) && queryString.regionMatches(nameStart, parameter, 0, nameLength)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates a {@link Mac} for this policy's key. A {@link Mac} is not thread-safe, hence one is created per rewritten
+	 * query string; the cache keeps this off the path of recurring query strings.
+	 */
+	private Mac createMac() {
+		try {
+			final Mac mac = Mac.getInstance(HASH_ALGORITHM);
+			mac.init(this.hashKey);
+			return mac;
+		} catch (final GeneralSecurityException ex) {
+			throw new IllegalStateException(HASH_ALGORITHM + " is required of every Java platform", ex);
+		}
+	}
+
+	private static void appendHash(final StringBuilder out, final Mac mac, final String s, final int from, final int to) {
+		final byte[] hash = mac.doFinal(s.substring(from, to).getBytes(UTF_8));
+		for (int i = 0; i < HASH_BYTES; i++) {
+			out.append(HEX_DIGITS[(hash[i] >> 4) & 0xF]).append(HEX_DIGITS[hash[i] & 0xF]);
+		}
+	}
+
+	public QueryStringCaptureMode getMode() {
+		return this.mode;
+	}
+
+	public int getMaxLength() {
+		return this.maxLength;
+	}
+
+	/**
+	 * @return The parameters kept by {@link QueryStringCaptureMode#WHITELIST} or kept in clear by
+	 *         {@link QueryStringCaptureMode#HASH}.
+	 */
+	public String[] getParameters() {
+		return this.parameters.clone();
+	}
+
+	/**
+	 * @return Whether {@link QueryStringCaptureMode#HASH} uses a configured key rather than the random key of this JVM.
+	 *         The key itself is not exposed.
+	 */
+	public boolean isHashKeyConfigured() {
+		return this.hashKeyConfigured;
+	}
+}
@@ -0,0 +1,56 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.capture;
+
+import java.util.Locale;
+
+/**
+ * How much of the query string of a request is recorded; see {@link QueryStringCapture}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public enum QueryStringCaptureMode {
+	/** The query string is recorded as is (the default). */
+	FULL,
+	/** No query string is recorded. */
+	NONE,
+	/** The query string is cut after a maximum length. */
+	TRUNCATE,
+	/** Only the listed parameters are recorded. */
+	WHITELIST,
+	/** The values of all but the listed parameters are replaced by a keyed 64-bit hash. */
+	HASH;
+
+	/**
+	 * Case-insensitive variant of {@link #valueOf(String)}.
+	 *
+	 * @param name
+	 *            The name of the mode.
+	 *
+	 * @return The mode.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If there is no such mode.
+	 */
+	public static QueryStringCaptureMode parse(final String name) {
+		return QueryStringCaptureMode.valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+	}
+}
@@ -0,0 +1,188 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.context;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import kieker.common.record.controlflow.OperationExecutionRecord;
+import kieker.monitoring.core.registry.ControlFlowRegistry;
+import kieker.monitoring.core.registry.SessionRegistry;
+
+/**
+ * A snapshot of the thread-local session and trace information of {@link SessionRegistry} and {@link ControlFlowRegistry},
+ * which is captured on the thread submitting a task and attached to the thread executing it. Executions on the
+ * executing thread thereby become part of the submitting thread's trace.
+ *
+ * Executions of concurrent tasks must not get the same execution order index (EOI). As Kieker counts the EOIs per
+ * thread, {@link #capture()} reserves a block of EOIs for the task from a counter shared by all threads of the trace
+ * (held by the contexts of the trace). The thread starting the trace keeps the block following its EOI at the first
+ * capture. Tasks submitted by tasks get blocks of their own, however deeply they are nested, so the EOIs of a trace
+ * remain unique, but are neither contiguous nor ordered by submission. A thread with more executions than the block
+ * size may overlap with the next block; a task must not be run more than once. The execution stack size (ESS) of
+ * the task starts at the submitting execution's nesting depth, as if the task had been called by it.
+ *
+ * Tasks forked in a {@code ForkJoinPool} (i.e., {@code ForkJoinTask.fork()} or {@code invoke()}) are not supported:
+ * they run in the context of whatever thread executes them.
+ *
+ * Capturing outside of a trace and session is free of allocations.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class TraceContext {
+
+	/** The default number of EOIs reserved per task. */
+	public static final int DEFAULT_EOI_BLOCK_SIZE = 1024;
+
+	private static final SessionRegistry SESSION_REGISTRY = SessionRegistry.INSTANCE;
+	private static final ControlFlowRegistry CF_REGISTRY = ControlFlowRegistry.INSTANCE;
+
+	/** The index of the trace ID in an EOI counter. */
+	private static final int COUNTER_TRACE_ID = 0;
+	/** The index of the first EOI not reserved yet in an EOI counter. */
+	private static final int COUNTER_NEXT_EOI = 1;
+
+	/**
+	 * The EOI counter of the trace of each thread, if it has been shared with a task. It only holds JDK types, so that
+	 * the threads do not keep this class loader alive.
+	 */
+	private static final ThreadLocal<AtomicLongArray> EOI_COUNTER = new ThreadLocal<AtomicLongArray>();
+
+	private static final TraceContext EMPTY = new TraceContext(null, OperationExecutionRecord.NO_TRACE_ID, 0, 0, null);
+
+	private final String sessionId; // null if none
+	private final long traceId;
+	private final int eoi;
+	private final int ess;
+	private final AtomicLongArray eoiCounter; // null if none
+
+	private TraceContext(final String sessionId, final long traceId, final int eoi, final int ess, final AtomicLongArray eoiCounter) {
+		this.sessionId = sessionId;
+		this.traceId = traceId;
+		this.eoi = eoi;
+		this.ess = ess;
+		this.eoiCounter = eoiCounter;
+	}
+
+	/**
+	 * Captures the calling thread's context for a task, reserving {@link #DEFAULT_EOI_BLOCK_SIZE} EOIs.
+	 *
+	 * @return The context; possibly {@linkplain #isEmpty() empty}.
+	 */
+	public static TraceContext capture() {
+		return TraceContext.capture(DEFAULT_EOI_BLOCK_SIZE);
+	}
+
+	/**
+	 * Captures the calling thread's context for a task.
+	 *
+	 * @param eoiBlockSize
+	 *            The number of EOIs to reserve for the task.
+	 *
+	 * @return The context; possibly {@linkplain #isEmpty() empty}.
+	 */
+	public static TraceContext capture(final int eoiBlockSize) {
+		final String sessionId = SESSION_REGISTRY.recallThreadLocalSessionId();
+		final long traceId = CF_REGISTRY.recallThreadLocalTraceId();
+		if (traceId == OperationExecutionRecord.NO_TRACE_ID) {
+			return (sessionId == null) ? EMPTY : new TraceContext(sessionId, OperationExecutionRecord.NO_TRACE_ID, 0, 0, null); // NOCS
+		}
+		AtomicLongArray eoiCounter = EOI_COUNTER.get();
+		if ((eoiCounter == null) || (eoiCounter.get(COUNTER_TRACE_ID) != traceId)) {
+			eoiCounter = new AtomicLongArray(2);
+			eoiCounter.set(COUNTER_TRACE_ID, traceId);
+			// the calling thread keeps the EOIs up to its current EOI plus one block
+			eoiCounter.set(COUNTER_NEXT_EOI, CF_REGISTRY.recallThreadLocalEOI() + 1L + eoiBlockSize);
+			EOI_COUNTER.set(eoiCounter);
+		}
+		final long firstEoi = eoiCounter.getAndAdd(COUNTER_NEXT_EOI, eoiBlockSize); // the task gets [firstEoi, firstEoi + eoiBlockSize)
+		return new TraceContext(sessionId, traceId, (int) firstEoi - 1, CF_REGISTRY.recallThreadLocalESS(), eoiCounter);
+	}
+
+	/**
+	 * @return The calling thread's context, without reserving anything.
+	 */
+	private static TraceContext current() {
+		final String sessionId = SESSION_REGISTRY.recallThreadLocalSessionId();
+		final long traceId = CF_REGISTRY.recallThreadLocalTraceId();
+		if ((sessionId == null) && (traceId == OperationExecutionRecord.NO_TRACE_ID)) {
+			return EMPTY;
+		}
+		return new TraceContext(sessionId, traceId, CF_REGISTRY.recallThreadLocalEOI(), CF_REGISTRY.recallThreadLocalESS(), EOI_COUNTER.get());
+	}
+
+	/**
+	 * @return Whether this context contains neither a session nor a trace.
+	 */
+	public boolean isEmpty() {
+		return this == EMPTY;
+	}
+
+	/**
+	 * Makes this context the calling thread's context.
+	 *
+	 * @return The previous context of the calling thread, to be passed to {@link #detach(TraceContext)}.
+	 */
+	public TraceContext attach() {
+		final TraceContext previous = TraceContext.current();
+		this.install();
+		return previous;
+	}
+
+	/**
+	 * Restores the calling thread's context after the execution of a task.
+	 *
+	 * @param previous
+	 *            The context returned by {@link #attach()}.
+	 */
+	public static void detach(final TraceContext previous) {
+		previous.install();
+	}
+
+	private void install() {
+		if (this.sessionId != null) {
+			SESSION_REGISTRY.storeThreadLocalSessionId(this.sessionId);
+		} else {
+			SESSION_REGISTRY.unsetThreadLocalSessionId();
+		}
+		if (this.traceId != OperationExecutionRecord.NO_TRACE_ID) {
+			CF_REGISTRY.storeThreadLocalTraceId(this.traceId);
+			CF_REGISTRY.storeThreadLocalEOI(this.eoi);
+			CF_REGISTRY.storeThreadLocalESS(this.ess);
+		} else {
+			CF_REGISTRY.unsetThreadLocalTraceId();
+			CF_REGISTRY.unsetThreadLocalEOI();
+			CF_REGISTRY.unsetThreadLocalESS();
+		}
+		if (this.eoiCounter != null) {
+			EOI_COUNTER.set(this.eoiCounter);
+		} else {
+			EOI_COUNTER.remove();
+		}
+	}
+
+	public String getSessionId() {
+		return this.sessionId;
+	}
+
+	public long getTraceId() {
+		return this.traceId;
+	}
+}
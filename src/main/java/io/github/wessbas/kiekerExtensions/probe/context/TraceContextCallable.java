@@ -0,0 +1,64 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.context;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A {@link Callable} executed in the {@link TraceContext} of the thread which created it.
+ *
+ * @param <V>
+ *            The result type.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class TraceContextCallable<V> implements Callable<V> {
+
+	private final Callable<V> task;
+	private final TraceContext context;
+
+	private TraceContextCallable(final Callable<V> task, final TraceContext context) {
+		this.task = task;
+		this.context = context;
+	}
+
+	/**
+	 * Captures the calling thread's context for the given task.
+	 *
+	 * @return The wrapped task, or the task itself if there is no context to propagate.
+	 */
+	public static <V> Callable<V> wrap(final Callable<V> task) {
+		final TraceContext context = TraceContext.capture();
+		return context.isEmpty() ? task : new TraceContextCallable<V>(task, context); // NOCS
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V call() throws Exception { // NOPMD (declared by Callable)
+		final TraceContext previous = this.context.attach();
+		try {
+			return this.task.call();
+		} finally {
+			TraceContext.detach(previous);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.context;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * An {@link ExecutorService} which executes all tasks in the {@link TraceContext} of the submitting thread, so that
+ * work handed off by the application stays part of the request's trace. All other calls are delegated unchanged.
+ *
+ * Usage: {@code ExecutorService executor = TraceContextExecutorService.wrap(Executors.newFixedThreadPool(n));}
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class TraceContextExecutorService implements ExecutorService {
+
+	private final ExecutorService delegate;
+
+	private TraceContextExecutorService(final ExecutorService delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * @return An executor service propagating the trace context to the tasks executed by the given one.
+	 */
+	public static ExecutorService wrap(final ExecutorService delegate) {
+		if (delegate instanceof TraceContextExecutorService) {
+			return delegate;
+		}
+		return new TraceContextExecutorService(delegate);
+	}
+
+	private static <T> List<Callable<T>> wrapAll(final Collection<? extends Callable<T>> tasks) {
+		final List<Callable<T>> wrappedTasks = new ArrayList<Callable<T>>(tasks.size());
+		for (final Callable<T> task : tasks) {
+			wrappedTasks.add(TraceContextCallable.wrap(task));
+		}
+		return wrappedTasks;
+	}
+
+	public void execute(final Runnable command) {
+		this.delegate.execute(TraceContextRunnable.wrap(command));
+	}
+
+	public <T> Future<T> submit(final Callable<T> task) {
+		return this.delegate.submit(TraceContextCallable.wrap(task));
+	}
+
+	public <T> Future<T> submit(final Runnable task, final T result) {
+		return this.delegate.submit(TraceContextRunnable.wrap(task), result);
+	}
+
+	public Future<?> submit(final Runnable task) {
+		return this.delegate.submit(TraceContextRunnable.wrap(task));
+	}
+
+	public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks) throws InterruptedException {
+		return this.delegate.invokeAll(TraceContextExecutorService.wrapAll(tasks));
+	}
+
+	public <T> List<Future<T>> invokeAll(final Collection<? extends Callable<T>> tasks, final long timeout, final TimeUnit unit)
+			throws InterruptedException {
+		return this.delegate.invokeAll(TraceContextExecutorService.wrapAll(tasks), timeout, unit);
+	}
+
+	public <T> T invokeAny(final Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+		return this.delegate.invokeAny(TraceContextExecutorService.wrapAll(tasks));
+	}
+
+	public <T> T invokeAny(final Collection<? extends Callable<T>> tasks, final long timeout, final TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		return this.delegate.invokeAny(TraceContextExecutorService.wrapAll(tasks), timeout, unit);
+	}
+
+	public void shutdown() {
+		this.delegate.shutdown();
+	}
+
+	public List<Runnable> shutdownNow() {
+		return this.delegate.shutdownNow();
+	}
+
+	public boolean isShutdown() {
+		return this.delegate.isShutdown();
+	}
+
+	public boolean isTerminated() {
+		return this.delegate.isTerminated();
+	}
+
+	public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return this.delegate.awaitTermination(timeout, unit);
+	}
+}
@@ -0,0 +1,39 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.guard;
+
+/**
+ * Reports the state of a buffer between the request threads and the monitoring writer to the {@link OverheadGuard}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public interface IBacklogGauge {
+
+	/**
+	 * @return The fill level of the buffer in {@code [0, 1]}.
+	 */
+	double getBacklogRatio();
+
+	/**
+	 * @return The number of entries dropped because the buffer was full, since the start.
+	 */
+	long getDroppedCount();
+}
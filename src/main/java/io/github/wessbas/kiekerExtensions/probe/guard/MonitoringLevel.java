@@ -0,0 +1,52 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.guard;
+
+/**
+ * The levels of detail of the servlet filter, ordered from the most to the least detailed. The
+ * {@link OverheadGuard} steps through them one at a time.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public enum MonitoringLevel {
+	/** All records are written for every traced request. */
+	FULL,
+	/** Only the entry record of the filter is written for every traced request. */
+	ENTRY_ONLY,
+	/** Only the entry record of the filter is written, for a random sample of the requests. */
+	SAMPLED,
+	/** No request is traced. */
+	OFF;
+
+	/**
+	 * @return The next less detailed level, or this level if it is {@link #OFF}.
+	 */
+	public MonitoringLevel degrade() {
+		return (this == OFF) ? OFF : values()[this.ordinal() + 1]; // NOCS
+	}
+
+	/**
+	 * @return The next more detailed level, or this level if it is {@link #FULL}.
+	 */
+	public MonitoringLevel recover() {
+		return (this == FULL) ? FULL : values()[this.ordinal() - 1]; // NOCS
+	}
+}
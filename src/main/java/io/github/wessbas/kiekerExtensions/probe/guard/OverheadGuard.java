@@ -0,0 +1,235 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.guard;
+
+import io.github.wessbas.kiekerExtensions.probe.handoff.StripedCounter;
+import io.github.wessbas.kiekerExtensions.probe.sampling.ITraceSampler;
+import io.github.wessbas.kiekerExtensions.probe.sampling.ProbabilisticTraceSampler;
+import io.github.wessbas.kiekerExtensions.record.MonitoringLevelChangeRecord;
+
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.sampler.ISampler;
+
+/**
+ * Watches the overhead of the servlet filter and the backlog of the monitoring pipeline, and reduces the
+ * {@link MonitoringLevel} while either exceeds its budget. The guard is evaluated periodically as an {@link ISampler}:
+ * <ul>
+ * <li>The overhead is the mean time the request threads spend on the bookkeeping after the filter chain (creating and
+ * handing over the records), smoothed by an exponentially weighted moving average over the evaluations.</li>
+ * <li>The backlog is the fill level of the record buffer (see {@link IBacklogGauge}), if any. Records dropped by the
+ * buffer or rejected by the monitoring controller since the previous evaluation count as exceeding the budget.</li>
+ * </ul>
+ *
+ * If the budget is exceeded, the level is reduced by one step, and not again for {@value #DEGRADE_HOLD_INTERVALS}
+ * evaluations, so that the reduction can take effect. The level is raised by one step only after
+ * {@value #RECOVERY_INTERVALS} consecutive evaluations with overhead and backlog below {@link #RECOVERY_FRACTION} of
+ * their budgets. This hysteresis keeps the level from oscillating at the edge of the budget. Each change is written as a
+ * {@link MonitoringLevelChangeRecord} and logged.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class OverheadGuard implements ISampler {
+
+	/** Weight of the latest evaluation in the moving average of the overhead. */
+	public static final double SMOOTHING_FACTOR = 0.3;
+	/** Fraction of the budgets which overhead and backlog must stay below before the level is raised. */
+	public static final double RECOVERY_FRACTION = 0.5;
+	/** Number of consecutive relaxed evaluations before the level is raised. */
+	public static final int RECOVERY_INTERVALS = 5;
+	/** Number of evaluations after a reduction before the level may be reduced again. */
+	public static final int DEGRADE_HOLD_INTERVALS = 2;
+
+	private static final Log LOG = LogFactory.getLog(OverheadGuard.class);
+
+	private final String hostname;
+	private final double overheadBudget;
+	private final double backlogThreshold;
+	private final ProbabilisticTraceSampler sampler;
+	private final IBacklogGauge backlogGauge; // null if there is no buffer
+
+	private final StripedCounter requests;
+	private final StripedCounter overheadNanos;
+	private final StripedCounter rejectedRecords;
+
+	private volatile MonitoringLevel level = MonitoringLevel.FULL;
+
+	// guarded by this
+	private long previousRequests;
+	private long previousOverheadNanos;
+	private long previousRejected;
+	private double smoothedOverhead = Double.NaN;
+	private double backlogRatio;
+	private int relaxedIntervals;
+	private int holdIntervals;
+
+	/**
+	 * Creates a new guard at {@link MonitoringLevel#FULL}.
+	 *
+	 * @param hostname
+	 *            The hostname for the records.
+	 * @param overheadBudget
+	 *            The maximum mean bookkeeping time per traced request in nanoseconds.
+	 * @param backlogThreshold
+	 *            The maximum fill level of the record buffer in {@code (0, 1]}.
+	 * @param samplingProbability
+	 *            The probability with which requests are traced at {@link MonitoringLevel#SAMPLED}.
+	 * @param stripes
+	 *            The number of stripes of the counters; about the number of cores.
+	 * @param backlogGauge
+	 *            The gauge of the record buffer; {@code null} if records are written directly.
+	 */
+	public OverheadGuard(final String hostname, final double overheadBudget, final double backlogThreshold, final double samplingProbability,
+			final int stripes, final IBacklogGauge backlogGauge) {
+		if (!(overheadBudget > 0.0)) { // also rejects NaN
+			throw new IllegalArgumentException("overheadBudget must be positive: " + overheadBudget);
+		}
+		if (!(backlogThreshold > 0.0) || (backlogThreshold > 1.0)) {
+			throw new IllegalArgumentException("backlogThreshold must be in (0, 1]: " + backlogThreshold);
+		}
+		this.hostname = hostname;
+		this.overheadBudget = overheadBudget;
+		this.backlogThreshold = backlogThreshold;
+		this.sampler = new ProbabilisticTraceSampler(samplingProbability);
+		this.backlogGauge = backlogGauge;
+		this.requests = new StripedCounter(stripes);
+		this.overheadNanos = new StripedCounter(stripes);
+		this.rejectedRecords = new StripedCounter(stripes);
+	}
+
+	/**
+	 * Decides whether a request is traced at the current level.
+	 *
+	 * @return The probability with which the request has been selected, or {@link ITraceSampler#NOT_SAMPLED}.
+	 */
+	public double admit() {
+		switch (this.level) {
+		case FULL:
+		case ENTRY_ONLY:
+			return 1.0;
+		case SAMPLED:
+			return this.sampler.sample(null);
+		default:
+			return ITraceSampler.NOT_SAMPLED;
+		}
+	}
+
+	/**
+	 * @return Whether only the entry record shall be written for a traced request at the current level.
+	 */
+	public boolean isEntryOnly() {
+		final MonitoringLevel currentLevel = this.level;
+		return (currentLevel == MonitoringLevel.ENTRY_ONLY) || (currentLevel == MonitoringLevel.SAMPLED);
+	}
+
+	/**
+	 * Adds the bookkeeping time of a traced request.
+	 */
+	public void recordOverhead(final long nanos) {
+		this.requests.increment();
+		this.overheadNanos.add(nanos);
+	}
+
+	/**
+	 * Counts a record the monitoring controller did not accept.
+	 */
+	public void recordRejected() {
+		this.rejectedRecords.increment();
+	}
+
+	/**
+	 * Evaluates the overhead and backlog since the previous call and adjusts the level.
+	 */
+	public synchronized void sample(final IMonitoringController monitoringController) throws Exception { // NOPMD (declared by ISampler)
+		final long currentRequests = this.requests.sum();
+		final long currentOverheadNanos = this.overheadNanos.sum();
+		long currentRejected = this.rejectedRecords.sum();
+		double currentBacklogRatio = 0.0;
+		if (this.backlogGauge != null) {
+			currentBacklogRatio = this.backlogGauge.getBacklogRatio();
+			currentRejected += this.backlogGauge.getDroppedCount();
+		}
+
+		final long requestsDelta = currentRequests - this.previousRequests;
+		if (requestsDelta > 0) {
+			final double overhead = (currentOverheadNanos - this.previousOverheadNanos) / (double) requestsDelta;
+			this.smoothedOverhead = Double.isNaN(this.smoothedOverhead) ? overhead // NOCS
+					: (SMOOTHING_FACTOR * overhead) + ((1.0 - SMOOTHING_FACTOR) * this.smoothedOverhead);
+		}
+		final long rejectedDelta = currentRejected - this.previousRejected;
+		this.previousRequests = currentRequests;
+		this.previousOverheadNanos = currentOverheadNanos;
+		this.previousRejected = currentRejected;
+		this.backlogRatio = currentBacklogRatio;
+
+		final boolean overloaded = (this.smoothedOverhead > this.overheadBudget) || (currentBacklogRatio > this.backlogThreshold) || (rejectedDelta > 0);
+		final boolean relaxed = !(this.smoothedOverhead >= (this.overheadBudget * RECOVERY_FRACTION)) // also holds for NaN (no traced requests)
+				&& (currentBacklogRatio < (this.backlogThreshold * RECOVERY_FRACTION)) && (rejectedDelta == 0);
+
+		if (this.holdIntervals > 0) {
+			this.holdIntervals--;
+		}
+		if (overloaded) {
+			this.relaxedIntervals = 0;
+			if ((this.holdIntervals == 0) && (this.level != MonitoringLevel.OFF)) {
+				this.changeLevel(monitoringController, this.level.degrade(), rejectedDelta);
+				this.holdIntervals = DEGRADE_HOLD_INTERVALS;
+			}
+		} else if (relaxed) {
+			if ((++this.relaxedIntervals >= RECOVERY_INTERVALS) && (this.level != MonitoringLevel.FULL)) {
+				this.changeLevel(monitoringController, this.level.recover(), rejectedDelta);
+			}
+		} else {
+			this.relaxedIntervals = 0;
+		}
+	}
+
+	private void changeLevel(final IMonitoringController monitoringController, final MonitoringLevel newLevel, final long rejectedDelta) {
+		final MonitoringLevel previousLevel = this.level;
+		LOG.warn("Changing the monitoring level from " + previousLevel + " to " + newLevel + " (overhead " + Math.round(this.smoothedOverhead)
+				+ " ns per request, backlog " + Math.round(this.backlogRatio * 100) + " %, " + rejectedDelta + " rejected records)"); // NOCS
+		monitoringController.newMonitoringRecord(new MonitoringLevelChangeRecord(monitoringController.getTimeSource().getTime(), this.hostname,
+				previousLevel.name(), newLevel.name(), this.smoothedOverhead, this.backlogRatio, rejectedDelta));
+		this.level = newLevel;
+		this.smoothedOverhead = Double.NaN; // measure the new level afresh
+		this.relaxedIntervals = 0;
+	}
+
+	public MonitoringLevel getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * @return The smoothed bookkeeping time per traced request in nanoseconds at the latest evaluation; {@link Double#NaN}
+	 *         if no request has been traced since the latest level change.
+	 */
+	public synchronized double getSmoothedOverhead() {
+		return this.smoothedOverhead;
+	}
+
+	/**
+	 * @return The fill level of the record buffer at the latest evaluation.
+	 */
+	public synchronized double getBacklogRatio() {
+		return this.backlogRatio;
+	}
+}
@@ -0,0 +1,52 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.handoff;
+
+import java.util.Locale;
+
+/**
+ * What a request thread does when its ring buffer of a {@link ServletRequestHandoff} is full.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public enum FullBufferPolicy {
+	/** The entry is discarded silently (the cheapest policy). */
+	DROP,
+	/** The request thread waits until the drainer has freed a slot; no entry is lost, but requests may be delayed. */
+	BLOCK,
+	/** The entry is discarded and counted; the drainer reports the number of discarded entries periodically (the default). */
+	COUNT_AND_DROP;
+
+	/**
+	 * Case-insensitive variant of {@link #valueOf(String)} which also accepts camel case (e.g., {@code countAndDrop}).
+	 *
+	 * @param name
+	 *            The name of the policy.
+	 *
+	 * @return The policy.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If there is no such policy.
+	 */
+	public static FullBufferPolicy parse(final String name) {
+		return FullBufferPolicy.valueOf(name.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(Locale.ENGLISH));
+	}
+}
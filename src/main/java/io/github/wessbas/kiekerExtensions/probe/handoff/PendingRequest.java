@@ -0,0 +1,183 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.handoff;
+
+import io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCapture;
+import io.github.wessbas.kiekerExtensions.record.ServletResourceUsageRecord;
+
+/**
+ * The monitoring data of a traced request, buffered in a slot of a {@link ServletRequestHandoff} until the drainer
+ * turns it into records. Slots are reused, so consumers must not keep references to instances of this class.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class PendingRequest {
+
+	private long traceId;
+	private String sessionId;
+	private String useCase;
+	private long tin;
+	private long tout;
+	private String uri;
+	private int port;
+	private String host;
+	private String protocol;
+	private String method;
+	private String queryString;
+	private String encoding;
+	private boolean sampled;
+	private double samplingProbability;
+	private int responseStatus;
+	private String asyncOutcome;
+	private long cpuTime;
+	private long allocatedBytes;
+	private QueryStringCapture queryStringCapture;
+
+	PendingRequest() {
+		// instances are created by the handoff only
+	}
+
+	void set(final long traceId, final String sessionId, final String useCase, final long tin, final long tout, final String uri, // NOPMD
+			final int port, final String host, final String protocol, final String method, final String queryString, final String encoding,
+			final boolean sampled, final double samplingProbability, final int responseStatus, final String asyncOutcome,
+			final long cpuTime, final long allocatedBytes, final QueryStringCapture queryStringCapture) {
+		this.traceId = traceId;
+		this.sessionId = sessionId;
+		this.useCase = useCase;
+		this.tin = tin;
+		this.tout = tout;
+		this.uri = uri;
+		this.port = port;
+		this.host = host;
+		this.protocol = protocol;
+		this.method = method;
+		this.queryString = queryString;
+		this.encoding = encoding;
+		this.sampled = sampled;
+		this.samplingProbability = samplingProbability;
+		this.responseStatus = responseStatus;
+		this.asyncOutcome = asyncOutcome;
+		this.cpuTime = cpuTime;
+		this.allocatedBytes = allocatedBytes;
+		this.queryStringCapture = queryStringCapture;
+	}
+
+	/**
+	 * Releases the strings of a consumed entry, so that a rarely used slot does not keep them alive.
+	 */
+	void clear() {
+		this.set(0, null, null, 0, 0, null, 0, null, null, null, null, null, false, 0.0, 0, null, 0, 0, null);
+	}
+
+	public long getTraceId() {
+		return this.traceId;
+	}
+
+	public String getSessionId() {
+		return this.sessionId;
+	}
+
+	public String getUseCase() {
+		return this.useCase;
+	}
+
+	public long getTin() {
+		return this.tin;
+	}
+
+	public long getTout() {
+		return this.tout;
+	}
+
+	public String getUri() {
+		return this.uri;
+	}
+
+	public int getPort() {
+		return this.port;
+	}
+
+	public String getHost() {
+		return this.host;
+	}
+
+	public String getProtocol() {
+		return this.protocol;
+	}
+
+	public String getMethod() {
+		return this.method;
+	}
+
+	public String getQueryString() {
+		return this.queryString;
+	}
+
+	public String getEncoding() {
+		return this.encoding;
+	}
+
+	/**
+	 * @return Whether the request was traced by a sampler (as opposed to tracing every request).
+	 */
+	public boolean isSampled() {
+		return this.sampled;
+	}
+
+	public double getSamplingProbability() {
+		return this.samplingProbability;
+	}
+
+	/**
+	 * @return The final response status of an asynchronous request.
+	 */
+	public int getResponseStatus() {
+		return this.responseStatus;
+	}
+
+	/**
+	 * @return How an asynchronous request ended or {@code null} if the request was processed synchronously.
+	 */
+	public String getAsyncOutcome() {
+		return this.asyncOutcome;
+	}
+
+	/**
+	 * @return The CPU time of the request thread or {@link ServletResourceUsageRecord#NOT_MEASURED}.
+	 */
+	public long getCpuTime() {
+		return this.cpuTime;
+	}
+
+	/**
+	 * @return The bytes allocated by the request thread or {@link ServletResourceUsageRecord#NOT_MEASURED}.
+	 */
+	public long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+
+	/**
+	 * @return The query string capture policy in effect when the request entered the filter.
+	 */
+	public QueryStringCapture getQueryStringCapture() {
+		return this.queryStringCapture;
+	}
+}
@@ -0,0 +1,300 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.handoff;
+
+import io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCapture;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+
+/**
+ * Moves the creation and submission of monitoring records off the request threads. Request threads copy the data of
+ * a traced request into a slot of a bounded ring buffer ({@link #offer}); a single daemon thread drains the buffers in
+ * batches and passes the entries to an {@link IPendingRequestConsumer}, which creates and submits the records.
+ *
+ * To avoid contention between request threads, there are several ring buffers (stripes), selected by thread ID. Each
+ * stripe is a bounded multi-producer/single-consumer queue with per-slot sequence numbers: a producer claims a slot
+ * with a single compare-and-set and publishes it with an ordered store, and slots and their entries are preallocated.
+ * What happens if a stripe is full is determined by the {@link FullBufferPolicy}.
+ *
+ * Records are therefore written with a delay of at most {@link #IDLE_PARK_NANOS} plus the time to drain the backlog,
+ * and records of different stripes may be written out of order.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class ServletRequestHandoff {
+
+	/** The default number of slots per stripe. */
+	public static final int DEFAULT_CAPACITY = 1024;
+	/** The maximum number of entries drained from one stripe before moving to the next one. */
+	public static final int BATCH_SIZE = 256;
+	/** How long the drainer sleeps when all stripes are empty. */
+	public static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static final Log LOG = LogFactory.getLog(ServletRequestHandoff.class);
+
+	private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+	private static final long DROP_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+	private static final long CLOSE_TIMEOUT_MILLIS = 10000;
+
+	private final Stripe[] stripes;
+	private final int stripeMask;
+	private final FullBufferPolicy fullBufferPolicy;
+	private final IPendingRequestConsumer consumer;
+	private final StripedCounter dropped;
+	private final Thread drainer;
+
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new handoff and starts its drainer thread.
+	 *
+	 * @param stripes
+	 *            The minimum number of ring buffers; rounded up to the next power of two.
+	 * @param capacity
+	 *            The minimum number of slots per ring buffer; rounded up to the next power of two.
+	 * @param fullBufferPolicy
+	 *            What to do if a ring buffer is full.
+	 * @param consumer
+	 *            Creates and submits the records; only called by the drainer thread.
+	 */
+	public ServletRequestHandoff(final int stripes, final int capacity, final FullBufferPolicy fullBufferPolicy,
+			final IPendingRequestConsumer consumer) {
+		if ((stripes <= 0) || (capacity <= 0)) {
+			throw new IllegalArgumentException("stripes and capacity must be positive: " + stripes + ", " + capacity);
+		}
+		final int stripeCount = ServletRequestHandoff.nextPowerOfTwo(stripes);
+		this.stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			this.stripes[i] = new Stripe(ServletRequestHandoff.nextPowerOfTwo(capacity));
+		}
+		this.stripeMask = stripeCount - 1;
+		this.fullBufferPolicy = fullBufferPolicy;
+		this.consumer = consumer;
+		this.dropped = new StripedCounter(stripeCount);
+
+		this.drainer = new Thread(new Runnable() {
+			public void run() {
+				ServletRequestHandoff.this.drain();
+			}
+		}, "ServletRequestHandoff-drainer");
+		this.drainer.setDaemon(true);
+		this.drainer.start();
+	}
+
+	private static int nextPowerOfTwo(final int value) {
+		final int powerOfTwo = Integer.highestOneBit(value);
+		return (powerOfTwo == value) ? value : powerOfTwo << 1; // NOCS
+	}
+
+	/**
+	 * Hands the data of a traced request over to the drainer.
+	 *
+	 * @return {@code false} if the entry was dropped, because the ring buffer was full or the handoff is closed.
+	 */
+	public boolean offer(final long traceId, final String sessionId, final String useCase, final long tin, final long tout, final String uri, // NOPMD
+			final int port, final String host, final String protocol, final String method, final String queryString, final String encoding,
+			final boolean sampled, final double samplingProbability, final int responseStatus, final String asyncOutcome,
+			final long cpuTime, final long allocatedBytes, final QueryStringCapture queryStringCapture) {
+		final Stripe stripe = this.stripes[(int) Thread.currentThread().getId() & this.stripeMask];
+		while (!this.closed) {
+			final long position = stripe.claim();
+			if (position >= 0) {
+				stripe.slots[(int) position & stripe.mask].set(traceId, sessionId, useCase, tin, tout, uri, port, host, protocol, method,
+						queryString, encoding, sampled, samplingProbability, responseStatus, asyncOutcome, cpuTime, allocatedBytes,
+						queryStringCapture);
+				stripe.publish(position);
+				return true;
+			}
+			switch (this.fullBufferPolicy) {
+			case BLOCK:
+				LockSupport.unpark(this.drainer);
+				LockSupport.parkNanos(BLOCK_PARK_NANOS);
+				break;
+			case COUNT_AND_DROP:
+				this.dropped.increment();
+				return false;
+			case DROP:
+			default:
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private void drain() {
+		long reportedDrops = 0;
+		long lastReport = System.nanoTime();
+		while (!this.closed) {
+			final int drained = this.drainOnce();
+			if (drained == 0) {
+				LockSupport.parkNanos(IDLE_PARK_NANOS);
+			}
+			final long now = System.nanoTime();
+			if ((now - lastReport) >= DROP_REPORT_INTERVAL_NANOS) {
+				lastReport = now;
+				final long drops = this.dropped.sum();
+				if (drops != reportedDrops) {
+					LOG.warn("Dropped " + (drops - reportedDrops) + " monitoring entries because the handoff buffer was full ("
+							+ drops + " in total)");
+					reportedDrops = drops;
+				}
+			}
+		}
+		// write what has been published until now; entries offered concurrently to close() may be lost
+		while (this.drainOnce() > 0) { // NOPMD (empty loop body)
+		}
+	}
+
+	private int drainOnce() {
+		int drained = 0;
+		for (final Stripe stripe : this.stripes) {
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				final PendingRequest pendingRequest = stripe.peek();
+				if (pendingRequest == null) {
+					break;
+				}
+				try {
+					this.consumer.consume(pendingRequest);
+				} catch (final RuntimeException ex) { // NOPMD (the drainer must survive faulty records)
+					LOG.error("Failed to create the records of a request", ex);
+				}
+				pendingRequest.clear();
+				stripe.release();
+				drained++;
+			}
+		}
+		return drained;
+	}
+
+	/**
+	 * Stops accepting entries, writes the remaining ones and stops the drainer thread.
+	 *
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the drainer.
+	 */
+	public void close() throws InterruptedException {
+		this.closed = true;
+		LockSupport.unpark(this.drainer);
+		this.drainer.join(CLOSE_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * @return The number of entries dropped with the policy {@link FullBufferPolicy#COUNT_AND_DROP} so far.
+	 */
+	public long getDroppedCount() {
+		return this.dropped.sum();
+	}
+
+	/**
+	 * @return The number of entries currently waiting for the drainer (approximately, if entries are offered concurrently).
+	 */
+	public long getPendingCount() {
+		long pending = 0;
+		for (final Stripe stripe : this.stripes) {
+			pending += stripe.size();
+		}
+		return pending;
+	}
+
+	/**
+	 * @return The total number of slots.
+	 */
+	public int getCapacity() {
+		return this.stripes.length * this.stripes[0].slots.length;
+	}
+
+	/**
+	 * A bounded MPSC ring buffer. The sequence number of a slot is its position if the slot is free for the producer
+	 * claiming this position, and position + 1 once the entry has been published.
+	 */
+	private static final class Stripe {
+		final int mask; // NOCS
+		final PendingRequest[] slots; // NOCS
+		private final AtomicLongArray sequences;
+		private final AtomicLong tail = new AtomicLong();
+		private volatile long head; // only written by the drainer
+
+		Stripe(final int capacity) {
+			this.mask = capacity - 1;
+			this.slots = new PendingRequest[capacity];
+			this.sequences = new AtomicLongArray(capacity);
+			for (int i = 0; i < capacity; i++) {
+				this.slots[i] = new PendingRequest();
+				this.sequences.set(i, i);
+			}
+		}
+
+		/**
+		 * @return The claimed position or -1 if the buffer is full.
+		 */
+		long claim() {
+			long position = this.tail.get();
+			while (true) {
+				final long difference = this.sequences.get((int) position & this.mask) - position;
+				if (difference == 0) {
+					if (this.tail.compareAndSet(position, position + 1)) {
+						return position;
+					}
+					position = this.tail.get();
+				} else if (difference < 0) {
+					return -1;
+				} else { // another producer claimed this position in the meantime
+					position = this.tail.get();
+				}
+			}
+		}
+
+		void publish(final long position) {
+			this.sequences.lazySet((int) position & this.mask, position + 1);
+		}
+
+		/**
+		 * @return The oldest published entry or {@code null} if there is none.
+		 */
+		PendingRequest peek() {
+			final long position = this.head;
+			final int index = (int) position & this.mask;
+			if (this.sequences.get(index) != (position + 1)) {
+				return null;
+			}
+			return this.slots[index];
+		}
+
+		/**
+		 * Frees the slot of the entry returned by {@link #peek()}.
+		 */
+		void release() {
+			final long position = this.head;
+			this.sequences.lazySet((int) position & this.mask, position + this.slots.length);
+			this.head = position + 1;
+		}
+
+		long size() {
+			return Math.max(0, this.tail.get() - this.head);
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.handoff;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter for frequent increments by many threads and rare reads. Each thread increments one of several cells
+ * (selected by its thread ID), which are spread over distinct cache lines; reading sums up all cells.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class StripedCounter {
+
+	/** Distance of two cells in longs, so that each cell occupies its own 64-byte cache line. */
+	private static final int CELL_DISTANCE = 8;
+
+	private final int mask;
+	private final AtomicLongArray cells;
+
+	/**
+	 * @param stripes
+	 *            The minimum number of cells; rounded up to the next power of two.
+	 */
+	public StripedCounter(final int stripes) {
+		final int cellCount = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		this.mask = cellCount - 1;
+		this.cells = new AtomicLongArray(cellCount * CELL_DISTANCE);
+	}
+
+	public void increment() {
+		this.add(1);
+	}
+
+	public void add(final long delta) {
+		final int cell = (int) Thread.currentThread().getId() & this.mask;
+		this.cells.getAndAdd(cell * CELL_DISTANCE, delta);
+	}
+
+	/**
+	 * @return The sum of all increments. Concurrent increments may or may not be included.
+	 */
+	public long sum() {
+		long sum = 0;
+		for (int cell = 0; cell <= this.mask; cell++) {
+			sum += this.cells.get(cell * CELL_DISTANCE);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,101 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.resource;
+
+import io.github.wessbas.kiekerExtensions.record.AllocationRateRecord;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.sampler.ISampler;
+
+/**
+ * Periodically writes the heap allocation rate of the JVM as {@link AllocationRateRecord}. The rate is the sum of the
+ * allocations of all live threads since the previous sample, as reported by the HotSpot extension of the
+ * {@link ThreadMXBean}. Allocations of threads which terminated between two samples are not counted.
+ *
+ * Unlike a rate derived from the GC statistics, this value does not depend on when collections happen, which makes it
+ * usable at short intervals.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class AllocationRateSampler implements ISampler {
+
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	private final ThreadMXBean threadBean;
+	private final HotSpotAllocationCounter allocationCounter;
+
+	// guarded by this
+	private Map<Long, Long> previousAllocatedBytes = new HashMap<Long, Long>();
+	private long previousSampleNanos = System.nanoTime();
+
+	private AllocationRateSampler(final ThreadMXBean threadBean, final HotSpotAllocationCounter allocationCounter) {
+		this.threadBean = threadBean;
+		this.allocationCounter = allocationCounter;
+	}
+
+	/**
+	 * @return The sampler, or {@code null} if the JVM does not support the measurement of thread allocations.
+	 */
+	public static AllocationRateSampler create() {
+		final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		try {
+			final HotSpotAllocationCounter allocationCounter = HotSpotAllocationCounter.create(threadBean);
+			return (allocationCounter != null) ? new AllocationRateSampler(threadBean, allocationCounter) : null; // NOCS
+		} catch (final LinkageError ex) { // NOPMD (no HotSpot extension)
+			return null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized void sample(final IMonitoringController monitoringController) throws Exception { // NOPMD (declared by ISampler)
+		final long[] threadIds = this.threadBean.getAllThreadIds();
+		final long[] allocatedBytes = this.allocationCounter.getThreadAllocatedBytes(threadIds);
+		final long nowNanos = System.nanoTime();
+
+		final Map<Long, Long> currentAllocatedBytes = new HashMap<Long, Long>(threadIds.length * 2);
+		long delta = 0;
+		for (int i = 0; i < threadIds.length; i++) {
+			if (allocatedBytes[i] < 0) { // terminated in the meantime
+				continue;
+			}
+			final Long threadId = threadIds[i];
+			final Long previous = this.previousAllocatedBytes.get(threadId);
+			delta += (previous != null) ? allocatedBytes[i] - previous : allocatedBytes[i]; // NOCS
+			currentAllocatedBytes.put(threadId, allocatedBytes[i]);
+		}
+		final double intervalSeconds = Math.max(1, nowNanos - this.previousSampleNanos) / NANOS_PER_SECOND;
+		final boolean firstSample = this.previousAllocatedBytes.isEmpty();
+		this.previousAllocatedBytes = currentAllocatedBytes;
+		this.previousSampleNanos = nowNanos;
+
+		if (!firstSample) { // the first sample would attribute the threads' entire history to the interval
+			monitoringController.newMonitoringRecord(new AllocationRateRecord(monitoringController.getTimeSource().getTime(),
+					monitoringController.getHostname(), delta, delta / intervalSeconds));
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.resource;
+
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Reads the allocated bytes of a thread from the HotSpot extension of the {@link ThreadMXBean}. This class is the only
+ * one referring to {@code com.sun.management}; loading it fails with a {@link LinkageError} on JVMs without the
+ * extension.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class HotSpotAllocationCounter {
+
+	private final com.sun.management.ThreadMXBean threadBean;
+
+	private HotSpotAllocationCounter(final com.sun.management.ThreadMXBean threadBean) {
+		this.threadBean = threadBean;
+	}
+
+	/**
+	 * @return The counter, or {@code null} if the given bean does not support the measurement.
+	 */
+	static HotSpotAllocationCounter create(final ThreadMXBean threadBean) {
+		if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+			return null;
+		}
+		final com.sun.management.ThreadMXBean hotSpotThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+		try {
+			if (!hotSpotThreadBean.isThreadAllocatedMemorySupported()) {
+				return null;
+			}
+			if (!hotSpotThreadBean.isThreadAllocatedMemoryEnabled()) {
+				hotSpotThreadBean.setThreadAllocatedMemoryEnabled(true);
+			}
+		} catch (final UnsupportedOperationException ex) {
+			return null;
+		} catch (final SecurityException ex) {
+			return null;
+		}
+		return new HotSpotAllocationCounter(hotSpotThreadBean);
+	}
+
+	long getCurrentThreadAllocatedBytes() {
+		return this.threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * @return The allocated bytes of the given threads; -1 for threads which are no longer alive.
+	 */
+	long[] getThreadAllocatedBytes(final long[] threadIds) {
+		return this.threadBean.getThreadAllocatedBytes(threadIds);
+	}
+}
@@ -0,0 +1,159 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.resource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+
+/**
+ * Measures the CPU time and the heap allocations of the current thread, as far as the JVM supports it. The CPU time
+ * is read from the standard {@link ThreadMXBean}; the allocated bytes require the HotSpot extension
+ * {@code com.sun.management.ThreadMXBean}. Which measurements are available is determined once by {@link #probe()};
+ * unavailable measurements return {@link #NOT_MEASURED} without calling the JVM.
+ *
+ * Measurements can be restricted to certain use cases, so that the overhead of the MXBean calls is only paid where
+ * the resource demand is of interest.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class ThreadResourceMeter {
+
+	/** The value of a measurement the JVM does not support. */
+	public static final long NOT_MEASURED = -1;
+
+	/** The use case list selecting all use cases. */
+	public static final String ALL_USE_CASES = "*";
+
+	private static final Log LOG = LogFactory.getLog(ThreadResourceMeter.class);
+
+	private final ThreadMXBean threadBean;
+	private final boolean cpuTimeSupported;
+	private final HotSpotAllocationCounter allocationCounter; // null if not supported
+	private final Set<String> useCases; // null for all use cases
+
+	private ThreadResourceMeter(final ThreadMXBean threadBean, final boolean cpuTimeSupported, final HotSpotAllocationCounter allocationCounter,
+			final Set<String> useCases) {
+		this.threadBean = threadBean;
+		this.cpuTimeSupported = cpuTimeSupported;
+		this.allocationCounter = allocationCounter;
+		this.useCases = useCases;
+	}
+
+	/**
+	 * Determines the measurements supported by the JVM, enabling them if necessary.
+	 *
+	 * @param useCaseList
+	 *            A comma-separated list of the use cases to measure, or {@link #ALL_USE_CASES}.
+	 *
+	 * @return The meter, or {@code null} if the JVM supports none of the measurements.
+	 */
+	public static ThreadResourceMeter probe(final String useCaseList) {
+		final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+		boolean cpuTimeSupported = false;
+		try {
+			if (threadBean.isCurrentThreadCpuTimeSupported()) {
+				if (!threadBean.isThreadCpuTimeEnabled()) {
+					threadBean.setThreadCpuTimeEnabled(true);
+				}
+				cpuTimeSupported = true;
+			}
+		} catch (final UnsupportedOperationException ex) { // NOPMD
+			// cpuTimeSupported remains false
+		} catch (final SecurityException ex) {
+			LOG.warn("Not permitted to enable the thread CPU time measurement", ex);
+		}
+
+		HotSpotAllocationCounter allocationCounter = null;
+		try {
+			allocationCounter = HotSpotAllocationCounter.create(threadBean);
+		} catch (final LinkageError ex) { // NOPMD (no HotSpot extension)
+			// allocationCounter remains null
+		}
+
+		if (!cpuTimeSupported && (allocationCounter == null)) {
+			LOG.warn("The JVM supports neither thread CPU time nor thread allocation measurements");
+			return null;
+		}
+		LOG.info("Thread CPU time measurement " + (cpuTimeSupported ? "enabled" : "not supported") // NOCS
+				+ ", thread allocation measurement " + ((allocationCounter != null) ? "enabled" : "not supported")); // NOCS
+		return new ThreadResourceMeter(threadBean, cpuTimeSupported, allocationCounter, ThreadResourceMeter.parseUseCases(useCaseList));
+	}
+
+	private static Set<String> parseUseCases(final String useCaseList) {
+		if (ALL_USE_CASES.equals(useCaseList.trim())) {
+			return null;
+		}
+		final Set<String> useCases = new HashSet<String>();
+		for (final String useCase : useCaseList.split(",")) {
+			if (useCase.trim().length() > 0) {
+				useCases.add(useCase.trim());
+			}
+		}
+		return Collections.unmodifiableSet(useCases);
+	}
+
+	/**
+	 * @return Whether the resource usage of requests of the given use case shall be measured.
+	 */
+	public boolean isMeasured(final String useCase) {
+		return (this.useCases == null) || this.useCases.contains(useCase);
+	}
+
+	/**
+	 * @return Whether {@link #isMeasured(String)} holds for all use cases, so that the use case need not be known.
+	 */
+	public boolean isMeasuringAllUseCases() {
+		return this.useCases == null;
+	}
+
+	/**
+	 * @return The CPU time of the current thread in nanoseconds or {@link #NOT_MEASURED}.
+	 */
+	public long getCurrentThreadCpuTime() {
+		return this.cpuTimeSupported ? this.threadBean.getCurrentThreadCpuTime() : NOT_MEASURED; // NOCS
+	}
+
+	/**
+	 * @param before
+	 *            The measurement before the request.
+	 * @param after
+	 *            The measurement after the request.
+	 *
+	 * @return The difference of two measurements, or {@link #NOT_MEASURED} if either is not measured.
+	 */
+	public static long delta(final long before, final long after) {
+		return ((before == NOT_MEASURED) || (after == NOT_MEASURED)) ? NOT_MEASURED : after - before; // NOCS
+	}
+
+	/**
+	 * @return The number of bytes allocated by the current thread so far or {@link #NOT_MEASURED}.
+	 */
+	public long getCurrentThreadAllocatedBytes() {
+		return (this.allocationCounter != null) ? this.allocationCounter.getCurrentThreadAllocatedBytes() : NOT_MEASURED; // NOCS
+	}
+}
@@ -0,0 +1,49 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampler;
+
+/**
+ * The marker registered by the {@link SamplerRegistry} which schedules a sampler, one per {@link SamplerType} in the
+ * platform MBean server under {@value #OBJECT_NAME_PREFIX}{@code <sampler type>}. As the MBean server is shared by all
+ * class loaders of the JVM, the marker makes sure that each sampler is scheduled by one of them only.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public interface SamplerOwnerMXBean {
+
+	/** The object names of the markers without the sampler type. */
+	String OBJECT_NAME_PREFIX = "io.github.wessbas.kiekerExtensions:type=Sampler,name=";
+
+	/**
+	 * @return The name of the sampler type.
+	 */
+	String getSamplerType();
+
+	/**
+	 * @return The interval between two samples.
+	 */
+	long getIntervalSeconds();
+
+	/**
+	 * @return The class loader which scheduled the sampler.
+	 */
+	String getOwner();
+}
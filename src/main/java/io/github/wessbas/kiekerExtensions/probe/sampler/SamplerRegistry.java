@@ -0,0 +1,235 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampler;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.controller.MonitoringController;
+import kieker.monitoring.core.sampler.ISampler;
+import kieker.monitoring.core.sampler.ScheduledSamplerJob;
+
+/**
+ * Schedules the periodic samplers of all filter instances, so that each {@link SamplerType} is scheduled at most once
+ * no matter how many filters (e.g., in several web applications or after re-deployments) request it. Schedules are
+ * reference-counted: the first {@link #acquire(SamplerType, long)} schedules the sampler, and the last
+ * {@link Registration#release()} removes it from the monitoring controller.
+ *
+ * If a sampler is requested with an interval differing from the one it is already scheduled with, the existing
+ * schedule is shared and a warning is logged. The registry is a singleton per class loader of this library, which is
+ * the scope of the {@link MonitoringController} singleton as well. Across class loaders (e.g., with the library deployed
+ * in each web application), a registry only schedules a sampler if it can register the sampler's
+ * {@link SamplerOwnerMXBean} in the platform MBean server; if another class loader has registered it already, the
+ * sampler is considered scheduled. The marker is unregistered with the schedule, after which the sampler is scheduled
+ * by the next registry acquiring it.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class SamplerRegistry {
+
+	private static final Log LOG = LogFactory.getLog(SamplerRegistry.class);
+
+	private static final SamplerRegistry INSTANCE = new SamplerRegistry(MonitoringController.getInstance());
+
+	private final IMonitoringController monitoringController;
+
+	// guarded by this
+	private final Map<SamplerType, Schedule> schedules = new EnumMap<SamplerType, Schedule>(SamplerType.class);
+
+	/**
+	 * Creates a new registry. Use {@link #getInstance()} unless the samplers shall be scheduled on a different controller.
+	 *
+	 * @param monitoringController
+	 *            The controller which schedules the samplers.
+	 */
+	public SamplerRegistry(final IMonitoringController monitoringController) {
+		this.monitoringController = monitoringController;
+	}
+
+	/**
+	 * @return The registry for the {@link MonitoringController} singleton.
+	 */
+	public static SamplerRegistry getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Schedules the sampler of the given type unless it is scheduled already.
+	 *
+	 * @param type
+	 *            The sampler type.
+	 * @param intervalSeconds
+	 *            The interval between two samples; the first sample is taken immediately.
+	 *
+	 * @return The registration to release when the sampler is no longer needed, or {@code null} if the JVM does not
+	 *         support the sampler.
+	 */
+	public synchronized Registration acquire(final SamplerType type, final long intervalSeconds) {
+		if (intervalSeconds <= 0) {
+			throw new IllegalArgumentException("intervalSeconds must be positive: " + intervalSeconds);
+		}
+		Schedule schedule = this.schedules.get(type);
+		if (schedule == null) {
+			final ISampler sampler = type.createSampler();
+			if (sampler == null) {
+				LOG.warn("The sampler " + type + " is not supported by this JVM");
+				return null;
+			}
+			schedule = this.schedule(type, sampler, intervalSeconds);
+			this.schedules.put(type, schedule);
+		} else if (schedule.intervalSeconds != intervalSeconds) {
+			LOG.warn("The sampler " + type + " is already scheduled every " + schedule.intervalSeconds + " s; ignoring the interval of "
+					+ intervalSeconds + " s");
+		}
+		schedule.references++;
+		return new Registration(type);
+	}
+
+	synchronized void release(final SamplerType type) {
+		final Schedule schedule = this.schedules.get(type);
+		if ((schedule != null) && (--schedule.references == 0)) {
+			this.schedules.remove(type);
+			if (schedule.scheduled) {
+				this.monitoringController.removeScheduledSampler(schedule.job);
+			}
+			if (schedule.ownerName != null) {
+				try {
+					ManagementFactory.getPlatformMBeanServer().unregisterMBean(schedule.ownerName);
+				} catch (final JMException ex) {
+					LOG.warn("Failed to unregister the sampler owner " + schedule.ownerName, ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Schedules the given sampler unless another class loader owns its {@link SamplerOwnerMXBean} already.
+	 */
+	private Schedule schedule(final SamplerType type, final ISampler sampler, final long intervalSeconds) {
+		ObjectName ownerName = null;
+		try {
+			final ObjectName name = new ObjectName(SamplerOwnerMXBean.OBJECT_NAME_PREFIX + type.name());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new SamplerOwner(type, intervalSeconds), name);
+			ownerName = name;
+		} catch (final InstanceAlreadyExistsException ex) {
+			LOG.info("The sampler " + type + " is scheduled by another class loader already");
+			return new Schedule(null, false, null, intervalSeconds);
+		} catch (final JMException ex) {
+			LOG.warn("Failed to register the owner of the sampler " + type + "; other class loaders may schedule it as well", ex);
+		}
+		final ScheduledSamplerJob job = this.monitoringController.schedulePeriodicSampler(sampler, 0, intervalSeconds, TimeUnit.SECONDS);
+		return new Schedule(job, true, ownerName, intervalSeconds);
+	}
+
+	/**
+	 * @return The number of registrations of the given sampler type which have not been released yet.
+	 */
+	public synchronized int getReferenceCount(final SamplerType type) {
+		final Schedule schedule = this.schedules.get(type);
+		return (schedule != null) ? schedule.references : 0; // NOCS
+	}
+
+	/**
+	 * A schedule and the number of registrations sharing it.
+	 */
+	private static final class Schedule {
+		final ScheduledSamplerJob job; // NOCS
+		/** Whether this registry scheduled the sampler, i.e., not another class loader. */
+		final boolean scheduled; // NOCS
+		/** The name of the registered owner marker; {@code null} if none. */
+		final ObjectName ownerName; // NOCS
+		final long intervalSeconds; // NOCS
+		int references; // NOCS
+
+		Schedule(final ScheduledSamplerJob job, final boolean scheduled, final ObjectName ownerName, final long intervalSeconds) {
+			this.job = job;
+			this.scheduled = scheduled;
+			this.ownerName = ownerName;
+			this.intervalSeconds = intervalSeconds;
+		}
+	}
+
+	/**
+	 * The marker of a sampler scheduled by this class loader.
+	 */
+	private static final class SamplerOwner implements SamplerOwnerMXBean {
+		private final SamplerType type;
+		private final long intervalSeconds;
+
+		SamplerOwner(final SamplerType type, final long intervalSeconds) {
+			this.type = type;
+			this.intervalSeconds = intervalSeconds;
+		}
+
+		public String getSamplerType() {
+			return this.type.name();
+		}
+
+		public long getIntervalSeconds() {
+			return this.intervalSeconds;
+		}
+
+		public String getOwner() {
+			return String.valueOf(SamplerRegistry.class.getClassLoader());
+		}
+	}
+
+	/**
+	 * The handle of an acquired sampler.
+	 */
+	public final class Registration {
+		private final SamplerType type;
+		private boolean released; // guarded by SamplerRegistry.this
+
+		Registration(final SamplerType type) {
+			this.type = type;
+		}
+
+		/**
+		 * @return The type of the acquired sampler.
+		 */
+		public SamplerType getType() {
+			return this.type;
+		}
+
+		/**
+		 * Releases the sampler; the schedule is removed once all of its registrations have been released. Releasing a
+		 * registration more than once has no effect.
+		 */
+		public void release() {
+			synchronized (SamplerRegistry.this) {
+				if (!this.released) {
+					this.released = true;
+					SamplerRegistry.this.release(this.type);
+				}
+			}
+		}
+	}
+}
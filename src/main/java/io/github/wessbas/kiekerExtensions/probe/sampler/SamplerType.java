@@ -0,0 +1,93 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampler;
+
+import io.github.wessbas.kiekerExtensions.probe.resource.AllocationRateSampler;
+
+import java.util.Locale;
+
+import kieker.monitoring.core.sampler.ISampler;
+import kieker.monitoring.sampler.mxbean.GCSampler;
+import kieker.monitoring.sampler.mxbean.MemorySampler;
+import kieker.monitoring.sampler.mxbean.ThreadsStatusSampler;
+
+/**
+ * The periodic samplers which can be configured for the servlet filter and are scheduled via the {@link SamplerRegistry}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public enum SamplerType {
+	/** Collection counts and times per garbage collector ({@link GCSampler}). */
+	GC {
+		@Override
+		public ISampler createSampler() {
+			return new GCSampler();
+		}
+	},
+	/** Heap and non-heap usage ({@link MemorySampler}). */
+	MEMORY {
+		@Override
+		public ISampler createSampler() {
+			return new MemorySampler();
+		}
+	},
+	/** Live, daemon and peak thread counts ({@link ThreadsStatusSampler}). */
+	THREADS {
+		@Override
+		public ISampler createSampler() {
+			return new ThreadsStatusSampler();
+		}
+	},
+	/** Occupancy of the container's request thread pools ({@link ThreadPoolSampler}). */
+	THREAD_POOL {
+		@Override
+		public ISampler createSampler() {
+			return new ThreadPoolSampler();
+		}
+	},
+	/** Heap allocation rate ({@link AllocationRateSampler}); requires a HotSpot JVM. */
+	ALLOCATION_RATE {
+		@Override
+		public ISampler createSampler() {
+			return AllocationRateSampler.create();
+		}
+	};
+
+	/**
+	 * @return A new sampler of this type, or {@code null} if the JVM does not support it.
+	 */
+	public abstract ISampler createSampler();
+
+	/**
+	 * Case-insensitive variant of {@link #valueOf(String)} which also accepts camel case (e.g., {@code threadPool}).
+	 *
+	 * @param name
+	 *            The name of the type.
+	 *
+	 * @return The type.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If there is no such type.
+	 */
+	public static SamplerType parse(final String name) {
+		return SamplerType.valueOf(name.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(Locale.ENGLISH));
+	}
+}
@@ -0,0 +1,141 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampler;
+
+import io.github.wessbas.kiekerExtensions.record.ThreadPoolStatusRecord;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.sampler.ISampler;
+
+/**
+ * Periodically writes the occupancy of the servlet container's request thread pools as {@link ThreadPoolStatusRecord}.
+ * The pools are looked up in the platform MBean server under the pattern {@value #DEFAULT_OBJECT_NAME_PATTERN}, which
+ * matches the connector pools of Tomcat (domain {@code Catalina}, or {@code Tomcat} when embedded). Pools appearing or
+ * disappearing at runtime (e.g., connectors being restarted) are picked up with the next sample; without any matching
+ * pool, the sampler writes nothing.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class ThreadPoolSampler implements ISampler {
+
+	/** The default pattern of the thread pool MBeans. */
+	public static final String DEFAULT_OBJECT_NAME_PATTERN = "*:type=ThreadPool,*";
+
+	private static final Log LOG = LogFactory.getLog(ThreadPoolSampler.class);
+
+	private static final String[] ATTRIBUTES = { "currentThreadsBusy", "currentThreadCount", "maxThreads" };
+
+	private final MBeanServer mBeanServer;
+	private final ObjectName pattern;
+
+	/**
+	 * Creates a new sampler for the thread pools matching {@value #DEFAULT_OBJECT_NAME_PATTERN}.
+	 */
+	public ThreadPoolSampler() {
+		this(DEFAULT_OBJECT_NAME_PATTERN);
+	}
+
+	/**
+	 * Creates a new sampler.
+	 *
+	 * @param objectNamePattern
+	 *            The pattern of the thread pool MBeans, which must provide the integer attributes
+	 *            {@code currentThreadsBusy}, {@code currentThreadCount} and {@code maxThreads}.
+	 */
+	public ThreadPoolSampler(final String objectNamePattern) {
+		this.mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		try {
+			this.pattern = new ObjectName(objectNamePattern);
+		} catch (final MalformedObjectNameException ex) {
+			throw new IllegalArgumentException("Invalid object name pattern: " + objectNamePattern, ex);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void sample(final IMonitoringController monitoringController) throws Exception { // NOPMD (declared by ISampler)
+		final Set<ObjectName> names = this.mBeanServer.queryNames(this.pattern, null);
+		if (names.isEmpty()) {
+			return;
+		}
+		final long timestamp = monitoringController.getTimeSource().getTime();
+		final String hostname = monitoringController.getHostname();
+		for (final ObjectName name : names) {
+			final int[] values = new int[ATTRIBUTES.length];
+			try {
+				final AttributeList attributes = this.mBeanServer.getAttributes(name, ATTRIBUTES);
+				if (!ThreadPoolSampler.getValues(attributes, values)) {
+					continue; // not a thread pool of the expected kind
+				}
+			} catch (final JMException ex) {
+				LOG.debug("Failed to read the thread pool " + name + ": " + ex.getMessage());
+				continue; // the pool may have been unregistered meanwhile
+			} catch (final ClassCastException ex) {
+				continue; // not a thread pool of the expected kind
+			}
+			monitoringController.newMonitoringRecord(new ThreadPoolStatusRecord(timestamp, hostname, ThreadPoolSampler.getPoolName(name),
+					values[0], values[1], values[2]));
+		}
+	}
+
+	/**
+	 * Looks the attributes up by name, as the MBean server may return them in any order and omits those it cannot read.
+	 *
+	 * @return {@code false} if an attribute is missing.
+	 */
+	private static boolean getValues(final AttributeList attributes, final int[] values) {
+		final boolean[] found = new boolean[ATTRIBUTES.length];
+		int foundCount = 0;
+		for (final Object element : attributes) {
+			final Attribute attribute = (Attribute) element;
+			for (int i = 0; i < ATTRIBUTES.length; i++) {
+				if (!found[i] && ATTRIBUTES[i].equals(attribute.getName())) {
+					values[i] = ((Number) attribute.getValue()).intValue();
+					found[i] = true;
+					foundCount++;
+					break;
+				}
+			}
+		}
+		return foundCount == ATTRIBUTES.length;
+	}
+
+	private static String getPoolName(final ObjectName name) {
+		final String poolName = name.getKeyProperty("name");
+		if (poolName == null) {
+			return name.getCanonicalName();
+		}
+		return poolName.startsWith("\"") ? ObjectName.unquote(poolName) : poolName; // NOCS
+	}
+}
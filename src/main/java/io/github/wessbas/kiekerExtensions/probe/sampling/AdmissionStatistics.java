@@ -0,0 +1,65 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimates the fraction of requests a rate-based sampler admits, based on the counts of the last completed window.
+ * All updates are lock-free; the window is rolled over by whichever thread first observes that it has expired.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class AdmissionStatistics {
+
+	private static final long WINDOW_NANOS = 1000L * 1000L * 1000L;
+
+	private final AtomicLong seen = new AtomicLong();
+	private final AtomicLong admitted = new AtomicLong();
+	private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+	private volatile double admissionRatio = 1.0;
+
+	AdmissionStatistics() {
+		// nothing to do
+	}
+
+	/**
+	 * Counts a decision and returns the current estimate of the admission ratio.
+	 */
+	double record(final boolean wasAdmitted) {
+		this.seen.incrementAndGet();
+		if (wasAdmitted) {
+			this.admitted.incrementAndGet();
+		}
+		final long start = this.windowStart.get();
+		final long now = System.nanoTime();
+		if (((now - start) >= WINDOW_NANOS) && this.windowStart.compareAndSet(start, now)) {
+			// admitted before seen: a decision counted in between is then counted as seen only, and the clamp covers the
+			// decisions whose admission is counted in this window but whose sighting was counted in the previous one
+			final long admittedInWindow = this.admitted.getAndSet(0);
+			final long seenInWindow = this.seen.getAndSet(0);
+			if (seenInWindow > 0) {
+				this.admissionRatio = Math.max(Math.min(1.0, (double) admittedInWindow / seenInWindow), Double.MIN_NORMAL);
+			}
+		}
+		return this.admissionRatio;
+	}
+}
@@ -0,0 +1,45 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampling;
+
+/**
+ * Decides whether a request is traced. The decision is made once per request, before the request is processed.
+ * Implementations are shared by all request threads and must be thread-safe and lock-free.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public interface ITraceSampler {
+
+	/** Returned by {@link #sample(String)} if the request shall not be traced. */
+	public static final double NOT_SAMPLED = 0.0;
+
+	/**
+	 * Decides whether the request of the given use case is traced.
+	 *
+	 * @param useCase
+	 *            The use case of the request.
+	 *
+	 * @return {@link #NOT_SAMPLED} if the request shall not be traced; otherwise the (estimated) probability with which
+	 *         requests of this use case are currently traced, in {@code (0, 1]}. Analyses weight each traced request by the
+	 *         inverse of this value.
+	 */
+	public double sample(String useCase);
+}
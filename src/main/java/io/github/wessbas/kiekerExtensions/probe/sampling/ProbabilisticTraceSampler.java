@@ -0,0 +1,54 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampling;
+
+/**
+ * Traces each request independently with a fixed probability.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class ProbabilisticTraceSampler implements ITraceSampler {
+
+	private final double probability;
+
+	/**
+	 * @param probability
+	 *            The probability in {@code (0, 1]} with which a request is traced.
+	 */
+	public ProbabilisticTraceSampler(final double probability) {
+		if (!(probability > 0.0) || (probability > 1.0)) { // also rejects NaN
+			throw new IllegalArgumentException("probability must be in (0, 1]: " + probability);
+		}
+		this.probability = probability;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double sample(final String useCase) {
+		return (XorShiftRandom.nextDouble() < this.probability) ? this.probability : NOT_SAMPLED; // NOCS
+	}
+
+	public double getProbability() {
+		return this.probability;
+	}
+}
@@ -0,0 +1,50 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampling;
+
+/**
+ * Traces at most a given number of requests per second, regardless of their use case.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class RateLimitingTraceSampler implements ITraceSampler {
+
+	private final TokenBucket bucket;
+	private final AdmissionStatistics statistics = new AdmissionStatistics();
+
+	/**
+	 * @param tracesPerSecond
+	 *            The maximum sustained number of traces per second.
+	 */
+	public RateLimitingTraceSampler(final double tracesPerSecond) {
+		this.bucket = new TokenBucket(tracesPerSecond, Math.max(1, (int) tracesPerSecond));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double sample(final String useCase) {
+		final boolean admitted = this.bucket.tryAcquire();
+		final double ratio = this.statistics.record(admitted);
+		return admitted ? ratio : NOT_SAMPLED; // NOCS
+	}
+}
@@ -0,0 +1,54 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampling;
+
+import java.util.Locale;
+
+/**
+ * The sampling modes configurable for the servlet filter.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public enum SamplingMode {
+	/** Every request is traced (the default). */
+	NONE,
+	/** See {@link ProbabilisticTraceSampler}. */
+	PROBABILITY,
+	/** See {@link RateLimitingTraceSampler}. */
+	RATE,
+	/** See {@link UseCaseQuotaTraceSampler}. */
+	USE_CASE_QUOTA;
+
+	/**
+	 * Case-insensitive variant of {@link #valueOf(String)} which also accepts camel case (e.g., {@code useCaseQuota}).
+	 *
+	 * @param name
+	 *            The name of the mode.
+	 *
+	 * @return The mode.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If there is no such mode.
+	 */
+	public static SamplingMode parse(final String name) {
+		return SamplingMode.valueOf(name.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(Locale.ENGLISH));
+	}
+}
@@ -0,0 +1,72 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampling;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket, implemented as generic cell rate algorithm: instead of a token count, only the theoretical
+ * arrival time of the next permitted event is stored, so that acquiring a token is a single compare-and-set and no
+ * background refill is needed.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class TokenBucket {
+
+	private final long intervalNanos;
+	private final long burstNanos;
+	private final AtomicLong theoreticalArrivalTime;
+
+	/**
+	 * @param ratePerSecond
+	 *            The sustained number of tokens per second; must be positive.
+	 * @param burst
+	 *            The number of tokens that may be acquired at once after an idle period; at least 1.
+	 */
+	public TokenBucket(final double ratePerSecond, final int burst) {
+		if (!(ratePerSecond > 0.0)) {
+			throw new IllegalArgumentException("rate must be positive: " + ratePerSecond);
+		}
+		if (burst < 1) {
+			throw new IllegalArgumentException("burst must be at least 1: " + burst);
+		}
+		this.intervalNanos = Math.max(1L, (long) (1e9 / ratePerSecond));
+		this.burstNanos = (burst - 1) * this.intervalNanos;
+		this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * @return {@code true} if a token was available (and has been consumed).
+	 */
+	public boolean tryAcquire() {
+		final long now = System.nanoTime();
+		while (true) {
+			final long tat = this.theoreticalArrivalTime.get();
+			if ((tat - now) > this.burstNanos) {
+				return false;
+			}
+			final long next = Math.max(tat, now) + this.intervalNanos;
+			if (this.theoreticalArrivalTime.compareAndSet(tat, next)) {
+				return true;
+			}
+		}
+	}
+}
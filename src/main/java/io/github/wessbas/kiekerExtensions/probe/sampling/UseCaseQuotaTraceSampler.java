@@ -0,0 +1,100 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampling;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Grants each use case its own quota of traces per second. Rare use cases stay below their quota and are therefore
+ * traced completely, while frequent use cases are thinned to their quota plus an optional fraction of the excess
+ * requests. This keeps every use case represented in the traces.
+ *
+ * The number of use cases with an individual quota is bounded; additional use cases share one overflow quota.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class UseCaseQuotaTraceSampler implements ITraceSampler {
+
+	/** The default maximum number of use cases with an individual quota. */
+	public static final int DEFAULT_MAX_USE_CASES = 1024;
+
+	private final double quotaPerSecond;
+	private final double excessProbability;
+	private final int maxUseCases;
+
+	private final ConcurrentMap<String, Quota> quotas = new ConcurrentHashMap<String, Quota>();
+	private final Quota overflowQuota;
+
+	/**
+	 * @param quotaPerSecond
+	 *            The number of traces per second and use case which are always admitted.
+	 * @param excessProbability
+	 *            The probability in {@code [0, 1]} with which requests exceeding the quota are traced anyway.
+	 * @param maxUseCases
+	 *            The maximum number of use cases with an individual quota.
+	 */
+	public UseCaseQuotaTraceSampler(final double quotaPerSecond, final double excessProbability, final int maxUseCases) {
+		if (!(excessProbability >= 0.0) || (excessProbability > 1.0)) { // also rejects NaN
+			throw new IllegalArgumentException("excess probability must be in [0, 1]: " + excessProbability);
+		}
+		this.quotaPerSecond = quotaPerSecond;
+		this.excessProbability = excessProbability;
+		this.maxUseCases = maxUseCases;
+		this.overflowQuota = new Quota(quotaPerSecond);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public double sample(final String useCase) {
+		final Quota quota = this.quotaOf(useCase);
+		final boolean admitted = quota.bucket.tryAcquire() || (XorShiftRandom.nextDouble() < this.excessProbability);
+		final double ratio = quota.statistics.record(admitted);
+		return admitted ? ratio : NOT_SAMPLED; // NOCS
+	}
+
+	private Quota quotaOf(final String useCase) {
+		final Quota quota = this.quotas.get(useCase);
+		if (quota != null) {
+			return quota;
+		}
+		if (this.quotas.size() >= this.maxUseCases) {
+			return this.overflowQuota;
+		}
+		final Quota newQuota = new Quota(this.quotaPerSecond);
+		final Quota existingQuota = this.quotas.putIfAbsent(useCase, newQuota);
+		return (existingQuota != null) ? existingQuota : newQuota; // NOCS
+	}
+
+	/**
+	 * The state of a single use case.
+	 */
+	private static final class Quota {
+		final TokenBucket bucket; // NOCS
+		final AdmissionStatistics statistics = new AdmissionStatistics(); // NOCS
+
+		Quota(final double quotaPerSecond) {
+			this.bucket = new TokenBucket(quotaPerSecond, Math.max(1, (int) quotaPerSecond));
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampling;
+
+/**
+ * A per-thread xorshift64* generator. Unlike {@link java.util.Random}, it has no shared state and hence no contention
+ * between request threads. Its quality is sufficient for sampling decisions, not for anything security related.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class XorShiftRandom {
+
+	private static final ThreadLocal<XorShiftRandom> INSTANCES = new ThreadLocal<XorShiftRandom>() {
+		@Override
+		protected XorShiftRandom initialValue() {
+			return new XorShiftRandom(System.nanoTime() ^ (Thread.currentThread().getId() * 0x9E3779B97F4A7C15L));
+		}
+	};
+
+	private long state;
+
+	private XorShiftRandom(final long seed) {
+		this.state = (seed == 0) ? 0x2545F4914F6CDD1DL : seed; // NOCS (the state must not be 0)
+	}
+
+	/**
+	 * @return A uniformly distributed value in {@code [0, 1)} from the calling thread's generator.
+	 */
+	static double nextDouble() {
+		return (INSTANCES.get().nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	private long nextLong() {
+		long x = this.state;
+		x ^= x >>> 12;
+		x ^= x << 25;
+		x ^= x >>> 27;
+		this.state = x;
+		return x * 0x2545F4914F6CDD1DL;
+	}
+}
@@ -0,0 +1,162 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.traceid;
+
+import java.lang.management.ManagementFactory;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates trace IDs without a shared counter on the hot path. Each thread takes a block of {@code blockSize}
+ * consecutive IDs from the JVM-wide counter with a single atomic addition and hands them out locally; with the
+ * suggested block size, threads touch the shared counter once every {@value #DEFAULT_BLOCK_SIZE} traces instead of on
+ * every trace.
+ *
+ * The IDs are positive {@code long}s, compatible with the trace IDs of the Kieker records. The
+ * {@value #NODE_ID_BITS} bits below the sign bit hold the node ID, which distinguishes the JVMs writing to one log, and
+ * the lower {@value #SEQUENCE_BITS} bits hold the sequence number, which wraps around after about 8.8 trillion traces.
+ * By default, the node ID is derived from the JVM's name (process ID and host) and start time together with a random
+ * number, like the random prefix of Kieker's own trace IDs; it can also be assigned explicitly to rule out collisions
+ * between hosts.
+ *
+ * Unlike with a single counter, the IDs of concurrent traces are not ordered by their start. All allocators of a JVM
+ * share the sequence and the blocks of the threads, so that IDs stay unique with several filter instances and block
+ * sizes. The blocks are kept in a {@link ThreadLocal} holding only a {@code long[]}, so that the (pooled) request
+ * threads do not keep the class loader of a web application alive; {@link #releaseBlock()} removes the block of the
+ * calling thread.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class TraceIdAllocator {
+
+	/** The number of bits of the node ID. */
+	public static final int NODE_ID_BITS = 20;
+	/** The number of bits of the sequence number. */
+	public static final int SEQUENCE_BITS = 63 - NODE_ID_BITS;
+	/** The largest node ID. */
+	public static final int MAX_NODE_ID = (1 << NODE_ID_BITS) - 1;
+	/** The suggested number of IDs taken by a thread at once. */
+	public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	/** The start of the next block; shared by all allocators of this JVM. */
+	private static final AtomicLong NEXT_BLOCK_START = new AtomicLong();
+
+	private static final int JVM_NODE_ID = TraceIdAllocator.deriveNodeId();
+
+	/** The index of the next ID of a thread's block. */
+	private static final int NEXT = 0;
+	/** The index of the end (exclusive) of a thread's block. */
+	private static final int END = 1;
+
+	/** The IDs {@code [next, end)} of each thread; shared by all allocators of this JVM. */
+	private static final ThreadLocal<long[]> BLOCKS = new ThreadLocal<long[]>();
+
+	private final long nodePrefix;
+	private final int blockSize;
+
+	/**
+	 * Creates an allocator with the derived node ID of this JVM.
+	 *
+	 * @param blockSize
+	 *            The number of IDs taken by a thread at once.
+	 */
+	public TraceIdAllocator(final int blockSize) {
+		this(JVM_NODE_ID, blockSize);
+	}
+
+	/**
+	 * Creates an allocator.
+	 *
+	 * @param nodeId
+	 *            The node ID in {@code [0, }{@value #MAX_NODE_ID}{@code ]}.
+	 * @param blockSize
+	 *            The number of IDs taken by a thread at once.
+	 */
+	public TraceIdAllocator(final int nodeId, final int blockSize) {
+		if ((nodeId < 0) || (nodeId > MAX_NODE_ID)) {
+			throw new IllegalArgumentException("The node ID must be in [0, " + MAX_NODE_ID + "]: " + nodeId);
+		}
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+		}
+		this.nodePrefix = (long) nodeId << SEQUENCE_BITS;
+		this.blockSize = blockSize;
+	}
+
+	private static int deriveNodeId() {
+		long seed = new SecureRandom().nextLong();
+		seed = (seed * 31) + ManagementFactory.getRuntimeMXBean().getName().hashCode();
+		seed = (seed * 31) + ManagementFactory.getRuntimeMXBean().getStartTime();
+		seed ^= seed >>> 33; // spread the bits (finalizer of MurmurHash3)
+		seed *= 0xff51afd7ed558ccdL;
+		seed ^= seed >>> 33;
+		return (int) (seed & MAX_NODE_ID);
+	}
+
+	/**
+	 * @return A new trace ID.
+	 */
+	public long nextId() {
+		long[] block = BLOCKS.get();
+		if (block == null) {
+			block = new long[2];
+			BLOCKS.set(block);
+		}
+		if (block[NEXT] == block[END]) {
+			block[NEXT] = NEXT_BLOCK_START.getAndAdd(this.blockSize);
+			block[END] = block[NEXT] + this.blockSize;
+		}
+		return this.nodePrefix | (block[NEXT]++ & SEQUENCE_MASK);
+	}
+
+	/**
+	 * Removes the block of the calling thread; the IDs left in it are not used anymore.
+	 */
+	public static void releaseBlock() {
+		BLOCKS.remove();
+	}
+
+	/**
+	 * @return The node ID of the IDs of this allocator.
+	 */
+	public int getNodeId() {
+		return (int) (this.nodePrefix >>> SEQUENCE_BITS);
+	}
+
+	/**
+	 * @return The number of IDs taken by a thread at once.
+	 */
+	public int getBlockSize() {
+		return this.blockSize;
+	}
+
+	/**
+	 * @param traceId
+	 *            A trace ID of an allocator.
+	 *
+	 * @return The node ID of the given trace ID.
+	 */
+	public static int getNodeId(final long traceId) {
+		return (int) (traceId >>> SEQUENCE_BITS) & MAX_NODE_ID;
+	}
+}
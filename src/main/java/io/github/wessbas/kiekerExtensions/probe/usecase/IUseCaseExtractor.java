@@ -0,0 +1,42 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.usecase;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Maps an incoming request to the name of the use case it belongs to. Implementations are shared by all request
+ * threads and must therefore be thread-safe.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public interface IUseCaseExtractor {
+
+	/**
+	 * Returns the use case of the given request.
+	 *
+	 * @param request
+	 *            The request.
+	 *
+	 * @return The use case name; never {@code null}.
+	 */
+	public String extractUseCase(HttpServletRequest request);
+}
@@ -0,0 +1,241 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.usecase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Extracts the use case from the value of a single query parameter (e.g., {@code action=View_Items}).
+ *
+ * The query string is scanned exactly once and without intermediate allocations; in particular, no
+ * {@link String#split(String)} is involved. Optionally, the value can be refined by {@link SuffixRule}s which append a
+ * suffix if a given flag parameter is present as well. All rules are compiled into bit masks when the extractor is
+ * created. Results are memoized in a bounded {@link UseCaseCache}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class QueryStringUseCaseExtractor implements IUseCaseExtractor {
+
+	/** The use case returned if the request has no query string or the query string lacks the use case parameter. */
+	public static final String NO_ACTION = "NOACTION";
+
+	/** The name of the query parameter carrying the use case in SPECjEnterprise. */
+	public static final String SPECJ_USE_CASE_PARAMETER = "action";
+
+	/** The default number of cache slots. */
+	public static final int DEFAULT_CACHE_SIZE = 1024;
+
+	private final String useCaseParameter;
+	private final String noMatchUseCase;
+	private final String[] flagParameters;
+	private final CompiledSuffixRule[] suffixRules;
+	private final UseCaseCache cache; // null if caching is disabled
+
+	/**
+	 * Creates a new extractor.
+	 *
+	 * @param useCaseParameter
+	 *            The name of the query parameter whose value is the use case.
+	 * @param noMatchUseCase
+	 *            The use case returned if the parameter is not present.
+	 * @param suffixRules
+	 *            The rules refining the extracted use case; evaluated in the given order, the first match wins. At most 64 distinct flag parameters are
+	 *            supported.
+	 * @param cacheSize
+	 *            The number of cache slots; {@code 0} disables the cache.
+	 */
+	public QueryStringUseCaseExtractor(final String useCaseParameter, final String noMatchUseCase, final SuffixRule[] suffixRules, final int cacheSize) {
+		this.useCaseParameter = useCaseParameter;
+		this.noMatchUseCase = noMatchUseCase;
+
+		final List<String> flags = new ArrayList<String>();
+		this.suffixRules = new CompiledSuffixRule[suffixRules.length];
+		for (int i = 0; i < suffixRules.length; i++) {
+			final SuffixRule rule = suffixRules[i];
+			int flagIndex = flags.indexOf(rule.getFlagParameter());
+			if (flagIndex < 0) {
+				flagIndex = flags.size();
+				flags.add(rule.getFlagParameter());
+			}
+			if (flagIndex >= Long.SIZE) {
+				throw new IllegalArgumentException("At most " + Long.SIZE + " distinct flag parameters are supported");
+			}
+			this.suffixRules[i] = new CompiledSuffixRule(rule.getUseCase(), 1L << flagIndex, rule.getUseCase() + rule.getSuffix());
+		}
+		this.flagParameters = flags.toArray(new String[flags.size()]);
+
+		this.cache = cacheSize > 0 ? new UseCaseCache(cacheSize) : null; // NOCS
+	}
+
+	/**
+	 * Creates an extractor implementing the SPECjEnterprise conventions: the use case is the value of the {@code action}
+	 * parameter, and {@code View_Items} becomes {@code View_Items_quantity} if a {@code vehicles} parameter is present.
+	 *
+	 * @param cacheSize
+	 *            The number of cache slots; {@code 0} disables the cache.
+	 *
+	 * @return The new extractor.
+	 */
+	public static QueryStringUseCaseExtractor forSPECjEnterprise(final int cacheSize) {
+		return new QueryStringUseCaseExtractor(SPECJ_USE_CASE_PARAMETER, NO_ACTION,
+				new SuffixRule[] { new SuffixRule("View_Items", "vehicles", "_quantity") }, cacheSize);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String extractUseCase(final HttpServletRequest request) {
+		return this.extractFromQueryString(request.getQueryString());
+	}
+
+	/**
+	 * Returns the use case encoded in the given query string.
+	 *
+	 * @param queryString
+	 *            The raw query string; may be {@code null}.
+	 *
+	 * @return The use case; never {@code null}.
+	 */
+	public String extractFromQueryString(final String queryString) {
+		if (queryString == null) {
+			return this.noMatchUseCase;
+		}
+
+		final UseCaseCache localCache = this.cache;
+		if (localCache != null) {
+			final String cached = localCache.get(queryString);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		final String useCase = this.parse(queryString);
+		if (localCache != null) {
+			localCache.put(queryString, useCase);
+		}
+		return useCase;
+	}
+
+	private String parse(final String queryString) {
+		final int length = queryString.length();
+		final int parameterLength = this.useCaseParameter.length();
+
+		int valueStart = -1;
+		int valueEnd = -1;
+		long flags = 0L;
+
+		int paramStart = 0;
+		while (paramStart <= length) {
+			int paramEnd = queryString.indexOf('&', paramStart);
+			if (paramEnd < 0) {
+				paramEnd = length;
+			}
+			final int nameEnd = QueryStrings.indexOf(queryString, '=', paramStart, paramEnd);
+			final int nameLength = nameEnd - paramStart;
+
+			if ((nameLength == parameterLength) && queryString.regionMatches(paramStart, this.useCaseParameter, 0, parameterLength)) {
+				// as before, the value ends at a second '=' and the last occurrence of the parameter wins; empty values are ignored
+				final int end = QueryStrings.indexOf(queryString, '=', Math.min(nameEnd + 1, paramEnd), paramEnd);
+				if (end > (nameEnd + 1)) {
+					valueStart = nameEnd + 1;
+					valueEnd = end;
+				}
+			}
+			flags |= this.flagOf(queryString, paramStart, nameLength);
+
+			paramStart = paramEnd + 1;
+		}
+
+		if (valueStart < 0) {
+			return this.noMatchUseCase;
+		}
+
+		final int valueLength = valueEnd - valueStart;
+		for (final CompiledSuffixRule rule : this.suffixRules) {
+			if (((flags & rule.flagMask) != 0) && (valueLength == rule.useCase.length())
+					&& queryString.regionMatches(valueStart, rule.useCase, 0, valueLength)) {
+				return rule.suffixedUseCase;
+			}
+		}
+		return queryString.substring(valueStart, valueEnd);
+	}
+
+	private long flagOf(final String queryString, final int nameStart, final int nameLength) {
+		for (int i = 0; i < this.flagParameters.length; i++) {
+			final String flag = this.flagParameters[i];
+			if ((nameLength == flag.length()) && queryString.regionMatches(nameStart, flag, 0, nameLength)) {
+				return 1L << i;
+			}
+		}
+		return 0L;
+	}
+
+	/**
+	 * Declares that the use case {@link #getUseCase()} is renamed by appending {@link #getSuffix()} if the query string
+	 * also contains the parameter {@link #getFlagParameter()} (with or without value).
+	 *
+	 * @author WESSBAS project
+	 *
+	 * @since 1.12
+	 */
+	public static final class SuffixRule {
+		private final String useCase;
+		private final String flagParameter;
+		private final String suffix;
+
+		public SuffixRule(final String useCase, final String flagParameter, final String suffix) {
+			this.useCase = useCase;
+			this.flagParameter = flagParameter;
+			this.suffix = suffix;
+		}
+
+		public String getUseCase() {
+			return this.useCase;
+		}
+
+		public String getFlagParameter() {
+			return this.flagParameter;
+		}
+
+		public String getSuffix() {
+			return this.suffix;
+		}
+	}
+
+	/**
+	 * {@link SuffixRule} with the flag parameter resolved to a bit and the resulting use case precomputed.
+	 */
+	private static final class CompiledSuffixRule {
+		final String useCase; // NOCS
+		final long flagMask; // NOCS
+		final String suffixedUseCase; // NOCS
+
+		CompiledSuffixRule(final String useCase, final long flagMask, final String suffixedUseCase) {
+			this.useCase = useCase;
+			this.flagMask = flagMask;
+			this.suffixedUseCase = suffixedUseCase;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.usecase;
+
+/**
+ * Allocation-free helpers for scanning raw (not URL-decoded) query strings.
+ *
+ * Note that these methods deliberately do not use {@link javax.servlet.ServletRequest#getParameter(String)}, which
+ * may consume the request body of form posts.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class QueryStrings {
+
+	private QueryStrings() {
+		// utility class
+	}
+
+	/**
+	 * Like {@link String#indexOf(int, int)}, but restricted to the range {@code [from, to)}.
+	 *
+	 * @param s
+	 *            The string to search.
+	 * @param c
+	 *            The character to search for.
+	 * @param from
+	 *            The first index to inspect.
+	 * @param to
+	 *            The index after the last one to inspect.
+	 *
+	 * @return The index of the first occurrence or {@code to} if there is none.
+	 */
+	public static int indexOf(final String s, final char c, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			if (s.charAt(i) == c) {
+				return i;
+			}
+		}
+		return to;
+	}
+
+	/**
+	 * Checks whether the given query string contains the parameter {@code name}, optionally with the given value.
+	 *
+	 * @param queryString
+	 *            The raw query string; may be {@code null}.
+	 * @param name
+	 *            The parameter name.
+	 * @param value
+	 *            The expected value or {@code null} if any value (including none) is accepted.
+	 *
+	 * @return {@code true} if at least one occurrence of the parameter matches.
+	 */
+	public static boolean containsParameter(final String queryString, final String name, final String value) {
+		if (queryString == null) {
+			return false;
+		}
+		final int length = queryString.length();
+		final int nameLength = name.length();
+
+		int paramStart = 0;
+		while (paramStart <= length) {
+			int paramEnd = queryString.indexOf('&', paramStart);
+			if (paramEnd < 0) {
+				paramEnd = length;
+			}
+			final int nameEnd = QueryStrings.indexOf(queryString, '=', paramStart, paramEnd);
+			if (((nameEnd - paramStart) == nameLength) && queryString.regionMatches(paramStart, name, 0, nameLength)) {
+				if (value == null) {
+					return true;
+				}
+				final int valueStart = Math.min(nameEnd + 1, paramEnd);
+				if (((paramEnd - valueStart) == value.length()) && queryString.regionMatches(valueStart, value, 0, value.length())) {
+					return true;
+				}
+			}
+			paramStart = paramEnd + 1;
+		}
+		return false;
+	}
+}
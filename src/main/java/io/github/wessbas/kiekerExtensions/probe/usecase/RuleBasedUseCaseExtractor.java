@@ -0,0 +1,224 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.usecase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Maps requests to use cases by a set of {@link UseCaseRule}s whose path templates are compiled into a prefix trie of
+ * path segments. A request is matched by walking the trie along the segments of its URI (relative to the context path),
+ * following all templates matching so far at once instead of backtracking, so the cost per request is linear in the
+ * path length and independent of the number of rules which do not match a prefix of the path. Segments are compared in
+ * place, i.e., the URI is never split or copied.
+ *
+ * The templates matching the path are ranked segment by segment: literal segments take precedence over
+ * {@code {variable}} segments, which take precedence over a trailing {@code **}. The rules of the templates are then
+ * tried in that order, and among rules with the same template in declaration order; the first rule whose method, query
+ * and header predicates hold wins. If no rule matches, the request is passed to the fallback extractor.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class RuleBasedUseCaseExtractor implements IUseCaseExtractor {
+
+	private final Node root = new Node();
+	private final IUseCaseExtractor fallback;
+
+	/**
+	 * Creates a new extractor.
+	 *
+	 * @param rules
+	 *            The rules in declaration order.
+	 * @param fallback
+	 *            The extractor used if no rule matches.
+	 */
+	public RuleBasedUseCaseExtractor(final List<UseCaseRule> rules, final IUseCaseExtractor fallback) {
+		this.fallback = fallback;
+		for (final UseCaseRule rule : rules) {
+			this.insert(rule);
+		}
+	}
+
+	private void insert(final UseCaseRule rule) {
+		Node node = this.root;
+		for (final String segment : rule.getPathTemplate().split("/")) {
+			if (segment.length() == 0) {
+				continue;
+			}
+			if ("**".equals(segment)) {
+				if (node.catchAll == null) {
+					node.catchAll = new Node();
+					node.catchAll.isCatchAll = true;
+				}
+				node = node.catchAll;
+			} else if ("*".equals(segment) || (segment.startsWith("{") && segment.endsWith("}"))) {
+				if (node.variable == null) {
+					node.variable = new Node();
+				}
+				node = node.variable;
+			} else {
+				node = node.literalChild(segment);
+			}
+		}
+		node.addRule(rule);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String extractUseCase(final HttpServletRequest request) {
+		final String uri = request.getRequestURI();
+		if (uri != null) {
+			final String contextPath = request.getContextPath();
+			final int start = ((contextPath != null) && uri.startsWith(contextPath)) ? contextPath.length() : 0; // NOCS
+			final UseCaseRule rule = this.match(uri, start, request);
+			if (rule != null) {
+				return rule.getUseCase();
+			}
+		}
+		return this.fallback.extractUseCase(request);
+	}
+
+	private UseCaseRule match(final String uri, final int start, final HttpServletRequest request) {
+		// the nodes of the templates matching the segments so far, ranked by precedence; a catch-all node stays once reached
+		List<Node> nodes = new ArrayList<Node>(4);
+		List<Node> nextNodes = new ArrayList<Node>(4);
+		nodes.add(this.root);
+		final int length = uri.length();
+		for (int segmentStart = start; segmentStart < length;) {
+			int segmentEnd = uri.indexOf('/', segmentStart);
+			if (segmentEnd < 0) {
+				segmentEnd = length;
+			}
+			// ignore path parameters such as ';jsessionid=...'
+			final int contentEnd = QueryStrings.indexOf(uri, ';', segmentStart, segmentEnd);
+			if (contentEnd > segmentStart) { // skip empty segments
+				nextNodes.clear();
+				for (final Node node : nodes) {
+					if (node.isCatchAll) {
+						nextNodes.add(node);
+						continue;
+					}
+					final Node literal = node.findLiteralChild(uri, segmentStart, contentEnd);
+					if (literal != null) {
+						nextNodes.add(literal);
+					}
+					if (node.variable != null) {
+						nextNodes.add(node.variable);
+					}
+					if (node.catchAll != null) {
+						nextNodes.add(node.catchAll);
+					}
+				}
+				if (nextNodes.isEmpty()) {
+					return null;
+				}
+				final List<Node> swap = nodes;
+				nodes = nextNodes;
+				nextNodes = swap;
+			}
+			segmentStart = segmentEnd + 1;
+		}
+
+		for (final Node node : nodes) {
+			UseCaseRule rule = node.accept(request);
+			if ((rule == null) && (node.catchAll != null)) {
+				rule = node.catchAll.accept(request); // '**' also matches the empty remainder
+			}
+			if (rule != null) {
+				return rule;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * A trie node. Literal children are kept in parallel arrays together with their {@link String#hashCode()}, which is
+	 * computed for the URI segment in place.
+	 */
+	private static final class Node {
+		String[] literals = new String[0]; // NOCS
+		int[] literalHashes = new int[0]; // NOCS
+		Node[] literalChildren = new Node[0]; // NOCS
+		Node variable; // NOCS
+		Node catchAll; // NOCS
+		/** Whether this node is reached by a trailing {@code **}, i.e., matches any remainder. */
+		boolean isCatchAll; // NOCS
+		UseCaseRule[] rules = new UseCaseRule[0]; // NOCS
+
+		Node() {
+			// nothing to do
+		}
+
+		Node literalChild(final String segment) {
+			for (int i = 0; i < this.literals.length; i++) {
+				if (this.literals[i].equals(segment)) {
+					return this.literalChildren[i];
+				}
+			}
+			final int size = this.literals.length;
+			this.literals = Arrays.copyOf(this.literals, size + 1);
+			this.literalHashes = Arrays.copyOf(this.literalHashes, size + 1);
+			this.literalChildren = Arrays.copyOf(this.literalChildren, size + 1);
+			this.literals[size] = segment;
+			this.literalHashes[size] = segment.hashCode();
+			this.literalChildren[size] = new Node();
+			return this.literalChildren[size];
+		}
+
+		Node findLiteralChild(final String uri, final int start, final int end) {
+			if (this.literals.length == 0) {
+				return null;
+			}
+			int hash = 0;
+			for (int i = start; i < end; i++) {
+				hash = (31 * hash) + uri.charAt(i);
+			}
+			final int length = end - start;
+			for (int i = 0; i < this.literals.length; i++) {
+				final String literal = this.literals[i];
+				if ((this.literalHashes[i] == hash) && (literal.length() == length) && uri.regionMatches(start, literal, 0, length)) {
+					return this.literalChildren[i];
+				}
+			}
+			return null;
+		}
+
+		void addRule(final UseCaseRule rule) {
+			final List<UseCaseRule> list = new ArrayList<UseCaseRule>(Arrays.asList(this.rules));
+			list.add(rule);
+			this.rules = list.toArray(new UseCaseRule[list.size()]);
+		}
+
+		UseCaseRule accept(final HttpServletRequest request) {
+			for (final UseCaseRule rule : this.rules) {
+				if (rule.acceptsNonPath(request)) {
+					return rule;
+				}
+			}
+			return null;
+		}
+	}
+}
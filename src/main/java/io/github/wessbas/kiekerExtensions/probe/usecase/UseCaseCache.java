@@ -0,0 +1,107 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.usecase;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free cache from a raw key (e.g., a query string) to its use case name.
+ *
+ * The cache is direct-mapped: each key hashes to exactly one slot and a newer entry simply replaces the older one.
+ * Hence, the memory footprint is fixed after construction, lookups never allocate, and concurrent writers never
+ * block each other; a lost update only costs one additional extraction.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class UseCaseCache {
+
+	private final AtomicReferenceArray<Entry> slots;
+	private final int mask;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param capacity
+	 *            The number of slots; rounded up to the next power of two. Must be positive.
+	 */
+	public UseCaseCache(final int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1; // NOCS
+		this.slots = new AtomicReferenceArray<Entry>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * @param key
+	 *            The key to look up.
+	 *
+	 * @return The cached use case or {@code null} if the key is not cached.
+	 */
+	public String get(final String key) {
+		final int hash = UseCaseCache.spread(key.hashCode());
+		final Entry entry = this.slots.get(hash & this.mask);
+		if ((entry != null) && (entry.hash == hash) && entry.key.equals(key)) {
+			return entry.useCase;
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the given mapping, replacing whatever was stored in the key's slot before.
+	 *
+	 * @param key
+	 *            The key.
+	 * @param useCase
+	 *            The use case of the key.
+	 */
+	public void put(final String key, final String useCase) {
+		final int hash = UseCaseCache.spread(key.hashCode());
+		this.slots.lazySet(hash & this.mask, new Entry(hash, key, useCase));
+	}
+
+	/**
+	 * @return The number of slots of this cache.
+	 */
+	public int getCapacity() {
+		return this.slots.length();
+	}
+
+	private static int spread(final int h) {
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Immutable slot content; safely published via the {@link AtomicReferenceArray}.
+	 */
+	private static final class Entry {
+		final int hash; // NOCS
+		final String key; // NOCS
+		final String useCase; // NOCS
+
+		Entry(final int hash, final String key, final String useCase) {
+			this.hash = hash;
+			this.key = key;
+			this.useCase = useCase;
+		}
+	}
+}
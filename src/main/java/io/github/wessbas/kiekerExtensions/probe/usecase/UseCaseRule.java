@@ -0,0 +1,143 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.usecase;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * A declarative mapping from requests to a use case: an optional HTTP method, a URI path template
+ * (e.g., {@code /orders/{id}/items}) and any number of query or header parameter predicates. The path template is
+ * matched by {@link RuleBasedUseCaseExtractor}; this class only evaluates the remaining predicates.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class UseCaseRule {
+
+	/** The method wildcard. */
+	public static final String ANY_METHOD = "*";
+
+	private final String useCase;
+	private final String method; // null for any
+	private final String pathTemplate;
+	private final ParameterPredicate[] queryPredicates;
+	private final ParameterPredicate[] headerPredicates;
+
+	/**
+	 * Creates a new rule.
+	 *
+	 * @param useCase
+	 *            The use case of matching requests.
+	 * @param method
+	 *            The HTTP method or {@link #ANY_METHOD}.
+	 * @param pathTemplate
+	 *            The path template relative to the context path. Segments of the form {@code {name}} or {@code *} match exactly one arbitrary segment, a
+	 *            final {@code **} segment matches any remainder.
+	 * @param queryPredicates
+	 *            The predicates on query parameters.
+	 * @param headerPredicates
+	 *            The predicates on request headers.
+	 */
+	public UseCaseRule(final String useCase, final String method, final String pathTemplate, final ParameterPredicate[] queryPredicates,
+			final ParameterPredicate[] headerPredicates) {
+		this.useCase = useCase;
+		this.method = ANY_METHOD.equals(method) ? null : method; // NOCS
+		this.pathTemplate = pathTemplate;
+		this.queryPredicates = queryPredicates.clone();
+		this.headerPredicates = headerPredicates.clone();
+	}
+
+	/**
+	 * Evaluates the method, query and header predicates of this rule.
+	 *
+	 * @param request
+	 *            The request whose path already matched {@link #getPathTemplate()}.
+	 *
+	 * @return {@code true} if all predicates hold.
+	 */
+	boolean acceptsNonPath(final HttpServletRequest request) {
+		if ((this.method != null) && !this.method.equalsIgnoreCase(request.getMethod())) {
+			return false;
+		}
+		if (this.queryPredicates.length > 0) {
+			final String queryString = request.getQueryString();
+			for (final ParameterPredicate predicate : this.queryPredicates) {
+				if (!QueryStrings.containsParameter(queryString, predicate.getName(), predicate.getValue())) {
+					return false;
+				}
+			}
+		}
+		for (final ParameterPredicate predicate : this.headerPredicates) {
+			final String header = request.getHeader(predicate.getName());
+			if ((header == null) || ((predicate.getValue() != null) && !predicate.getValue().equals(header))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String getUseCase() {
+		return this.useCase;
+	}
+
+	public String getMethod() {
+		return this.method == null ? ANY_METHOD : this.method; // NOCS
+	}
+
+	public String getPathTemplate() {
+		return this.pathTemplate;
+	}
+
+	@Override
+	public String toString() {
+		return this.useCase + " = " + this.getMethod() + " " + this.pathTemplate;
+	}
+
+	/**
+	 * Requires a query parameter or header to be present, optionally with a given value.
+	 *
+	 * @author WESSBAS project
+	 *
+	 * @since 1.12
+	 */
+	public static final class ParameterPredicate {
+		private final String name;
+		private final String value;
+
+		/**
+		 * @param name
+		 *            The parameter or header name.
+		 * @param value
+		 *            The required value or {@code null} if only the presence is required.
+		 */
+		public ParameterPredicate(final String name, final String value) {
+			this.name = name;
+			this.value = value;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public String getValue() {
+			return this.value;
+		}
+	}
+}
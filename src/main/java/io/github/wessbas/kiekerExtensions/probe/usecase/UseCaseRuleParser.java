@@ -0,0 +1,183 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.usecase;
+
+import io.github.wessbas.kiekerExtensions.probe.usecase.UseCaseRule.ParameterPredicate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses use case rules, one rule per line (or separated by {@code ;} when given inline, see {@link #parse(String)}):
+ *
+ * <pre>
+ * # comment
+ * &lt;useCase&gt; = [&lt;METHOD&gt;|*] &lt;pathTemplate&gt; [query:&lt;name&gt;[=&lt;value&gt;]]... [header:&lt;name&gt;[=&lt;value&gt;]]...
+ * </pre>
+ *
+ * For example:
+ *
+ * <pre>
+ * listOrderItems = GET /orders/{id}/items query:status=open
+ * createOrder    = POST /orders header:Content-Type=application/json
+ * other          = * /**
+ * </pre>
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class UseCaseRuleParser {
+
+	private static final String QUERY_PREFIX = "query:";
+	private static final String HEADER_PREFIX = "header:";
+
+	private UseCaseRuleParser() {
+		// utility class
+	}
+
+	/**
+	 * Parses rules given inline, e.g., as a filter init-param. A {@code ;} within a query or header predicate belongs to
+	 * the predicate's value (e.g., {@code header:Content-Type=text/html;charset=UTF-8}), unless it ends the predicate.
+	 *
+	 * @param rules
+	 *            The rules, separated by line breaks or {@code ;}.
+	 *
+	 * @return The rules in declaration order.
+	 *
+	 * @throws IllegalArgumentException
+	 *             If a rule is malformed.
+	 */
+	public static List<UseCaseRule> parse(final String rules) {
+		try {
+			return UseCaseRuleParser.parse(new StringReader(UseCaseRuleParser.splitInlineRules(rules)));
+		} catch (final IOException ex) {
+			throw new IllegalStateException("Cannot happen for a StringReader", ex);
+		}
+	}
+
+	/**
+	 * Parses rules from the given reader, one rule per line.
+	 *
+	 * @param reader
+	 *            The reader; not closed by this method.
+	 *
+	 * @return The rules in declaration order.
+	 *
+	 * @throws IOException
+	 *             If reading fails.
+	 * @throws IllegalArgumentException
+	 *             If a rule is malformed.
+	 */
+	public static List<UseCaseRule> parse(final Reader reader) throws IOException {
+		final List<UseCaseRule> rules = new ArrayList<UseCaseRule>();
+		final BufferedReader lines = new BufferedReader(reader);
+		int lineNumber = 0;
+		String line;
+		while ((line = lines.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if ((line.length() == 0) || line.startsWith("#")) {
+				continue;
+			}
+			try {
+				rules.add(UseCaseRuleParser.parseRule(line));
+			} catch (final IllegalArgumentException ex) {
+				throw new IllegalArgumentException("Invalid use case rule in line " + lineNumber + ": '" + line + "': " + ex.getMessage(), ex);
+			}
+		}
+		return rules;
+	}
+
+	/**
+	 * Replaces the {@code ;} separating inline rules by line breaks.
+	 */
+	private static String splitInlineRules(final String rules) {
+		final StringBuilder lines = new StringBuilder(rules);
+		int tokenStart = 0;
+		for (int i = 0; i < lines.length(); i++) {
+			final char c = lines.charAt(i);
+			if (c == ';') {
+				final boolean inPredicate = rules.startsWith(QUERY_PREFIX, tokenStart) || rules.startsWith(HEADER_PREFIX, tokenStart);
+				if (!inPredicate || ((i + 1) == lines.length()) || Character.isWhitespace(lines.charAt(i + 1))) {
+					lines.setCharAt(i, '\n');
+					tokenStart = i + 1;
+				}
+			} else if (Character.isWhitespace(c)) {
+				tokenStart = i + 1;
+			}
+		}
+		return lines.toString();
+	}
+
+	private static UseCaseRule parseRule(final String line) {
+		final int assignment = line.indexOf('=');
+		if (assignment <= 0) {
+			throw new IllegalArgumentException("expected '<useCase> = ...'");
+		}
+		final String useCase = line.substring(0, assignment).trim();
+		final String[] tokens = line.substring(assignment + 1).trim().split("\\s+");
+
+		int next = 0;
+		String method = UseCaseRule.ANY_METHOD;
+		if ((tokens.length > 0) && !tokens[0].startsWith("/")) {
+			method = tokens[next++];
+		}
+		if ((next >= tokens.length) || !tokens[next].startsWith("/")) {
+			throw new IllegalArgumentException("missing path template starting with '/'");
+		}
+		final String pathTemplate = tokens[next++];
+		final int catchAll = pathTemplate.indexOf("**");
+		if ((catchAll >= 0) && (catchAll != (pathTemplate.length() - 2))) {
+			throw new IllegalArgumentException("'**' is only allowed as the last segment");
+		}
+
+		final List<ParameterPredicate> queryPredicates = new ArrayList<ParameterPredicate>();
+		final List<ParameterPredicate> headerPredicates = new ArrayList<ParameterPredicate>();
+		for (; next < tokens.length; next++) {
+			final String token = tokens[next];
+			if (token.startsWith(QUERY_PREFIX)) {
+				queryPredicates.add(UseCaseRuleParser.parsePredicate(token.substring(QUERY_PREFIX.length())));
+			} else if (token.startsWith(HEADER_PREFIX)) {
+				headerPredicates.add(UseCaseRuleParser.parsePredicate(token.substring(HEADER_PREFIX.length())));
+			} else {
+				throw new IllegalArgumentException("unexpected token '" + token + "'");
+			}
+		}
+
+		return new UseCaseRule(useCase, method, pathTemplate,
+				queryPredicates.toArray(new ParameterPredicate[queryPredicates.size()]),
+				headerPredicates.toArray(new ParameterPredicate[headerPredicates.size()]));
+	}
+
+	private static ParameterPredicate parsePredicate(final String predicate) {
+		final int assignment = predicate.indexOf('=');
+		if (assignment == 0) {
+			throw new IllegalArgumentException("missing parameter name");
+		}
+		if (assignment < 0) {
+			return new ParameterPredicate(predicate, null);
+		}
+		return new ParameterPredicate(predicate.substring(0, assignment), predicate.substring(assignment + 1));
+	}
+}
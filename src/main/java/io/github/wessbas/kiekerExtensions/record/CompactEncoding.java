@@ -0,0 +1,163 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import kieker.common.record.AbstractMonitoringRecord;
+import kieker.common.util.registry.IRegistry;
+
+/**
+ * Primitives of the compact binary record encodings: unsigned LEB128 varints, zigzag encoding of signed values, and
+ * one-byte codes for strings from small, fixed vocabularies (with an escape to the string registry for all other
+ * values).
+ *
+ * The vocabularies are part of the serialization format. Never reorder or remove entries; only append.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class CompactEncoding {
+
+	/** Code announcing that a 4-byte string registry ID follows. */
+	public static final byte ESCAPE = (byte) 0xFF;
+
+	/** Vocabulary of HTTP methods; code 0 is the record's "no value" constant. */
+	public static final String[] METHODS = { ServletEntryRecord.NO_METHOD, "GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS", "TRACE", "PATCH",
+		"CONNECT", };
+
+	/** Vocabulary of protocols; code 0 is the record's "no value" constant. */
+	public static final String[] PROTOCOLS = { ServletEntryRecord.NO_PROTOCOL, "HTTP/1.1", "HTTP/1.0", "HTTP/2.0", "HTTP/0.9", };
+
+	/** Vocabulary of character encodings; code 0 is the record's "no value" constant. */
+	public static final String[] ENCODINGS = { ServletEntryRecord.NO_ENCODING, "UTF-8", "ISO-8859-1", "US-ASCII", "UTF-16", "windows-1252",
+		"utf-8", "iso-8859-1", };
+
+	private CompactEncoding() {
+		// utility class
+	}
+
+	/**
+	 * @param value
+	 *            A signed value.
+	 *
+	 * @return The zigzag encoding of the value, which maps small negative values to small unsigned values.
+	 */
+	public static long zigzag(final long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * @param value
+	 *            A zigzag-encoded value.
+	 *
+	 * @return The original signed value.
+	 */
+	public static long unzigzag(final long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * @param value
+	 *            The value, interpreted as unsigned.
+	 *
+	 * @return The number of bytes {@link #putVarLong(ByteBuffer, long)} writes for the value (1 to 10).
+	 */
+	public static int varLongSize(final long value) {
+		final int bits = Long.SIZE - Long.numberOfLeadingZeros(value | 1);
+		return (bits + 6) / 7;
+	}
+
+	public static void putVarLong(final ByteBuffer buffer, final long value) {
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0) {
+			buffer.put((byte) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		buffer.put((byte) remaining);
+	}
+
+	public static long getVarLong(final ByteBuffer buffer) throws BufferUnderflowException {
+		long value = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			final byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Malformed varint");
+	}
+
+	/**
+	 * @param vocabulary
+	 *            One of the vocabularies of this class.
+	 * @param value
+	 *            The value to look up.
+	 *
+	 * @return The code of the value or {@link #ESCAPE} if it is not part of the vocabulary.
+	 */
+	public static byte codeOf(final String[] vocabulary, final String value) {
+		for (int i = 0; i < vocabulary.length; i++) { // identity first: containers usually return constants
+			if (vocabulary[i] == value) { // NOPMD (intended)
+				return (byte) i;
+			}
+		}
+		for (int i = 0; i < vocabulary.length; i++) {
+			if (vocabulary[i].equals(value)) {
+				return (byte) i;
+			}
+		}
+		return ESCAPE;
+	}
+
+	/**
+	 * @param vocabulary
+	 *            One of the vocabularies of this class.
+	 * @param value
+	 *            The value to look up.
+	 *
+	 * @return The number of bytes {@link #putCoded(ByteBuffer, IRegistry, String[], String)} writes for the value.
+	 */
+	public static int codedSize(final String[] vocabulary, final String value) {
+		return CompactEncoding.codeOf(vocabulary, value) == ESCAPE ? 1 + AbstractMonitoringRecord.TYPE_SIZE_STRING : 1; // NOCS
+	}
+
+	public static void putCoded(final ByteBuffer buffer, final IRegistry<String> stringRegistry, final String[] vocabulary, final String value) {
+		final byte code = CompactEncoding.codeOf(vocabulary, value);
+		buffer.put(code);
+		if (code == ESCAPE) {
+			buffer.putInt(stringRegistry.get(value));
+		}
+	}
+
+	public static String getCoded(final ByteBuffer buffer, final IRegistry<String> stringRegistry, final String[] vocabulary)
+			throws BufferUnderflowException {
+		final byte code = buffer.get();
+		if (code == ESCAPE) {
+			return stringRegistry.get(buffer.getInt());
+		}
+		if ((code < 0) || (code >= vocabulary.length)) {
+			throw new IllegalStateException("Unknown code " + code);
+		}
+		return vocabulary[code];
+	}
+}
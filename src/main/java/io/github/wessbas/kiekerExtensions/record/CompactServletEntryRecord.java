@@ -0,0 +1,226 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import kieker.common.util.registry.IRegistry;
+
+/**
+ * A {@link ServletEntryRecord} with a compact, versioned binary representation. The values are the same, so analyses
+ * may treat both types alike; only {@link #writeBytes(ByteBuffer, IRegistry)} and the decoding constructor differ.
+ * Since the binary format is not expressible in the IRL, this class is written by hand.
+ *
+ * Binary layout (format version 1):
+ * <ol>
+ * <li>header byte: format version in the low nibble, {@link #FLAG_FIXED_TRACE_ID} in the high nibble</li>
+ * <li>traceId: zigzag varint, or 8 bytes if the varint would be longer</li>
+ * <li>uri: string registry ID (4 bytes)</li>
+ * <li>port: zigzag varint</li>
+ * <li>host: string registry ID (4 bytes)</li>
+ * <li>protocol, method: one-byte codes from {@link CompactEncoding}, or the escape byte followed by a registry ID</li>
+ * <li>queryString: string registry ID (4 bytes)</li>
+ * <li>encoding: one-byte code from {@link CompactEncoding}, or the escape byte followed by a registry ID</li>
+ * </ol>
+ *
+ * Optionally, {@code uri} and {@code queryString} are registered in a separate, bounded registry (see
+ * {@link io.github.wessbas.kiekerExtensions.registry.BoundedStringRegistry}) instead of the writer's unbounded one. Their IDs
+ * are obtained when the record is created, so that the corresponding registry records are written before this record.
+ * As that registry never reuses an ID, the record decodes to its strings however late the writer serializes it. The
+ * binary format is the same in both cases.
+ *
+ * A typical request with a known method, protocol and encoding occupies 19 to 26 bytes (depending on the trace ID)
+ * instead of the {@link #SIZE} bytes of a {@link ServletEntryRecord}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class CompactServletEntryRecord extends ServletEntryRecord {
+	/** The current version of the binary format. */
+	public static final byte FORMAT_VERSION = 1;
+	/** Header flag stating that the trace ID is stored as a plain 8-byte long. */
+	public static final byte FLAG_FIXED_TRACE_ID = 0x10;
+	/** Upper bound of the serialization size of the record. */
+	public static final int MAX_SIZE = 1 // header
+			+ TYPE_SIZE_LONG // traceId
+			+ TYPE_SIZE_STRING // uri
+			+ 5 // port (varint of a zigzag int)
+			+ TYPE_SIZE_STRING // host
+			+ 1 + TYPE_SIZE_STRING // protocol
+			+ 1 + TYPE_SIZE_STRING // method
+			+ TYPE_SIZE_STRING // queryString
+			+ 1 + TYPE_SIZE_STRING // encoding
+	;
+	private static final long serialVersionUID = -6203360437281718655L;
+
+	private static final int VERSION_MASK = 0x0F;
+	private static final int NOT_PREREGISTERED = 0;
+
+	/* IDs from the bounded registry (0 if it could not register the string); not part of the record's values */
+	private final transient int uriId;
+	private final transient int queryStringId;
+
+	/**
+	 * Creates a new instance of this class using the given parameters.
+	 *
+	 * @param traceId
+	 *            traceId
+	 * @param uri
+	 *            uri
+	 * @param port
+	 *            port
+	 * @param host
+	 *            host
+	 * @param protocol
+	 *            protocol
+	 * @param method
+	 *            method
+	 * @param queryString
+	 *            queryString
+	 * @param encoding
+	 *            encoding
+	 */
+	public CompactServletEntryRecord(final long traceId, final String uri, final int port, final String host, final String protocol,
+			final String method, final String queryString, final String encoding) {
+		super(traceId, uri, port, host, protocol, method, queryString, encoding);
+		this.uriId = NOT_PREREGISTERED;
+		this.queryStringId = NOT_PREREGISTERED;
+	}
+
+	/**
+	 * Creates a new instance of this class whose {@code uri} and {@code queryString} are registered in the given registry
+	 * immediately.
+	 *
+	 * @param traceId
+	 *            traceId
+	 * @param uri
+	 *            uri
+	 * @param port
+	 *            port
+	 * @param host
+	 *            host
+	 * @param protocol
+	 *            protocol
+	 * @param method
+	 *            method
+	 * @param queryString
+	 *            queryString
+	 * @param encoding
+	 *            encoding
+	 * @param highCardinalityRegistry
+	 *            The registry for {@code uri} and {@code queryString}; the ID 0 stands for a string it could not register,
+	 *            which is then registered in the writer's registry.
+	 */
+	public CompactServletEntryRecord(final long traceId, final String uri, final int port, final String host, final String protocol,
+			final String method, final String queryString, final String encoding, final IRegistry<String> highCardinalityRegistry) {
+		super(traceId, uri, port, host, protocol, method, queryString, encoding);
+		this.uriId = highCardinalityRegistry.get(this.getUri());
+		this.queryStringId = highCardinalityRegistry.get(this.getQueryString());
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * It is recommended to use the array which is the result of a call to {@link #toArray()}.
+	 *
+	 * @param values
+	 *            The values for the record.
+	 */
+	public CompactServletEntryRecord(final Object[] values) { // NOPMD (direct store of values)
+		super(values);
+		this.uriId = NOT_PREREGISTERED;
+		this.queryStringId = NOT_PREREGISTERED;
+	}
+
+	/**
+	 * This constructor decodes the compact binary representation.
+	 *
+	 * @param buffer
+	 *            The bytes for the record.
+	 * @param stringRegistry
+	 *            The registry resolving string IDs.
+	 *
+	 * @throws BufferUnderflowException
+	 *             if buffer not sufficient
+	 */
+	public CompactServletEntryRecord(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		super(CompactServletEntryRecord.decode(buffer, stringRegistry), TYPES);
+		this.uriId = NOT_PREREGISTERED;
+		this.queryStringId = NOT_PREREGISTERED;
+	}
+
+	private static Object[] decode(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		final byte header = buffer.get();
+		if ((header & VERSION_MASK) != FORMAT_VERSION) {
+			throw new IllegalStateException("Unsupported format version " + (header & VERSION_MASK) + " of " + CompactServletEntryRecord.class.getName());
+		}
+		final long traceId = ((header & FLAG_FIXED_TRACE_ID) != 0) ? buffer.getLong() // NOCS
+				: CompactEncoding.unzigzag(CompactEncoding.getVarLong(buffer));
+		final String uri = stringRegistry.get(buffer.getInt());
+		final int port = (int) CompactEncoding.unzigzag(CompactEncoding.getVarLong(buffer));
+		final String host = stringRegistry.get(buffer.getInt());
+		final String protocol = CompactEncoding.getCoded(buffer, stringRegistry, CompactEncoding.PROTOCOLS);
+		final String method = CompactEncoding.getCoded(buffer, stringRegistry, CompactEncoding.METHODS);
+		final String queryString = stringRegistry.get(buffer.getInt());
+		final String encoding = CompactEncoding.getCoded(buffer, stringRegistry, CompactEncoding.ENCODINGS);
+		return new Object[] { traceId, uri, port, host, protocol, method, queryString, encoding, };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferOverflowException {
+		final long zigzagTraceId = CompactEncoding.zigzag(this.getTraceId());
+		if (CompactEncoding.varLongSize(zigzagTraceId) > TYPE_SIZE_LONG) {
+			buffer.put((byte) (FORMAT_VERSION | FLAG_FIXED_TRACE_ID));
+			buffer.putLong(this.getTraceId());
+		} else {
+			buffer.put(FORMAT_VERSION);
+			CompactEncoding.putVarLong(buffer, zigzagTraceId);
+		}
+		buffer.putInt(this.uriId != NOT_PREREGISTERED ? this.uriId : stringRegistry.get(this.getUri())); // NOCS
+		CompactEncoding.putVarLong(buffer, CompactEncoding.zigzag(this.getPort()));
+		buffer.putInt(stringRegistry.get(this.getHost()));
+		CompactEncoding.putCoded(buffer, stringRegistry, CompactEncoding.PROTOCOLS, this.getProtocol());
+		CompactEncoding.putCoded(buffer, stringRegistry, CompactEncoding.METHODS, this.getMethod());
+		buffer.putInt(this.queryStringId != NOT_PREREGISTERED ? this.queryStringId : stringRegistry.get(this.getQueryString())); // NOCS
+		CompactEncoding.putCoded(buffer, stringRegistry, CompactEncoding.ENCODINGS, this.getEncoding());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The size depends on the values of this record and is at most {@link #MAX_SIZE}.
+	 */
+	@Override
+	public int getSize() {
+		return 1
+				+ Math.min(CompactEncoding.varLongSize(CompactEncoding.zigzag(this.getTraceId())), TYPE_SIZE_LONG)
+				+ TYPE_SIZE_STRING
+				+ CompactEncoding.varLongSize(CompactEncoding.zigzag(this.getPort()))
+				+ TYPE_SIZE_STRING
+				+ CompactEncoding.codedSize(CompactEncoding.PROTOCOLS, this.getProtocol())
+				+ CompactEncoding.codedSize(CompactEncoding.METHODS, this.getMethod())
+				+ TYPE_SIZE_STRING
+				+ CompactEncoding.codedSize(CompactEncoding.ENCODINGS, this.getEncoding());
+	}
+}
@@ -0,0 +1,250 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import kieker.common.record.AbstractMonitoringRecord;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.util.registry.IRegistry;
+import kieker.common.util.Version;
+
+
+/**
+ * @author WESSBAS project
+ * 
+ * @since 1.12
+ */
+public class MonitoringLevelChangeRecord extends AbstractMonitoringRecord implements IMonitoringRecord.Factory, IMonitoringRecord.BinaryFactory {
+	/** Descriptive definition of the serialization size of the record. */
+	public static final int SIZE = TYPE_SIZE_LONG // MonitoringLevelChangeRecord.timestamp
+			 + TYPE_SIZE_STRING // MonitoringLevelChangeRecord.hostname
+			 + TYPE_SIZE_STRING // MonitoringLevelChangeRecord.previousLevel
+			 + TYPE_SIZE_STRING // MonitoringLevelChangeRecord.level
+			 + TYPE_SIZE_DOUBLE // MonitoringLevelChangeRecord.overhead
+			 + TYPE_SIZE_DOUBLE // MonitoringLevelChangeRecord.backlogRatio
+			 + TYPE_SIZE_LONG // MonitoringLevelChangeRecord.rejectedRecords
+	;
+	private static final long serialVersionUID = 6356517897275651931L;
+	
+	public static final Class<?>[] TYPES = {
+		long.class, // MonitoringLevelChangeRecord.timestamp
+		String.class, // MonitoringLevelChangeRecord.hostname
+		String.class, // MonitoringLevelChangeRecord.previousLevel
+		String.class, // MonitoringLevelChangeRecord.level
+		double.class, // MonitoringLevelChangeRecord.overhead
+		double.class, // MonitoringLevelChangeRecord.backlogRatio
+		long.class, // MonitoringLevelChangeRecord.rejectedRecords
+	};
+	
+	/* user-defined constants */
+	public static final String NO_HOSTNAME = "<no-hostname>";
+	/* default constants */
+	public static final String HOSTNAME = NO_HOSTNAME;
+	/* property declarations */
+	private final long timestamp;
+	private final String hostname;
+	private final String previousLevel;
+	private final String level;
+	private final double overhead;
+	private final double backlogRatio;
+	private final long rejectedRecords;
+
+	/**
+	 * Creates a new instance of this class using the given parameters.
+	 * 
+	 * @param timestamp
+	 *            timestamp
+	 * @param hostname
+	 *            hostname
+	 * @param previousLevel
+	 *            previousLevel
+	 * @param level
+	 *            level
+	 * @param overhead
+	 *            overhead
+	 * @param backlogRatio
+	 *            backlogRatio
+	 * @param rejectedRecords
+	 *            rejectedRecords
+	 */
+	public MonitoringLevelChangeRecord(final long timestamp, final String hostname, final String previousLevel, final String level, final double overhead, final double backlogRatio, final long rejectedRecords) {
+		this.timestamp = timestamp;
+		this.hostname = hostname == null?NO_HOSTNAME:hostname;
+		this.previousLevel = previousLevel == null?"":previousLevel;
+		this.level = level == null?"":level;
+		this.overhead = overhead;
+		this.backlogRatio = backlogRatio;
+		this.rejectedRecords = rejectedRecords;
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * It is recommended to use the array which is the result of a call to {@link #toArray()}.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 */
+	public MonitoringLevelChangeRecord(final Object[] values) { // NOPMD (direct store of values)
+		AbstractMonitoringRecord.checkArray(values, TYPES);
+		this.timestamp = (Long) values[0];
+		this.hostname = (String) values[1];
+		this.previousLevel = (String) values[2];
+		this.level = (String) values[3];
+		this.overhead = (Double) values[4];
+		this.backlogRatio = (Double) values[5];
+		this.rejectedRecords = (Long) values[6];
+	}
+	
+	/**
+	 * This constructor uses the given array to initialize the fields of this record.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 * @param valueTypes
+	 *            The types of the elements in the first array.
+	 */
+	protected MonitoringLevelChangeRecord(final Object[] values, final Class<?>[] valueTypes) { // NOPMD (values stored directly)
+		AbstractMonitoringRecord.checkArray(values, valueTypes);
+		this.timestamp = (Long) values[0];
+		this.hostname = (String) values[1];
+		this.previousLevel = (String) values[2];
+		this.level = (String) values[3];
+		this.overhead = (Double) values[4];
+		this.backlogRatio = (Double) values[5];
+		this.rejectedRecords = (Long) values[6];
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * 
+	 * @param buffer
+	 *            The bytes for the record.
+	 * 
+	 * @throws BufferUnderflowException
+	 *             if buffer not sufficient
+	 */
+	public MonitoringLevelChangeRecord(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		this.timestamp = buffer.getLong();
+		this.hostname = stringRegistry.get(buffer.getInt());
+		this.previousLevel = stringRegistry.get(buffer.getInt());
+		this.level = stringRegistry.get(buffer.getInt());
+		this.overhead = buffer.getDouble();
+		this.backlogRatio = buffer.getDouble();
+		this.rejectedRecords = buffer.getLong();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object[] toArray() {
+		return new Object[] {
+			this.getTimestamp(),
+			this.getHostname(),
+			this.getPreviousLevel(),
+			this.getLevel(),
+			this.getOverhead(),
+			this.getBacklogRatio(),
+			this.getRejectedRecords()
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferOverflowException {
+		buffer.putLong(this.getTimestamp());
+		buffer.putInt(stringRegistry.get(this.getHostname()));
+		buffer.putInt(stringRegistry.get(this.getPreviousLevel()));
+		buffer.putInt(stringRegistry.get(this.getLevel()));
+		buffer.putDouble(this.getOverhead());
+		buffer.putDouble(this.getBacklogRatio());
+		buffer.putLong(this.getRejectedRecords());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?>[] getValueTypes() {
+		return TYPES; // NOPMD
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSize() {
+		return SIZE;
+	}
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.Factory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromArray(final Object[] values) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.BinaryFactory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		throw new UnsupportedOperationException();
+	}
+
+	public final long getTimestamp() {
+		return this.timestamp;
+	}
+	
+	public final String getHostname() {
+		return this.hostname;
+	}
+	
+	public final String getPreviousLevel() {
+		return this.previousLevel;
+	}
+	
+	public final String getLevel() {
+		return this.level;
+	}
+	
+	public final double getOverhead() {
+		return this.overhead;
+	}
+	
+	public final double getBacklogRatio() {
+		return this.backlogRatio;
+	}
+	
+	public final long getRejectedRecords() {
+		return this.rejectedRecords;
+	}
+	
+}
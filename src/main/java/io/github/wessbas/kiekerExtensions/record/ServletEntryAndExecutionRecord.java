@@ -0,0 +1,363 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import kieker.common.record.AbstractMonitoringRecord;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.util.registry.IRegistry;
+import kieker.common.util.Version;
+
+
+/**
+ * @author WESSBAS project
+ * 
+ * @since 1.12
+ */
+public class ServletEntryAndExecutionRecord extends AbstractMonitoringRecord implements IMonitoringRecord.Factory, IMonitoringRecord.BinaryFactory {
+	/** Descriptive definition of the serialization size of the record. */
+	public static final int SIZE = TYPE_SIZE_LONG // ServletEntryAndExecutionRecord.traceId
+			 + TYPE_SIZE_STRING // ServletEntryAndExecutionRecord.sessionId
+			 + TYPE_SIZE_STRING // ServletEntryAndExecutionRecord.useCase
+			 + TYPE_SIZE_LONG // ServletEntryAndExecutionRecord.tin
+			 + TYPE_SIZE_LONG // ServletEntryAndExecutionRecord.tout
+			 + TYPE_SIZE_STRING // ServletEntryAndExecutionRecord.hostname
+			 + TYPE_SIZE_STRING // ServletEntryAndExecutionRecord.uri
+			 + TYPE_SIZE_INT // ServletEntryAndExecutionRecord.port
+			 + TYPE_SIZE_STRING // ServletEntryAndExecutionRecord.host
+			 + TYPE_SIZE_STRING // ServletEntryAndExecutionRecord.protocol
+			 + TYPE_SIZE_STRING // ServletEntryAndExecutionRecord.method
+			 + TYPE_SIZE_STRING // ServletEntryAndExecutionRecord.queryString
+			 + TYPE_SIZE_STRING // ServletEntryAndExecutionRecord.encoding
+	;
+	private static final long serialVersionUID = 7376736221681411462L;
+	
+	public static final Class<?>[] TYPES = {
+		long.class, // ServletEntryAndExecutionRecord.traceId
+		String.class, // ServletEntryAndExecutionRecord.sessionId
+		String.class, // ServletEntryAndExecutionRecord.useCase
+		long.class, // ServletEntryAndExecutionRecord.tin
+		long.class, // ServletEntryAndExecutionRecord.tout
+		String.class, // ServletEntryAndExecutionRecord.hostname
+		String.class, // ServletEntryAndExecutionRecord.uri
+		int.class, // ServletEntryAndExecutionRecord.port
+		String.class, // ServletEntryAndExecutionRecord.host
+		String.class, // ServletEntryAndExecutionRecord.protocol
+		String.class, // ServletEntryAndExecutionRecord.method
+		String.class, // ServletEntryAndExecutionRecord.queryString
+		String.class, // ServletEntryAndExecutionRecord.encoding
+	};
+	
+	/* user-defined constants */
+	public static final int NO_TRACE_ID = -1;
+	public static final String NO_SESSION_ID = "<no-session-id>";
+	public static final String NO_USE_CASE = "<no-use-case>";
+	public static final long NO_TIMESTAMP = -1;
+	public static final String NO_HOSTNAME = "<default-host>";
+	public static final String NO_URI = "<no-uri>";
+	public static final int NO_PORT = -1;
+	public static final String NO_HOST = "<no-host>";
+	public static final String NO_PROTOCOL = "<no-protocol>";
+	public static final String NO_METHOD = "<no-method>";
+	public static final String NO_QUERY_STRING = "<no-query-string>";
+	public static final String NO_ENCODING = "<no-encoding>";
+	/* default constants */
+	public static final long TRACE_ID = NO_TRACE_ID;
+	public static final String SESSION_ID = NO_SESSION_ID;
+	public static final String USE_CASE = NO_USE_CASE;
+	public static final long TIN = NO_TIMESTAMP;
+	public static final long TOUT = NO_TIMESTAMP;
+	public static final String HOSTNAME = NO_HOSTNAME;
+	public static final String URI = NO_URI;
+	public static final int PORT = NO_PORT;
+	public static final String HOST = NO_HOST;
+	public static final String PROTOCOL = NO_PROTOCOL;
+	public static final String METHOD = NO_METHOD;
+	public static final String QUERY_STRING = NO_QUERY_STRING;
+	public static final String ENCODING = NO_ENCODING;
+	/* property declarations */
+	private final long traceId;
+	private final String sessionId;
+	private final String useCase;
+	private final long tin;
+	private final long tout;
+	private final String hostname;
+	private final String uri;
+	private final int port;
+	private final String host;
+	private final String protocol;
+	private final String method;
+	private final String queryString;
+	private final String encoding;
+
+	/**
+	 * Creates a new instance of this class using the given parameters.
+	 * 
+	 * @param traceId
+	 *            traceId
+	 * @param sessionId
+	 *            sessionId
+	 * @param useCase
+	 *            useCase
+	 * @param tin
+	 *            tin
+	 * @param tout
+	 *            tout
+	 * @param hostname
+	 *            hostname
+	 * @param uri
+	 *            uri
+	 * @param port
+	 *            port
+	 * @param host
+	 *            host
+	 * @param protocol
+	 *            protocol
+	 * @param method
+	 *            method
+	 * @param queryString
+	 *            queryString
+	 * @param encoding
+	 *            encoding
+	 */
+	public ServletEntryAndExecutionRecord(final long traceId, final String sessionId, final String useCase, final long tin, final long tout, final String hostname, final String uri, final int port, final String host, final String protocol, final String method, final String queryString, final String encoding) {
+		this.traceId = traceId;
+		this.sessionId = sessionId == null?NO_SESSION_ID:sessionId;
+		this.useCase = useCase == null?NO_USE_CASE:useCase;
+		this.tin = tin;
+		this.tout = tout;
+		this.hostname = hostname == null?NO_HOSTNAME:hostname;
+		this.uri = uri == null?NO_URI:uri;
+		this.port = port;
+		this.host = host == null?NO_HOST:host;
+		this.protocol = protocol == null?NO_PROTOCOL:protocol;
+		this.method = method == null?NO_METHOD:method;
+		this.queryString = queryString == null?NO_QUERY_STRING:queryString;
+		this.encoding = encoding == null?NO_ENCODING:encoding;
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * It is recommended to use the array which is the result of a call to {@link #toArray()}.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 */
+	public ServletEntryAndExecutionRecord(final Object[] values) { // NOPMD (direct store of values)
+		AbstractMonitoringRecord.checkArray(values, TYPES);
+		this.traceId = (Long) values[0];
+		this.sessionId = (String) values[1];
+		this.useCase = (String) values[2];
+		this.tin = (Long) values[3];
+		this.tout = (Long) values[4];
+		this.hostname = (String) values[5];
+		this.uri = (String) values[6];
+		this.port = (Integer) values[7];
+		this.host = (String) values[8];
+		this.protocol = (String) values[9];
+		this.method = (String) values[10];
+		this.queryString = (String) values[11];
+		this.encoding = (String) values[12];
+	}
+	
+	/**
+	 * This constructor uses the given array to initialize the fields of this record.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 * @param valueTypes
+	 *            The types of the elements in the first array.
+	 */
+	protected ServletEntryAndExecutionRecord(final Object[] values, final Class<?>[] valueTypes) { // NOPMD (values stored directly)
+		AbstractMonitoringRecord.checkArray(values, valueTypes);
+		this.traceId = (Long) values[0];
+		this.sessionId = (String) values[1];
+		this.useCase = (String) values[2];
+		this.tin = (Long) values[3];
+		this.tout = (Long) values[4];
+		this.hostname = (String) values[5];
+		this.uri = (String) values[6];
+		this.port = (Integer) values[7];
+		this.host = (String) values[8];
+		this.protocol = (String) values[9];
+		this.method = (String) values[10];
+		this.queryString = (String) values[11];
+		this.encoding = (String) values[12];
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * 
+	 * @param buffer
+	 *            The bytes for the record.
+	 * 
+	 * @throws BufferUnderflowException
+	 *             if buffer not sufficient
+	 */
+	public ServletEntryAndExecutionRecord(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		this.traceId = buffer.getLong();
+		this.sessionId = stringRegistry.get(buffer.getInt());
+		this.useCase = stringRegistry.get(buffer.getInt());
+		this.tin = buffer.getLong();
+		this.tout = buffer.getLong();
+		this.hostname = stringRegistry.get(buffer.getInt());
+		this.uri = stringRegistry.get(buffer.getInt());
+		this.port = buffer.getInt();
+		this.host = stringRegistry.get(buffer.getInt());
+		this.protocol = stringRegistry.get(buffer.getInt());
+		this.method = stringRegistry.get(buffer.getInt());
+		this.queryString = stringRegistry.get(buffer.getInt());
+		this.encoding = stringRegistry.get(buffer.getInt());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object[] toArray() {
+		return new Object[] {
+			this.getTraceId(),
+			this.getSessionId(),
+			this.getUseCase(),
+			this.getTin(),
+			this.getTout(),
+			this.getHostname(),
+			this.getUri(),
+			this.getPort(),
+			this.getHost(),
+			this.getProtocol(),
+			this.getMethod(),
+			this.getQueryString(),
+			this.getEncoding()
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferOverflowException {
+		buffer.putLong(this.getTraceId());
+		buffer.putInt(stringRegistry.get(this.getSessionId()));
+		buffer.putInt(stringRegistry.get(this.getUseCase()));
+		buffer.putLong(this.getTin());
+		buffer.putLong(this.getTout());
+		buffer.putInt(stringRegistry.get(this.getHostname()));
+		buffer.putInt(stringRegistry.get(this.getUri()));
+		buffer.putInt(this.getPort());
+		buffer.putInt(stringRegistry.get(this.getHost()));
+		buffer.putInt(stringRegistry.get(this.getProtocol()));
+		buffer.putInt(stringRegistry.get(this.getMethod()));
+		buffer.putInt(stringRegistry.get(this.getQueryString()));
+		buffer.putInt(stringRegistry.get(this.getEncoding()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?>[] getValueTypes() {
+		return TYPES; // NOPMD
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSize() {
+		return SIZE;
+	}
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.Factory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromArray(final Object[] values) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.BinaryFactory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		throw new UnsupportedOperationException();
+	}
+
+	public final long getTraceId() {
+		return this.traceId;
+	}
+	
+	public final String getSessionId() {
+		return this.sessionId;
+	}
+	
+	public final String getUseCase() {
+		return this.useCase;
+	}
+	
+	public final long getTin() {
+		return this.tin;
+	}
+	
+	public final long getTout() {
+		return this.tout;
+	}
+	
+	public final String getHostname() {
+		return this.hostname;
+	}
+	
+	public final String getUri() {
+		return this.uri;
+	}
+	
+	public final int getPort() {
+		return this.port;
+	}
+	
+	public final String getHost() {
+		return this.host;
+	}
+	
+	public final String getProtocol() {
+		return this.protocol;
+	}
+	
+	public final String getMethod() {
+		return this.method;
+	}
+	
+	public final String getQueryString() {
+		return this.queryString;
+	}
+	
+	public final String getEncoding() {
+		return this.encoding;
+	}
+	
+}
@@ -0,0 +1,64 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import kieker.common.record.controlflow.OperationExecutionRecord;
+
+/**
+ * Converts a {@link ServletEntryAndExecutionRecord} into the {@link ServletEntryRecord} and
+ * {@link OperationExecutionRecord} that the servlet filter writes in its classic mode, so that analyses built for the
+ * classic records can consume logs written in merged mode.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class ServletEntryAndExecutionRecordAdapter {
+
+	private ServletEntryAndExecutionRecordAdapter() {
+		// utility class
+	}
+
+	/**
+	 * @param record
+	 *            The merged record.
+	 *
+	 * @return The servlet entry part of the given record, with the same logging timestamp.
+	 */
+	public static ServletEntryRecord toServletEntryRecord(final ServletEntryAndExecutionRecord record) {
+		final ServletEntryRecord entryRecord = new ServletEntryRecord(record.getTraceId(), record.getUri(), record.getPort(), record.getHost(),
+				record.getProtocol(), record.getMethod(), record.getQueryString(), record.getEncoding());
+		entryRecord.setLoggingTimestamp(record.getLoggingTimestamp());
+		return entryRecord;
+	}
+
+	/**
+	 * @param record
+	 *            The merged record.
+	 *
+	 * @return The execution part of the given record as the application entry point (eoi and ess 0), with the same
+	 *         logging timestamp.
+	 */
+	public static OperationExecutionRecord toOperationExecutionRecord(final ServletEntryAndExecutionRecord record) {
+		final OperationExecutionRecord executionRecord = new OperationExecutionRecord(record.getUseCase(), record.getSessionId(), record.getTraceId(),
+				record.getTin(), record.getTout(), record.getHostname(), 0, 0);
+		executionRecord.setLoggingTimestamp(record.getLoggingTimestamp());
+		return executionRecord;
+	}
+}
@@ -0,0 +1,193 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import kieker.common.record.AbstractMonitoringRecord;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.util.registry.IRegistry;
+import kieker.common.util.Version;
+
+
+/**
+ * @author WESSBAS project
+ * 
+ * @since 1.12
+ */
+public class ServletResourceUsageRecord extends AbstractMonitoringRecord implements IMonitoringRecord.Factory, IMonitoringRecord.BinaryFactory {
+	/** Descriptive definition of the serialization size of the record. */
+	public static final int SIZE = TYPE_SIZE_LONG // ServletResourceUsageRecord.traceId
+			 + TYPE_SIZE_LONG // ServletResourceUsageRecord.cpuTime
+			 + TYPE_SIZE_LONG // ServletResourceUsageRecord.allocatedBytes
+	;
+	private static final long serialVersionUID = 4069605684593380100L;
+	
+	public static final Class<?>[] TYPES = {
+		long.class, // ServletResourceUsageRecord.traceId
+		long.class, // ServletResourceUsageRecord.cpuTime
+		long.class, // ServletResourceUsageRecord.allocatedBytes
+	};
+	
+	/* user-defined constants */
+	public static final int NO_TRACE_ID = -1;
+	public static final int NOT_MEASURED = -1;
+	/* default constants */
+	public static final long TRACE_ID = NO_TRACE_ID;
+	public static final long CPU_TIME = NOT_MEASURED;
+	public static final long ALLOCATED_BYTES = NOT_MEASURED;
+	/* property declarations */
+	private final long traceId;
+	private final long cpuTime;
+	private final long allocatedBytes;
+
+	/**
+	 * Creates a new instance of this class using the given parameters.
+	 * 
+	 * @param traceId
+	 *            traceId
+	 * @param cpuTime
+	 *            cpuTime
+	 * @param allocatedBytes
+	 *            allocatedBytes
+	 */
+	public ServletResourceUsageRecord(final long traceId, final long cpuTime, final long allocatedBytes) {
+		this.traceId = traceId;
+		this.cpuTime = cpuTime;
+		this.allocatedBytes = allocatedBytes;
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * It is recommended to use the array which is the result of a call to {@link #toArray()}.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 */
+	public ServletResourceUsageRecord(final Object[] values) { // NOPMD (direct store of values)
+		AbstractMonitoringRecord.checkArray(values, TYPES);
+		this.traceId = (Long) values[0];
+		this.cpuTime = (Long) values[1];
+		this.allocatedBytes = (Long) values[2];
+	}
+	
+	/**
+	 * This constructor uses the given array to initialize the fields of this record.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 * @param valueTypes
+	 *            The types of the elements in the first array.
+	 */
+	protected ServletResourceUsageRecord(final Object[] values, final Class<?>[] valueTypes) { // NOPMD (values stored directly)
+		AbstractMonitoringRecord.checkArray(values, valueTypes);
+		this.traceId = (Long) values[0];
+		this.cpuTime = (Long) values[1];
+		this.allocatedBytes = (Long) values[2];
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * 
+	 * @param buffer
+	 *            The bytes for the record.
+	 * 
+	 * @throws BufferUnderflowException
+	 *             if buffer not sufficient
+	 */
+	public ServletResourceUsageRecord(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		this.traceId = buffer.getLong();
+		this.cpuTime = buffer.getLong();
+		this.allocatedBytes = buffer.getLong();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object[] toArray() {
+		return new Object[] {
+			this.getTraceId(),
+			this.getCpuTime(),
+			this.getAllocatedBytes()
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferOverflowException {
+		buffer.putLong(this.getTraceId());
+		buffer.putLong(this.getCpuTime());
+		buffer.putLong(this.getAllocatedBytes());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?>[] getValueTypes() {
+		return TYPES; // NOPMD
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSize() {
+		return SIZE;
+	}
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.Factory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromArray(final Object[] values) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.BinaryFactory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		throw new UnsupportedOperationException();
+	}
+
+	public final long getTraceId() {
+		return this.traceId;
+	}
+	
+	public final long getCpuTime() {
+		return this.cpuTime;
+	}
+	
+	public final long getAllocatedBytes() {
+		return this.allocatedBytes;
+	}
+	
+}
@@ -0,0 +1,46 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import java.nio.ByteBuffer;
+
+import kieker.common.record.factory.IRecordFactory;
+import kieker.common.util.registry.IRegistry;
+
+/**
+ * @author WESSBAS project
+ * 
+ * @since 1.12
+ */
+public final class ServletResourceUsageRecordFactory implements IRecordFactory<ServletResourceUsageRecord> {
+	
+	@Override
+	public ServletResourceUsageRecord create(final ByteBuffer buffer, final IRegistry<String> stringRegistry) {
+		return new ServletResourceUsageRecord(buffer, stringRegistry);
+	}
+	
+	@Override
+	public ServletResourceUsageRecord create(final Object[] values) {
+		return new ServletResourceUsageRecord(values);
+	}
+	
+	public int getRecordSizeInBytes() {
+		return ServletResourceUsageRecord.SIZE;
+	}
+}
@@ -0,0 +1,205 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import kieker.common.record.AbstractMonitoringRecord;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.util.registry.IRegistry;
+import kieker.common.util.Version;
+
+
+/**
+ * @author WESSBAS project
+ * 
+ * @since 1.12
+ */
+public class SessionCreatedRecord extends AbstractMonitoringRecord implements IMonitoringRecord.Factory, IMonitoringRecord.BinaryFactory {
+	/** Descriptive definition of the serialization size of the record. */
+	public static final int SIZE = TYPE_SIZE_LONG // SessionCreatedRecord.timestamp
+			 + TYPE_SIZE_STRING // SessionCreatedRecord.hostname
+			 + TYPE_SIZE_LONG // SessionCreatedRecord.sessionKey
+			 + TYPE_SIZE_INT // SessionCreatedRecord.maxInactiveInterval
+	;
+	private static final long serialVersionUID = 8095828760206344796L;
+	
+	public static final Class<?>[] TYPES = {
+		long.class, // SessionCreatedRecord.timestamp
+		String.class, // SessionCreatedRecord.hostname
+		long.class, // SessionCreatedRecord.sessionKey
+		int.class, // SessionCreatedRecord.maxInactiveInterval
+	};
+	
+	/* user-defined constants */
+	public static final String NO_HOSTNAME = "<no-hostname>";
+	/* default constants */
+	public static final String HOSTNAME = NO_HOSTNAME;
+	/* property declarations */
+	private final long timestamp;
+	private final String hostname;
+	private final long sessionKey;
+	private final int maxInactiveInterval;
+
+	/**
+	 * Creates a new instance of this class using the given parameters.
+	 * 
+	 * @param timestamp
+	 *            timestamp
+	 * @param hostname
+	 *            hostname
+	 * @param sessionKey
+	 *            sessionKey
+	 * @param maxInactiveInterval
+	 *            maxInactiveInterval
+	 */
+	public SessionCreatedRecord(final long timestamp, final String hostname, final long sessionKey, final int maxInactiveInterval) {
+		this.timestamp = timestamp;
+		this.hostname = hostname == null?NO_HOSTNAME:hostname;
+		this.sessionKey = sessionKey;
+		this.maxInactiveInterval = maxInactiveInterval;
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * It is recommended to use the array which is the result of a call to {@link #toArray()}.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 */
+	public SessionCreatedRecord(final Object[] values) { // NOPMD (direct store of values)
+		AbstractMonitoringRecord.checkArray(values, TYPES);
+		this.timestamp = (Long) values[0];
+		this.hostname = (String) values[1];
+		this.sessionKey = (Long) values[2];
+		this.maxInactiveInterval = (Integer) values[3];
+	}
+	
+	/**
+	 * This constructor uses the given array to initialize the fields of this record.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 * @param valueTypes
+	 *            The types of the elements in the first array.
+	 */
+	protected SessionCreatedRecord(final Object[] values, final Class<?>[] valueTypes) { // NOPMD (values stored directly)
+		AbstractMonitoringRecord.checkArray(values, valueTypes);
+		this.timestamp = (Long) values[0];
+		this.hostname = (String) values[1];
+		this.sessionKey = (Long) values[2];
+		this.maxInactiveInterval = (Integer) values[3];
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * 
+	 * @param buffer
+	 *            The bytes for the record.
+	 * 
+	 * @throws BufferUnderflowException
+	 *             if buffer not sufficient
+	 */
+	public SessionCreatedRecord(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		this.timestamp = buffer.getLong();
+		this.hostname = stringRegistry.get(buffer.getInt());
+		this.sessionKey = buffer.getLong();
+		this.maxInactiveInterval = buffer.getInt();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object[] toArray() {
+		return new Object[] {
+			this.getTimestamp(),
+			this.getHostname(),
+			this.getSessionKey(),
+			this.getMaxInactiveInterval()
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferOverflowException {
+		buffer.putLong(this.getTimestamp());
+		buffer.putInt(stringRegistry.get(this.getHostname()));
+		buffer.putLong(this.getSessionKey());
+		buffer.putInt(this.getMaxInactiveInterval());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?>[] getValueTypes() {
+		return TYPES; // NOPMD
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSize() {
+		return SIZE;
+	}
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.Factory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromArray(final Object[] values) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.BinaryFactory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		throw new UnsupportedOperationException();
+	}
+
+	public final long getTimestamp() {
+		return this.timestamp;
+	}
+	
+	public final String getHostname() {
+		return this.hostname;
+	}
+	
+	public final long getSessionKey() {
+		return this.sessionKey;
+	}
+	
+	public final int getMaxInactiveInterval() {
+		return this.maxInactiveInterval;
+	}
+	
+}
@@ -0,0 +1,122 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import kieker.common.record.controlflow.OperationExecutionRecord;
+
+/**
+ * Compact keys of HTTP sessions, shared by {@link SessionCreatedRecord}, {@link SessionDestroyedRecord} and the session
+ * IDs of the request records.
+ *
+ * The key of a session is the 64-bit FNV-1a hash of its ID. It is computed independently by the session listener and
+ * the servlet filter, so that no state has to be shared between them, and it lets analyses index sessions by a
+ * {@code long} instead of the ID string. Collisions are negligible for the number of sessions in a log (about
+ * {@code n^2 / 2^65}).
+ *
+ * The servlet filter can record the {@linkplain #format(long) formatted key} in place of the session ID, which keeps the
+ * IDs (which are credentials) out of the logs. {@link #fromRecordedSessionId(String)} maps both representations to the
+ * key.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class SessionKeys {
+
+	/** The key of requests without a session; never the key of a session. */
+	public static final long NO_SESSION_KEY = 0L;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private static final int FORMATTED_LENGTH = 16;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private SessionKeys() {
+		// utility class
+	}
+
+	/**
+	 * @param sessionId
+	 *            The ID of a session.
+	 *
+	 * @return The key of the session; {@link #NO_SESSION_KEY} if the ID is {@code null}.
+	 */
+	public static long of(final String sessionId) {
+		if (sessionId == null) {
+			return NO_SESSION_KEY;
+		}
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < sessionId.length(); i++) {
+			hash ^= sessionId.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		return (hash == NO_SESSION_KEY) ? 1L : hash; // NOCS (reserve the value of NO_SESSION_KEY)
+	}
+
+	/**
+	 * @param key
+	 *            A session key.
+	 *
+	 * @return The key as 16 lower-case hexadecimal digits.
+	 */
+	public static String format(final long key) {
+		final char[] digits = new char[FORMATTED_LENGTH];
+		long remaining = key;
+		for (int i = FORMATTED_LENGTH - 1; i >= 0; i--) {
+			digits[i] = HEX_DIGITS[(int) (remaining & 0xF)];
+			remaining >>>= 4;
+		}
+		return new String(digits);
+	}
+
+	/**
+	 * Maps a session ID as found in a record to the session key. A {@linkplain #format(long) formatted key} is parsed;
+	 * any other value is taken as a raw session ID and hashed. Raw IDs of exactly 16 lower-case hexadecimal digits would
+	 * be mistaken for keys, but the common servlet containers use longer IDs.
+	 *
+	 * @param recordedSessionId
+	 *            The session ID of a record, may be {@code null} or
+	 *            {@link OperationExecutionRecord#NO_SESSION_ID}.
+	 *
+	 * @return The session key; {@link #NO_SESSION_KEY} if the record belongs to no session.
+	 */
+	public static long fromRecordedSessionId(final String recordedSessionId) {
+		if ((recordedSessionId == null) || OperationExecutionRecord.NO_SESSION_ID.equals(recordedSessionId)) {
+			return NO_SESSION_KEY;
+		}
+		if (recordedSessionId.length() != FORMATTED_LENGTH) {
+			return SessionKeys.of(recordedSessionId);
+		}
+		long key = 0;
+		for (int i = 0; i < FORMATTED_LENGTH; i++) {
+			final char c = recordedSessionId.charAt(i);
+			final int digit;
+			if ((c >= '0') && (c <= '9')) {
+				digit = c - '0';
+			} else if ((c >= 'a') && (c <= 'f')) {
+				digit = (c - 'a') + 10;
+			} else {
+				return SessionKeys.of(recordedSessionId);
+			}
+			key = (key << 4) | digit;
+		}
+		return key;
+	}
+}
@@ -0,0 +1,237 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import kieker.common.record.AbstractMonitoringRecord;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.util.registry.IRegistry;
+import kieker.common.util.Version;
+
+
+/**
+ * @author WESSBAS project
+ * 
+ * @since 1.12
+ */
+public class ThreadPoolStatusRecord extends AbstractMonitoringRecord implements IMonitoringRecord.Factory, IMonitoringRecord.BinaryFactory {
+	/** Descriptive definition of the serialization size of the record. */
+	public static final int SIZE = TYPE_SIZE_LONG // ThreadPoolStatusRecord.timestamp
+			 + TYPE_SIZE_STRING // ThreadPoolStatusRecord.hostname
+			 + TYPE_SIZE_STRING // ThreadPoolStatusRecord.poolName
+			 + TYPE_SIZE_INT // ThreadPoolStatusRecord.currentThreadsBusy
+			 + TYPE_SIZE_INT // ThreadPoolStatusRecord.currentThreadCount
+			 + TYPE_SIZE_INT // ThreadPoolStatusRecord.maxThreads
+	;
+	private static final long serialVersionUID = 2152496417621697161L;
+	
+	public static final Class<?>[] TYPES = {
+		long.class, // ThreadPoolStatusRecord.timestamp
+		String.class, // ThreadPoolStatusRecord.hostname
+		String.class, // ThreadPoolStatusRecord.poolName
+		int.class, // ThreadPoolStatusRecord.currentThreadsBusy
+		int.class, // ThreadPoolStatusRecord.currentThreadCount
+		int.class, // ThreadPoolStatusRecord.maxThreads
+	};
+	
+	/* user-defined constants */
+	public static final String NO_HOSTNAME = "<no-hostname>";
+	public static final String NO_POOL_NAME = "<no-pool-name>";
+	/* default constants */
+	public static final String HOSTNAME = NO_HOSTNAME;
+	public static final String POOL_NAME = NO_POOL_NAME;
+	/* property declarations */
+	private final long timestamp;
+	private final String hostname;
+	private final String poolName;
+	private final int currentThreadsBusy;
+	private final int currentThreadCount;
+	private final int maxThreads;
+
+	/**
+	 * Creates a new instance of this class using the given parameters.
+	 * 
+	 * @param timestamp
+	 *            timestamp
+	 * @param hostname
+	 *            hostname
+	 * @param poolName
+	 *            poolName
+	 * @param currentThreadsBusy
+	 *            currentThreadsBusy
+	 * @param currentThreadCount
+	 *            currentThreadCount
+	 * @param maxThreads
+	 *            maxThreads
+	 */
+	public ThreadPoolStatusRecord(final long timestamp, final String hostname, final String poolName, final int currentThreadsBusy, final int currentThreadCount, final int maxThreads) {
+		this.timestamp = timestamp;
+		this.hostname = hostname == null?NO_HOSTNAME:hostname;
+		this.poolName = poolName == null?NO_POOL_NAME:poolName;
+		this.currentThreadsBusy = currentThreadsBusy;
+		this.currentThreadCount = currentThreadCount;
+		this.maxThreads = maxThreads;
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * It is recommended to use the array which is the result of a call to {@link #toArray()}.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 */
+	public ThreadPoolStatusRecord(final Object[] values) { // NOPMD (direct store of values)
+		AbstractMonitoringRecord.checkArray(values, TYPES);
+		this.timestamp = (Long) values[0];
+		this.hostname = (String) values[1];
+		this.poolName = (String) values[2];
+		this.currentThreadsBusy = (Integer) values[3];
+		this.currentThreadCount = (Integer) values[4];
+		this.maxThreads = (Integer) values[5];
+	}
+	
+	/**
+	 * This constructor uses the given array to initialize the fields of this record.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 * @param valueTypes
+	 *            The types of the elements in the first array.
+	 */
+	protected ThreadPoolStatusRecord(final Object[] values, final Class<?>[] valueTypes) { // NOPMD (values stored directly)
+		AbstractMonitoringRecord.checkArray(values, valueTypes);
+		this.timestamp = (Long) values[0];
+		this.hostname = (String) values[1];
+		this.poolName = (String) values[2];
+		this.currentThreadsBusy = (Integer) values[3];
+		this.currentThreadCount = (Integer) values[4];
+		this.maxThreads = (Integer) values[5];
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * 
+	 * @param buffer
+	 *            The bytes for the record.
+	 * 
+	 * @throws BufferUnderflowException
+	 *             if buffer not sufficient
+	 */
+	public ThreadPoolStatusRecord(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		this.timestamp = buffer.getLong();
+		this.hostname = stringRegistry.get(buffer.getInt());
+		this.poolName = stringRegistry.get(buffer.getInt());
+		this.currentThreadsBusy = buffer.getInt();
+		this.currentThreadCount = buffer.getInt();
+		this.maxThreads = buffer.getInt();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object[] toArray() {
+		return new Object[] {
+			this.getTimestamp(),
+			this.getHostname(),
+			this.getPoolName(),
+			this.getCurrentThreadsBusy(),
+			this.getCurrentThreadCount(),
+			this.getMaxThreads()
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferOverflowException {
+		buffer.putLong(this.getTimestamp());
+		buffer.putInt(stringRegistry.get(this.getHostname()));
+		buffer.putInt(stringRegistry.get(this.getPoolName()));
+		buffer.putInt(this.getCurrentThreadsBusy());
+		buffer.putInt(this.getCurrentThreadCount());
+		buffer.putInt(this.getMaxThreads());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?>[] getValueTypes() {
+		return TYPES; // NOPMD
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSize() {
+		return SIZE;
+	}
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.Factory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromArray(final Object[] values) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.BinaryFactory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		throw new UnsupportedOperationException();
+	}
+
+	public final long getTimestamp() {
+		return this.timestamp;
+	}
+	
+	public final String getHostname() {
+		return this.hostname;
+	}
+	
+	public final String getPoolName() {
+		return this.poolName;
+	}
+	
+	public final int getCurrentThreadsBusy() {
+		return this.currentThreadsBusy;
+	}
+	
+	public final int getCurrentThreadCount() {
+		return this.currentThreadCount;
+	}
+	
+	public final int getMaxThreads() {
+		return this.maxThreads;
+	}
+	
+}
@@ -0,0 +1,342 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import kieker.common.record.AbstractMonitoringRecord;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.util.registry.IRegistry;
+import kieker.common.util.Version;
+
+
+/**
+ * @author WESSBAS project
+ * 
+ * @since 1.12
+ */
+public class UseCaseSummaryRecord extends AbstractMonitoringRecord implements IMonitoringRecord.Factory, IMonitoringRecord.BinaryFactory {
+	/** Descriptive definition of the serialization size of the record. */
+	public static final int SIZE = TYPE_SIZE_STRING // UseCaseSummaryRecord.hostname
+			 + TYPE_SIZE_STRING // UseCaseSummaryRecord.useCase
+			 + TYPE_SIZE_LONG // UseCaseSummaryRecord.intervalStart
+			 + TYPE_SIZE_LONG // UseCaseSummaryRecord.intervalEnd
+			 + TYPE_SIZE_LONG // UseCaseSummaryRecord.count
+			 + TYPE_SIZE_DOUBLE // UseCaseSummaryRecord.throughput
+			 + TYPE_SIZE_DOUBLE // UseCaseSummaryRecord.mean
+			 + TYPE_SIZE_LONG // UseCaseSummaryRecord.min
+			 + TYPE_SIZE_LONG // UseCaseSummaryRecord.p50
+			 + TYPE_SIZE_LONG // UseCaseSummaryRecord.p90
+			 + TYPE_SIZE_LONG // UseCaseSummaryRecord.p95
+			 + TYPE_SIZE_LONG // UseCaseSummaryRecord.p99
+			 + TYPE_SIZE_LONG // UseCaseSummaryRecord.max
+	;
+	private static final long serialVersionUID = 5876767383442797874L;
+	
+	public static final Class<?>[] TYPES = {
+		String.class, // UseCaseSummaryRecord.hostname
+		String.class, // UseCaseSummaryRecord.useCase
+		long.class, // UseCaseSummaryRecord.intervalStart
+		long.class, // UseCaseSummaryRecord.intervalEnd
+		long.class, // UseCaseSummaryRecord.count
+		double.class, // UseCaseSummaryRecord.throughput
+		double.class, // UseCaseSummaryRecord.mean
+		long.class, // UseCaseSummaryRecord.min
+		long.class, // UseCaseSummaryRecord.p50
+		long.class, // UseCaseSummaryRecord.p90
+		long.class, // UseCaseSummaryRecord.p95
+		long.class, // UseCaseSummaryRecord.p99
+		long.class, // UseCaseSummaryRecord.max
+	};
+	
+	/* user-defined constants */
+	public static final String NO_HOSTNAME = "<no-hostname>";
+	public static final String NO_USE_CASE = "<no-use-case>";
+	/* default constants */
+	public static final String HOSTNAME = NO_HOSTNAME;
+	public static final String USE_CASE = NO_USE_CASE;
+	/* property declarations */
+	private final String hostname;
+	private final String useCase;
+	private final long intervalStart;
+	private final long intervalEnd;
+	private final long count;
+	private final double throughput;
+	private final double mean;
+	private final long min;
+	private final long p50;
+	private final long p90;
+	private final long p95;
+	private final long p99;
+	private final long max;
+
+	/**
+	 * Creates a new instance of this class using the given parameters.
+	 * 
+	 * @param hostname
+	 *            hostname
+	 * @param useCase
+	 *            useCase
+	 * @param intervalStart
+	 *            intervalStart
+	 * @param intervalEnd
+	 *            intervalEnd
+	 * @param count
+	 *            count
+	 * @param throughput
+	 *            throughput
+	 * @param mean
+	 *            mean
+	 * @param min
+	 *            min
+	 * @param p50
+	 *            p50
+	 * @param p90
+	 *            p90
+	 * @param p95
+	 *            p95
+	 * @param p99
+	 *            p99
+	 * @param max
+	 *            max
+	 */
+	public UseCaseSummaryRecord(final String hostname, final String useCase, final long intervalStart, final long intervalEnd, final long count, final double throughput, final double mean, final long min, final long p50, final long p90, final long p95, final long p99, final long max) {
+		this.hostname = hostname == null?NO_HOSTNAME:hostname;
+		this.useCase = useCase == null?NO_USE_CASE:useCase;
+		this.intervalStart = intervalStart;
+		this.intervalEnd = intervalEnd;
+		this.count = count;
+		this.throughput = throughput;
+		this.mean = mean;
+		this.min = min;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p95 = p95;
+		this.p99 = p99;
+		this.max = max;
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * It is recommended to use the array which is the result of a call to {@link #toArray()}.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 */
+	public UseCaseSummaryRecord(final Object[] values) { // NOPMD (direct store of values)
+		AbstractMonitoringRecord.checkArray(values, TYPES);
+		this.hostname = (String) values[0];
+		this.useCase = (String) values[1];
+		this.intervalStart = (Long) values[2];
+		this.intervalEnd = (Long) values[3];
+		this.count = (Long) values[4];
+		this.throughput = (Double) values[5];
+		this.mean = (Double) values[6];
+		this.min = (Long) values[7];
+		this.p50 = (Long) values[8];
+		this.p90 = (Long) values[9];
+		this.p95 = (Long) values[10];
+		this.p99 = (Long) values[11];
+		this.max = (Long) values[12];
+	}
+	
+	/**
+	 * This constructor uses the given array to initialize the fields of this record.
+	 * 
+	 * @param values
+	 *            The values for the record.
+	 * @param valueTypes
+	 *            The types of the elements in the first array.
+	 */
+	protected UseCaseSummaryRecord(final Object[] values, final Class<?>[] valueTypes) { // NOPMD (values stored directly)
+		AbstractMonitoringRecord.checkArray(values, valueTypes);
+		this.hostname = (String) values[0];
+		this.useCase = (String) values[1];
+		this.intervalStart = (Long) values[2];
+		this.intervalEnd = (Long) values[3];
+		this.count = (Long) values[4];
+		this.throughput = (Double) values[5];
+		this.mean = (Double) values[6];
+		this.min = (Long) values[7];
+		this.p50 = (Long) values[8];
+		this.p90 = (Long) values[9];
+		this.p95 = (Long) values[10];
+		this.p99 = (Long) values[11];
+		this.max = (Long) values[12];
+	}
+
+	/**
+	 * This constructor converts the given array into a record.
+	 * 
+	 * @param buffer
+	 *            The bytes for the record.
+	 * 
+	 * @throws BufferUnderflowException
+	 *             if buffer not sufficient
+	 */
+	public UseCaseSummaryRecord(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		this.hostname = stringRegistry.get(buffer.getInt());
+		this.useCase = stringRegistry.get(buffer.getInt());
+		this.intervalStart = buffer.getLong();
+		this.intervalEnd = buffer.getLong();
+		this.count = buffer.getLong();
+		this.throughput = buffer.getDouble();
+		this.mean = buffer.getDouble();
+		this.min = buffer.getLong();
+		this.p50 = buffer.getLong();
+		this.p90 = buffer.getLong();
+		this.p95 = buffer.getLong();
+		this.p99 = buffer.getLong();
+		this.max = buffer.getLong();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object[] toArray() {
+		return new Object[] {
+			this.getHostname(),
+			this.getUseCase(),
+			this.getIntervalStart(),
+			this.getIntervalEnd(),
+			this.getCount(),
+			this.getThroughput(),
+			this.getMean(),
+			this.getMin(),
+			this.getP50(),
+			this.getP90(),
+			this.getP95(),
+			this.getP99(),
+			this.getMax()
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferOverflowException {
+		buffer.putInt(stringRegistry.get(this.getHostname()));
+		buffer.putInt(stringRegistry.get(this.getUseCase()));
+		buffer.putLong(this.getIntervalStart());
+		buffer.putLong(this.getIntervalEnd());
+		buffer.putLong(this.getCount());
+		buffer.putDouble(this.getThroughput());
+		buffer.putDouble(this.getMean());
+		buffer.putLong(this.getMin());
+		buffer.putLong(this.getP50());
+		buffer.putLong(this.getP90());
+		buffer.putLong(this.getP95());
+		buffer.putLong(this.getP99());
+		buffer.putLong(this.getMax());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?>[] getValueTypes() {
+		return TYPES; // NOPMD
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSize() {
+		return SIZE;
+	}
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.Factory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromArray(final Object[] values) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @deprecated This record uses the {@link kieker.common.record.IMonitoringRecord.BinaryFactory} mechanism. Hence, this method is not implemented.
+	 */
+	@Override
+	@Deprecated
+	public void initFromBytes(final ByteBuffer buffer, final IRegistry<String> stringRegistry) throws BufferUnderflowException {
+		throw new UnsupportedOperationException();
+	}
+
+	public final String getHostname() {
+		return this.hostname;
+	}
+	
+	public final String getUseCase() {
+		return this.useCase;
+	}
+	
+	public final long getIntervalStart() {
+		return this.intervalStart;
+	}
+	
+	public final long getIntervalEnd() {
+		return this.intervalEnd;
+	}
+	
+	public final long getCount() {
+		return this.count;
+	}
+	
+	public final double getThroughput() {
+		return this.throughput;
+	}
+	
+	public final double getMean() {
+		return this.mean;
+	}
+	
+	public final long getMin() {
+		return this.min;
+	}
+	
+	public final long getP50() {
+		return this.p50;
+	}
+	
+	public final long getP90() {
+		return this.p90;
+	}
+	
+	public final long getP95() {
+		return this.p95;
+	}
+	
+	public final long getP99() {
+		return this.p99;
+	}
+	
+	public final long getMax() {
+		return this.max;
+	}
+	
+}
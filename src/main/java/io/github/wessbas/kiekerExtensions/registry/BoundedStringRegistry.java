@@ -0,0 +1,250 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.registry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import kieker.common.record.misc.RegistryRecord;
+import kieker.common.util.registry.IMonitoringRecordReceivedListener;
+import kieker.common.util.registry.IRegistry;
+
+/**
+ * A string registry with a fixed capacity for high-cardinality values such as query strings and URIs.
+ *
+ * IDs are handed out in ascending order, starting at {@code baseId}, and are never reused: an ID denotes the same
+ * string for the whole log, no matter when a record using it is serialized or how the writer orders the registry
+ * records relative to the other records. The range starting at {@code baseId} must be disjoint from the IDs of the
+ * regular string registry.
+ *
+ * Only the memory of the registry is bounded: it remembers at most {@code capacity} strings. When it is full, a string
+ * is forgotten, chosen by the CLOCK algorithm (an approximation of LRU with a single reference bit per slot). If a
+ * forgotten string is requested again, it is registered again under a new ID. Every registration is announced to the
+ * listener as a {@link RegistryRecord}, so that the number of registry records in the log grows with the evictions;
+ * readers keep all mappings, as they do for the regular registry. Once the IDs up to {@link Integer#MAX_VALUE} are
+ * used up, all further strings are left to the regular registry.
+ *
+ * A new ID is only handed out after its registry record has been accepted by the listener. If the listener rejects it,
+ * {@link #NO_ID} is returned, so that the caller can fall back to the regular registry; the ID is not used again in
+ * case the record was written nevertheless.
+ *
+ * Lookups of registered strings are lock-free; registrations are serialized.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class BoundedStringRegistry implements IRegistry<String> {
+
+	/** Returned instead of an ID if the string could not be registered; the caller should use another registry. */
+	public static final int NO_ID = 0;
+
+	/** The default first ID, chosen far beyond the IDs the regular registry hands out. */
+	public static final int DEFAULT_BASE_ID = 1 << 30;
+
+	private static final AtomicLong NEXT_REGISTRY_ID = new AtomicLong();
+
+	private final long registryId = NEXT_REGISTRY_ID.getAndIncrement();
+	private final int capacity;
+
+	private final ConcurrentMap<String, Integer> slotsByValue;
+	private final ConcurrentMap<Integer, Integer> slotsById;
+	private final AtomicReferenceArray<Entry> entries;
+	private final AtomicIntegerArray referenced;
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private volatile IMonitoringRecordReceivedListener recordReceivedListener;
+
+	// guarded by this
+	private long nextId;
+	private int size;
+	private int clockHand;
+
+	/**
+	 * Creates a new registry.
+	 *
+	 * @param capacity
+	 *            The maximum number of strings held at a time.
+	 * @param baseId
+	 *            The first ID of this registry; must be positive.
+	 */
+	public BoundedStringRegistry(final int capacity, final int baseId) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		if (baseId <= 0) {
+			throw new IllegalArgumentException("baseId must be positive: " + baseId);
+		}
+		this.capacity = capacity;
+		this.nextId = baseId;
+		this.slotsByValue = new ConcurrentHashMap<String, Integer>(capacity);
+		this.slotsById = new ConcurrentHashMap<Integer, Integer>(capacity);
+		this.entries = new AtomicReferenceArray<Entry>(capacity);
+		this.referenced = new AtomicIntegerArray(capacity);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getId() {
+		return this.registryId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return The ID or {@link #NO_ID} if the listener rejected the registry record of a new ID or the IDs are used up.
+	 */
+	@Override
+	public int get(final String value) {
+		final Integer slot = this.slotsByValue.get(value);
+		if (slot != null) {
+			// the slot may have been reassigned concurrently; as IDs are never reused, the entry's ID is valid even then
+			final Entry entry = this.entries.get(slot);
+			if ((entry != null) && value.equals(entry.value)) {
+				this.referenced.lazySet(slot, 1);
+				return entry.id;
+			}
+		}
+		return this.register(value);
+	}
+
+	private synchronized int register(final String value) {
+		final Integer existingSlot = this.slotsByValue.get(value);
+		if (existingSlot != null) {
+			return this.entries.get(existingSlot).id;
+		}
+		if (this.nextId > Integer.MAX_VALUE) {
+			return NO_ID;
+		}
+		final int id = (int) this.nextId++;
+
+		// announce before the ID becomes visible to other threads, so that no record using the ID can precede the
+		// registry record
+		final IMonitoringRecordReceivedListener listener = this.recordReceivedListener;
+		if ((listener != null) && !listener.newMonitoringRecord(new RegistryRecord(id, value))) {
+			return NO_ID;
+		}
+
+		final int slot;
+		if (this.size < this.capacity) {
+			slot = this.size++;
+		} else {
+			slot = this.nextVictim();
+			final Entry evicted = this.entries.get(slot);
+			this.slotsByValue.remove(evicted.value);
+			this.slotsById.remove(evicted.id);
+			this.evictions.incrementAndGet();
+		}
+		this.entries.set(slot, new Entry(id, value));
+		this.referenced.set(slot, 1);
+		this.slotsById.put(id, slot);
+		this.slotsByValue.put(value, slot);
+		return id;
+	}
+
+	/**
+	 * Advances the clock hand to the first slot whose reference bit is cleared, clearing all bits on the way.
+	 */
+	private int nextVictim() {
+		while (true) {
+			final int slot = this.clockHand;
+			this.clockHand = (slot + 1) % this.capacity;
+			if (this.referenced.getAndSet(slot, 0) == 0) {
+				return slot;
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return The string registered under the given ID or {@code null} if it has been evicted or the ID is not in use.
+	 */
+	@Override
+	public String get(final int id) {
+		final Integer slot = this.slotsById.get(id);
+		if (slot == null) {
+			return null;
+		}
+		final Entry entry = this.entries.get(slot);
+		return ((entry != null) && (entry.id == id)) ? entry.value : null; // NOCS
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String[] getAll() {
+		final int currentSize = this.getSize();
+		final String[] all = new String[currentSize];
+		for (int i = 0; i < currentSize; i++) {
+			all[i] = this.entries.get(i).value;
+		}
+		return all;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setRecordReceivedListener(final IMonitoringRecordReceivedListener recordReceivedListener) {
+		this.recordReceivedListener = recordReceivedListener;
+	}
+
+	/**
+	 * @return The maximum number of strings held at a time.
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * @return The number of strings evicted so far.
+	 */
+	public long getEvictionCount() {
+		return this.evictions.get();
+	}
+
+	/**
+	 * Immutable slot content; safely published via the {@link AtomicReferenceArray}.
+	 */
+	private static final class Entry {
+		final int id; // NOCS
+		final String value; // NOCS
+
+		Entry(final int id, final String value) {
+			this.id = id;
+			this.value = value;
+		}
+	}
+}
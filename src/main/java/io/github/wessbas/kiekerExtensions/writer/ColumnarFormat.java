@@ -0,0 +1,140 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.writer;
+
+/**
+ * The format of the columnar logs written by the {@link ColumnarLogWriter}.
+ *
+ * A file starts with the 4-byte {@link #MAGIC} and the {@link #VERSION} byte, followed by blocks. Each block consists
+ * of its length (4 bytes, counting the bytes after the length), a flags byte, and the block body; with
+ * {@link #FLAG_DEFLATE}, the flags byte is followed by the length of the inflated body (4 bytes) and the deflated body.
+ * The body contains
+ * <ol>
+ * <li>the strings first used in this block: their number, then each string as its UTF-8 length and bytes. The strings
+ * of a file are numbered from 0 in the order of their appearance.</li>
+ * <li>the {@link Section#ENTRY} and the {@link Section#EXECUTION} section: the number of rows, then (if there are rows)
+ * each {@link Column} of the section in declaration order as its length in bytes (4 bytes) and its values.</li>
+ * <li>the section of all other records: the number of rows and the section's length in bytes (4 bytes), then per
+ * record the string ID of its class name, its zigzag-encoded logging timestamp, the length of its binary
+ * representation and the representation itself, which refers to the file's strings.</li>
+ * </ol>
+ * All numbers except the fixed-size lengths are unsigned LEB128 varints. Columns are encoded according to their
+ * {@link Encoding}; the deltas restart in each block, so that blocks can be decoded independently apart from the strings.
+ * A block with {@link #FLAG_RESET_STRINGS} forgets the strings of the preceding blocks, and its strings are numbered
+ * from 0 again; the writer sets it from time to time to bound the memory of the dictionaries.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class ColumnarFormat {
+
+	/** The first bytes of a file ({@code "WCL1"}). */
+	public static final int MAGIC = 0x57434C31;
+	/** The current version of the format. */
+	public static final byte VERSION = 1;
+	/** The extension of the files. */
+	public static final String FILE_EXTENSION = ".wcl";
+
+	/** Block flag stating that the body is deflated. */
+	public static final byte FLAG_DEFLATE = 0x01;
+	/** Block flag stating that the strings of the preceding blocks are no longer used. */
+	public static final byte FLAG_RESET_STRINGS = 0x02;
+
+	private ColumnarFormat() {
+		// constants only
+	}
+
+	/**
+	 * The sections of a block holding columns.
+	 */
+	public static enum Section {
+		/** The values of {@link io.github.wessbas.kiekerExtensions.record.ServletEntryRecord}s. */
+		ENTRY,
+		/** The values of {@link kieker.common.record.controlflow.OperationExecutionRecord}s. */
+		EXECUTION;
+	}
+
+	/**
+	 * The encodings of the column values.
+	 */
+	public static enum Encoding {
+		/** The zigzag-encoded difference to the preceding value of the column (to 0 for the first row). */
+		DELTA,
+		/** The zigzag-encoded value. */
+		ZIGZAG,
+		/** The ID of a string of the file. */
+		STRING;
+	}
+
+	/**
+	 * The columns, in the order of their sections.
+	 */
+	public static enum Column {
+		ENTRY_LOGGING_TIMESTAMP(Section.ENTRY, Encoding.DELTA),
+		ENTRY_TRACE_ID(Section.ENTRY, Encoding.DELTA),
+		ENTRY_URI(Section.ENTRY, Encoding.STRING),
+		ENTRY_PORT(Section.ENTRY, Encoding.ZIGZAG),
+		ENTRY_HOST(Section.ENTRY, Encoding.STRING),
+		ENTRY_PROTOCOL(Section.ENTRY, Encoding.STRING),
+		ENTRY_METHOD(Section.ENTRY, Encoding.STRING),
+		ENTRY_QUERY_STRING(Section.ENTRY, Encoding.STRING),
+		ENTRY_ENCODING(Section.ENTRY, Encoding.STRING),
+
+		EXECUTION_LOGGING_TIMESTAMP(Section.EXECUTION, Encoding.DELTA),
+		EXECUTION_TRACE_ID(Section.EXECUTION, Encoding.DELTA),
+		/** The operation signature, which is the use case for the executions of the servlet filter. */
+		EXECUTION_OPERATION_SIGNATURE(Section.EXECUTION, Encoding.STRING),
+		EXECUTION_SESSION_ID(Section.EXECUTION, Encoding.STRING),
+		EXECUTION_TIN(Section.EXECUTION, Encoding.DELTA),
+		/** {@code tout - tin}. */
+		EXECUTION_DURATION(Section.EXECUTION, Encoding.ZIGZAG),
+		EXECUTION_HOSTNAME(Section.EXECUTION, Encoding.STRING),
+		EXECUTION_EOI(Section.EXECUTION, Encoding.ZIGZAG),
+		EXECUTION_ESS(Section.EXECUTION, Encoding.ZIGZAG);
+
+		private final Section section;
+		private final Encoding encoding;
+
+		private Column(final Section section, final Encoding encoding) {
+			this.section = section;
+			this.encoding = encoding;
+		}
+
+		public Section getSection() {
+			return this.section;
+		}
+
+		public Encoding getEncoding() {
+			return this.encoding;
+		}
+
+		/**
+		 * @return The position of the column within its section.
+		 */
+		public int getIndex() {
+			return (this.section == Section.ENTRY) ? this.ordinal() : this.ordinal() - ENTRY_COLUMN_COUNT; // NOCS
+		}
+	}
+
+	/** The number of columns of the {@link Section#ENTRY} section. */
+	public static final int ENTRY_COLUMN_COUNT = 9;
+	/** The number of columns of the {@link Section#EXECUTION} section. */
+	public static final int EXECUTION_COLUMN_COUNT = 9;
+}
@@ -0,0 +1,545 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.writer;
+
+import io.github.wessbas.kiekerExtensions.record.CompactEncoding;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryAndExecutionRecord;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+import io.github.wessbas.kiekerExtensions.writer.ColumnarFormat.Column;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+import kieker.common.record.misc.RegistryRecord;
+import kieker.monitoring.writer.AbstractMonitoringWriter;
+
+/**
+ * Writes the records in the {@link ColumnarFormat}: the values of {@link ServletEntryRecord}s and
+ * {@link OperationExecutionRecord}s are buffered column by column, and each block of rows is written with its columns
+ * delta- and varint-encoded and, optionally, deflated. Strings are stored once, until the dictionary has grown to
+ * {@value #DEFAULT_MAX_STRINGS} strings (configurable) and is reset at the next block. A
+ * {@link ServletEntryAndExecutionRecord} is stored as its pair of classic records; all other records except registry
+ * records (which the file does not need) are stored in their binary representation.
+ *
+ * The monitored threads only enqueue the records; a writer thread buffers them in the columns and encodes, deflates and
+ * writes the blocks, as the {@link RecordStreamWriter} does. If the writer thread falls behind, the queue fills up and
+ * further records are dropped, or, if configured, the monitored threads block. The encoding and file buffers are
+ * direct buffers which are allocated once and only reallocated when a block outgrows them.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class ColumnarLogWriter extends AbstractMonitoringWriter {
+
+	private static final String PREFIX = ColumnarLogWriter.class.getName() + ".";
+
+	/** The directory the file is written to; the system's temporary directory by default. */
+	public static final String CONFIG_OUTPUT_DIRECTORY = PREFIX + "outputDirectory";
+	/** The number of records after which a block is written. */
+	public static final String CONFIG_BLOCK_ROWS = PREFIX + "blockRows";
+	/** Whether blocks are deflated. */
+	public static final String CONFIG_DEFLATE = PREFIX + "deflate";
+	/** The capacity of the queue between the monitored threads and the writer thread. */
+	public static final String CONFIG_QUEUE_SIZE = PREFIX + "queueSize";
+	/** Whether the monitored threads wait for space in a full queue instead of dropping the record. */
+	public static final String CONFIG_BLOCK_ON_FULL_QUEUE = PREFIX + "blockOnFullQueue";
+	/** The number of strings after which the dictionary is reset. */
+	public static final String CONFIG_MAX_STRINGS = PREFIX + "maxStrings";
+
+	public static final int DEFAULT_BLOCK_ROWS = 4096;
+	public static final int DEFAULT_QUEUE_SIZE = 10000;
+	public static final int DEFAULT_MAX_STRINGS = 65536;
+
+	private static final Log LOG = LogFactory.getLog(ColumnarLogWriter.class);
+
+	private static final int MAX_VARINT_SIZE = 10;
+	/** Per record of the other section: class name ID, logging timestamp, length. */
+	private static final int MAX_OTHER_RECORD_OVERHEAD = 3 * MAX_VARINT_SIZE;
+
+	private static final long POLL_INTERVAL_MILLIS = 100;
+	/** How long {@link #terminate()} waits for the queued records to be written. */
+	private static final long TERMINATION_TIMEOUT_MILLIS = 10000;
+
+	private final int blockRows;
+	private final boolean deflate;
+	private final BlockingQueue<IMonitoringRecord> queue;
+	private final boolean blockOnFullQueue;
+	private final int maxStrings;
+
+	private final AtomicLong droppedRecords = new AtomicLong();
+
+	private volatile boolean terminated;
+	private Thread writer;
+
+	// confined to the writer thread
+	private final long[][] entryColumns = new long[ColumnarFormat.ENTRY_COLUMN_COUNT][];
+	private final long[][] executionColumns = new long[ColumnarFormat.EXECUTION_COLUMN_COUNT][];
+	private final List<IMonitoringRecord> otherRecords = new ArrayList<IMonitoringRecord>();
+	private int entryRows;
+	private int executionRows;
+
+	private final StringDictionary dictionary = new StringDictionary();
+	/** Whether the dictionary has been reset since the last block. */
+	private boolean stringsReset;
+
+	private final ByteBuffer blockHeader = ByteBuffer.allocateDirect(9);
+	private ByteBuffer stringBuffer = ByteBuffer.allocateDirect(64 * 1024);
+	private ByteBuffer sectionBuffer = ByteBuffer.allocateDirect(256 * 1024);
+	private final ByteBuffer[] blockBuffers = new ByteBuffer[3];
+
+	private final Deflater deflater;
+	private byte[] uncompressed = new byte[0];
+	private byte[] compressed = new byte[0];
+
+	private FileChannel channel;
+	private boolean failed;
+
+	public ColumnarLogWriter(final Configuration configuration) {
+		super(configuration);
+		final int configuredBlockRows = configuration.getIntProperty(CONFIG_BLOCK_ROWS);
+		this.blockRows = (configuredBlockRows > 0) ? configuredBlockRows : DEFAULT_BLOCK_ROWS; // NOCS
+		this.deflate = configuration.getBooleanProperty(CONFIG_DEFLATE);
+		this.deflater = this.deflate ? new Deflater(Deflater.BEST_SPEED) : null; // NOCS
+		final int queueSize = configuration.getIntProperty(CONFIG_QUEUE_SIZE);
+		this.queue = new ArrayBlockingQueue<IMonitoringRecord>((queueSize > 0) ? queueSize : DEFAULT_QUEUE_SIZE); // NOCS
+		this.blockOnFullQueue = configuration.getBooleanProperty(CONFIG_BLOCK_ON_FULL_QUEUE);
+		final int configuredMaxStrings = configuration.getIntProperty(CONFIG_MAX_STRINGS);
+		this.maxStrings = (configuredMaxStrings > 0) ? configuredMaxStrings : DEFAULT_MAX_STRINGS; // NOCS
+		for (int i = 0; i < this.entryColumns.length; i++) {
+			this.entryColumns[i] = new long[this.blockRows];
+		}
+		for (int i = 0; i < this.executionColumns.length; i++) {
+			this.executionColumns[i] = new long[this.blockRows];
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void init() throws Exception {
+		String outputDirectory = this.configuration.getStringProperty(CONFIG_OUTPUT_DIRECTORY);
+		if ((outputDirectory == null) || (outputDirectory.length() == 0)) {
+			outputDirectory = System.getProperty("java.io.tmpdir");
+		}
+		final File directory = new File(outputDirectory);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Failed to create the output directory " + directory);
+		}
+		final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd-HHmmssSSS", Locale.US);
+		dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+		final File file = new File(directory, "kieker-" + dateFormat.format(new Date()) + "-UTC" + ColumnarFormat.FILE_EXTENSION);
+
+		this.channel = new FileOutputStream(file).getChannel();
+		final ByteBuffer fileHeader = ByteBuffer.allocate(5);
+		fileHeader.putInt(ColumnarFormat.MAGIC).put(ColumnarFormat.VERSION).flip();
+		this.writeFully(fileHeader);
+		LOG.info("Writing columnar log " + file);
+
+		// the thread start publishes the channel and the buffers to the writer thread
+		this.writer = new Thread(new Runnable() {
+			public void run() {
+				ColumnarLogWriter.this.writeRecords();
+			}
+		}, "ColumnarLogWriter-" + file.getName());
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean newMonitoringRecord(final IMonitoringRecord record) {
+		if (!this.blockOnFullQueue) {
+			return this.newMonitoringRecordNonBlocking(record);
+		}
+		if (record instanceof RegistryRecord) {
+			return true;
+		}
+		if (this.terminated) {
+			return false;
+		}
+		try {
+			this.queue.put(record);
+			return true;
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Enqueues the record unless the queue is full.
+	 */
+	public boolean newMonitoringRecordNonBlocking(final IMonitoringRecord record) {
+		if (record instanceof RegistryRecord) {
+			return true;
+		}
+		if (this.terminated || !this.queue.offer(record)) {
+			this.droppedRecords.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void terminate() {
+		this.terminated = true;
+		if (this.writer == null) {
+			return;
+		}
+		try {
+			this.writer.join(TERMINATION_TIMEOUT_MILLIS);
+			if (this.writer.isAlive()) {
+				this.writer.interrupt();
+				this.writer.join();
+			}
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		final long dropped = this.droppedRecords.get();
+		if (dropped > 0) {
+			LOG.warn(dropped + " records have not been written to the columnar log");
+		}
+	}
+
+	/**
+	 * @return The number of records dropped so far because the queue was full or the writer terminated or failed.
+	 */
+	public long getDroppedRecords() {
+		return this.droppedRecords.get();
+	}
+
+	private void writeRecords() {
+		try {
+			while (!this.failed) {
+				final IMonitoringRecord record = this.queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+				if (record == null) {
+					if (this.terminated) {
+						break;
+					}
+					continue;
+				}
+				this.add(record);
+			}
+			this.flush();
+		} catch (final InterruptedException ex) { // NOPMD (terminated)
+			// the records not written yet are counted as dropped below
+		} finally {
+			try {
+				this.channel.close();
+			} catch (final IOException ex) {
+				LOG.error("Failed to close the columnar log", ex);
+			}
+			if (this.deflater != null) {
+				this.deflater.end();
+			}
+			this.droppedRecords.addAndGet(this.entryRows + this.executionRows + this.otherRecords.size() + this.queue.size());
+			this.queue.clear();
+		}
+	}
+
+	/**
+	 * Adds the record to the current block and writes the block if it is full.
+	 */
+	private void add(final IMonitoringRecord record) {
+		if (record instanceof ServletEntryRecord) {
+			this.addEntry((ServletEntryRecord) record);
+		} else if (record instanceof OperationExecutionRecord) {
+			this.addExecution((OperationExecutionRecord) record);
+		} else if (record instanceof ServletEntryAndExecutionRecord) {
+			this.addEntryAndExecution((ServletEntryAndExecutionRecord) record);
+		} else {
+			this.otherRecords.add(record);
+		}
+		if ((this.entryRows == this.blockRows) || (this.executionRows == this.blockRows) || (this.otherRecords.size() >= this.blockRows)) {
+			this.flush();
+		}
+	}
+
+	private void addEntry(final ServletEntryRecord record) {
+		final int row = this.entryRows++;
+		this.setEntry(Column.ENTRY_LOGGING_TIMESTAMP, row, record.getLoggingTimestamp());
+		this.setEntry(Column.ENTRY_TRACE_ID, row, record.getTraceId());
+		this.setEntry(Column.ENTRY_URI, row, this.dictionary.get(record.getUri()));
+		this.setEntry(Column.ENTRY_PORT, row, record.getPort());
+		this.setEntry(Column.ENTRY_HOST, row, this.dictionary.get(record.getHost()));
+		this.setEntry(Column.ENTRY_PROTOCOL, row, this.dictionary.get(record.getProtocol()));
+		this.setEntry(Column.ENTRY_METHOD, row, this.dictionary.get(record.getMethod()));
+		this.setEntry(Column.ENTRY_QUERY_STRING, row, this.dictionary.get(record.getQueryString()));
+		this.setEntry(Column.ENTRY_ENCODING, row, this.dictionary.get(record.getEncoding()));
+	}
+
+	private void addExecution(final OperationExecutionRecord record) {
+		final int row = this.executionRows++;
+		this.setExecution(Column.EXECUTION_LOGGING_TIMESTAMP, row, record.getLoggingTimestamp());
+		this.setExecution(Column.EXECUTION_TRACE_ID, row, record.getTraceId());
+		this.setExecution(Column.EXECUTION_OPERATION_SIGNATURE, row, this.dictionary.get(record.getOperationSignature()));
+		this.setExecution(Column.EXECUTION_SESSION_ID, row, this.dictionary.get(record.getSessionId()));
+		this.setExecution(Column.EXECUTION_TIN, row, record.getTin());
+		this.setExecution(Column.EXECUTION_DURATION, row, record.getTout() - record.getTin());
+		this.setExecution(Column.EXECUTION_HOSTNAME, row, this.dictionary.get(record.getHostname()));
+		this.setExecution(Column.EXECUTION_EOI, row, record.getEoi());
+		this.setExecution(Column.EXECUTION_ESS, row, record.getEss());
+	}
+
+	/**
+	 * Stores the record like {@link io.github.wessbas.kiekerExtensions.record.ServletEntryAndExecutionRecordAdapter}
+	 * splits it, without creating the intermediate records. Both rows are in the same block, as a full section is only
+	 * written after the record.
+	 */
+	private void addEntryAndExecution(final ServletEntryAndExecutionRecord record) {
+		final long loggingTimestamp = record.getLoggingTimestamp();
+		final int entryRow = this.entryRows++;
+		this.setEntry(Column.ENTRY_LOGGING_TIMESTAMP, entryRow, loggingTimestamp);
+		this.setEntry(Column.ENTRY_TRACE_ID, entryRow, record.getTraceId());
+		this.setEntry(Column.ENTRY_URI, entryRow, this.dictionary.get(record.getUri()));
+		this.setEntry(Column.ENTRY_PORT, entryRow, record.getPort());
+		this.setEntry(Column.ENTRY_HOST, entryRow, this.dictionary.get(record.getHost()));
+		this.setEntry(Column.ENTRY_PROTOCOL, entryRow, this.dictionary.get(record.getProtocol()));
+		this.setEntry(Column.ENTRY_METHOD, entryRow, this.dictionary.get(record.getMethod()));
+		this.setEntry(Column.ENTRY_QUERY_STRING, entryRow, this.dictionary.get(record.getQueryString()));
+		this.setEntry(Column.ENTRY_ENCODING, entryRow, this.dictionary.get(record.getEncoding()));
+
+		final int executionRow = this.executionRows++;
+		this.setExecution(Column.EXECUTION_LOGGING_TIMESTAMP, executionRow, loggingTimestamp);
+		this.setExecution(Column.EXECUTION_TRACE_ID, executionRow, record.getTraceId());
+		this.setExecution(Column.EXECUTION_OPERATION_SIGNATURE, executionRow, this.dictionary.get(record.getUseCase()));
+		this.setExecution(Column.EXECUTION_SESSION_ID, executionRow, this.dictionary.get(record.getSessionId()));
+		this.setExecution(Column.EXECUTION_TIN, executionRow, record.getTin());
+		this.setExecution(Column.EXECUTION_DURATION, executionRow, record.getTout() - record.getTin());
+		this.setExecution(Column.EXECUTION_HOSTNAME, executionRow, this.dictionary.get(record.getHostname()));
+		this.setExecution(Column.EXECUTION_EOI, executionRow, 0);
+		this.setExecution(Column.EXECUTION_ESS, executionRow, 0);
+	}
+
+	private void setEntry(final Column column, final int row, final long value) {
+		this.entryColumns[column.getIndex()][row] = value;
+	}
+
+	private void setExecution(final Column column, final int row, final long value) {
+		this.executionColumns[column.getIndex()][row] = value;
+	}
+
+	/**
+	 * Writes the buffered rows as a block, if there are any. If the block cannot be written, the writer fails and its
+	 * rows are counted as dropped. Afterwards, the dictionary is reset if it has grown too large, as the rows of the
+	 * next block refer to its strings as soon as they are added.
+	 */
+	private void flush() {
+		if ((this.entryRows == 0) && (this.executionRows == 0) && this.otherRecords.isEmpty()) {
+			return;
+		}
+		try {
+			// the other records register their strings while they are encoded, so the strings are encoded last
+			this.encodeSections();
+			this.encodeStrings();
+			final byte flags = this.stringsReset ? ColumnarFormat.FLAG_RESET_STRINGS : 0; // NOCS
+			if (this.deflate) {
+				this.writeDeflatedBlock(flags);
+			} else {
+				this.blockHeader.clear();
+				this.blockHeader.putInt(1 + this.stringBuffer.remaining() + this.sectionBuffer.remaining()).put(flags).flip();
+				this.blockBuffers[0] = this.blockHeader;
+				this.blockBuffers[1] = this.stringBuffer;
+				this.blockBuffers[2] = this.sectionBuffer;
+				this.writeFully(this.blockBuffers, 3);
+			}
+		} catch (final IOException ex) {
+			LOG.error("Failed to write to the columnar log; records are dropped from now on", ex);
+			this.droppedRecords.addAndGet(this.entryRows + this.executionRows + this.otherRecords.size());
+			this.failed = true;
+			this.terminated = true;
+		} finally {
+			this.entryRows = 0;
+			this.executionRows = 0;
+			this.otherRecords.clear();
+			this.stringsReset = false;
+			if (this.dictionary.getSize() >= this.maxStrings) {
+				this.dictionary.clear();
+				this.stringsReset = true;
+			}
+		}
+	}
+
+	private void encodeSections() {
+		int otherSize = 0;
+		for (final IMonitoringRecord record : this.otherRecords) {
+			otherSize += record.getSize() + MAX_OTHER_RECORD_OVERHEAD;
+		}
+		final int maxSize = (((this.entryRows * ColumnarFormat.ENTRY_COLUMN_COUNT) + (this.executionRows * ColumnarFormat.EXECUTION_COLUMN_COUNT)) * MAX_VARINT_SIZE)
+				+ (4 * (ColumnarFormat.ENTRY_COLUMN_COUNT + ColumnarFormat.EXECUTION_COLUMN_COUNT + 1)) + (3 * MAX_VARINT_SIZE) + otherSize;
+		this.sectionBuffer = ColumnarLogWriter.ensureCapacity(this.sectionBuffer, maxSize);
+
+		final ByteBuffer buffer = this.sectionBuffer;
+		buffer.clear();
+		ColumnarLogWriter.encodeSection(buffer, this.entryColumns, ColumnarFormat.Section.ENTRY, this.entryRows);
+		ColumnarLogWriter.encodeSection(buffer, this.executionColumns, ColumnarFormat.Section.EXECUTION, this.executionRows);
+
+		CompactEncoding.putVarLong(buffer, this.otherRecords.size());
+		final int lengthPosition = buffer.position();
+		buffer.putInt(0);
+		for (final IMonitoringRecord record : this.otherRecords) {
+			CompactEncoding.putVarLong(buffer, this.dictionary.get(record.getClass().getName()));
+			CompactEncoding.putVarLong(buffer, CompactEncoding.zigzag(record.getLoggingTimestamp()));
+			CompactEncoding.putVarLong(buffer, record.getSize());
+			record.writeBytes(buffer, this.dictionary);
+		}
+		buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+		buffer.flip();
+	}
+
+	private static void encodeSection(final ByteBuffer buffer, final long[][] columns, final ColumnarFormat.Section section, final int rows) {
+		CompactEncoding.putVarLong(buffer, rows);
+		if (rows == 0) {
+			return;
+		}
+		for (final Column column : Column.values()) {
+			if (column.getSection() != section) {
+				continue;
+			}
+			final long[] values = columns[column.getIndex()];
+			final int lengthPosition = buffer.position();
+			buffer.putInt(0);
+			switch (column.getEncoding()) {
+			case DELTA:
+				long previous = 0;
+				for (int row = 0; row < rows; row++) {
+					CompactEncoding.putVarLong(buffer, CompactEncoding.zigzag(values[row] - previous));
+					previous = values[row];
+				}
+				break;
+			case ZIGZAG:
+				for (int row = 0; row < rows; row++) {
+					CompactEncoding.putVarLong(buffer, CompactEncoding.zigzag(values[row]));
+				}
+				break;
+			case STRING:
+			default:
+				for (int row = 0; row < rows; row++) {
+					CompactEncoding.putVarLong(buffer, values[row]);
+				}
+				break;
+			}
+			buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+		}
+	}
+
+	private void encodeStrings() {
+		final List<byte[]> newStrings = this.dictionary.takeNewStrings();
+		int maxSize = MAX_VARINT_SIZE;
+		for (final byte[] bytes : newStrings) {
+			maxSize += bytes.length + MAX_VARINT_SIZE;
+		}
+		this.stringBuffer = ColumnarLogWriter.ensureCapacity(this.stringBuffer, maxSize);
+
+		final ByteBuffer buffer = this.stringBuffer;
+		buffer.clear();
+		CompactEncoding.putVarLong(buffer, newStrings.size());
+		for (final byte[] bytes : newStrings) {
+			CompactEncoding.putVarLong(buffer, bytes.length);
+			buffer.put(bytes);
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * Deflates the encoded strings and sections. The deflater of Java 6 only works on arrays, hence the encoded block is
+	 * copied to the heap once.
+	 */
+	private void writeDeflatedBlock(final byte flags) throws IOException {
+		final int length = this.stringBuffer.remaining() + this.sectionBuffer.remaining();
+		if (this.uncompressed.length < length) {
+			this.uncompressed = new byte[Math.max(length, 2 * this.uncompressed.length)];
+		}
+		final int stringLength = this.stringBuffer.remaining();
+		this.stringBuffer.get(this.uncompressed, 0, stringLength);
+		this.sectionBuffer.get(this.uncompressed, stringLength, this.sectionBuffer.remaining());
+
+		// the bound of zlib for incompressible data
+		final int maxCompressedLength = length + (length >> 12) + (length >> 14) + (length >> 25) + 64;
+		if (this.compressed.length < maxCompressedLength) {
+			this.compressed = new byte[maxCompressedLength];
+		}
+		this.deflater.reset();
+		this.deflater.setInput(this.uncompressed, 0, length);
+		this.deflater.finish();
+		int compressedLength = 0;
+		while (!this.deflater.finished()) {
+			compressedLength += this.deflater.deflate(this.compressed, compressedLength, this.compressed.length - compressedLength);
+			if ((compressedLength == this.compressed.length) && !this.deflater.finished()) {
+				final byte[] larger = new byte[2 * this.compressed.length];
+				System.arraycopy(this.compressed, 0, larger, 0, compressedLength);
+				this.compressed = larger;
+			}
+		}
+
+		this.blockHeader.clear();
+		this.blockHeader.putInt(1 + 4 + compressedLength).put((byte) (flags | ColumnarFormat.FLAG_DEFLATE)).putInt(length).flip();
+		this.blockBuffers[0] = this.blockHeader;
+		this.blockBuffers[1] = ByteBuffer.wrap(this.compressed, 0, compressedLength);
+		this.writeFully(this.blockBuffers, 2);
+	}
+
+	private void writeFully(final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			this.channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Writes the first buffers of the array with gathering writes.
+	 */
+	private void writeFully(final ByteBuffer[] buffers, final int length) throws IOException {
+		while (buffers[length - 1].hasRemaining()) {
+			this.channel.write(buffers, 0, length);
+		}
+	}
+
+	private static ByteBuffer ensureCapacity(final ByteBuffer buffer, final int capacity) {
+		if (buffer.capacity() >= capacity) {
+			return buffer;
+		}
+		return ByteBuffer.allocateDirect(Math.max(capacity, 2 * buffer.capacity()));
+	}
+}
@@ -0,0 +1,65 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.writer;
+
+/**
+ * The protocol between the {@link RecordStreamWriter} and the
+ * {@link io.github.wessbas.kiekerExtensions.analysis.binary.RecordStreamReceiver}.
+ *
+ * After connecting, the writer sends the 4-byte {@link #MAGIC} and the {@link #VERSION} byte. The receiver answers with
+ * credits: each credit is the permission to send one batch, and the receiver grants a credit again whenever it has
+ * handed out the records of a batch. Credits are sent as 4-byte numbers, which the writer adds up. A writer without
+ * credits keeps its records queued, so that a slow analysis throttles the export instead of letting the receiver's
+ * memory grow.
+ *
+ * A batch consists of its length (4 bytes, counting the bytes after the length), a flags byte and
+ * <ol>
+ * <li>the strings first used in this batch: their number, then each string as its UTF-8 length and bytes. The strings
+ * of a connection are numbered from 0 in the order of their appearance.</li>
+ * <li>the records: their number, then per record the string ID of its class name, its zigzag-encoded logging timestamp,
+ * the length of its binary representation and the representation itself, which refers to the connection's strings.</li>
+ * </ol>
+ * All numbers except the fixed-size ones are unsigned LEB128 varints. The strings start anew with each connection and
+ * with each batch flagged with {@link #FLAG_RESET_STRINGS}, which the writer sends from time to time to bound the
+ * memory of the dictionaries on both sides.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public final class RecordStreamProtocol {
+
+	/** The first bytes sent by the writer ({@code "WRS1"}). */
+	public static final int MAGIC = 0x57525331;
+	/** The current version of the protocol. */
+	public static final byte VERSION = 2;
+
+	/** The default port of the receiver. */
+	public static final int DEFAULT_PORT = 10133;
+
+	/** The maximum length of a batch; longer batches are considered a protocol error. */
+	public static final int MAX_BATCH_LENGTH = 64 * 1024 * 1024;
+
+	/** Batch flag stating that the strings of the preceding batches are no longer used. */
+	public static final byte FLAG_RESET_STRINGS = 0x01;
+
+	private RecordStreamProtocol() {
+		// constants only
+	}
+}
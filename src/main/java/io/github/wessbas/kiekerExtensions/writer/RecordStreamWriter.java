@@ -0,0 +1,413 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.writer;
+
+import io.github.wessbas.kiekerExtensions.record.CompactEncoding;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.logging.Log;
+import kieker.common.logging.LogFactory;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.misc.RegistryRecord;
+import kieker.monitoring.writer.AbstractMonitoringWriter;
+
+/**
+ * Streams the records to a {@link io.github.wessbas.kiekerExtensions.analysis.binary.RecordStreamReceiver} over TCP,
+ * so that an analysis can consume them while the monitored application runs. See {@link RecordStreamProtocol} for the
+ * format and the credit-based flow control.
+ *
+ * The monitored threads only enqueue the records. A sender thread collects the queued records into batches (as many as
+ * are queued, up to the maximum batch size, so that batches stay small while the load is low) and writes each batch as
+ * soon as the receiver has granted a credit. If the receiver falls behind or is unreachable, the queue fills up and
+ * further records are dropped, or, if configured, the monitored threads block. Lost connections are re-established
+ * periodically; the batch in progress is sent again on the new connection.
+ *
+ * Registry records are not sent, as each batch carries its new strings. The dictionary of these strings is reset once it
+ * holds {@value #DEFAULT_MAX_STRINGS} strings (configurable).
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class RecordStreamWriter extends AbstractMonitoringWriter {
+
+	private static final String PREFIX = RecordStreamWriter.class.getName() + ".";
+
+	/** The host of the receiver; the local host by default. */
+	public static final String CONFIG_HOSTNAME = PREFIX + "hostname";
+	/** The port of the receiver; {@link RecordStreamProtocol#DEFAULT_PORT} by default. */
+	public static final String CONFIG_PORT = PREFIX + "port";
+	/** The capacity of the queue between the monitored threads and the sender thread. */
+	public static final String CONFIG_QUEUE_SIZE = PREFIX + "queueSize";
+	/** The maximum number of records per batch. */
+	public static final String CONFIG_MAX_BATCH_RECORDS = PREFIX + "maxBatchRecords";
+	/** Whether the monitored threads wait for space in a full queue instead of dropping the record. */
+	public static final String CONFIG_BLOCK_ON_FULL_QUEUE = PREFIX + "blockOnFullQueue";
+	/** The delay between attempts to (re)connect to the receiver. */
+	public static final String CONFIG_RECONNECT_INTERVAL_MILLIS = PREFIX + "reconnectIntervalMillis";
+	/** The number of strings after which the dictionary of a connection is reset. */
+	public static final String CONFIG_MAX_STRINGS = PREFIX + "maxStrings";
+
+	public static final int DEFAULT_QUEUE_SIZE = 10000;
+	public static final int DEFAULT_MAX_BATCH_RECORDS = 512;
+	public static final long DEFAULT_RECONNECT_INTERVAL_MILLIS = 1000;
+	public static final int DEFAULT_MAX_STRINGS = 65536;
+
+	private static final Log LOG = LogFactory.getLog(RecordStreamWriter.class);
+
+	private static final int MAX_VARINT_SIZE = 10;
+	/** Per record: class name ID, logging timestamp, length. */
+	private static final int MAX_RECORD_OVERHEAD = 3 * MAX_VARINT_SIZE;
+
+	private static final long POLL_INTERVAL_MILLIS = 100;
+	private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+	/** How long {@link #terminate()} waits for the queued records to be sent. */
+	private static final long TERMINATION_TIMEOUT_MILLIS = 10000;
+
+	private final InetSocketAddress address;
+	private final BlockingQueue<IMonitoringRecord> queue;
+	private final int maxBatchRecords;
+	private final boolean blockOnFullQueue;
+	private final long reconnectIntervalMillis;
+	private final int maxStrings;
+
+	private final AtomicLong droppedRecords = new AtomicLong();
+
+	private volatile boolean terminated;
+	private Thread sender;
+
+	// confined to the sender thread
+	private Selector selector;
+	private SocketChannel channel;
+	private SelectionKey selectionKey;
+	private int credits;
+	private boolean failureLogged;
+	private final ByteBuffer creditBuffer = ByteBuffer.allocate(4);
+	private final StringDictionary dictionary = new StringDictionary();
+	private final ByteBuffer batchHeader = ByteBuffer.allocateDirect(5);
+	private ByteBuffer stringBuffer = ByteBuffer.allocateDirect(16 * 1024);
+	private ByteBuffer recordBuffer = ByteBuffer.allocateDirect(64 * 1024);
+	private final ByteBuffer[] batchBuffers = new ByteBuffer[3];
+
+	public RecordStreamWriter(final Configuration configuration) {
+		super(configuration);
+		final String hostname = configuration.getStringProperty(CONFIG_HOSTNAME);
+		final int port = configuration.getIntProperty(CONFIG_PORT);
+		this.address = new InetSocketAddress(((hostname == null) || (hostname.length() == 0)) ? "localhost" : hostname, // NOCS
+				(port > 0) ? port : RecordStreamProtocol.DEFAULT_PORT); // NOCS
+		final int queueSize = configuration.getIntProperty(CONFIG_QUEUE_SIZE);
+		this.queue = new ArrayBlockingQueue<IMonitoringRecord>((queueSize > 0) ? queueSize : DEFAULT_QUEUE_SIZE); // NOCS
+		final int configuredMaxBatchRecords = configuration.getIntProperty(CONFIG_MAX_BATCH_RECORDS);
+		this.maxBatchRecords = (configuredMaxBatchRecords > 0) ? configuredMaxBatchRecords : DEFAULT_MAX_BATCH_RECORDS; // NOCS
+		this.blockOnFullQueue = configuration.getBooleanProperty(CONFIG_BLOCK_ON_FULL_QUEUE);
+		final long configuredReconnectInterval = configuration.getLongProperty(CONFIG_RECONNECT_INTERVAL_MILLIS);
+		this.reconnectIntervalMillis = (configuredReconnectInterval > 0) ? configuredReconnectInterval : DEFAULT_RECONNECT_INTERVAL_MILLIS; // NOCS
+		final int configuredMaxStrings = configuration.getIntProperty(CONFIG_MAX_STRINGS);
+		this.maxStrings = (configuredMaxStrings > 0) ? configuredMaxStrings : DEFAULT_MAX_STRINGS; // NOCS
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void init() throws Exception {
+		this.selector = Selector.open();
+		this.sender = new Thread(new Runnable() {
+			public void run() {
+				RecordStreamWriter.this.sendRecords();
+			}
+		}, "RecordStreamWriter-" + this.address);
+		this.sender.setDaemon(true);
+		this.sender.start();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean newMonitoringRecord(final IMonitoringRecord record) {
+		if (!this.blockOnFullQueue) {
+			return this.newMonitoringRecordNonBlocking(record);
+		}
+		if (record instanceof RegistryRecord) {
+			return true;
+		}
+		if (this.terminated) {
+			return false;
+		}
+		try {
+			this.queue.put(record);
+			return true;
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	/**
+	 * Enqueues the record unless the queue is full.
+	 */
+	public boolean newMonitoringRecordNonBlocking(final IMonitoringRecord record) {
+		if (record instanceof RegistryRecord) {
+			return true;
+		}
+		if (this.terminated || !this.queue.offer(record)) {
+			this.droppedRecords.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void terminate() {
+		this.terminated = true;
+		if (this.sender == null) {
+			return;
+		}
+		try {
+			this.sender.join(TERMINATION_TIMEOUT_MILLIS);
+			if (this.sender.isAlive()) {
+				this.sender.interrupt();
+				this.sender.join();
+			}
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		final long dropped = this.droppedRecords.get();
+		if (dropped > 0) {
+			LOG.warn(dropped + " records have not been streamed to " + this.address);
+		}
+	}
+
+	/**
+	 * @return The number of records dropped so far because the queue was full or the writer terminated.
+	 */
+	public long getDroppedRecords() {
+		return this.droppedRecords.get();
+	}
+
+	private void sendRecords() {
+		final List<IMonitoringRecord> batch = new ArrayList<IMonitoringRecord>(this.maxBatchRecords);
+		try {
+			while (true) {
+				if (batch.isEmpty()) {
+					final IMonitoringRecord record = this.queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+					if (record == null) {
+						if (this.terminated) {
+							break;
+						}
+						continue;
+					}
+					batch.add(record);
+					this.queue.drainTo(batch, this.maxBatchRecords - 1);
+				}
+				if (this.send(batch)) {
+					batch.clear();
+				} else if (this.terminated) {
+					break;
+				} else {
+					Thread.sleep(this.reconnectIntervalMillis);
+				}
+			}
+		} catch (final InterruptedException ex) { // NOPMD (terminated)
+			// the records not sent yet are counted as dropped below
+		} finally {
+			this.disconnect();
+			try {
+				this.selector.close();
+			} catch (final IOException ex) { // NOPMD (closing anyway)
+				// ignore
+			}
+			this.droppedRecords.addAndGet(batch.size() + this.queue.size());
+			this.queue.clear();
+		}
+	}
+
+	/**
+	 * Sends the batch, (re)connecting first if necessary.
+	 *
+	 * @return false if the batch could not be sent due to a connection failure; true if it has been sent or dropped.
+	 */
+	private boolean send(final List<IMonitoringRecord> batch) throws InterruptedException {
+		try {
+			if (this.channel == null) {
+				this.connect();
+			}
+			try {
+				this.encode(batch);
+			} catch (final RuntimeException ex) { // NOPMD (records without a binary representation)
+				LOG.error("Failed to encode a batch of records; the batch is dropped", ex);
+				this.droppedRecords.addAndGet(batch.size());
+				return true;
+			}
+			while (this.credits == 0) {
+				this.awaitChannel(SelectionKey.OP_READ);
+			}
+			this.credits--;
+			this.batchBuffers[0] = this.batchHeader;
+			this.batchBuffers[1] = this.stringBuffer;
+			this.batchBuffers[2] = this.recordBuffer;
+			while (this.recordBuffer.hasRemaining()) {
+				if (this.channel.write(this.batchBuffers) == 0) {
+					this.awaitChannel(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				}
+			}
+			return true;
+		} catch (final IOException ex) {
+			if (!this.failureLogged) {
+				LOG.warn("Cannot stream records to " + this.address + "; retrying every " + this.reconnectIntervalMillis + " ms", ex);
+				this.failureLogged = true;
+			}
+			this.disconnect();
+			return false;
+		}
+	}
+
+	private void connect() throws IOException {
+		final SocketChannel newChannel = SocketChannel.open();
+		try {
+			newChannel.socket().setTcpNoDelay(true);
+			newChannel.socket().connect(this.address, CONNECT_TIMEOUT_MILLIS);
+			final ByteBuffer handshake = ByteBuffer.allocate(5);
+			handshake.putInt(RecordStreamProtocol.MAGIC).put(RecordStreamProtocol.VERSION).flip();
+			while (handshake.hasRemaining()) {
+				newChannel.write(handshake);
+			}
+			newChannel.configureBlocking(false);
+			this.selectionKey = newChannel.register(this.selector, SelectionKey.OP_READ);
+		} catch (final IOException ex) {
+			newChannel.close();
+			throw ex;
+		}
+		this.channel = newChannel;
+		this.failureLogged = false;
+		LOG.info("Streaming records to " + this.address);
+	}
+
+	private void disconnect() {
+		if (this.channel == null) {
+			return;
+		}
+		this.selectionKey.cancel();
+		try {
+			this.channel.close();
+		} catch (final IOException ex) { // NOPMD (closing anyway)
+			// ignore
+		}
+		this.channel = null;
+		this.selectionKey = null;
+		this.credits = 0;
+		this.creditBuffer.clear();
+		this.dictionary.clear();
+	}
+
+	/**
+	 * Waits until the channel is ready for the given operations (or the poll interval has passed) and takes the credits
+	 * received in the meantime.
+	 */
+	private void awaitChannel(final int operations) throws IOException, InterruptedException {
+		this.selectionKey.interestOps(operations);
+		this.selector.select(POLL_INTERVAL_MILLIS);
+		this.selector.selectedKeys().clear();
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		int read;
+		do {
+			read = this.channel.read(this.creditBuffer);
+			if (read < 0) {
+				throw new EOFException("Connection closed by the receiver");
+			}
+			if (!this.creditBuffer.hasRemaining()) {
+				this.creditBuffer.flip();
+				this.credits += this.creditBuffer.getInt();
+				this.creditBuffer.clear();
+			}
+		} while (read > 0);
+	}
+
+	/**
+	 * Encodes the batch, resetting the dictionary first if it has grown too large.
+	 */
+	private void encode(final List<IMonitoringRecord> batch) {
+		byte flags = 0;
+		if (this.dictionary.getSize() >= this.maxStrings) {
+			this.dictionary.clear();
+			flags |= RecordStreamProtocol.FLAG_RESET_STRINGS;
+		}
+		int maxRecordSize = MAX_VARINT_SIZE;
+		for (final IMonitoringRecord record : batch) {
+			maxRecordSize += record.getSize() + MAX_RECORD_OVERHEAD;
+		}
+		this.recordBuffer = RecordStreamWriter.ensureCapacity(this.recordBuffer, maxRecordSize);
+		final ByteBuffer records = this.recordBuffer;
+		records.clear();
+		CompactEncoding.putVarLong(records, batch.size());
+		for (final IMonitoringRecord record : batch) {
+			CompactEncoding.putVarLong(records, this.dictionary.get(record.getClass().getName()));
+			CompactEncoding.putVarLong(records, CompactEncoding.zigzag(record.getLoggingTimestamp()));
+			CompactEncoding.putVarLong(records, record.getSize());
+			record.writeBytes(records, this.dictionary);
+		}
+		records.flip();
+
+		// the records register their strings while they are encoded, so the strings are encoded last
+		final List<byte[]> newStrings = this.dictionary.takeNewStrings();
+		int maxStringSize = MAX_VARINT_SIZE;
+		for (final byte[] bytes : newStrings) {
+			maxStringSize += bytes.length + MAX_VARINT_SIZE;
+		}
+		this.stringBuffer = RecordStreamWriter.ensureCapacity(this.stringBuffer, maxStringSize);
+		final ByteBuffer strings = this.stringBuffer;
+		strings.clear();
+		CompactEncoding.putVarLong(strings, newStrings.size());
+		for (final byte[] bytes : newStrings) {
+			CompactEncoding.putVarLong(strings, bytes.length);
+			strings.put(bytes);
+		}
+		strings.flip();
+
+		this.batchHeader.clear();
+		this.batchHeader.putInt(1 + strings.remaining() + records.remaining()).put(flags).flip();
+	}
+
+	private static ByteBuffer ensureCapacity(final ByteBuffer buffer, final int capacity) {
+		if (buffer.capacity() >= capacity) {
+			return buffer;
+		}
+		return ByteBuffer.allocateDirect(Math.max(capacity, 2 * buffer.capacity()));
+	}
+}
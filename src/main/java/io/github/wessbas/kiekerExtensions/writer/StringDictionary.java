@@ -0,0 +1,130 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.writer;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import kieker.common.util.registry.IMonitoringRecordReceivedListener;
+import kieker.common.util.registry.IRegistry;
+
+/**
+ * The strings of a file or stream, numbered from 0 in the order of their registration. The writers send the strings
+ * registered since the last block or batch along with it, so that a reader can number them in the same order.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+final class StringDictionary implements IRegistry<String> {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private final List<String> values = new ArrayList<String>();
+	private int firstNewId;
+
+	StringDictionary() {
+		// empty dictionary
+	}
+
+	/**
+	 * @return The UTF-8 encoding of the strings registered since the last call, in the order of their IDs.
+	 */
+	List<byte[]> takeNewStrings() {
+		final List<byte[]> newStrings = new ArrayList<byte[]>(this.values.size() - this.firstNewId);
+		for (int id = this.firstNewId; id < this.values.size(); id++) {
+			newStrings.add(this.values.get(id).getBytes(UTF_8));
+		}
+		this.firstNewId = this.values.size();
+		return newStrings;
+	}
+
+	/**
+	 * Forgets all strings, so that the numbering starts again.
+	 */
+	void clear() {
+		this.ids.clear();
+		this.values.clear();
+		this.firstNewId = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public long getId() {
+		return 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * {@code null} is registered as the empty string.
+	 */
+	@Override
+	public int get(final String value) {
+		final String key = (value == null) ? "" : value; // NOCS
+		final Integer id = this.ids.get(key);
+		if (id != null) {
+			return id;
+		}
+		final int newId = this.values.size();
+		this.ids.put(key, newId);
+		this.values.add(key);
+		return newId;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String get(final int id) {
+		return this.values.get(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String[] getAll() {
+		return this.values.toArray(new String[this.values.size()]);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getSize() {
+		return this.values.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setRecordReceivedListener(final IMonitoringRecordReceivedListener recordReceivedListener) {
+		// the strings are written along with the records
+	}
+}
@@ -0,0 +1,230 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis;
+
+import static org.junit.Assert.assertEquals;
+
+import io.github.wessbas.kiekerExtensions.record.ServletEntryAndExecutionRecord;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+import io.github.wessbas.kiekerExtensions.record.SessionDestroyedRecord;
+import io.github.wessbas.kiekerExtensions.record.SessionKeys;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import kieker.analysis.AnalysisController;
+import kieker.analysis.IProjectContext;
+import kieker.analysis.plugin.annotation.InputPort;
+import kieker.analysis.plugin.annotation.Plugin;
+import kieker.analysis.plugin.filter.AbstractFilterPlugin;
+import kieker.analysis.plugin.reader.list.ListReader;
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+
+import org.junit.Test;
+
+/**
+ * Tests the joining of the records and the closing of the sessions by the {@link SessionLogBuilderFilter}. The
+ * timestamps are in seconds; each delivered line is tagged with the number of requests added before its delivery.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class SessionLogBuilderFilterTest {
+
+	private static final String HOSTNAME = "host";
+
+	public SessionLogBuilderFilterTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testJoin() throws Exception {
+		final List<IMonitoringRecord> records = Arrays.<IMonitoringRecord> asList(
+				SessionLogBuilderFilterTest.entry(1),
+				SessionLogBuilderFilterTest.entry(2),
+				new OperationExecutionRecord("nested", "s1", 2, 3, 4, HOSTNAME, 1, 1), // not the filter's execution
+				SessionLogBuilderFilterTest.execution(2, "s1", "second", 3, 4),
+				// the first request entered before the second one, but exits after it
+				SessionLogBuilderFilterTest.execution(1, "s1", "first", 1, 5),
+				SessionLogBuilderFilterTest.execution(3, "s1", "third", 6, 7),
+				SessionLogBuilderFilterTest.entry(3),
+				SessionLogBuilderFilterTest.merged("s1", "fourth", 8, 9),
+				SessionLogBuilderFilterTest.merged(OperationExecutionRecord.NO_SESSION_ID, "noSession", 8, 9));
+		final Run run = new Run(10, 5, 100, records);
+		assertEquals(Arrays.asList("s1;" + SessionLogBuilderFilterTest.request("first", 1, 5) + ";" + SessionLogBuilderFilterTest.request("second", 3, 4)
+				+ ";" + SessionLogBuilderFilterTest.request("third", 6, 7) + ";" + SessionLogBuilderFilterTest.request("fourth", 8, 9) + " @4"), run.lines);
+		assertEquals(0, run.filter.getUnmatchedRecordCount());
+	}
+
+	@Test
+	public void testJoinWindow() throws Exception {
+		// the window holds two traces, so the entry of the first trace is dropped when the third one arrives
+		final List<IMonitoringRecord> records = Arrays.<IMonitoringRecord> asList(
+				SessionLogBuilderFilterTest.entry(1),
+				SessionLogBuilderFilterTest.entry(2),
+				SessionLogBuilderFilterTest.entry(3),
+				SessionLogBuilderFilterTest.execution(3, "s1", "third", 5, 6),
+				SessionLogBuilderFilterTest.execution(2, "s1", "second", 3, 7),
+				SessionLogBuilderFilterTest.execution(1, "s1", "first", 1, 8));
+		final Run run = new Run(10, 5, 2, records);
+		assertEquals(2, run.filter.getRequestCount());
+		// the entry dropped from the window and the execution left in it on termination
+		assertEquals(2, run.filter.getUnmatchedRecordCount());
+		assertEquals(Arrays.asList("s1;" + SessionLogBuilderFilterTest.request("second", 3, 7) + ";" + SessionLogBuilderFilterTest.request("third", 5, 6)
+				+ " @2"), run.lines);
+	}
+
+	@Test
+	public void testIdleSessions() throws Exception {
+		final List<IMonitoringRecord> records = Arrays.<IMonitoringRecord> asList(
+				SessionLogBuilderFilterTest.merged("a", "a1", 0, 1),
+				SessionLogBuilderFilterTest.merged("b", "b1", 5, 6),
+				SessionLogBuilderFilterTest.merged("a", "a2", 8, 9),
+				// closes the sessions idle for more than 10 seconds, the least recently active first
+				SessionLogBuilderFilterTest.merged("c", "c1", 30, 31),
+				// "c" has been idle for exactly the timeout and stays open
+				SessionLogBuilderFilterTest.merged("d", "d1", 40, 41));
+		final Run run = new Run(10, 5, 100, records);
+		assertEquals(Arrays.asList(
+				"b;" + SessionLogBuilderFilterTest.request("b1", 5, 6) + " @4",
+				"a;" + SessionLogBuilderFilterTest.request("a1", 0, 1) + ";" + SessionLogBuilderFilterTest.request("a2", 8, 9) + " @4",
+				"c;" + SessionLogBuilderFilterTest.request("c1", 30, 31) + " @5",
+				"d;" + SessionLogBuilderFilterTest.request("d1", 40, 41) + " @5"), run.lines);
+	}
+
+	@Test
+	public void testDestroyedSessionWindow() throws Exception {
+		final List<IMonitoringRecord> records = Arrays.<IMonitoringRecord> asList(
+				SessionLogBuilderFilterTest.merged("s", "s1", 0, 1),
+				new SessionDestroyedRecord(10, HOSTNAME, SessionKeys.of("s"), false),
+				// the request which invalidated the session entered before its destruction and still belongs to it
+				SessionLogBuilderFilterTest.merged("s", "s2", 9, 12),
+				// a request which entered after the destruction starts a new session with the same ID
+				SessionLogBuilderFilterTest.merged("s", "s3", 13, 14),
+				// closes the destroyed session, as its window of 5 seconds has passed
+				SessionLogBuilderFilterTest.merged("x", "x1", 19, 20));
+		final Run run = new Run(100, 5, 100, records);
+		assertEquals(Arrays.asList(
+				"s;" + SessionLogBuilderFilterTest.request("s1", 0, 1) + ";" + SessionLogBuilderFilterTest.request("s2", 9, 12) + " @4",
+				"s;" + SessionLogBuilderFilterTest.request("s3", 13, 14) + " @4",
+				"x;" + SessionLogBuilderFilterTest.request("x1", 19, 20) + " @4"), run.lines);
+	}
+
+	@Test
+	public void testDestroyedBeforeOnlyRequest() throws Exception {
+		final List<IMonitoringRecord> records = Arrays.<IMonitoringRecord> asList(
+				new SessionDestroyedRecord(10, HOSTNAME, SessionKeys.of("s"), true),
+				SessionLogBuilderFilterTest.merged("s", "s1", 9, 11),
+				// an empty destroyed session delivers no line
+				new SessionDestroyedRecord(12, HOSTNAME, SessionKeys.of("empty"), true),
+				SessionLogBuilderFilterTest.merged("x", "x1", 30, 31));
+		final Run run = new Run(100, 5, 100, records);
+		assertEquals(Arrays.asList(
+				"s;" + SessionLogBuilderFilterTest.request("s1", 9, 11) + " @2",
+				"x;" + SessionLogBuilderFilterTest.request("x1", 30, 31) + " @2"), run.lines);
+		assertEquals(2, run.filter.getClosedSessionCount());
+	}
+
+	private static ServletEntryRecord entry(final long traceId) {
+		return new ServletEntryRecord(traceId, "/shop", 8080, "127.0.0.1", "HTTP/1.1", "GET", "a=1", "UTF-8");
+	}
+
+	private static OperationExecutionRecord execution(final long traceId, final String sessionId, final String useCase, final long tin,
+			final long tout) {
+		return new OperationExecutionRecord(useCase, sessionId, traceId, tin, tout, HOSTNAME, 0, 0);
+	}
+
+	private static ServletEntryAndExecutionRecord merged(final String sessionId, final String useCase, final long tin, final long tout) {
+		return new ServletEntryAndExecutionRecord(tin, sessionId, useCase, tin, tout, HOSTNAME, "/shop", 8080, "127.0.0.1", "HTTP/1.1", "GET", "a=1",
+				"UTF-8");
+	}
+
+	/**
+	 * @return The field of a request as written for the records created by this test.
+	 */
+	private static String request(final String useCase, final long tin, final long tout) {
+		return "\"" + useCase + "\":" + tin + ":" + tout + ":/shop:8080:127.0.0.1:HTTP/1.1:GET:a=1:UTF-8";
+	}
+
+	/**
+	 * Passes records through a {@link SessionLogBuilderFilter} in an analysis and collects the delivered lines.
+	 */
+	private static final class Run {
+		final SessionLogBuilderFilter filter; // NOCS
+		final List<String> lines; // NOCS
+
+		public Run(final long sessionTimeout, final long destroyedSessionWindow, final int maxPendingTraces, final List<IMonitoringRecord> records)
+				throws Exception {
+			final AnalysisController analysisController = new AnalysisController();
+			final Configuration readerConfiguration = new Configuration();
+			readerConfiguration.setProperty(ListReader.CONFIG_PROPERTY_NAME_AWAIT_TERMINATION, Boolean.FALSE.toString());
+			final ListReader<IMonitoringRecord> reader = new ListReader<IMonitoringRecord>(readerConfiguration, analysisController);
+			reader.addAllObjects(records);
+
+			final Configuration filterConfiguration = new Configuration();
+			filterConfiguration.setProperty(SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_SESSION_TIMEOUT, Long.toString(sessionTimeout));
+			filterConfiguration.setProperty(SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_DESTROYED_SESSION_WINDOW, Long.toString(destroyedSessionWindow));
+			filterConfiguration.setProperty(SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_MAX_PENDING_TRACES, Integer.toString(maxPendingTraces));
+			filterConfiguration.setProperty(SessionLogBuilderFilter.CONFIG_PROPERTY_NAME_TIME_UNIT, "SECONDS");
+			this.filter = new SessionLogBuilderFilter(filterConfiguration, analysisController);
+			final LineCollector collector = new LineCollector(new Configuration(), analysisController, this.filter);
+
+			analysisController.connect(reader, ListReader.OUTPUT_PORT_NAME, this.filter, SessionLogBuilderFilter.INPUT_PORT_NAME_RECORDS);
+			analysisController.connect(this.filter, SessionLogBuilderFilter.OUTPUT_PORT_NAME_SESSION_LOG_LINES, collector,
+					LineCollector.INPUT_PORT_NAME_LINES);
+			analysisController.run();
+			this.lines = collector.lines;
+		}
+	}
+
+	/**
+	 * Collects the session log lines, each tagged with the number of requests added by the filter before its delivery.
+	 *
+	 * @author WESSBAS project
+	 *
+	 * @since 1.12
+	 */
+	@Plugin(description = "Collects the session log lines")
+	public static final class LineCollector extends AbstractFilterPlugin {
+
+		public static final String INPUT_PORT_NAME_LINES = "lines";
+
+		final List<String> lines = new ArrayList<String>(); // NOCS
+		private final SessionLogBuilderFilter filter;
+
+		public LineCollector(final Configuration configuration, final IProjectContext projectContext, final SessionLogBuilderFilter filter) {
+			super(configuration, projectContext);
+			this.filter = filter;
+		}
+
+		@InputPort(name = INPUT_PORT_NAME_LINES, eventTypes = { String.class })
+		public void inputLine(final String line) {
+			this.lines.add(line + " @" + this.filter.getRequestCount());
+		}
+
+		@Override
+		public Configuration getCurrentConfiguration() {
+			return new Configuration();
+		}
+	}
+}
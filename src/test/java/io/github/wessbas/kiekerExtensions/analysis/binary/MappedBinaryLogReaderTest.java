@@ -0,0 +1,272 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+import kieker.common.record.misc.KiekerMetadataRecord;
+import kieker.monitoring.core.configuration.ConfigurationFactory;
+import kieker.monitoring.core.controller.IMonitoringController;
+import kieker.monitoring.core.controller.MonitoringController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests reading binary logs through the {@link MappedBinaryLogReader}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class MappedBinaryLogReaderTest {
+
+	private static final String WRITER = "kieker.monitoring.writer.filesystem.AsyncBinaryFsWriter";
+
+	private static final int CLASS_ID = 0;
+	private static final int URI_ID = 1;
+	private static final int HOST_ID = 2;
+	private static final int PROTOCOL_ID = 3;
+	private static final int METHOD_ID = 4;
+	private static final int ENCODING_ID = 5;
+	private static final int QUERY_STRING_ID = 6;
+
+	private File directory;
+
+	public MappedBinaryLogReaderTest() {
+		// default constructor
+	}
+
+	@Before
+	public void createDirectory() throws IOException {
+		this.directory = File.createTempFile("log", "");
+		assertTrue(this.directory.delete() && this.directory.mkdir());
+	}
+
+	@After
+	public void deleteDirectory() {
+		MappedBinaryLogReaderTest.delete(this.directory);
+	}
+
+	@Test
+	public void testIdsRegisteredAgain() throws IOException {
+		// the query string ID is registered again with another string in every file, after a varying number of records
+		final List<ServletEntryRecord> records = new ArrayList<ServletEntryRecord>();
+		String queryString = null;
+		for (int fileIndex = 0; fileIndex < 12; fileIndex++) {
+			final LogFileWriter writer = new LogFileWriter(new File(this.directory, "kieker-" + (10 + fileIndex) + ".bin"));
+			try {
+				if (fileIndex == 0) {
+					writer.register(CLASS_ID, ServletEntryRecord.class.getName());
+					writer.register(URI_ID, "/uri");
+					writer.register(HOST_ID, "host");
+					writer.register(PROTOCOL_ID, "HTTP/1.1");
+					writer.register(METHOD_ID, "GET");
+					writer.register(ENCODING_ID, "UTF-8");
+				}
+				final int registration = 300 * (fileIndex % 3);
+				for (int i = 0; i < 600; i++) {
+					if (i == registration) {
+						queryString = "q=" + fileIndex;
+						writer.register(QUERY_STRING_ID, queryString);
+					}
+					if (queryString != null) {
+						final ServletEntryRecord record = new ServletEntryRecord(records.size(), "/uri", 8080, "host", "HTTP/1.1", "GET", queryString,
+								"UTF-8");
+						record.setLoggingTimestamp(records.size());
+						writer.write(record);
+						records.add(record);
+					}
+				}
+			} finally {
+				writer.close();
+			}
+		}
+
+		for (final int parallelism : new int[] { 1, 4, 8, 4, 8 }) {
+			final List<IMonitoringRecord> readRecords = MappedBinaryLogReaderTest.read(this.directory, parallelism);
+			assertEquals(records.size(), readRecords.size());
+			for (int i = 0; i < records.size(); i++) {
+				assertArrayEquals("record " + i + " with parallelism " + parallelism, records.get(i).toArray(), readRecords.get(i).toArray());
+			}
+		}
+	}
+
+	@Test
+	public void testMappingFile() throws IOException {
+		final Writer mappingFile = new OutputStreamWriter(new FileOutputStream(new File(this.directory, LogStringRegistry.MAPPING_FILE_NAME)), "UTF-8");
+		try {
+			mappingFile.write("$" + CLASS_ID + "=" + ServletEntryRecord.class.getName() + "\n");
+			mappingFile.write("$" + URI_ID + "=/uri\n");
+			mappingFile.write("$" + HOST_ID + "=h\u00f6st\n");
+			mappingFile.write("$" + PROTOCOL_ID + "=HTTP/1.1\n");
+			mappingFile.write("$" + METHOD_ID + "=GET\n");
+			mappingFile.write("$" + ENCODING_ID + "=UTF-8\n");
+			mappingFile.write("$" + QUERY_STRING_ID + "=a=1\\nb=\\\\n\\r\\x\n");
+		} finally {
+			mappingFile.close();
+		}
+		final ServletEntryRecord record = new ServletEntryRecord(1, "/uri", 80, "h\u00f6st", "HTTP/1.1", "GET", "a=1\nb=\\n\r\\x", "UTF-8");
+		final LogFileWriter writer = new LogFileWriter(new File(this.directory, "kieker-0.bin"));
+		try {
+			writer.write(record);
+		} finally {
+			writer.close();
+		}
+
+		final List<IMonitoringRecord> readRecords = MappedBinaryLogReaderTest.read(this.directory, 2);
+		assertEquals(1, readRecords.size());
+		assertArrayEquals(record.toArray(), readRecords.get(0).toArray());
+	}
+
+	@Test
+	public void testKiekerWriter() throws Exception {
+		final Configuration configuration = ConfigurationFactory.createDefaultConfiguration();
+		configuration.setProperty(ConfigurationFactory.WRITER_CLASSNAME, WRITER);
+		configuration.setProperty(WRITER + ".customStoragePath", this.directory.getPath());
+		configuration.setProperty(WRITER + ".maxEntriesInFile", "100");
+		final IMonitoringController controller = MonitoringController.createInstance(configuration);
+		final List<IMonitoringRecord> records = new ArrayList<IMonitoringRecord>();
+		for (int i = 0; i < 1000; i++) {
+			final IMonitoringRecord record;
+			if ((i % 2) == 0) {
+				record = new ServletEntryRecord(i, "/uri" + (i % 7), 8080, "host", "HTTP/1.1", "GET", "q=" + i + "\nline\\" + (i % 5), "UTF-8");
+			} else {
+				record = new OperationExecutionRecord("operation" + (i % 5), "session" + i, i, 1000L * i, (1000L * i) + 37, "host", 0, 0);
+			}
+			records.add(record);
+			controller.newMonitoringRecord(record);
+		}
+
+		final File[] logDirectories = this.directory.listFiles();
+		assertEquals(1, logDirectories.length);
+		// the writer drops the string registrations still pending on termination, so wait for all but the last file
+		// (which is only flushed on termination) first
+		MappedBinaryLogReaderTest.awaitRecords(logDirectories[0], records.size());
+		controller.terminateMonitoring();
+		final List<IMonitoringRecord> readRecords = MappedBinaryLogReaderTest.awaitRecords(logDirectories[0], records.size() + 1);
+
+		assertEquals(records.size() + 1, readRecords.size());
+		assertEquals(KiekerMetadataRecord.class, readRecords.get(0).getClass());
+		for (int i = 0; i < records.size(); i++) {
+			assertEquals(records.get(i).getClass(), readRecords.get(i + 1).getClass());
+			assertArrayEquals("record " + i, records.get(i).toArray(), readRecords.get(i + 1).toArray());
+		}
+	}
+
+	/**
+	 * Reads the log written asynchronously by a Kieker writer as soon as it contains the given number of records.
+	 */
+	private static List<IMonitoringRecord> awaitRecords(final File logDirectory, final int count) throws IOException, InterruptedException {
+		final long deadline = System.currentTimeMillis() + 20000;
+		while (true) {
+			try {
+				final List<IMonitoringRecord> records = MappedBinaryLogReaderTest.read(logDirectory, 4);
+				if ((records.size() >= count) || (System.currentTimeMillis() > deadline)) {
+					return records;
+				}
+			} catch (final IOException ex) { // the strings of the last records may not be written yet
+				if (System.currentTimeMillis() > deadline) {
+					throw ex;
+				}
+			}
+			Thread.sleep(50);
+		}
+	}
+
+	private static List<IMonitoringRecord> read(final File logDirectory, final int parallelism) throws IOException {
+		final MappedBinaryLogReader reader = new MappedBinaryLogReader(Arrays.asList(logDirectory), parallelism);
+		try {
+			final List<IMonitoringRecord> records = new ArrayList<IMonitoringRecord>();
+			IMonitoringRecord record;
+			while ((record = reader.next()) != null) { // NOPMD (assignment in operand)
+				records.add(record);
+			}
+			assertNull(reader.next());
+			return records;
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static void delete(final File file) {
+		final File[] files = file.listFiles();
+		if (files != null) {
+			for (final File child : files) {
+				MappedBinaryLogReaderTest.delete(child);
+			}
+		}
+		assertTrue(file.delete());
+	}
+
+	/**
+	 * Writes a log file in the binary format of Kieker, with the registry entries given explicitly. The records refer to
+	 * their strings by the fixed IDs of this test.
+	 */
+	private static final class LogFileWriter {
+
+		private final DataOutputStream output;
+
+		public LogFileWriter(final File file) throws IOException {
+			this.output = new DataOutputStream(new FileOutputStream(file));
+		}
+
+		public void register(final int id, final String value) throws IOException {
+			this.output.writeInt(MappedLogFile.REGISTRY_ENTRY_MARKER);
+			this.output.writeInt(id);
+			this.output.writeUTF(value);
+		}
+
+		public void write(final ServletEntryRecord record) throws IOException {
+			this.output.writeInt(CLASS_ID);
+			this.output.writeLong(record.getLoggingTimestamp());
+			this.output.writeLong(record.getTraceId());
+			this.output.writeInt(URI_ID);
+			this.output.writeInt(record.getPort());
+			this.output.writeInt(HOST_ID);
+			this.output.writeInt(PROTOCOL_ID);
+			this.output.writeInt(METHOD_ID);
+			this.output.writeInt(QUERY_STRING_ID);
+			this.output.writeInt(ENCODING_ID);
+		}
+
+		public void close() throws IOException {
+			this.output.close();
+		}
+	}
+}
@@ -0,0 +1,258 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.analysis.binary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import kieker.common.record.IMonitoringRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests reading binary log files through the {@link MappedLogFile}, in particular with windows smaller than the file.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class MappedLogFileTest {
+
+	private static final int RECORD_COUNT = 500;
+
+	private File directory;
+
+	public MappedLogFileTest() {
+		// default constructor
+	}
+
+	@Before
+	public void createDirectory() throws IOException {
+		this.directory = File.createTempFile("mapped", "");
+		assertTrue(this.directory.delete() && this.directory.mkdir());
+	}
+
+	@After
+	public void deleteDirectory() {
+		for (final File file : this.directory.listFiles()) {
+			assertTrue(file.delete());
+		}
+		assertTrue(this.directory.delete());
+	}
+
+	@Test
+	public void testDecode() throws IOException {
+		final List<ServletEntryRecord> records = MappedLogFileTest.createRecords(0, RECORD_COUNT);
+		final File file = new LogFileWriter().write(new File(this.directory, "kieker-0.bin"), records);
+		MappedLogFileTest.assertRecords(records, file, new LogStringRegistry(), MappedLogFile.DEFAULT_WINDOW_SIZE);
+	}
+
+	@Test
+	public void testDecodeWithWindowRemapping() throws IOException {
+		final List<ServletEntryRecord> records = MappedLogFileTest.createRecords(0, RECORD_COUNT);
+		final File file = new LogFileWriter().write(new File(this.directory, "kieker-0.bin"), records);
+		// windows just larger than the largest entry, so that entries regularly straddle the window end
+		for (final long windowSize : new long[] { 80, 97, 128, 1000 }) {
+			MappedLogFileTest.assertRecords(records, file, new LogStringRegistry(), windowSize);
+		}
+	}
+
+	@Test
+	public void testSkipWithWindowRemapping() throws IOException {
+		final List<ServletEntryRecord> records = MappedLogFileTest.createRecords(0, RECORD_COUNT);
+		final File file = new LogFileWriter().write(new File(this.directory, "kieker-0.bin"), records);
+		final MappedLogFile mappedFile = new MappedLogFile(file, new LogStringRegistry(), 97);
+		try {
+			final ServletEntryRecordView view = new ServletEntryRecordView();
+			int index = 0;
+			while (mappedFile.next()) {
+				final ServletEntryRecord expected = records.get(index);
+				if ((index % 3) == 1) { // skip the payload
+					assertEquals(expected.getLoggingTimestamp(), mappedFile.getLoggingTimestamp());
+				} else if ((index % 3) == 2) {
+					assertTrue(mappedFile.view(view));
+					assertEquals(expected.getTraceId(), view.getTraceId());
+					assertEquals(expected.getQueryString(), view.getQueryString());
+				} else {
+					assertArrayEquals(expected.toArray(), mappedFile.decode().toArray());
+				}
+				index++;
+			}
+			assertEquals(records.size(), index);
+			assertFalse(mappedFile.hasMissingStrings());
+		} finally {
+			mappedFile.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testEntryExceedingWindow() throws IOException {
+		final StringBuilder queryString = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			queryString.append('x');
+		}
+		final List<ServletEntryRecord> records = MappedLogFileTest.createRecords(0, 10);
+		records.add(MappedLogFileTest.createRecord(10, queryString.toString()));
+		final File file = new LogFileWriter().write(new File(this.directory, "kieker-0.bin"), records);
+		MappedLogFileTest.assertRecords(records, file, new LogStringRegistry(), 100);
+	}
+
+	@Test
+	public void testMissingStrings() throws IOException {
+		final LogFileWriter writer = new LogFileWriter();
+		final List<ServletEntryRecord> firstRecords = MappedLogFileTest.createRecords(0, 10);
+		final File firstFile = writer.write(new File(this.directory, "kieker-0.bin"), firstRecords);
+		final List<ServletEntryRecord> secondRecords = MappedLogFileTest.createRecords(10, 10);
+		final File secondFile = writer.write(new File(this.directory, "kieker-1.bin"), secondRecords);
+
+		// the record type is registered in the first file only
+		final MappedLogFile mappedFile = new MappedLogFile(secondFile, new LogStringRegistry(), 100);
+		try {
+			assertFalse(mappedFile.next());
+			assertTrue(mappedFile.hasMissingStrings());
+		} finally {
+			mappedFile.close();
+		}
+
+		final LogStringRegistry registry = new LogStringRegistry();
+		final MappedLogFile firstMappedFile = new MappedLogFile(firstFile, new LogStringRegistry(), 100);
+		try {
+			while (firstMappedFile.next()) {
+				firstMappedFile.decode();
+			}
+			final int[] ids = firstMappedFile.getRegistryEntryIds();
+			final String[] values = firstMappedFile.getRegistryEntryValues();
+			assertEquals(ids.length, values.length);
+			for (int i = 0; i < ids.length; i++) {
+				registry.put(ids[i], values[i]);
+			}
+		} finally {
+			firstMappedFile.close();
+		}
+		MappedLogFileTest.assertRecords(secondRecords, secondFile, registry, 100);
+	}
+
+	private static void assertRecords(final List<ServletEntryRecord> expectedRecords, final File file, final LogStringRegistry baseRegistry,
+			final long windowSize) throws IOException {
+		final MappedLogFile mappedFile = new MappedLogFile(file, baseRegistry, windowSize);
+		try {
+			final List<IMonitoringRecord> records = new ArrayList<IMonitoringRecord>();
+			while (mappedFile.next()) {
+				assertEquals(ServletEntryRecord.class.getName(), mappedFile.getRecordClassName());
+				records.add(mappedFile.decode());
+			}
+			assertFalse(mappedFile.hasMissingStrings());
+			assertEquals(expectedRecords.size(), records.size());
+			for (int i = 0; i < records.size(); i++) {
+				assertEquals(expectedRecords.get(i).getLoggingTimestamp(), records.get(i).getLoggingTimestamp());
+				assertArrayEquals("record " + i + " with window size " + windowSize, expectedRecords.get(i).toArray(), records.get(i).toArray());
+			}
+		} finally {
+			mappedFile.close();
+		}
+	}
+
+	private static List<ServletEntryRecord> createRecords(final int first, final int count) {
+		final List<ServletEntryRecord> records = new ArrayList<ServletEntryRecord>(count);
+		for (int i = first; i < (first + count); i++) {
+			// query strings of varying length, so that the entries do not align with the windows
+			final StringBuilder queryString = new StringBuilder("q=");
+			for (int j = 0; j < (i % 13); j++) {
+				queryString.append((char) ('a' + j));
+			}
+			records.add(MappedLogFileTest.createRecord(i, queryString.toString()));
+		}
+		return records;
+	}
+
+	private static ServletEntryRecord createRecord(final int index, final String queryString) {
+		// a multi-byte character in modified UTF-8
+		final ServletEntryRecord record = new ServletEntryRecord(index, "/uri" + (index % 7), 8080, "host", "HTTP/1.1", "GET", queryString,
+				"utf-8\u00e9");
+		record.setLoggingTimestamp(1000L + index);
+		return record;
+	}
+
+	/**
+	 * Writes log files in the binary format of Kieker, registering each string before its first use.
+	 */
+	private static final class LogFileWriter {
+
+		private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+		public LogFileWriter() {
+			// default constructor
+		}
+
+		public File write(final File file, final List<ServletEntryRecord> records) throws IOException {
+			final DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+			try {
+				for (final ServletEntryRecord record : records) {
+					final int classId = this.getId(output, ServletEntryRecord.class.getName());
+					final int uriId = this.getId(output, record.getUri());
+					final int hostId = this.getId(output, record.getHost());
+					final int protocolId = this.getId(output, record.getProtocol());
+					final int methodId = this.getId(output, record.getMethod());
+					final int queryStringId = this.getId(output, record.getQueryString());
+					final int encodingId = this.getId(output, record.getEncoding());
+					output.writeInt(classId);
+					output.writeLong(record.getLoggingTimestamp());
+					output.writeLong(record.getTraceId());
+					output.writeInt(uriId);
+					output.writeInt(record.getPort());
+					output.writeInt(hostId);
+					output.writeInt(protocolId);
+					output.writeInt(methodId);
+					output.writeInt(queryStringId);
+					output.writeInt(encodingId);
+				}
+			} finally {
+				output.close();
+			}
+			return file;
+		}
+
+		private int getId(final DataOutputStream output, final String value) throws IOException {
+			Integer id = this.ids.get(value);
+			if (id == null) {
+				id = this.ids.size();
+				this.ids.put(value, id);
+				output.writeInt(MappedLogFile.REGISTRY_ENTRY_MARKER);
+				output.writeInt(id);
+				output.writeUTF(value);
+			}
+			return id;
+		}
+	}
+}
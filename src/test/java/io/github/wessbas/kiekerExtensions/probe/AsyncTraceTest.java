@@ -0,0 +1,374 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.github.wessbas.kiekerExtensions.probe.capture.QueryStringCapture;
+import io.github.wessbas.kiekerExtensions.record.ServletAsyncCompletionRecord;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import kieker.monitoring.core.registry.ControlFlowRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the filter finishes the traces of asynchronous requests from the {@link AsyncTrace} listener, and that
+ * async dispatches continue the trace.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class AsyncTraceTest {
+
+	private static final ControlFlowRegistry CF_REGISTRY = ControlFlowRegistry.INSTANCE;
+
+	private RecordingFilter filter;
+	private FakeRequest request;
+	private FakeResponse response;
+
+	public AsyncTraceTest() {
+		// default constructor
+	}
+
+	@Before
+	public void createFilter() {
+		this.filter = new RecordingFilter();
+		this.request = new FakeRequest();
+		this.response = new FakeResponse();
+	}
+
+	@Test
+	public void testSynchronousRequest() throws Exception {
+		this.filter.doFilter(this.request.create(), this.response.create(), new NoChain());
+		assertEquals(1, this.filter.submissions.size());
+		final Submission submission = this.filter.submissions.get(0);
+		assertEquals(ServletAsyncCompletionRecord.NO_STATUS, submission.responseStatus);
+		assertNull(submission.asyncOutcome);
+		assertEquals("session", submission.sessionId);
+	}
+
+	@Test
+	public void testComplete() throws Exception {
+		final long[] traceIds = new long[2];
+		this.filter.doFilter(this.request.create(), this.response.create(), new FilterChain() {
+			public void doFilter(final ServletRequest servletRequest, final ServletResponse servletResponse) {
+				traceIds[0] = CF_REGISTRY.recallThreadLocalTraceId();
+				CF_REGISTRY.incrementAndRecallThreadLocalEOI();
+				AsyncTraceTest.this.request.asyncStarted = true;
+			}
+		});
+		// the request thread is released without writing the records
+		assertEquals(0, this.filter.submissions.size());
+		assertEquals(1, this.request.listeners.size());
+		assertEquals(-1, CF_REGISTRY.recallThreadLocalTraceId());
+		assertTrue(this.request.attributes.get(AsyncTrace.REQUEST_ATTRIBUTE) instanceof AsyncTrace);
+
+		// an async dispatch continues the trace after the EOIs of the first dispatch
+		this.request.dispatcherType = DispatcherType.ASYNC;
+		final int[] eois = new int[1];
+		this.filter.doFilter(this.request.create(), this.response.create(), new FilterChain() {
+			public void doFilter(final ServletRequest servletRequest, final ServletResponse servletResponse) {
+				traceIds[1] = CF_REGISTRY.recallThreadLocalTraceId();
+				eois[0] = CF_REGISTRY.incrementAndRecallThreadLocalEOI();
+			}
+		});
+		assertEquals(traceIds[0], traceIds[1]);
+		assertEquals(2, eois[0]);
+		assertEquals(-1, CF_REGISTRY.recallThreadLocalTraceId());
+		assertEquals(0, this.filter.submissions.size());
+
+		this.response.status = HttpServletResponse.SC_CREATED;
+		final AsyncListener listener = this.request.listeners.get(0);
+		listener.onComplete(new AsyncEvent(this.request.createAsyncContext()));
+		listener.onComplete(new AsyncEvent(this.request.createAsyncContext()));
+		assertEquals(1, this.filter.submissions.size());
+		final Submission submission = this.filter.submissions.get(0);
+		assertEquals(traceIds[0], submission.traceId);
+		assertEquals(HttpServletResponse.SC_CREATED, submission.responseStatus);
+		assertEquals(ServletAsyncCompletionRecord.OUTCOME_COMPLETE, submission.asyncOutcome);
+		assertTrue(submission.tout >= submission.tin);
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		final AsyncListener listener = this.startAsync();
+		this.response.status = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+		listener.onTimeout(new AsyncEvent(this.request.createAsyncContext()));
+		assertEquals(0, this.filter.submissions.size());
+		listener.onComplete(new AsyncEvent(this.request.createAsyncContext()));
+		assertEquals(1, this.filter.submissions.size());
+		assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, this.filter.submissions.get(0).responseStatus);
+		assertEquals(ServletAsyncCompletionRecord.OUTCOME_TIMEOUT, this.filter.submissions.get(0).asyncOutcome);
+	}
+
+	@Test
+	public void testError() throws Exception {
+		final AsyncListener listener = this.startAsync();
+		listener.onError(new AsyncEvent(this.request.createAsyncContext()));
+		listener.onComplete(new AsyncEvent(this.request.createAsyncContext()));
+		assertEquals(1, this.filter.submissions.size());
+		assertEquals(ServletAsyncCompletionRecord.OUTCOME_ERROR, this.filter.submissions.get(0).asyncOutcome);
+	}
+
+	@Test
+	public void testStartAsyncAgain() throws Exception {
+		final AsyncListener listener = this.startAsync();
+		// the container drops the listeners when the request goes async once more
+		this.request.listeners.clear();
+		listener.onStartAsync(new AsyncEvent(this.request.createAsyncContext()));
+		assertEquals(1, this.request.listeners.size());
+		assertSame(listener, this.request.listeners.get(0));
+	}
+
+	@Test
+	public void testSessionCreatedAsynchronously() throws Exception {
+		this.request.sessionId = null;
+		final AsyncListener listener = this.startAsync();
+		this.request.sessionId = "created";
+		listener.onComplete(new AsyncEvent(this.request.createAsyncContext()));
+		assertEquals("created", this.filter.submissions.get(0).sessionId);
+	}
+
+	@Test
+	public void testCompletedBeforeRegistration() throws Exception {
+		// the request completes on another thread before the listener can be added
+		this.request.completed = true;
+		this.startAsync();
+		assertEquals(1, this.filter.submissions.size());
+		assertEquals(ServletAsyncCompletionRecord.NO_STATUS, this.filter.submissions.get(0).responseStatus);
+	}
+
+	@Test
+	public void testUntracedAsyncDispatch() throws Exception {
+		this.request.dispatcherType = DispatcherType.ASYNC;
+		final long[] traceId = new long[1];
+		this.filter.doFilter(this.request.create(), this.response.create(), new FilterChain() {
+			public void doFilter(final ServletRequest servletRequest, final ServletResponse servletResponse) {
+				traceId[0] = CF_REGISTRY.recallThreadLocalTraceId();
+			}
+		});
+		assertEquals(-1, traceId[0]);
+		assertEquals(0, this.filter.submissions.size());
+	}
+
+	/**
+	 * Passes the request through a chain which puts it into asynchronous mode.
+	 *
+	 * @return The listener registered by the filter, or {@code null} if none has been registered.
+	 */
+	private AsyncListener startAsync() throws IOException, ServletException {
+		this.filter.doFilter(this.request.create(), this.response.create(), new FilterChain() {
+			public void doFilter(final ServletRequest servletRequest, final ServletResponse servletResponse) {
+				AsyncTraceTest.this.request.asyncStarted = true;
+			}
+		});
+		return this.request.listeners.isEmpty() ? null : this.request.listeners.get(0); // NOCS
+	}
+
+	/**
+	 * A filter which records the submitted traces instead of writing records.
+	 */
+	private static final class RecordingFilter extends SessionAndTraceRegistrationFilterSPECjEnterprise {
+		final List<Submission> submissions = new ArrayList<Submission>(); // NOCS
+
+		public RecordingFilter() {
+			// default constructor
+		}
+
+		@Override
+		void submitRecords(final long traceId, final String sessionId, final String useCase, final long tin, final long tout, // NOPMD
+				final String uri, final int port, final String host, final String protocol, final String method, final String queryString,
+				final String encoding, final boolean sampled, final double samplingProbability, final int responseStatus,
+				final String asyncOutcome, final long cpuTime, final long allocatedBytes, final QueryStringCapture queryStringCapture) {
+			this.submissions.add(new Submission(traceId, sessionId, tin, tout, responseStatus, asyncOutcome));
+		}
+	}
+
+	/**
+	 * The arguments of a submitted trace which are checked by the tests.
+	 */
+	private static final class Submission {
+		final long traceId; // NOCS
+		final String sessionId; // NOCS
+		final long tin; // NOCS
+		final long tout; // NOCS
+		final int responseStatus; // NOCS
+		final String asyncOutcome; // NOCS
+
+		public Submission(final long traceId, final String sessionId, final long tin, final long tout, final int responseStatus,
+				final String asyncOutcome) {
+			this.traceId = traceId;
+			this.sessionId = sessionId;
+			this.tin = tin;
+			this.tout = tout;
+			this.responseStatus = responseStatus;
+			this.asyncOutcome = asyncOutcome;
+		}
+	}
+
+	/**
+	 * A chain which does nothing.
+	 */
+	private static final class NoChain implements FilterChain {
+
+		public NoChain() {
+			// default constructor
+		}
+
+		public void doFilter(final ServletRequest servletRequest, final ServletResponse servletResponse) {
+			// nothing to do
+		}
+	}
+
+	/**
+	 * The state of a request, which is shared by all proxies created for it.
+	 */
+	private static final class FakeRequest {
+		final Map<String, Object> attributes = new HashMap<String, Object>(); // NOCS
+		final List<AsyncListener> listeners = new ArrayList<AsyncListener>(); // NOCS
+		volatile DispatcherType dispatcherType = DispatcherType.REQUEST; // NOCS
+		volatile boolean asyncStarted; // NOCS
+		volatile boolean completed; // NOCS
+		volatile String sessionId = "session"; // NOCS
+
+		public FakeRequest() {
+			// default constructor
+		}
+
+		public HttpServletRequest create() {
+			return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+					new InvocationHandler() {
+						public Object invoke(final Object proxy, final Method method, final Object[] args) {
+							return FakeRequest.this.invoke(method.getName(), args);
+						}
+					});
+		}
+
+		public AsyncContext createAsyncContext() {
+			return (AsyncContext) Proxy.newProxyInstance(AsyncContext.class.getClassLoader(), new Class<?>[] { AsyncContext.class },
+					new InvocationHandler() {
+						public Object invoke(final Object proxy, final Method method, final Object[] args) {
+							if ("addListener".equals(method.getName())) {
+								if (FakeRequest.this.completed) {
+									throw new IllegalStateException("completed");
+								}
+								FakeRequest.this.listeners.add((AsyncListener) args[0]);
+								return null;
+							}
+							throw new UnsupportedOperationException(method.getName());
+						}
+					});
+		}
+
+		Object invoke(final String name, final Object[] args) { // NOPMD (dispatches on the method name)
+			if ("getDispatcherType".equals(name)) {
+				return this.dispatcherType;
+			} else if ("isAsyncStarted".equals(name)) {
+				return this.asyncStarted;
+			} else if ("getAsyncContext".equals(name)) {
+				return this.createAsyncContext();
+			} else if ("getAttribute".equals(name)) {
+				return this.attributes.get(args[0]);
+			} else if ("setAttribute".equals(name)) {
+				this.attributes.put((String) args[0], args[1]);
+				return null;
+			} else if ("getSession".equals(name)) {
+				return (this.sessionId != null) ? this.createSession(this.sessionId) : null; // NOCS
+			} else if ("getRequestURI".equals(name)) {
+				return "/shop/app";
+			} else if ("getContextPath".equals(name)) {
+				return "/shop";
+			} else if ("getQueryString".equals(name)) {
+				return "action=View";
+			} else if ("getMethod".equals(name)) {
+				return "GET";
+			} else if ("getProtocol".equals(name)) {
+				return "HTTP/1.1";
+			} else if ("getLocalAddr".equals(name)) {
+				return "127.0.0.1";
+			} else if ("getLocalPort".equals(name)) {
+				return 8080;
+			} else if ("getCharacterEncoding".equals(name)) {
+				return null;
+			}
+			throw new UnsupportedOperationException(name);
+		}
+
+		private HttpSession createSession(final String id) {
+			return (HttpSession) Proxy.newProxyInstance(HttpSession.class.getClassLoader(), new Class<?>[] { HttpSession.class },
+					new InvocationHandler() {
+						public Object invoke(final Object proxy, final Method method, final Object[] args) {
+							if ("getId".equals(method.getName())) {
+								return id;
+							}
+							throw new UnsupportedOperationException(method.getName());
+						}
+					});
+		}
+	}
+
+	/**
+	 * The state of a response, which is shared by all proxies created for it.
+	 */
+	private static final class FakeResponse {
+		volatile int status = HttpServletResponse.SC_OK; // NOCS
+
+		public FakeResponse() {
+			// default constructor
+		}
+
+		public HttpServletResponse create() {
+			return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+					new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+						public Object invoke(final Object proxy, final Method method, final Object[] args) {
+							if ("getStatus".equals(method.getName())) {
+								return FakeResponse.this.status;
+							}
+							throw new UnsupportedOperationException(method.getName());
+						}
+					});
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.activation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+
+import org.junit.Test;
+
+/**
+ * Tests the caching, the periodic refresh, and the stopping of the {@link ProbeActivationCache}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class ProbeActivationCacheTest {
+
+	private static final String SIGNATURE = "active()";
+	private static final long TIMEOUT_MILLIS = 10000;
+
+	public ProbeActivationCacheTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testUncached() {
+		final FakeController controller = new FakeController();
+		final ProbeActivationCache cache = new ProbeActivationCache(controller.create(), SIGNATURE);
+		assertTrue(cache.isActive());
+		controller.enabled = false;
+		assertFalse(cache.isActive());
+		assertEquals(2, controller.evaluations.get());
+
+		// with a refresh interval of 0, nothing is cached either
+		cache.start(0);
+		controller.enabled = true;
+		assertTrue(cache.isActive());
+		assertEquals(3, controller.evaluations.get());
+	}
+
+	@Test
+	public void testCachedUntilRefresh() {
+		final FakeController controller = new FakeController();
+		final ProbeActivationCache cache = new ProbeActivationCache(controller.create(), SIGNATURE);
+		cache.start(TIMEOUT_MILLIS * 10);
+		try {
+			final long epoch = cache.getEpoch();
+			final int evaluations = controller.evaluations.get();
+			assertTrue(cache.isActive());
+			controller.enabled = false;
+			assertTrue(cache.isActive());
+			assertEquals(evaluations, controller.evaluations.get());
+
+			cache.refresh();
+			assertFalse(cache.isActive());
+			assertEquals(epoch + 1, cache.getEpoch());
+			// a refresh without a change does not count
+			cache.refresh();
+			assertEquals(epoch + 1, cache.getEpoch());
+
+			controller.enabled = true;
+			cache.setSignature("inactive()");
+			assertFalse(cache.isActive());
+			cache.setSignature(SIGNATURE);
+			assertTrue(cache.isActive());
+			assertEquals(SIGNATURE, cache.getSignature());
+			assertEquals(epoch + 2, cache.getEpoch());
+		} finally {
+			cache.stop();
+		}
+	}
+
+	@Test(timeout = TIMEOUT_MILLIS)
+	public void testPeriodicRefresh() throws InterruptedException {
+		final FakeController controller = new FakeController();
+		final ProbeActivationCache cache = new ProbeActivationCache(controller.create(), SIGNATURE);
+		// replacing the interval leaves a single refresh task
+		cache.start(TIMEOUT_MILLIS * 10);
+		cache.start(10);
+		try {
+			assertTrue(cache.isActive());
+			controller.enabled = false;
+			while (cache.isActive()) {
+				Thread.sleep(5);
+			}
+		} finally {
+			cache.stop();
+		}
+		ProbeActivationCacheTest.awaitRefresherStopped();
+	}
+
+	@Test(timeout = TIMEOUT_MILLIS)
+	public void testStop() throws InterruptedException {
+		final FakeController firstController = new FakeController();
+		final ProbeActivationCache first = new ProbeActivationCache(firstController.create(), SIGNATURE);
+		final FakeController secondController = new FakeController();
+		final ProbeActivationCache second = new ProbeActivationCache(secondController.create(), SIGNATURE);
+		first.start(10);
+		second.start(10);
+
+		// the refresh thread keeps running for the cache still started
+		first.stop();
+		first.stop();
+		Thread.sleep(50); // lets a refresh which was already running finish
+		final int evaluations = firstController.evaluations.get();
+		secondController.enabled = false;
+		while (second.isActive()) {
+			Thread.sleep(5);
+		}
+		Thread.sleep(50);
+		assertEquals(evaluations, firstController.evaluations.get());
+
+		// a stopped cache evaluates on every call
+		firstController.enabled = false;
+		assertFalse(first.isActive());
+
+		second.stop();
+		ProbeActivationCacheTest.awaitRefresherStopped();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeInterval() {
+		new ProbeActivationCache(new FakeController().create(), SIGNATURE).start(-1);
+	}
+
+	/**
+	 * Waits until the shared refresh thread has ended.
+	 */
+	private static void awaitRefresherStopped() throws InterruptedException {
+		while (true) {
+			boolean running = false;
+			for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+				if ("ProbeActivationCache".equals(thread.getName()) && thread.isAlive()) {
+					running = true;
+				}
+			}
+			if (!running) {
+				return;
+			}
+			Thread.sleep(5);
+		}
+	}
+
+	/**
+	 * A monitoring controller whose probes with a signature starting with {@code active} are activated.
+	 */
+	private static final class FakeController {
+		final AtomicInteger evaluations = new AtomicInteger(); // NOCS
+		volatile boolean enabled = true; // NOCS
+
+		public FakeController() {
+			// default constructor
+		}
+
+		public IMonitoringController create() {
+			return (IMonitoringController) Proxy.newProxyInstance(IMonitoringController.class.getClassLoader(),
+					new Class<?>[] { IMonitoringController.class }, new InvocationHandler() {
+						public Object invoke(final Object proxy, final Method method, final Object[] args) {
+							if ("isMonitoringEnabled".equals(method.getName())) {
+								FakeController.this.evaluations.incrementAndGet();
+								return FakeController.this.enabled;
+							} else if ("isProbeActivated".equals(method.getName())) {
+								return ((String) args[0]).startsWith("active");
+							}
+							throw new UnsupportedOperationException(method.getName());
+						}
+					});
+		}
+	}
+}
@@ -0,0 +1,147 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.aggregation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Tests the bucketing and the snapshots of the {@link LogLinearHistogram}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class LogLinearHistogramTest {
+
+	private static final int THREADS = 8;
+	private static final int VALUES_PER_THREAD = 100000;
+
+	public LogLinearHistogramTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testBucketBounds() {
+		assertEquals(0, LogLinearHistogram.lowerBoundOf(0));
+		for (int bucket = 0; bucket < LogLinearHistogram.BUCKET_COUNT; bucket++) {
+			final long lower = LogLinearHistogram.lowerBoundOf(bucket);
+			final long upper = LogLinearHistogram.upperBoundOf(bucket);
+			assertEquals(bucket, LogLinearHistogram.bucketOf(lower));
+			assertEquals(bucket, LogLinearHistogram.bucketOf(upper));
+			if (bucket > 0) {
+				// the buckets are contiguous
+				assertEquals(LogLinearHistogram.upperBoundOf(bucket - 1) + 1, lower);
+			}
+			if (bucket >= LogLinearHistogram.SUB_BUCKETS) {
+				// the width is at most 1/SUB_BUCKETS of the values
+				assertTrue(bucket + ": " + lower + ".." + upper, ((upper - lower) + 1) <= (lower / LogLinearHistogram.SUB_BUCKETS));
+			} else {
+				assertEquals(lower, upper);
+			}
+		}
+		assertEquals((1L << LogLinearHistogram.MAX_EXPONENT) - 1, LogLinearHistogram.upperBoundOf(LogLinearHistogram.BUCKET_COUNT - 1));
+	}
+
+	@Test
+	public void testOutOfRangeValues() {
+		assertEquals(0, LogLinearHistogram.bucketOf(-1));
+		assertEquals(0, LogLinearHistogram.bucketOf(Long.MIN_VALUE));
+		assertEquals(LogLinearHistogram.BUCKET_COUNT - 1, LogLinearHistogram.bucketOf(1L << LogLinearHistogram.MAX_EXPONENT));
+		assertEquals(LogLinearHistogram.BUCKET_COUNT - 1, LogLinearHistogram.bucketOf(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testSnapshot() {
+		final LogLinearHistogram histogram = new LogLinearHistogram(4);
+		for (int value = 1; value <= 100; value++) {
+			histogram.record(value);
+		}
+		histogram.record(-5);
+		final LogLinearHistogram.Snapshot snapshot = histogram.snapshotDelta();
+		assertEquals(101, snapshot.getCount());
+		assertEquals(5050, snapshot.getSum());
+		assertEquals(5050.0 / 101, snapshot.getMean(), 1e-9);
+		assertEquals(0, snapshot.getMin());
+		// 64..127 is divided into buckets of width 4, so 100 is in the bucket 100..103
+		assertEquals(103, snapshot.getMax());
+		// the 51st value is 50, in the bucket 50..51
+		assertEquals(51, snapshot.getValueAtQuantile(0.5));
+		// values below 16 have a bucket of their own, and the 11th value is 10
+		assertEquals(10, snapshot.getValueAtQuantile(0.1));
+		assertEquals(103, snapshot.getValueAtQuantile(1.0));
+	}
+
+	@Test
+	public void testSnapshotDelta() {
+		final LogLinearHistogram histogram = new LogLinearHistogram(1);
+		histogram.record(1000);
+		histogram.snapshotDelta();
+
+		final LogLinearHistogram.Snapshot empty = histogram.snapshotDelta();
+		assertEquals(0, empty.getCount());
+		assertEquals(0, empty.getSum());
+		assertTrue(Double.isNaN(empty.getMean()));
+		assertEquals(0, empty.getMin());
+		assertEquals(0, empty.getMax());
+		assertEquals(0, empty.getValueAtQuantile(0.99));
+
+		histogram.record(7);
+		final LogLinearHistogram.Snapshot delta = histogram.snapshotDelta();
+		assertEquals(1, delta.getCount());
+		assertEquals(7, delta.getSum());
+		assertEquals(7, delta.getMin());
+		assertEquals(7, delta.getMax());
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentRecording() throws InterruptedException {
+		final LogLinearHistogram histogram = new LogLinearHistogram(THREADS);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < VALUES_PER_THREAD; i++) {
+						histogram.record(i);
+					}
+					done.countDown();
+				}
+			}.start();
+		}
+		// snapshots taken while recording lose no values
+		long count = 0;
+		long sum = 0;
+		while (done.getCount() > 0) {
+			final LogLinearHistogram.Snapshot snapshot = histogram.snapshotDelta();
+			count += snapshot.getCount();
+			sum += snapshot.getSum();
+		}
+		done.await();
+		final LogLinearHistogram.Snapshot snapshot = histogram.snapshotDelta();
+		count += snapshot.getCount();
+		sum += snapshot.getSum();
+		assertEquals((long) THREADS * VALUES_PER_THREAD, count);
+		assertEquals(((long) THREADS * VALUES_PER_THREAD * (VALUES_PER_THREAD - 1)) / 2, sum);
+	}
+}
@@ -0,0 +1,94 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.capture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link QueryStringCapture} modes.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class QueryStringCaptureTest {
+
+	private static final String[] PARAMETERS = { "page", "sort" };
+
+	public QueryStringCaptureTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testTruncate() {
+		final QueryStringCapture capture = new QueryStringCapture(QueryStringCaptureMode.TRUNCATE, 6, PARAMETERS, 0);
+		assertEquals("a=1", capture.capture("a=1"));
+		assertEquals("a=1&b=", capture.capture("a=1&b=2&c=3"));
+		// an escape is not split
+		assertEquals("a=%20", capture.capture("a=%20%20"));
+		assertEquals(null, capture.capture(null));
+	}
+
+	@Test
+	public void testWhitelist() {
+		final QueryStringCapture capture = new QueryStringCapture(QueryStringCaptureMode.WHITELIST, 0, PARAMETERS, 16);
+		assertEquals("page=2&sort=name", capture.capture("page=2&sort=name"));
+		assertEquals("page=2&sort=name", capture.capture("user=bob&page=2&token=x&sort=name"));
+		assertEquals("", capture.capture("user=bob"));
+	}
+
+	@Test
+	public void testHashWithConfiguredKey() {
+		final QueryStringCapture capture = new QueryStringCapture(QueryStringCaptureMode.HASH, 0, PARAMETERS, "secret", 16);
+		assertTrue(capture.isHashKeyConfigured());
+		// HMAC-SHA256("secret", "bob") = 9c90819f88377266...
+		assertEquals("page=2&user=9c90819f88377266&flag", capture.capture("page=2&user=bob&flag"));
+		assertEquals("page=2&user=&flag=", capture.capture("page=2&user=&flag="));
+
+		final String otherKey = new QueryStringCapture(QueryStringCaptureMode.HASH, 0, PARAMETERS, "other", 0).capture("user=bob");
+		assertFalse(otherKey.equals("user=9c90819f88377266"));
+	}
+
+	@Test
+	public void testHashWithRandomKey() {
+		final QueryStringCapture capture = new QueryStringCapture(QueryStringCaptureMode.HASH, 0, PARAMETERS, 0);
+		assertFalse(capture.isHashKeyConfigured());
+		final String hashed = capture.capture("user=bob&sort=name");
+		assertTrue(hashed, hashed.matches("user=[0-9a-f]{16}&sort=name"));
+		// the random key is shared within the JVM, so equal values can still be correlated
+		assertEquals(hashed, new QueryStringCapture(QueryStringCaptureMode.HASH, 0, PARAMETERS, 16).capture("user=bob&sort=name"));
+	}
+
+	@Test
+	public void testWithPolicyKeepsKey() {
+		final QueryStringCapture capture = new QueryStringCapture(QueryStringCaptureMode.WHITELIST, 0, PARAMETERS, "secret", 16);
+		final QueryStringCapture reconfigured = capture.withPolicy(QueryStringCaptureMode.HASH, 0, new String[0], 16);
+		assertTrue(reconfigured.isHashKeyConfigured());
+		assertEquals("user=9c90819f88377266", reconfigured.capture("user=bob"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyKey() {
+		new QueryStringCapture(QueryStringCaptureMode.HASH, 0, PARAMETERS, "", 16);
+	}
+}
@@ -0,0 +1,133 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import kieker.common.record.controlflow.OperationExecutionRecord;
+import kieker.monitoring.core.registry.ControlFlowRegistry;
+
+import org.junit.Test;
+
+/**
+ * Tests that the executions of tasks submitted through the {@link TraceContextExecutorService}, including tasks
+ * submitted by tasks, get unique EOIs within the submitting trace.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class TraceContextTest {
+
+	private static final ControlFlowRegistry CF_REGISTRY = ControlFlowRegistry.INSTANCE;
+
+	private static final int EXECUTIONS = 20;
+	private static final int FAN_OUT = 3;
+	private static final int DEPTH = 3;
+
+	public TraceContextTest() {
+		// default constructor
+	}
+
+	@Test(timeout = 60000)
+	public void testNestedFanOut() throws Exception {
+		final ExecutorService executor = TraceContextExecutorService.wrap(Executors.newCachedThreadPool());
+		final List<Integer> eois = Collections.synchronizedList(new ArrayList<Integer>());
+		final long traceId = CF_REGISTRY.getAndStoreUniqueThreadLocalTraceId();
+		CF_REGISTRY.storeThreadLocalEOI(0);
+		CF_REGISTRY.storeThreadLocalESS(1);
+		try {
+			eois.add(0);
+			new Task(executor, eois, traceId, DEPTH).call();
+		} finally {
+			CF_REGISTRY.unsetThreadLocalTraceId();
+			CF_REGISTRY.unsetThreadLocalEOI();
+			CF_REGISTRY.unsetThreadLocalESS();
+			executor.shutdown();
+		}
+
+		int expectedCount = 1;
+		int tasks = 1;
+		for (int depth = 0; depth <= DEPTH; depth++) {
+			expectedCount += tasks * EXECUTIONS;
+			tasks *= FAN_OUT;
+		}
+		assertEquals(expectedCount, eois.size());
+		final Set<Integer> uniqueEois = new HashSet<Integer>(eois);
+		assertEquals("EOIs used more than once", eois.size(), uniqueEois.size());
+		for (final Integer eoi : eois) {
+			assertTrue(eoi >= 0);
+		}
+	}
+
+	@Test
+	public void testCaptureOutsideTrace() {
+		final TraceContext context = TraceContext.capture();
+		assertTrue(context.isEmpty());
+		assertEquals(OperationExecutionRecord.NO_TRACE_ID, context.getTraceId());
+	}
+
+	/**
+	 * Performs executions before and after submitting tasks, which do the same down to the given depth.
+	 */
+	private static final class Task implements Callable<Void> {
+		private final ExecutorService executor;
+		private final List<Integer> eois;
+		private final long traceId;
+		private final int depth;
+
+		public Task(final ExecutorService executor, final List<Integer> eois, final long traceId, final int depth) {
+			this.executor = executor;
+			this.eois = eois;
+			this.traceId = traceId;
+			this.depth = depth;
+		}
+
+		public Void call() throws Exception {
+			assertEquals(this.traceId, CF_REGISTRY.recallThreadLocalTraceId());
+			for (int i = 0; i < (EXECUTIONS / 2); i++) {
+				this.eois.add(CF_REGISTRY.incrementAndRecallThreadLocalEOI());
+			}
+			final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+			if (this.depth > 0) {
+				for (int i = 0; i < FAN_OUT; i++) {
+					futures.add(this.executor.submit(new Task(this.executor, this.eois, this.traceId, this.depth - 1)));
+				}
+			}
+			for (int i = 0; i < (EXECUTIONS / 2); i++) {
+				this.eois.add(CF_REGISTRY.incrementAndRecallThreadLocalEOI());
+			}
+			for (final Future<Void> future : futures) {
+				future.get();
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,231 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.guard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.github.wessbas.kiekerExtensions.probe.sampling.ITraceSampler;
+import io.github.wessbas.kiekerExtensions.record.MonitoringLevelChangeRecord;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the level changes of the {@link OverheadGuard}: one step down per hold period while overloaded, and one step up
+ * only after several relaxed evaluations.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class OverheadGuardTest {
+
+	private static final double BUDGET = 1000.0;
+	private static final double BACKLOG_THRESHOLD = 0.5;
+
+	private final List<MonitoringLevelChangeRecord> records = new ArrayList<MonitoringLevelChangeRecord>();
+	private IMonitoringController controller;
+
+	private double backlogRatio;
+	private long droppedCount;
+
+	public OverheadGuardTest() {
+		// default constructor
+	}
+
+	@Before
+	public void createController() {
+		this.controller = (IMonitoringController) Proxy.newProxyInstance(IMonitoringController.class.getClassLoader(),
+				new Class<?>[] { IMonitoringController.class }, new InvocationHandler() {
+					public Object invoke(final Object proxy, final Method method, final Object[] args) {
+						if ("newMonitoringRecord".equals(method.getName())) {
+							OverheadGuardTest.this.records.add((MonitoringLevelChangeRecord) args[0]);
+							return Boolean.TRUE;
+						} else if ("getTimeSource".equals(method.getName())) {
+							return OverheadGuardTest.createTimeSource(method.getReturnType());
+						}
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	@Test
+	public void testStepDownAndHold() throws Exception {
+		final OverheadGuard guard = this.createGuard(false);
+		assertEquals(1.0, guard.admit(), 0.0);
+		assertFalse(guard.isEntryOnly());
+
+		// each step down is held for the next evaluation, since the hold period starts with the step's evaluation
+		final MonitoringLevel[] expectedLevels = { MonitoringLevel.ENTRY_ONLY, MonitoringLevel.ENTRY_ONLY, MonitoringLevel.SAMPLED,
+			MonitoringLevel.SAMPLED, MonitoringLevel.OFF, MonitoringLevel.OFF, MonitoringLevel.OFF };
+		for (final MonitoringLevel expectedLevel : expectedLevels) {
+			this.evaluate(guard, 5000);
+			assertEquals(expectedLevel, guard.getLevel());
+		}
+		assertEquals(3, this.records.size());
+		assertEquals(MonitoringLevel.FULL.name(), this.records.get(0).getPreviousLevel());
+		assertEquals(MonitoringLevel.ENTRY_ONLY.name(), this.records.get(0).getLevel());
+		assertEquals(5000.0, this.records.get(0).getOverhead(), 1e-9);
+		assertEquals(MonitoringLevel.OFF.name(), this.records.get(2).getLevel());
+
+		assertFalse(guard.isEntryOnly());
+		assertEquals(ITraceSampler.NOT_SAMPLED, guard.admit(), 0.0);
+	}
+
+	@Test
+	public void testSampledLevel() throws Exception {
+		final OverheadGuard guard = this.createGuard(false);
+		this.evaluate(guard, 5000);
+		this.evaluate(guard, 5000);
+		this.evaluate(guard, 5000);
+		assertEquals(MonitoringLevel.SAMPLED, guard.getLevel());
+		assertTrue(guard.isEntryOnly());
+		int admitted = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (guard.admit() != ITraceSampler.NOT_SAMPLED) {
+				admitted++;
+			}
+		}
+		assertEquals(0.5, admitted / 10000.0, 0.05);
+	}
+
+	@Test
+	public void testRecovery() throws Exception {
+		final OverheadGuard guard = this.createGuard(false);
+		this.evaluate(guard, 5000);
+		assertEquals(MonitoringLevel.ENTRY_ONLY, guard.getLevel());
+
+		// evaluations without traced requests are relaxed
+		for (int i = 1; i < OverheadGuard.RECOVERY_INTERVALS; i++) {
+			guard.sample(this.controller);
+			assertEquals(MonitoringLevel.ENTRY_ONLY, guard.getLevel());
+		}
+		// an overhead between the recovery fraction and the budget neither reduces the level nor counts as relaxed
+		this.evaluate(guard, 600);
+		assertEquals(MonitoringLevel.ENTRY_ONLY, guard.getLevel());
+		// the moving average drops to 0.3 * 0 + 0.7 * 600 = 420, which is relaxed
+		for (int i = 1; i < OverheadGuard.RECOVERY_INTERVALS; i++) {
+			this.evaluate(guard, 0);
+			assertEquals(MonitoringLevel.ENTRY_ONLY, guard.getLevel());
+		}
+		this.evaluate(guard, 0);
+		assertEquals(MonitoringLevel.FULL, guard.getLevel());
+		assertEquals(2, this.records.size());
+		assertEquals(MonitoringLevel.FULL.name(), this.records.get(1).getLevel());
+
+		// at FULL, the level stays
+		for (int i = 0; i < (2 * OverheadGuard.RECOVERY_INTERVALS); i++) {
+			this.evaluate(guard, 100);
+		}
+		assertEquals(MonitoringLevel.FULL, guard.getLevel());
+		assertEquals(2, this.records.size());
+	}
+
+	@Test
+	public void testBacklog() throws Exception {
+		final OverheadGuard guard = this.createGuard(true);
+		this.backlogRatio = 0.8;
+		guard.sample(this.controller);
+		assertEquals(MonitoringLevel.ENTRY_ONLY, guard.getLevel());
+		assertEquals(0.8, guard.getBacklogRatio(), 0.0);
+
+		// a backlog between the recovery fraction and the threshold is not relaxed
+		this.backlogRatio = 0.3;
+		for (int i = 0; i < (2 * OverheadGuard.RECOVERY_INTERVALS); i++) {
+			guard.sample(this.controller);
+		}
+		assertEquals(MonitoringLevel.ENTRY_ONLY, guard.getLevel());
+
+		this.backlogRatio = 0.1;
+		for (int i = 0; i < OverheadGuard.RECOVERY_INTERVALS; i++) {
+			guard.sample(this.controller);
+		}
+		assertEquals(MonitoringLevel.FULL, guard.getLevel());
+	}
+
+	@Test
+	public void testRejectedRecords() throws Exception {
+		final OverheadGuard guard = this.createGuard(true);
+		guard.recordRejected();
+		this.droppedCount = 2;
+		guard.sample(this.controller);
+		assertEquals(MonitoringLevel.ENTRY_ONLY, guard.getLevel());
+		assertEquals(3, this.records.get(0).getRejectedRecords());
+
+		// only new rejections count
+		for (int i = 0; i < OverheadGuard.RECOVERY_INTERVALS; i++) {
+			guard.sample(this.controller);
+		}
+		assertEquals(MonitoringLevel.FULL, guard.getLevel());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBudget() {
+		new OverheadGuard("host", Double.NaN, BACKLOG_THRESHOLD, 0.5, 1, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBacklogThreshold() {
+		new OverheadGuard("host", BUDGET, 1.5, 0.5, 1, null);
+	}
+
+	private OverheadGuard createGuard(final boolean withGauge) {
+		final IBacklogGauge gauge = !withGauge ? null : new IBacklogGauge() { // NOCS
+			public double getBacklogRatio() {
+				return OverheadGuardTest.this.backlogRatio;
+			}
+
+			public long getDroppedCount() {
+				return OverheadGuardTest.this.droppedCount;
+			}
+		};
+		return new OverheadGuard("host", BUDGET, BACKLOG_THRESHOLD, 0.5, 2, gauge);
+	}
+
+	/**
+	 * Records ten requests with the given overhead and evaluates the guard.
+	 */
+	private void evaluate(final OverheadGuard guard, final long overheadNanos) throws Exception {
+		for (int i = 0; i < 10; i++) {
+			guard.recordOverhead(overheadNanos);
+		}
+		guard.sample(this.controller);
+	}
+
+	private static Object createTimeSource(final Class<?> timeSourceType) {
+		return Proxy.newProxyInstance(timeSourceType.getClassLoader(), new Class<?>[] { timeSourceType }, new InvocationHandler() {
+			public Object invoke(final Object proxy, final Method method, final Object[] args) {
+				if ("getTime".equals(method.getName())) {
+					return 0L;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+}
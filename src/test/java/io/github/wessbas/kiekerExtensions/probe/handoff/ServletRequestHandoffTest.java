@@ -0,0 +1,201 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.handoff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Tests that the {@link ServletRequestHandoff} passes every accepted entry to the consumer exactly once while several
+ * producers offer entries concurrently.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class ServletRequestHandoffTest {
+
+	private static final int PRODUCERS = 8;
+	private static final int ENTRIES_PER_PRODUCER = 20000;
+
+	public ServletRequestHandoffTest() {
+		// default constructor
+	}
+
+	@Test(timeout = 60000)
+	public void testBlock() throws Exception {
+		final Result result = ServletRequestHandoffTest.run(FullBufferPolicy.BLOCK, null);
+		assertEquals(PRODUCERS * ENTRIES_PER_PRODUCER, result.accepted);
+		assertEquals(0, result.droppedCount);
+	}
+
+	@Test(timeout = 60000)
+	public void testDrop() throws Exception {
+		// the consumer is held until all entries are offered, so that the buffers overflow
+		final Result result = ServletRequestHandoffTest.run(FullBufferPolicy.DROP, new CountDownLatch(1));
+		assertTrue(result.accepted < (PRODUCERS * ENTRIES_PER_PRODUCER));
+		assertEquals(0, result.droppedCount);
+	}
+
+	@Test(timeout = 60000)
+	public void testCountAndDrop() throws Exception {
+		final Result result = ServletRequestHandoffTest.run(FullBufferPolicy.COUNT_AND_DROP, new CountDownLatch(1));
+		assertTrue(result.accepted < (PRODUCERS * ENTRIES_PER_PRODUCER));
+		assertEquals((PRODUCERS * ENTRIES_PER_PRODUCER) - result.accepted, result.droppedCount);
+	}
+
+	@Test(timeout = 60000)
+	public void testCountAndDropWithoutOverflow() throws Exception {
+		final Result result = ServletRequestHandoffTest.run(FullBufferPolicy.COUNT_AND_DROP, null);
+		assertEquals((PRODUCERS * ENTRIES_PER_PRODUCER) - result.accepted, result.droppedCount);
+	}
+
+	@Test(timeout = 60000)
+	public void testOfferAfterClose() throws Exception {
+		final CountingConsumer consumer = new CountingConsumer(1, null);
+		final ServletRequestHandoff handoff = new ServletRequestHandoff(1, 4, FullBufferPolicy.BLOCK, consumer);
+		assertTrue(ServletRequestHandoffTest.offer(handoff, 0));
+		handoff.close();
+		assertFalse(ServletRequestHandoffTest.offer(handoff, 0));
+		assertEquals(1, consumer.consumed.get(0));
+		assertEquals(0, handoff.getPendingCount());
+	}
+
+	@Test
+	public void testCapacity() throws Exception {
+		final ServletRequestHandoff handoff = new ServletRequestHandoff(3, 5, FullBufferPolicy.DROP, new CountingConsumer(0, null));
+		try {
+			assertEquals(4 * 8, handoff.getCapacity());
+		} finally {
+			handoff.close();
+		}
+	}
+
+	@Test
+	public void testParsePolicy() {
+		assertEquals(FullBufferPolicy.COUNT_AND_DROP, FullBufferPolicy.parse(" countAndDrop "));
+		assertEquals(FullBufferPolicy.BLOCK, FullBufferPolicy.parse("BLOCK"));
+	}
+
+	/**
+	 * Offers the entries of all producers concurrently, closes the handoff and checks that each accepted entry has been
+	 * consumed exactly once and each rejected entry not at all.
+	 *
+	 * @param consumerGate
+	 *            If not {@code null}, the consumer waits for this latch, which is opened once all entries are offered.
+	 */
+	private static Result run(final FullBufferPolicy policy, final CountDownLatch consumerGate) throws Exception {
+		final CountingConsumer consumer = new CountingConsumer(PRODUCERS * ENTRIES_PER_PRODUCER, consumerGate);
+		final ServletRequestHandoff handoff = new ServletRequestHandoff(2, 16, policy, consumer);
+		final AtomicIntegerArray accepted = new AtomicIntegerArray(PRODUCERS * ENTRIES_PER_PRODUCER);
+		final AtomicLong acceptedCount = new AtomicLong();
+
+		final CountDownLatch start = new CountDownLatch(1);
+		final Thread[] producers = new Thread[PRODUCERS];
+		for (int p = 0; p < PRODUCERS; p++) {
+			final int first = p * ENTRIES_PER_PRODUCER;
+			producers[p] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (final InterruptedException ex) {
+						return;
+					}
+					for (int i = first; i < (first + ENTRIES_PER_PRODUCER); i++) {
+						if (ServletRequestHandoffTest.offer(handoff, i)) {
+							accepted.set(i, 1);
+							acceptedCount.incrementAndGet();
+						}
+					}
+				}
+			};
+			producers[p].start();
+		}
+		start.countDown();
+		for (final Thread producer : producers) {
+			producer.join();
+		}
+		if (consumerGate != null) {
+			consumerGate.countDown();
+		}
+		handoff.close();
+
+		assertEquals(0, consumer.failures.get());
+		assertEquals(0, handoff.getPendingCount());
+		for (int i = 0; i < accepted.length(); i++) {
+			assertEquals("entry " + i, accepted.get(i), consumer.consumed.get(i));
+		}
+		return new Result((int) acceptedCount.get(), handoff.getDroppedCount());
+	}
+
+	private static boolean offer(final ServletRequestHandoff handoff, final int index) {
+		return handoff.offer(index, "session" + index, "useCase", index, index + 1L, "/uri", 8080, "host", "HTTP/1.1", "GET",
+				"q=" + index, "UTF-8", true, 1.0, 200, null, -1, -1, null);
+	}
+
+	/**
+	 * Counts how often each entry is consumed; the entry is identified by its trace ID.
+	 */
+	private static final class CountingConsumer implements IPendingRequestConsumer {
+
+		final AtomicIntegerArray consumed; // NOCS
+		final AtomicLong failures = new AtomicLong(); // NOCS
+		private final CountDownLatch gate;
+
+		CountingConsumer(final int entries, final CountDownLatch gate) {
+			this.consumed = new AtomicIntegerArray(entries);
+			this.gate = gate;
+		}
+
+		public void consume(final PendingRequest pendingRequest) {
+			if (this.gate != null) {
+				try {
+					this.gate.await();
+				} catch (final InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			final int index = (int) pendingRequest.getTraceId();
+			// the slot must hold the complete entry of the producer
+			if (!("session" + index).equals(pendingRequest.getSessionId()) || !("q=" + index).equals(pendingRequest.getQueryString())
+					|| (pendingRequest.getTout() != (index + 1L))) {
+				this.failures.incrementAndGet();
+			}
+			this.consumed.incrementAndGet(index);
+		}
+	}
+
+	private static final class Result {
+		final int accepted; // NOCS
+		final long droppedCount; // NOCS
+
+		Result(final int accepted, final long droppedCount) {
+			this.accepted = accepted;
+			this.droppedCount = droppedCount;
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import kieker.monitoring.core.controller.IMonitoringController;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests that the {@link SamplerRegistry} schedules each sampler once, also with several registries standing for the
+ * registries of several class loaders.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class SamplerRegistryTest {
+
+	public SamplerRegistryTest() {
+		// default constructor
+	}
+
+	@After
+	public void unregisterOwners() throws JMException {
+		final ObjectName name = SamplerRegistryTest.ownerName(SamplerType.GC);
+		if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+	}
+
+	@Test
+	public void testReferenceCounting() throws JMException {
+		final RecordingController controller = new RecordingController();
+		final SamplerRegistry registry = new SamplerRegistry(controller.create());
+		final SamplerRegistry.Registration first = registry.acquire(SamplerType.GC, 10);
+		final SamplerRegistry.Registration second = registry.acquire(SamplerType.GC, 20);
+		assertEquals(1, controller.scheduled);
+		assertEquals(2, registry.getReferenceCount(SamplerType.GC));
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(SamplerRegistryTest.ownerName(SamplerType.GC)));
+
+		first.release();
+		first.release();
+		assertEquals(1, registry.getReferenceCount(SamplerType.GC));
+		assertEquals(0, controller.removed);
+		second.release();
+		assertEquals(0, registry.getReferenceCount(SamplerType.GC));
+		assertEquals(1, controller.removed);
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(SamplerRegistryTest.ownerName(SamplerType.GC)));
+	}
+
+	@Test
+	public void testSeveralClassLoaders() throws JMException {
+		final RecordingController firstController = new RecordingController();
+		final SamplerRegistry firstRegistry = new SamplerRegistry(firstController.create());
+		final RecordingController secondController = new RecordingController();
+		final SamplerRegistry secondRegistry = new SamplerRegistry(secondController.create());
+
+		final SamplerRegistry.Registration first = firstRegistry.acquire(SamplerType.GC, 10);
+		final SamplerRegistry.Registration second = secondRegistry.acquire(SamplerType.GC, 10);
+		assertEquals(1, firstController.scheduled);
+		assertEquals(0, secondController.scheduled);
+		assertEquals(1, secondRegistry.getReferenceCount(SamplerType.GC));
+
+		// the owner releases the sampler, so the next registry acquiring it schedules it
+		first.release();
+		assertEquals(1, firstController.removed);
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(SamplerRegistryTest.ownerName(SamplerType.GC)));
+		final SamplerRegistry.Registration third = firstRegistry.acquire(SamplerType.GC, 10);
+		assertEquals(2, firstController.scheduled);
+
+		second.release();
+		assertEquals(0, secondController.removed);
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(SamplerRegistryTest.ownerName(SamplerType.GC)));
+		third.release();
+		assertEquals(2, firstController.removed);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidInterval() {
+		new SamplerRegistry(new RecordingController().create()).acquire(SamplerType.GC, 0);
+	}
+
+	private static ObjectName ownerName(final SamplerType type) throws JMException {
+		return new ObjectName(SamplerOwnerMXBean.OBJECT_NAME_PREFIX + type.name());
+	}
+
+	/**
+	 * Counts the samplers scheduled and removed by a monitoring controller.
+	 */
+	private static final class RecordingController {
+		int scheduled; // NOCS
+		int removed; // NOCS
+
+		public RecordingController() {
+			// default constructor
+		}
+
+		public IMonitoringController create() {
+			return (IMonitoringController) Proxy.newProxyInstance(IMonitoringController.class.getClassLoader(),
+					new Class<?>[] { IMonitoringController.class }, new InvocationHandler() {
+						public Object invoke(final Object proxy, final Method method, final Object[] args) {
+							if ("schedulePeriodicSampler".equals(method.getName())) {
+								RecordingController.this.scheduled++;
+								return null;
+							} else if ("removeScheduledSampler".equals(method.getName())) {
+								RecordingController.this.removed++;
+								return Boolean.TRUE;
+							}
+							throw new UnsupportedOperationException(method.getName());
+						}
+					});
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampling;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link TokenBucket}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class TokenBucketTest {
+
+	public TokenBucketTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testBurst() {
+		// one token per second, so no token is refilled during the test
+		final TokenBucket bucket = new TokenBucket(1.0, 3);
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+	}
+
+	@Test
+	public void testRefill() throws InterruptedException {
+		final TokenBucket bucket = new TokenBucket(10.0, 1);
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+		Thread.sleep(150);
+		assertTrue(bucket.tryAcquire());
+	}
+
+	@Test
+	public void testConcurrentAcquire() throws InterruptedException {
+		final TokenBucket bucket = new TokenBucket(1.0, 100);
+		final AtomicInteger acquired = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		final Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (final InterruptedException ex) {
+						return;
+					}
+					for (int i = 0; i < 1000; i++) {
+						if (bucket.tryAcquire()) {
+							acquired.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		start.countDown();
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		// each token is handed out once; at most one more token is refilled while the threads run
+		assertTrue(String.valueOf(acquired.get()), (acquired.get() >= 100) && (acquired.get() <= 101));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidRate() {
+		new TokenBucket(Double.NaN, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBurst() {
+		new TokenBucket(1.0, 0);
+	}
+}
@@ -0,0 +1,101 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.sampling;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the decisions and the reported probabilities of the {@link ITraceSampler} implementations.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class TraceSamplerTest {
+
+	private static final double DELTA = 1e-9;
+
+	public TraceSamplerTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testProbabilistic() {
+		assertEquals(1.0, new ProbabilisticTraceSampler(1.0).sample("a"), DELTA);
+		final ITraceSampler sampler = new ProbabilisticTraceSampler(0.25);
+		int sampled = 0;
+		for (int i = 0; i < 100000; i++) {
+			final double probability = sampler.sample("a");
+			if (probability != ITraceSampler.NOT_SAMPLED) {
+				assertEquals(0.25, probability, DELTA);
+				sampled++;
+			}
+		}
+		assertEquals(0.25, sampled / 100000.0, 0.01);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidProbability() {
+		new ProbabilisticTraceSampler(0.0);
+	}
+
+	@Test
+	public void testRateLimiting() throws InterruptedException {
+		// 5 traces per second with a burst of 5
+		final ITraceSampler sampler = new RateLimitingTraceSampler(5.0);
+		for (int i = 0; i < 5; i++) {
+			// no window has been completed yet, so the admission ratio is still estimated as 1
+			assertEquals(1.0, sampler.sample("a"), DELTA);
+		}
+		for (int i = 0; i < 15; i++) {
+			assertEquals(ITraceSampler.NOT_SAMPLED, sampler.sample("b"), DELTA);
+		}
+		Thread.sleep(1100);
+		// the bucket has been refilled, and the completed window admitted 6 of 21 decisions, including this one
+		assertEquals(6.0 / 21.0, sampler.sample("a"), 0.05);
+	}
+
+	@Test
+	public void testUseCaseQuota() {
+		// 2 traces per second and use case, and 2 use cases with an individual quota
+		final ITraceSampler sampler = new UseCaseQuotaTraceSampler(2.0, 0.0, 2);
+		for (final String useCase : new String[] { "a", "b", "c" }) {
+			assertEquals(1.0, sampler.sample(useCase), DELTA);
+			assertEquals(1.0, sampler.sample(useCase), DELTA);
+			assertEquals(ITraceSampler.NOT_SAMPLED, sampler.sample(useCase), DELTA);
+		}
+		// the use cases beyond the limit share the overflow quota, which "c" has used up
+		assertEquals(ITraceSampler.NOT_SAMPLED, sampler.sample("d"), DELTA);
+	}
+
+	@Test
+	public void testUseCaseQuotaExcess() {
+		final ITraceSampler sampler = new UseCaseQuotaTraceSampler(1.0, 1.0, UseCaseQuotaTraceSampler.DEFAULT_MAX_USE_CASES);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(1.0, sampler.sample("a"), DELTA);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidExcessProbability() {
+		new UseCaseQuotaTraceSampler(1.0, 1.5, 1);
+	}
+}
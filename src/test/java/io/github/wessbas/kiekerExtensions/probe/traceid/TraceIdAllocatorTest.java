@@ -0,0 +1,87 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.traceid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link TraceIdAllocator}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class TraceIdAllocatorTest {
+
+	public TraceIdAllocatorTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testNodeId() {
+		final TraceIdAllocator allocator = new TraceIdAllocator(TraceIdAllocator.MAX_NODE_ID, 4);
+		final long traceId = allocator.nextId();
+		assertTrue(traceId > 0);
+		assertEquals(TraceIdAllocator.MAX_NODE_ID, TraceIdAllocator.getNodeId(traceId));
+		assertEquals(TraceIdAllocator.MAX_NODE_ID, allocator.getNodeId());
+	}
+
+	@Test
+	public void testUniqueIdsWithSeveralAllocators() throws Exception {
+		// allocators with different block sizes share the blocks of the threads
+		final TraceIdAllocator[] allocators = { new TraceIdAllocator(7, 3), new TraceIdAllocator(7, 16), new TraceIdAllocator(7, 1) };
+		final Set<Long> ids = Collections.synchronizedSet(new HashSet<Long>());
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						ids.add(allocators[i % allocators.length].nextId());
+						if ((i % 1000) == 0) {
+							TraceIdAllocator.releaseBlock();
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(threads.length * 10000, ids.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBlockSize() {
+		new TraceIdAllocator(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidNodeId() {
+		new TraceIdAllocator(TraceIdAllocator.MAX_NODE_ID + 1, 16);
+	}
+}
@@ -0,0 +1,174 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.usecase;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+/**
+ * Tests matching requests by the {@link RuleBasedUseCaseExtractor}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class RuleBasedUseCaseExtractorTest {
+
+	private static final String FALLBACK = "fallback";
+
+	public RuleBasedUseCaseExtractorTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testPrecedence() {
+		final IUseCaseExtractor extractor = RuleBasedUseCaseExtractorTest.create("any = /**; orderAny = /orders/**; order = /orders/{id}; "
+				+ "orderItems = /orders/{id}/items; newOrder = /orders/new; nestedFirst = /{a}/{b}/**");
+		assertEquals("newOrder", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders/new"));
+		assertEquals("order", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders/42"));
+		assertEquals("orderItems", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders/42/items"));
+		assertEquals("orderAny", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders"));
+		assertEquals("orderAny", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders/42/lines"));
+		assertEquals("nestedFirst", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/customers/42/orders"));
+		assertEquals("any", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/customers"));
+		assertEquals("any", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/"));
+	}
+
+	@Test
+	public void testPrecedenceBySegment() {
+		// the first segment decides before the second one
+		final IUseCaseExtractor extractor = RuleBasedUseCaseExtractorTest.create("variableFirst = /{a}/b/c; literalFirst = /a/{b}/**");
+		assertEquals("literalFirst", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/a/b/c"));
+		assertEquals("variableFirst", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/x/b/c"));
+	}
+
+	@Test
+	public void testMethod() {
+		final IUseCaseExtractor extractor = RuleBasedUseCaseExtractorTest.create("createOrder = POST /orders/{id}; updateOrder = put /orders/{id}; "
+				+ "newOrder = GET /orders/new; order = * /orders/{id}");
+		assertEquals("createOrder", RuleBasedUseCaseExtractorTest.extract(extractor, "POST", "/orders/1"));
+		assertEquals("updateOrder", RuleBasedUseCaseExtractorTest.extract(extractor, "PUT", "/orders/1"));
+		assertEquals("order", RuleBasedUseCaseExtractorTest.extract(extractor, "DELETE", "/orders/1"));
+		// the literal template does not accept the method, so the variable template is tried next
+		assertEquals("newOrder", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders/new"));
+		assertEquals("createOrder", RuleBasedUseCaseExtractorTest.extract(extractor, "POST", "/orders/new"));
+	}
+
+	@Test
+	public void testPredicates() {
+		final IUseCaseExtractor extractor = RuleBasedUseCaseExtractorTest.create("openOrders = GET /orders query:status=open; "
+				+ "filteredOrders = GET /orders query:status; jsonOrders = GET /orders header:Accept=application/json; "
+				+ "taggedOrders = GET /orders header:X-Tag");
+		assertEquals("openOrders", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders", "a=1&status=open"));
+		assertEquals("filteredOrders", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders", "status=closed"));
+		assertEquals("jsonOrders", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders", "a=1", "Accept", "application/json"));
+		assertEquals("taggedOrders", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders", null, "Accept", "text/html", "X-Tag", ""));
+		assertEquals(FALLBACK, RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders", null, "Accept", "text/html"));
+		assertEquals(FALLBACK, RuleBasedUseCaseExtractorTest.extract(extractor, "POST", "/orders", "status=open"));
+	}
+
+	@Test
+	public void testPathParametersAndEmptySegments() {
+		final IUseCaseExtractor extractor = RuleBasedUseCaseExtractorTest.create("order = /orders/{id}; orders = /orders");
+		assertEquals("orders", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders;jsessionid=ABC"));
+		assertEquals("order", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders;jsessionid=ABC/42;v=1"));
+		assertEquals("order", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "//orders//42/"));
+		assertEquals(FALLBACK, RuleBasedUseCaseExtractorTest.extract(extractor, "GET", "/orders/42/items"));
+	}
+
+	@Test
+	public void testContextPath() {
+		final IUseCaseExtractor extractor = RuleBasedUseCaseExtractorTest.create("orders = /orders");
+		assertEquals("orders", extractor.extractUseCase(RuleBasedUseCaseExtractorTest.request("GET", "/shop", "/shop/orders", null)));
+		assertEquals(FALLBACK, extractor.extractUseCase(RuleBasedUseCaseExtractorTest.request("GET", "/shop", "/shop/shop/orders", null)));
+	}
+
+	@Test(timeout = 10000)
+	public void testLongPaths() {
+		// the templates diverge at the first segment, but only the method and the last segment decide
+		final StringBuilder template = new StringBuilder();
+		final StringBuilder literals = new StringBuilder();
+		final StringBuilder path = new StringBuilder();
+		for (int i = 0; i < 40; i++) {
+			template.append("/{v").append(i).append('}');
+			literals.append("/a");
+			path.append("/a");
+		}
+		final IUseCaseExtractor extractor = RuleBasedUseCaseExtractorTest.create("variables = POST " + template + "; literals = POST " + literals
+				+ "/b; partial = GET /a/a/**");
+		assertEquals("partial", RuleBasedUseCaseExtractorTest.extract(extractor, "GET", path.toString()));
+		assertEquals("variables", RuleBasedUseCaseExtractorTest.extract(extractor, "POST", path.toString()));
+		assertEquals("literals", RuleBasedUseCaseExtractorTest.extract(extractor, "POST", path + "/b"));
+	}
+
+	private static IUseCaseExtractor create(final String rules) {
+		return new RuleBasedUseCaseExtractor(UseCaseRuleParser.parse(rules), new IUseCaseExtractor() {
+			public String extractUseCase(final HttpServletRequest request) {
+				return FALLBACK;
+			}
+		});
+	}
+
+	private static String extract(final IUseCaseExtractor extractor, final String method, final String uri) {
+		return RuleBasedUseCaseExtractorTest.extract(extractor, method, uri, null);
+	}
+
+	private static String extract(final IUseCaseExtractor extractor, final String method, final String uri, final String queryString,
+			final String... headers) {
+		return extractor.extractUseCase(RuleBasedUseCaseExtractorTest.request(method, "", uri, queryString, headers));
+	}
+
+	/**
+	 * @return A request with the given properties; the headers are given as pairs of name and value.
+	 */
+	private static HttpServletRequest request(final String method, final String contextPath, final String uri, final String queryString,
+			final String... headers) {
+		final Map<String, String> headerMap = new HashMap<String, String>();
+		for (int i = 0; i < headers.length; i += 2) {
+			headerMap.put(headers[i], headers[i + 1]);
+		}
+		return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+				new InvocationHandler() {
+					public Object invoke(final Object proxy, final Method invokedMethod, final Object[] args) {
+						final String name = invokedMethod.getName();
+						if ("getMethod".equals(name)) {
+							return method;
+						} else if ("getContextPath".equals(name)) {
+							return contextPath;
+						} else if ("getRequestURI".equals(name)) {
+							return uri;
+						} else if ("getQueryString".equals(name)) {
+							return queryString;
+						} else if ("getHeader".equals(name)) {
+							return headerMap.get(args[0]);
+						}
+						throw new UnsupportedOperationException(name);
+					}
+				});
+	}
+}
@@ -0,0 +1,110 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.usecase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link UseCaseCache}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class UseCaseCacheTest {
+
+	public UseCaseCacheTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testGetAndPut() {
+		final UseCaseCache cache = new UseCaseCache(64);
+		assertNull(cache.get("action=login"));
+		cache.put("action=login", "login");
+		cache.put("action=logout", "logout");
+		assertEquals("login", cache.get("action=login"));
+		assertEquals("logout", cache.get("action=logout"));
+		assertNull(cache.get("action=other"));
+	}
+
+	@Test
+	public void testCapacity() {
+		assertEquals(1, new UseCaseCache(1).getCapacity());
+		assertEquals(8, new UseCaseCache(5).getCapacity());
+		assertEquals(8, new UseCaseCache(8).getCapacity());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCapacity() {
+		new UseCaseCache(0);
+	}
+
+	@Test
+	public void testCollisionReplacesEntry() {
+		final UseCaseCache cache = new UseCaseCache(1); // every key maps to the only slot
+		cache.put("a", "useCaseA");
+		cache.put("b", "useCaseB");
+		assertNull(cache.get("a"));
+		assertEquals("useCaseB", cache.get("b"));
+	}
+
+	@Test
+	public void testEqualHashes() {
+		final UseCaseCache cache = new UseCaseCache(16);
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		cache.put("Aa", "useCaseA");
+		assertNull(cache.get("BB"));
+		assertEquals("useCaseA", cache.get("Aa"));
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentAccess() throws Exception {
+		final UseCaseCache cache = new UseCaseCache(16);
+		final AtomicLong wrongUseCases = new AtomicLong();
+		final Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int seed = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 100000; i++) {
+						final String key = "action=" + (((i * 31) + seed) % 100);
+						final String useCase = cache.get(key);
+						if (useCase == null) {
+							cache.put(key, "useCase-" + key);
+						} else if (!useCase.equals("useCase-" + key)) {
+							wrongUseCases.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, wrongUseCases.get());
+	}
+}
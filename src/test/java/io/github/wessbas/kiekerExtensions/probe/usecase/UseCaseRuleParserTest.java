@@ -0,0 +1,100 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.probe.usecase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link UseCaseRuleParser}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class UseCaseRuleParserTest {
+
+	public UseCaseRuleParserTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testParseLines() throws IOException {
+		final List<UseCaseRule> rules = UseCaseRuleParser.parse(new StringReader("# comment\n"
+				+ "listOrderItems = GET /orders/{id}/items query:status=open\n"
+				+ "\n"
+				+ "createOrder    = POST /orders header:Content-Type=application/json\n"
+				+ "other          = * /**\n"));
+		assertEquals(3, rules.size());
+		assertEquals("listOrderItems", rules.get(0).getUseCase());
+		assertEquals("GET", rules.get(0).getMethod());
+		assertEquals("/orders/{id}/items", rules.get(0).getPathTemplate());
+		assertEquals("createOrder", rules.get(1).getUseCase());
+		assertEquals("POST", rules.get(1).getMethod());
+		assertEquals(UseCaseRule.ANY_METHOD, rules.get(2).getMethod());
+		assertEquals("/**", rules.get(2).getPathTemplate());
+	}
+
+	@Test
+	public void testParseInline() {
+		final List<UseCaseRule> rules = UseCaseRuleParser.parse("home = /;login = POST /login; other = /**;");
+		assertEquals(3, rules.size());
+		assertEquals("home", rules.get(0).getUseCase());
+		assertEquals("login", rules.get(1).getUseCase());
+		assertEquals("other", rules.get(2).getUseCase());
+	}
+
+	@Test
+	public void testSemicolonInPredicateValue() {
+		final List<UseCaseRule> rules = UseCaseRuleParser.parse("html = GET /page header:Content-Type=text/html;charset=UTF-8 query:a=1;b=2; "
+				+ "other = /**");
+		assertEquals(2, rules.size());
+		assertEquals("html", rules.get(0).getUseCase());
+		assertEquals("/page", rules.get(0).getPathTemplate());
+		assertEquals("other", rules.get(1).getUseCase());
+	}
+
+	@Test
+	public void testParseErrors() {
+		UseCaseRuleParserTest.assertInvalid("/orders", "expected '<useCase> = ...'");
+		UseCaseRuleParserTest.assertInvalid("= GET /orders", "expected '<useCase> = ...'");
+		UseCaseRuleParserTest.assertInvalid("orders = GET", "missing path template");
+		UseCaseRuleParserTest.assertInvalid("orders = GET orders", "missing path template");
+		UseCaseRuleParserTest.assertInvalid("orders = /orders/**/items", "'**' is only allowed as the last segment");
+		UseCaseRuleParserTest.assertInvalid("orders = /orders query:=1", "missing parameter name");
+		UseCaseRuleParserTest.assertInvalid("orders = /orders status=open", "unexpected token 'status=open'");
+		UseCaseRuleParserTest.assertInvalid("home = /; orders = GET", "line 2");
+	}
+
+	private static void assertInvalid(final String rules, final String expectedMessage) {
+		try {
+			UseCaseRuleParser.parse(rules);
+			fail("Accepted invalid rules: " + rules);
+		} catch (final IllegalArgumentException ex) {
+			assertTrue(ex.getMessage(), ex.getMessage().contains(expectedMessage));
+		}
+	}
+}
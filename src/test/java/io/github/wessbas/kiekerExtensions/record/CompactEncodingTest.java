@@ -0,0 +1,108 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests the varint, zigzag and vocabulary encodings of {@link CompactEncoding}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class CompactEncodingTest {
+
+	private static final long[] BOUNDARIES = { 0, 1, -1, 63, -64, 64, -65, 127, 128, 8191, 8192, 16383, 16384,
+		Integer.MAX_VALUE, Integer.MIN_VALUE, (1L << 55) - 1, 1L << 55, (1L << 56) - 1, 1L << 56, (1L << 62) - 1, 1L << 62,
+		Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1, };
+
+	public CompactEncodingTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testZigzagRoundTrip() {
+		for (final long value : BOUNDARIES) {
+			assertEquals(value, CompactEncoding.unzigzag(CompactEncoding.zigzag(value)));
+		}
+	}
+
+	@Test
+	public void testZigzagMapsSmallMagnitudesToSmallValues() {
+		assertEquals(0, CompactEncoding.zigzag(0));
+		assertEquals(1, CompactEncoding.zigzag(-1));
+		assertEquals(2, CompactEncoding.zigzag(1));
+		assertEquals(127, CompactEncoding.zigzag(-64));
+		assertEquals(128, CompactEncoding.zigzag(64));
+		assertEquals(-1, CompactEncoding.zigzag(Long.MIN_VALUE));
+		assertEquals(-2, CompactEncoding.zigzag(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testVarLongRoundTripAndSize() {
+		final ByteBuffer buffer = ByteBuffer.allocate(16);
+		for (final long boundary : BOUNDARIES) {
+			for (final long value : new long[] { boundary, CompactEncoding.zigzag(boundary) }) {
+				buffer.clear();
+				CompactEncoding.putVarLong(buffer, value);
+				assertEquals("size of " + value, CompactEncoding.varLongSize(value), buffer.position());
+				buffer.flip();
+				assertEquals(value, CompactEncoding.getVarLong(buffer));
+				assertFalse(buffer.hasRemaining());
+			}
+		}
+	}
+
+	@Test
+	public void testVarLongSizeAtSevenBitBoundaries() {
+		assertEquals(1, CompactEncoding.varLongSize(0));
+		assertEquals(1, CompactEncoding.varLongSize(127));
+		assertEquals(2, CompactEncoding.varLongSize(128));
+		assertEquals(2, CompactEncoding.varLongSize(16383));
+		assertEquals(3, CompactEncoding.varLongSize(16384));
+		assertEquals(8, CompactEncoding.varLongSize((1L << 56) - 1));
+		assertEquals(9, CompactEncoding.varLongSize(1L << 56));
+		assertEquals(9, CompactEncoding.varLongSize(Long.MAX_VALUE));
+		assertEquals(10, CompactEncoding.varLongSize(-1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMalformedVarLong() {
+		final ByteBuffer buffer = ByteBuffer.allocate(11);
+		while (buffer.hasRemaining()) {
+			buffer.put((byte) 0x80);
+		}
+		buffer.flip();
+		CompactEncoding.getVarLong(buffer);
+	}
+
+	@Test
+	public void testVocabularyCodes() {
+		assertEquals(1, CompactEncoding.codedSize(CompactEncoding.METHODS, "GET"));
+		assertEquals(1, CompactEncoding.codedSize(CompactEncoding.METHODS, new String("POST"))); // NOPMD (not the constant)
+		assertEquals(CompactEncoding.ESCAPE, CompactEncoding.codeOf(CompactEncoding.METHODS, "PROPFIND"));
+		assertEquals(5, CompactEncoding.codedSize(CompactEncoding.METHODS, "PROPFIND"));
+	}
+}
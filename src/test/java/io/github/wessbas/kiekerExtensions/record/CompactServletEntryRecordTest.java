@@ -0,0 +1,173 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.record;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import kieker.common.util.registry.IMonitoringRecordReceivedListener;
+import kieker.common.util.registry.IRegistry;
+
+import org.junit.Test;
+
+/**
+ * Tests the binary round trip of {@link CompactServletEntryRecord}, in particular the fallback to a fixed-size trace ID
+ * and to the writer's registry.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class CompactServletEntryRecordTest {
+
+	public CompactServletEntryRecordTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testSmallTraceIdIsVarint() {
+		final ByteBuffer buffer = CompactServletEntryRecordTest.roundTrip(new CompactServletEntryRecord(42, "/app", 8080, "host", "HTTP/1.1",
+				"GET", "action=login", "UTF-8"), new TestRegistry());
+		assertEquals(CompactServletEntryRecord.FORMAT_VERSION, buffer.get(0));
+		assertEquals(19, buffer.limit()); // header, 1-byte trace ID, 4 IDs, 2-byte port, 3 codes
+	}
+
+	@Test
+	public void testTraceIdFallback() {
+		// a zigzag varint of up to 8 bytes covers the trace IDs from -2^55 to 2^55 - 1
+		final long[] varintTraceIds = { (1L << 55) - 1, -(1L << 55), 0, -1 };
+		for (final long traceId : varintTraceIds) {
+			final ByteBuffer buffer = CompactServletEntryRecordTest.roundTrip(CompactServletEntryRecordTest.createRecord(traceId), new TestRegistry());
+			assertEquals("header for " + traceId, CompactServletEntryRecord.FORMAT_VERSION, buffer.get(0));
+		}
+		final long[] fixedTraceIds = { 1L << 55, -(1L << 55) - 1, Long.MAX_VALUE, Long.MIN_VALUE };
+		for (final long traceId : fixedTraceIds) {
+			final ByteBuffer buffer = CompactServletEntryRecordTest.roundTrip(CompactServletEntryRecordTest.createRecord(traceId), new TestRegistry());
+			assertEquals("header for " + traceId, CompactServletEntryRecord.FORMAT_VERSION | CompactServletEntryRecord.FLAG_FIXED_TRACE_ID, buffer.get(0));
+			assertEquals(traceId, buffer.getLong(1));
+		}
+	}
+
+	@Test
+	public void testUnknownVocabularyIsEscaped() {
+		CompactServletEntryRecordTest.roundTrip(new CompactServletEntryRecord(1, "/app", -1, "host", "SPDY/3", "PROPFIND", "", "KOI8-R"),
+				new TestRegistry());
+	}
+
+	@Test
+	public void testPreregisteredStrings() {
+		final TestRegistry writerRegistry = new TestRegistry();
+		final TestRegistry highCardinalityRegistry = new TestRegistry();
+		highCardinalityRegistry.get("unused"); // shift the IDs of the bounded registry
+		final CompactServletEntryRecord record = new CompactServletEntryRecord(7, "/app", 80, "host", "HTTP/1.1", "GET", "q=1", "UTF-8",
+				highCardinalityRegistry);
+		final ByteBuffer buffer = ByteBuffer.allocate(CompactServletEntryRecord.MAX_SIZE);
+		record.writeBytes(buffer, writerRegistry);
+		buffer.flip();
+		buffer.position(2); // header and trace ID
+		assertEquals(highCardinalityRegistry.get("/app"), buffer.getInt());
+		assertFalse(writerRegistry.ids.containsKey("/app"));
+	}
+
+	@Test
+	public void testRejectedPreregistrationFallsBackToWriterRegistry() {
+		final TestRegistry writerRegistry = new TestRegistry();
+		final IRegistry<String> rejectingRegistry = new TestRegistry() {
+			@Override
+			public int get(final String value) {
+				return 0; // could not register
+			}
+		};
+		final CompactServletEntryRecord record = new CompactServletEntryRecord(7, "/app", 80, "host", "HTTP/1.1", "GET", "q=1", "UTF-8",
+				rejectingRegistry);
+		CompactServletEntryRecordTest.roundTrip(record, writerRegistry);
+		assertEquals("/app", writerRegistry.get(writerRegistry.ids.get("/app").intValue()));
+		assertEquals("q=1", writerRegistry.get(writerRegistry.ids.get("q=1").intValue()));
+	}
+
+	private static CompactServletEntryRecord createRecord(final long traceId) {
+		return new CompactServletEntryRecord(traceId, "/app", 8080, "host", "HTTP/1.1", "GET", "action=login", "UTF-8");
+	}
+
+	/**
+	 * Writes and decodes the record, checking the values and the size.
+	 *
+	 * @return The written bytes.
+	 */
+	private static ByteBuffer roundTrip(final CompactServletEntryRecord record, final TestRegistry registry) {
+		final ByteBuffer buffer = ByteBuffer.allocate(CompactServletEntryRecord.MAX_SIZE);
+		record.writeBytes(buffer, registry);
+		assertEquals(record.getSize(), buffer.position());
+		buffer.flip();
+		final CompactServletEntryRecord decoded = new CompactServletEntryRecord(buffer, registry);
+		assertEquals(record.getSize(), buffer.position());
+		assertArrayEquals(record.toArray(), decoded.toArray());
+		buffer.rewind();
+		return buffer;
+	}
+
+	/**
+	 * An unbounded registry numbering the strings from 1, as Kieker's registry does.
+	 */
+	private static class TestRegistry implements IRegistry<String> {
+		final Map<String, Integer> ids = new HashMap<String, Integer>();
+		private final List<String> values = new ArrayList<String>();
+
+		TestRegistry() {
+			this.values.add(null); // ID 0 is not used
+		}
+
+		public long getId() {
+			return 0;
+		}
+
+		public int get(final String value) {
+			Integer id = this.ids.get(value);
+			if (id == null) {
+				id = this.values.size();
+				this.ids.put(value, id);
+				this.values.add(value);
+			}
+			return id;
+		}
+
+		public String get(final int id) {
+			return this.values.get(id);
+		}
+
+		public String[] getAll() {
+			return this.values.toArray(new String[this.values.size()]);
+		}
+
+		public int getSize() {
+			return this.values.size() - 1;
+		}
+
+		public void setRecordReceivedListener(final IMonitoringRecordReceivedListener recordReceivedListener) {
+			// nothing to announce
+		}
+	}
+}
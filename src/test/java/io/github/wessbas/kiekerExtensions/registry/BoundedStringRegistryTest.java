@@ -0,0 +1,299 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.registry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.github.wessbas.kiekerExtensions.analysis.binary.LogStringRegistry;
+import io.github.wessbas.kiekerExtensions.record.CompactServletEntryRecord;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.misc.RegistryRecord;
+import kieker.common.util.registry.IMonitoringRecordReceivedListener;
+import kieker.common.util.registry.IRegistry;
+
+import org.junit.Test;
+
+/**
+ * Tests the ID assignment and the CLOCK eviction of the {@link BoundedStringRegistry}, in particular that an ID is never
+ * reused for another string.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class BoundedStringRegistryTest {
+
+	private static final int BASE_ID = 1000;
+
+	public BoundedStringRegistryTest() {
+		// default constructor
+	}
+
+	@Test
+	public void testRegistration() {
+		final BoundedStringRegistry registry = new BoundedStringRegistry(4, BASE_ID);
+		final RecordingListener listener = new RecordingListener();
+		registry.setRecordReceivedListener(listener);
+
+		assertEquals(BASE_ID, registry.get("a"));
+		assertEquals(BASE_ID + 1, registry.get("b"));
+		assertEquals(BASE_ID, registry.get("a"));
+		assertEquals("a", registry.get(BASE_ID));
+		assertEquals("b", registry.get(BASE_ID + 1));
+		assertNull(registry.get(BASE_ID + 2));
+		assertNull(registry.get(BASE_ID - 1));
+		assertEquals(2, registry.getSize());
+		assertEquals(0, registry.getEvictionCount());
+
+		// each ID is announced once, before it is handed out
+		assertEquals(2, listener.records.size());
+		assertEquals(BASE_ID, listener.records.get(0).getId());
+		assertEquals("a", listener.records.get(0).getObject());
+		assertEquals(BASE_ID + 1, listener.records.get(1).getId());
+		assertEquals("b", listener.records.get(1).getObject());
+	}
+
+	@Test
+	public void testClockEviction() {
+		final BoundedStringRegistry registry = new BoundedStringRegistry(4, BASE_ID);
+		final RecordingListener listener = new RecordingListener();
+		registry.setRecordReceivedListener(listener);
+		for (final String value : new String[] { "a", "b", "c", "d" }) {
+			registry.get(value);
+		}
+
+		// all slots are referenced, so the clock clears them all and evicts "a"; its ID is not reused
+		assertEquals(BASE_ID + 4, registry.get("e"));
+		assertEquals(1, registry.getEvictionCount());
+		assertNull(registry.get(BASE_ID));
+		assertEquals("e", registry.get(BASE_ID + 4));
+
+		// "b" is referenced again and survives; "c" is the next unreferenced string
+		assertEquals(BASE_ID + 1, registry.get("b"));
+		assertEquals(BASE_ID + 5, registry.get("f"));
+		assertEquals(2, registry.getEvictionCount());
+		assertNull(registry.get(BASE_ID + 2));
+		assertEquals("b", registry.get(BASE_ID + 1));
+		assertEquals(4, registry.getSize());
+
+		// an evicted string is registered again under a new ID
+		assertEquals(BASE_ID + 6, registry.get("a"));
+		assertEquals(3, registry.getEvictionCount());
+
+		assertEquals(7, listener.records.size());
+		final RegistryRecord last = listener.records.get(listener.records.size() - 1);
+		assertEquals(BASE_ID + 6, last.getId());
+		assertEquals("a", last.getObject());
+	}
+
+	@Test
+	public void testRejectedRegistration() {
+		final BoundedStringRegistry registry = new BoundedStringRegistry(2, BASE_ID);
+		final RecordingListener listener = new RecordingListener();
+		registry.setRecordReceivedListener(listener);
+		registry.get("a");
+		registry.get("b");
+
+		listener.accept = false;
+		assertEquals(BoundedStringRegistry.NO_ID, registry.get("c"));
+		assertEquals(0, registry.getEvictionCount());
+		assertEquals(BASE_ID, registry.get("a"));
+		assertEquals(BASE_ID + 1, registry.get("b"));
+
+		// the rejected ID is skipped, in case its registry record was written nevertheless
+		listener.accept = true;
+		assertEquals(BASE_ID + 3, registry.get("c"));
+		assertEquals("c", registry.get(BASE_ID + 3));
+		assertEquals(1, registry.getEvictionCount());
+	}
+
+	@Test
+	public void testIdsUsedUp() {
+		final BoundedStringRegistry registry = new BoundedStringRegistry(4, Integer.MAX_VALUE - 1);
+		assertEquals(Integer.MAX_VALUE - 1, registry.get("a"));
+		assertEquals(Integer.MAX_VALUE, registry.get("b"));
+		assertEquals(BoundedStringRegistry.NO_ID, registry.get("c"));
+		assertEquals(Integer.MAX_VALUE, registry.get("b"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBaseId() {
+		new BoundedStringRegistry(10, 0);
+	}
+
+	/**
+	 * Records keep the IDs obtained at their creation until the writer serializes them, while the registry evicts and
+	 * re-registers their strings; the reader applies all registry records before the records, as a writer may move them
+	 * ahead.
+	 */
+	@Test
+	public void testEvictionBetweenCreationAndSerialization() {
+		final BoundedStringRegistry registry = new BoundedStringRegistry(2, BASE_ID);
+		final RecordingListener listener = new RecordingListener();
+		registry.setRecordReceivedListener(listener);
+		final WriterRegistry writerRegistry = new WriterRegistry();
+
+		final LinkedList<CompactServletEntryRecord> queue = new LinkedList<CompactServletEntryRecord>();
+		final List<CompactServletEntryRecord> records = new ArrayList<CompactServletEntryRecord>();
+		final List<ByteBuffer> serialized = new ArrayList<ByteBuffer>();
+		for (int i = 0; i < 200; i++) {
+			final CompactServletEntryRecord record = new CompactServletEntryRecord(i, "/uri" + (i % 5), 8080, "host", "HTTP/1.1", "GET",
+					"q=" + (i % 7), "UTF-8", registry);
+			queue.add(record);
+			// the writer falls behind by a varying number of records
+			while (queue.size() > (i % 11)) {
+				final CompactServletEntryRecord next = queue.removeFirst();
+				final ByteBuffer buffer = ByteBuffer.allocate(CompactServletEntryRecord.MAX_SIZE);
+				next.writeBytes(buffer, writerRegistry);
+				buffer.flip();
+				records.add(next);
+				serialized.add(buffer);
+			}
+		}
+		assertTrue(registry.getEvictionCount() > 100);
+
+		final LogStringRegistry logRegistry = new LogStringRegistry();
+		for (final Map.Entry<String, Integer> entry : writerRegistry.ids.entrySet()) {
+			logRegistry.put(entry.getValue(), entry.getKey());
+		}
+		final Map<Integer, Object> announced = new HashMap<Integer, Object>();
+		for (final RegistryRecord registryRecord : listener.records) {
+			assertNull("ID " + registryRecord.getId() + " announced twice", announced.put(registryRecord.getId(), registryRecord.getObject()));
+			logRegistry.put(registryRecord.getId(), (String) registryRecord.getObject());
+		}
+		for (int i = 0; i < records.size(); i++) {
+			final CompactServletEntryRecord decoded = new CompactServletEntryRecord(serialized.get(i), logRegistry);
+			assertArrayEquals("record " + i, records.get(i).toArray(), decoded.toArray());
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void testConcurrentEviction() throws Exception {
+		final BoundedStringRegistry registry = new BoundedStringRegistry(16, BASE_ID);
+		final RecordingListener listener = new RecordingListener();
+		registry.setRecordReceivedListener(listener);
+		final Thread[] threads = new Thread[4];
+		final List<List<Object[]>> lookups = new ArrayList<List<Object[]>>();
+		for (int t = 0; t < threads.length; t++) {
+			final int thread = t;
+			final List<Object[]> threadLookups = new ArrayList<Object[]>();
+			lookups.add(threadLookups);
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 20000; i++) {
+						final String value = "value" + (((i * 7) + thread) % 40);
+						threadLookups.add(new Object[] { registry.get(value), value });
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		// every ID handed out denotes the string it was requested for, and each ID is announced once
+		final Map<Integer, Object> announced = new HashMap<Integer, Object>();
+		synchronized (listener) {
+			for (final RegistryRecord record : listener.records) {
+				assertNull(announced.put(record.getId(), record.getObject()));
+			}
+			assertEquals(16 + registry.getEvictionCount(), listener.records.size());
+		}
+		for (final List<Object[]> threadLookups : lookups) {
+			for (final Object[] lookup : threadLookups) {
+				assertEquals(lookup[1], announced.get(lookup[0]));
+			}
+		}
+	}
+
+	/**
+	 * Collects the announced registry records.
+	 */
+	private static final class RecordingListener implements IMonitoringRecordReceivedListener {
+
+		final List<RegistryRecord> records = new ArrayList<RegistryRecord>(); // NOCS
+		volatile boolean accept = true; // NOCS
+
+		RecordingListener() {
+			// default constructor
+		}
+
+		public synchronized boolean newMonitoringRecord(final IMonitoringRecord record) {
+			if (!this.accept) {
+				return false;
+			}
+			this.records.add((RegistryRecord) record);
+			return true;
+		}
+	}
+
+	/**
+	 * The writer's unbounded registry, with IDs below the bounded registry's.
+	 */
+	private static final class WriterRegistry implements IRegistry<String> {
+
+		final Map<String, Integer> ids = new HashMap<String, Integer>(); // NOCS
+
+		WriterRegistry() {
+			// default constructor
+		}
+
+		public long getId() {
+			return 0;
+		}
+
+		public int get(final String value) {
+			Integer id = this.ids.get(value);
+			if (id == null) {
+				id = this.ids.size() + 1;
+				this.ids.put(value, id);
+			}
+			return id;
+		}
+
+		public String get(final int id) {
+			throw new UnsupportedOperationException();
+		}
+
+		public String[] getAll() {
+			throw new UnsupportedOperationException();
+		}
+
+		public int getSize() {
+			return this.ids.size();
+		}
+
+		public void setRecordReceivedListener(final IMonitoringRecordReceivedListener recordReceivedListener) {
+			// nothing to announce
+		}
+	}
+}
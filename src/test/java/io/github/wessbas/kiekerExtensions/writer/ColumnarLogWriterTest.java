@@ -0,0 +1,241 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.writer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.github.wessbas.kiekerExtensions.analysis.binary.ColumnarLogReader;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryAndExecutionRecord;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+import io.github.wessbas.kiekerExtensions.record.SessionCreatedRecord;
+import io.github.wessbas.kiekerExtensions.writer.ColumnarFormat.Column;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the round trip of records through the {@link ColumnarLogWriter} and the {@link ColumnarLogReader}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class ColumnarLogWriterTest {
+
+	private static final int RECORD_COUNT = 1000;
+
+	private File directory;
+
+	public ColumnarLogWriterTest() {
+		// default constructor
+	}
+
+	@Before
+	public void createDirectory() throws IOException {
+		this.directory = File.createTempFile("columnar", "");
+		assertTrue(this.directory.delete() && this.directory.mkdir());
+	}
+
+	@After
+	public void deleteDirectory() {
+		for (final File file : this.directory.listFiles()) {
+			assertTrue(file.delete());
+		}
+		assertTrue(this.directory.delete());
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		this.assertRoundTrip(false, 0);
+	}
+
+	@Test
+	public void testRoundTripDeflated() throws Exception {
+		this.assertRoundTrip(true, 0);
+	}
+
+	@Test
+	public void testRoundTripWithDictionaryResets() throws Exception {
+		this.assertRoundTrip(false, 5);
+		this.deleteDirectory();
+		this.createDirectory();
+		this.assertRoundTrip(true, 5);
+	}
+
+	@Test
+	public void testSkippedColumns() throws Exception {
+		final List<IMonitoringRecord> records = ColumnarLogWriterTest.createRecords();
+		this.write(records, true, 0);
+		int expectedExecutions = 0;
+		int expectedEntries = 0;
+		for (final IMonitoringRecord record : records) {
+			if (record instanceof ServletEntryAndExecutionRecord) {
+				expectedExecutions++;
+				expectedEntries++;
+			} else if (record instanceof OperationExecutionRecord) {
+				expectedExecutions++;
+			} else if (record instanceof ServletEntryRecord) {
+				expectedEntries++;
+			}
+		}
+
+		final ColumnarLogReader reader = new ColumnarLogReader(this.getFile(),
+				EnumSet.of(Column.EXECUTION_DURATION, Column.EXECUTION_OPERATION_SIGNATURE, Column.ENTRY_QUERY_STRING), false);
+		try {
+			int executions = 0;
+			int entries = 0;
+			while (reader.nextBlock()) {
+				assertTrue(reader.getOtherRecords().isEmpty());
+				for (int row = 0; row < reader.getExecutionCount(); row++) {
+					assertEquals(37, reader.getLong(Column.EXECUTION_DURATION, row));
+					assertTrue(reader.getString(Column.EXECUTION_OPERATION_SIGNATURE, row).startsWith("op"));
+					executions++;
+				}
+				for (int row = 0; row < reader.getEntryCount(); row++) {
+					assertTrue(reader.getString(Column.ENTRY_QUERY_STRING, row).startsWith("q="));
+					entries++;
+				}
+			}
+			assertEquals(expectedExecutions, executions);
+			assertEquals(expectedEntries, entries);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnselectedColumn() throws Exception {
+		this.write(ColumnarLogWriterTest.createRecords(), false, 0);
+		final ColumnarLogReader reader = new ColumnarLogReader(this.getFile(), EnumSet.of(Column.EXECUTION_DURATION), false);
+		try {
+			assertTrue(reader.nextBlock());
+			reader.getLong(Column.EXECUTION_TIN, 0);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void assertRoundTrip(final boolean deflate, final int maxStrings) throws Exception {
+		final List<IMonitoringRecord> records = ColumnarLogWriterTest.createRecords();
+		this.write(records, deflate, maxStrings);
+
+		final List<IMonitoringRecord> readRecords = new ArrayList<IMonitoringRecord>();
+		final ColumnarLogReader reader = new ColumnarLogReader(this.getFile());
+		try {
+			while (reader.nextBlock()) {
+				reader.getRecords(readRecords);
+			}
+		} finally {
+			reader.close();
+		}
+
+		final List<IMonitoringRecord> expectedRecords = new ArrayList<IMonitoringRecord>();
+		for (final IMonitoringRecord record : records) {
+			if (record instanceof ServletEntryAndExecutionRecord) { // stored as its pair of classic records
+				final ServletEntryAndExecutionRecord merged = (ServletEntryAndExecutionRecord) record;
+				final ServletEntryRecord entry = new ServletEntryRecord(merged.getTraceId(), merged.getUri(), merged.getPort(), merged.getHost(),
+						merged.getProtocol(), merged.getMethod(), merged.getQueryString(), merged.getEncoding());
+				entry.setLoggingTimestamp(merged.getLoggingTimestamp());
+				expectedRecords.add(entry);
+				final OperationExecutionRecord execution = new OperationExecutionRecord(merged.getUseCase(), merged.getSessionId(),
+						merged.getTraceId(), merged.getTin(), merged.getTout(), merged.getHostname(), 0, 0);
+				execution.setLoggingTimestamp(merged.getLoggingTimestamp());
+				expectedRecords.add(execution);
+			} else {
+				expectedRecords.add(record);
+			}
+		}
+		assertEquals(expectedRecords.size(), readRecords.size());
+		for (int i = 0; i < expectedRecords.size(); i++) {
+			final IMonitoringRecord expected = expectedRecords.get(i);
+			final IMonitoringRecord actual = readRecords.get(i);
+			assertEquals(expected.getClass(), actual.getClass());
+			assertEquals(expected.getLoggingTimestamp(), actual.getLoggingTimestamp());
+			assertArrayEquals("record " + i, expected.toArray(), actual.toArray());
+		}
+	}
+
+	private void write(final List<IMonitoringRecord> records, final boolean deflate, final int maxStrings) throws Exception {
+		final Configuration configuration = new Configuration();
+		configuration.setProperty(ColumnarLogWriter.CONFIG_OUTPUT_DIRECTORY, this.directory.getPath());
+		configuration.setProperty(ColumnarLogWriter.CONFIG_BLOCK_ROWS, "100");
+		configuration.setProperty(ColumnarLogWriter.CONFIG_DEFLATE, Boolean.toString(deflate));
+		configuration.setProperty(ColumnarLogWriter.CONFIG_QUEUE_SIZE, "0");
+		configuration.setProperty(ColumnarLogWriter.CONFIG_BLOCK_ON_FULL_QUEUE, "true");
+		configuration.setProperty(ColumnarLogWriter.CONFIG_MAX_STRINGS, Integer.toString(maxStrings));
+		final ColumnarLogWriter writer = new ColumnarLogWriter(configuration);
+		writer.setController(null);
+		for (final IMonitoringRecord record : records) {
+			assertTrue(writer.newMonitoringRecord(record));
+		}
+		writer.terminate();
+		assertEquals(0, writer.getDroppedRecords());
+	}
+
+	private File getFile() {
+		final File[] files = this.directory.listFiles();
+		assertEquals(1, files.length);
+		assertFalse(files[0].length() == 0);
+		return files[0];
+	}
+
+	/**
+	 * @return Entry, execution and other records with ascending logging timestamps, and some merged records.
+	 */
+	private static List<IMonitoringRecord> createRecords() {
+		final List<IMonitoringRecord> records = new ArrayList<IMonitoringRecord>(RECORD_COUNT);
+		for (int i = 0; i < RECORD_COUNT; i++) {
+			final IMonitoringRecord record;
+			switch (i % 6) {
+			case 0:
+			case 3:
+				record = new ServletEntryRecord(i, "/uri" + (i % 7), 8080, "host", "HTTP/1.1", "GET", "q=" + i, "UTF-8");
+				break;
+			case 1:
+			case 4:
+				record = new OperationExecutionRecord("op" + (i % 5), "session" + (i % 11), i, 1000L * i, (1000L * i) + 37, "host", 0, 0);
+				break;
+			case 2:
+				record = new SessionCreatedRecord(i, "host", i * 31L, 1800);
+				break;
+			default:
+				record = new ServletEntryAndExecutionRecord(i, "session" + (i % 13), "op" + (i % 5), 1000L * i, (1000L * i) + 37, "host",
+						"/uri" + (i % 7), 80, "host", "HTTP/1.0", "POST", "q=" + i, "ISO-8859-1");
+				break;
+			}
+			record.setLoggingTimestamp(10000L + i);
+			records.add(record);
+		}
+		return records;
+	}
+}
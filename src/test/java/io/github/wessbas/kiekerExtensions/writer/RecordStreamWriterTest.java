@@ -0,0 +1,169 @@
+/***************************************************************************
+ * Copyright (c) 2016 the WESSBAS project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ***************************************************************************/
+
+
+
+package io.github.wessbas.kiekerExtensions.writer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.github.wessbas.kiekerExtensions.analysis.binary.RecordStreamReceiver;
+import io.github.wessbas.kiekerExtensions.record.ServletEntryRecord;
+import io.github.wessbas.kiekerExtensions.record.SessionCreatedRecord;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import kieker.common.configuration.Configuration;
+import kieker.common.record.IMonitoringRecord;
+import kieker.common.record.controlflow.OperationExecutionRecord;
+
+import org.junit.Test;
+
+/**
+ * Tests the round trip of record batches through the {@link RecordStreamWriter} and the {@link RecordStreamReceiver}.
+ *
+ * @author WESSBAS project
+ *
+ * @since 1.12
+ */
+public class RecordStreamWriterTest {
+
+	public RecordStreamWriterTest() {
+		// default constructor
+	}
+
+	@Test(timeout = 30000)
+	public void testRoundTrip() throws Exception {
+		final RecordStreamReceiver receiver = new RecordStreamReceiver(new InetSocketAddress("localhost", 0), 2);
+		try {
+			final RecordStreamWriter writer = RecordStreamWriterTest.createWriter(receiver.getPort(), 0);
+			try {
+				RecordStreamWriterTest.assertRoundTrip(writer, receiver, 0, 5000);
+			} finally {
+				writer.terminate();
+			}
+			assertEquals(0, writer.getDroppedRecords());
+		} finally {
+			receiver.close();
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testDictionaryResets() throws Exception {
+		final RecordStreamReceiver receiver = new RecordStreamReceiver(new InetSocketAddress("localhost", 0), 2);
+		try {
+			final RecordStreamWriter writer = RecordStreamWriterTest.createWriter(receiver.getPort(), 3);
+			try {
+				RecordStreamWriterTest.assertRoundTrip(writer, receiver, 0, 5000);
+			} finally {
+				writer.terminate();
+			}
+		} finally {
+			receiver.close();
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testReconnect() throws Exception {
+		final RecordStreamReceiver receiver = new RecordStreamReceiver(new InetSocketAddress("localhost", 0), 2);
+		final int port = receiver.getPort();
+		final RecordStreamWriter writer = RecordStreamWriterTest.createWriter(port, 0);
+		try {
+			try {
+				RecordStreamWriterTest.assertRoundTrip(writer, receiver, 0, 1000);
+			} finally {
+				receiver.close();
+			}
+
+			// the strings of the first connection must be sent again on the new one
+			final RecordStreamReceiver newReceiver = new RecordStreamReceiver(new InetSocketAddress("localhost", port), 2);
+			try {
+				RecordStreamWriterTest.assertRoundTrip(writer, newReceiver, 1000, 1000);
+			} finally {
+				newReceiver.close();
+			}
+		} finally {
+			writer.terminate();
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void testCloseEndsReceiving() throws Exception {
+		final RecordStreamReceiver receiver = new RecordStreamReceiver(new InetSocketAddress("localhost", 0), 2);
+		final Thread closer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(200);
+					receiver.close();
+				} catch (final Exception ex) { // NOPMD (the test fails by its timeout)
+					// ignore
+				}
+			}
+		};
+		closer.start();
+		assertNull(receiver.next());
+		closer.join();
+	}
+
+	private static RecordStreamWriter createWriter(final int port, final int maxStrings) throws Exception {
+		final Configuration configuration = new Configuration();
+		configuration.setProperty(RecordStreamWriter.CONFIG_HOSTNAME, "localhost");
+		configuration.setProperty(RecordStreamWriter.CONFIG_PORT, Integer.toString(port));
+		configuration.setProperty(RecordStreamWriter.CONFIG_QUEUE_SIZE, "100000");
+		configuration.setProperty(RecordStreamWriter.CONFIG_MAX_BATCH_RECORDS, "50");
+		configuration.setProperty(RecordStreamWriter.CONFIG_BLOCK_ON_FULL_QUEUE, "true");
+		configuration.setProperty(RecordStreamWriter.CONFIG_RECONNECT_INTERVAL_MILLIS, "100");
+		configuration.setProperty(RecordStreamWriter.CONFIG_MAX_STRINGS, Integer.toString(maxStrings));
+		final RecordStreamWriter writer = new RecordStreamWriter(configuration);
+		writer.setController(null);
+		return writer;
+	}
+
+	private static void assertRoundTrip(final RecordStreamWriter writer, final RecordStreamReceiver receiver, final int first, final int count)
+			throws Exception {
+		final List<IMonitoringRecord> records = new ArrayList<IMonitoringRecord>(count);
+		for (int i = first; i < (first + count); i++) {
+			final IMonitoringRecord record;
+			switch (i % 3) {
+			case 0:
+				record = new ServletEntryRecord(i, "/uri" + (i % 7), 8080, "host", "HTTP/1.1", "GET", "q=" + (i % 19), "UTF-8");
+				break;
+			case 1:
+				record = new OperationExecutionRecord("op" + (i % 5), "session" + (i % 11), i, 1000L * i, (1000L * i) + 37, "host", 0, 0);
+				break;
+			default:
+				record = new SessionCreatedRecord(i, "host", i * 31L, 1800);
+				break;
+			}
+			record.setLoggingTimestamp(10000L + i);
+			records.add(record);
+			assertTrue(writer.newMonitoringRecord(record));
+		}
+
+		for (final IMonitoringRecord expected : records) {
+			final IMonitoringRecord actual = receiver.next();
+			assertEquals(expected.getClass(), actual.getClass());
+			assertEquals(expected.getLoggingTimestamp(), actual.getLoggingTimestamp());
+			assertArrayEquals(expected.toArray(), actual.toArray());
+		}
+	}
+}